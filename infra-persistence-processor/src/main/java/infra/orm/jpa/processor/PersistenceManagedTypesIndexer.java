@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation {@link javax.annotation.processing.Processor Processor} that
+ * writes an index of the JPA managed types of the compiled sources to
+ * {@value #INDEX_LOCATION}, as read by {@code PersistenceManagedTypesIndex}.
+ *
+ * <p>Indexes the types annotated with {@code @Entity}, {@code @Embeddable},
+ * {@code @MappedSuperclass} or {@code @Converter}, including nested types,
+ * and the packages carrying annotations on their {@code package-info}.
+ *
+ * <p>The processor ships in its own artifact, to be declared on the annotation
+ * processor path of the modules containing managed types. It is declared as
+ * aggregating for Gradle's incremental compilation. On incremental or partial recompilation, the
+ * previous index gets read back and merged: entries of types that have been
+ * recompiled get replaced, while entries of types that no longer exist
+ * get dropped.
+ *
+ * <p>Only depends on the {@code java.compiler} module, so that it can run
+ * on an annotation processor path without the JPA API.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+public class PersistenceManagedTypesIndexer extends AbstractProcessor {
+
+  /**
+   * The location of the index resource, relative to the classpath root.
+   */
+  static final String INDEX_LOCATION = "META-INF/today.persistence-types";
+
+  /**
+   * Stereotype of index entries denoting an annotated package.
+   */
+  static final String PACKAGE_STEREOTYPE = "package-info";
+
+  private static final Set<String> STEREOTYPES = Set.of(
+          "jakarta.persistence.Entity",
+          "jakarta.persistence.Embeddable",
+          "jakarta.persistence.MappedSuperclass",
+          "jakarta.persistence.Converter");
+
+  /**
+   * Index entries, sorted by name for reproducible builds.
+   */
+  private final TreeMap<String, String> entries = new TreeMap<>();
+
+  /**
+   * Names of the types and packages processed in this compilation,
+   * whether they turned out to be managed or not.
+   */
+  private final Set<String> processed = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Set.of("*");
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getRootElements()) {
+      collect(element);
+    }
+    if (roundEnv.processingOver()) {
+      writeIndex();
+    }
+    return false;
+  }
+
+  private void collect(Element element) {
+    if (element instanceof PackageElement packageElement) {
+      String packageName = packageElement.getQualifiedName().toString();
+      processed.add(packageName);
+      if (!packageElement.getAnnotationMirrors().isEmpty()) {
+        entries.put(packageName, PACKAGE_STEREOTYPE);
+      }
+    }
+    else if (element instanceof TypeElement typeElement) {
+      String typeName = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+      processed.add(typeName);
+      for (AnnotationMirror annotation : typeElement.getAnnotationMirrors()) {
+        String annotationType = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+        if (STEREOTYPES.contains(annotationType)) {
+          entries.put(typeName, annotationType);
+          break;
+        }
+      }
+      for (Element enclosed : typeElement.getEnclosedElements()) {
+        if (enclosed instanceof TypeElement) {
+          collect(enclosed);
+        }
+      }
+    }
+  }
+
+  private void writeIndex() {
+    Map<String, String> previous = readPreviousIndex();
+    for (Map.Entry<String, String> entry : previous.entrySet()) {
+      String name = entry.getKey();
+      if (!processed.contains(name) && !entries.containsKey(name) && exists(name, entry.getValue())) {
+        entries.put(name, entry.getValue());
+      }
+    }
+    if (entries.isEmpty() && previous.isEmpty()) {
+      return;
+    }
+    try {
+      FileObject file = processingEnv.getFiler().createResource(
+              StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+      try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.ISO_8859_1)) {
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+          writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+        }
+      }
+    }
+    catch (IOException ex) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+              "Failed to write managed types index: " + ex);
+    }
+  }
+
+  /**
+   * Read the index written by a previous compilation into the same output
+   * directory, if any.
+   */
+  private Map<String, String> readPreviousIndex() {
+    TreeMap<String, String> previous = new TreeMap<>();
+    try {
+      FileObject file = processingEnv.getFiler().getResource(
+              StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+      try (BufferedReader reader = new BufferedReader(
+              new InputStreamReader(file.openInputStream(), StandardCharsets.ISO_8859_1))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          int separator = line.indexOf('=');
+          if (separator > 0) {
+            previous.put(line.substring(0, separator), line.substring(separator + 1));
+          }
+        }
+      }
+    }
+    catch (IOException | IllegalArgumentException ex) {
+      // no previous index
+    }
+    return previous;
+  }
+
+  /**
+   * Determine whether the type or package of a previous index entry,
+   * not part of this compilation, still exists.
+   */
+  private boolean exists(String name, String stereotype) {
+    Elements elements = processingEnv.getElementUtils();
+    if (PACKAGE_STEREOTYPE.equals(stereotype)) {
+      return elements.getPackageElement(name) != null;
+    }
+    return elements.getTypeElement(name.replace('$', '.')) != null;
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+class PersistenceManagedTypesIndexerTests {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writesManagedTypesAndAnnotatedPackages() throws IOException {
+    Path sources = Files.createDirectories(tempDir.resolve("src/com/example"));
+    Files.writeString(sources.resolve("Person.java"), """
+            package com.example;
+            @jakarta.persistence.Entity
+            public class Person {
+              @jakarta.persistence.Embeddable
+              public static class Name {
+              }
+            }
+            """);
+    Files.writeString(sources.resolve("Base.java"), """
+            package com.example;
+            @jakarta.persistence.MappedSuperclass
+            public abstract class Base {
+            }
+            """);
+    Files.writeString(sources.resolve("NameConverter.java"), """
+            package com.example;
+            @jakarta.persistence.Converter
+            public class NameConverter {
+            }
+            """);
+    Files.writeString(sources.resolve("PersonService.java"), """
+            package com.example;
+            public class PersonService {
+            }
+            """);
+    Files.writeString(sources.resolve("package-info.java"), """
+            @Deprecated
+            package com.example;
+            """);
+
+    compile(sources);
+
+    assertThat(tempDir.resolve("classes").resolve(PersistenceManagedTypesIndexer.INDEX_LOCATION))
+            .content().isEqualTo("""
+                    com.example=package-info
+                    com.example.Base=jakarta.persistence.MappedSuperclass
+                    com.example.NameConverter=jakarta.persistence.Converter
+                    com.example.Person=jakarta.persistence.Entity
+                    com.example.Person$Name=jakarta.persistence.Embeddable
+                    """);
+  }
+
+  @Test
+  void writesNoIndexWithoutManagedTypes() throws IOException {
+    Path sources = Files.createDirectories(tempDir.resolve("src/com/example"));
+    Files.writeString(sources.resolve("PersonService.java"), """
+            package com.example;
+            public class PersonService {
+            }
+            """);
+
+    compile(sources);
+
+    assertThat(tempDir.resolve("classes").resolve(PersistenceManagedTypesIndexer.INDEX_LOCATION)).doesNotExist();
+  }
+
+  @Test
+  void mergesPreviousIndexOnPartialRecompilation() throws IOException {
+    Path sources = Files.createDirectories(tempDir.resolve("src/com/example"));
+    Files.writeString(sources.resolve("Person.java"), """
+            package com.example;
+            @jakarta.persistence.Entity
+            public class Person {
+            }
+            """);
+    Files.writeString(sources.resolve("Base.java"), """
+            package com.example;
+            @jakarta.persistence.MappedSuperclass
+            public abstract class Base {
+            }
+            """);
+    Files.writeString(sources.resolve("Order.java"), """
+            package com.example;
+            @jakarta.persistence.Entity
+            public class Order {
+            }
+            """);
+    try (var paths = Files.list(sources)) {
+      compile(paths.toList(), List.of());
+    }
+
+    // Base is no longer managed, Order has been deleted, Address is new
+    Files.writeString(sources.resolve("Base.java"), """
+            package com.example;
+            public abstract class Base {
+            }
+            """);
+    Files.writeString(sources.resolve("Address.java"), """
+            package com.example;
+            @jakarta.persistence.Embeddable
+            public class Address {
+            }
+            """);
+    Path classes = tempDir.resolve("classes");
+    Files.delete(classes.resolve("com/example/Order.class"));
+    compile(List.of(sources.resolve("Base.java"), sources.resolve("Address.java")), List.of(classes));
+
+    assertThat(classes.resolve(PersistenceManagedTypesIndexer.INDEX_LOCATION))
+            .content().isEqualTo("""
+                    com.example.Address=jakarta.persistence.Embeddable
+                    com.example.Person=jakarta.persistence.Entity
+                    """);
+  }
+
+  private void compile(Path sources) throws IOException {
+    try (var paths = Files.list(sources)) {
+      List<String> options = new ArrayList<>(List.of("-proc:only"));
+      compile(paths.toList(), options, List.of());
+    }
+  }
+
+  private void compile(List<Path> sources, List<Path> classpath) throws IOException {
+    compile(sources, new ArrayList<>(), classpath);
+  }
+
+  private void compile(List<Path> sources, List<String> options, List<Path> classpath) throws IOException {
+    Path classes = Files.createDirectories(tempDir.resolve("classes"));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+      Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(sources);
+      StringBuilder path = new StringBuilder(System.getProperty("java.class.path"));
+      for (Path entry : classpath) {
+        path.append(File.pathSeparator).append(entry);
+      }
+      options.addAll(List.of("-d", classes.toString(), "-classpath", path.toString()));
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+      task.setProcessors(List.of(new PersistenceManagedTypesIndexer()));
+      assertThat(task.call()).isTrue();
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.HibernateException;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.dialect.lock.PessimisticEntityLockException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import infra.dao.DataAccessException;
+
+/**
+ * Benchmarks for {@link SessionFactoryUtils#convertHibernateAccessException}
+ * through the {@link HibernateExceptionTranslationTable}: the cost per translation
+ * should not depend on the position of the exception type in the table.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HibernateExceptionTranslationBenchmark {
+
+  private final LockAcquisitionException lockAcquisition =
+          new LockAcquisitionException("lock", new SQLException("lock", "40001"), "update item");
+
+  private final ConstraintViolationException constraintViolation =
+          new ConstraintViolationException("constraint", new SQLException("constraint", "23505"), "insert item", "pk_item");
+
+  private final StaleObjectStateException staleObjectState =
+          new StaleObjectStateException("infra.orm.jmh.Item", 1L);
+
+  private final PessimisticEntityLockException pessimisticEntityLock =
+          new PessimisticEntityLockException(null, "lock", lockAcquisition);
+
+  private final HibernateException untranslated = new HibernateException("failure");
+
+  @Benchmark
+  public DataAccessException lockAcquisition() {
+    return SessionFactoryUtils.convertHibernateAccessException(this.lockAcquisition);
+  }
+
+  @Benchmark
+  public DataAccessException constraintViolation() {
+    return SessionFactoryUtils.convertHibernateAccessException(this.constraintViolation);
+  }
+
+  @Benchmark
+  public DataAccessException staleObjectState() {
+    return SessionFactoryUtils.convertHibernateAccessException(this.staleObjectState);
+  }
+
+  @Benchmark
+  public DataAccessException pessimisticEntityLock() {
+    return SessionFactoryUtils.convertHibernateAccessException(this.pessimisticEntityLock);
+  }
+
+  @Benchmark
+  public DataAccessException fallback() {
+    return SessionFactoryUtils.convertHibernateAccessException(this.untranslated);
+  }
+
+  @Benchmark
+  public Object identifier() {
+    return HibernateExceptionTranslationTable.getIdentifier(this.staleObjectState);
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import infra.jdbc.datasource.embedded.EmbeddedDatabase;
+import infra.orm.jmh.BenchmarkDatabase;
+import infra.orm.jmh.Item;
+import infra.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Benchmarks for {@link HibernateTemplate} callback execution,
+ * with and without a pre-bound Session.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HibernateTemplateBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+
+    public EmbeddedDatabase dataSource;
+
+    public SessionFactory sessionFactory;
+
+    public HibernateTemplate hibernateTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      this.dataSource = BenchmarkDatabase.create();
+      this.sessionFactory = BenchmarkDatabase.sessionFactory(this.dataSource);
+      this.hibernateTemplate = new HibernateTemplate(this.sessionFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      this.sessionFactory.close();
+      this.dataSource.shutdown();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class BoundSessionState {
+
+    public Session session;
+
+    @Setup(Level.Iteration)
+    public void bindSession(BenchmarkState state) {
+      this.session = state.sessionFactory.openSession();
+      TransactionSynchronizationManager.bindResource(state.sessionFactory, new SessionHolder(this.session));
+    }
+
+    @TearDown(Level.Iteration)
+    public void unbindSession(BenchmarkState state) {
+      TransactionSynchronizationManager.unbindResource(state.sessionFactory);
+      this.session.close();
+    }
+  }
+
+  @Benchmark
+  public Item executeWithNewSession(BenchmarkState state) {
+    // opens and closes a Session per callback
+    return state.hibernateTemplate.execute(session -> session.get(Item.class, 1L));
+  }
+
+  @Benchmark
+  public Item executeWithBoundSession(BenchmarkState state, BoundSessionState boundSession) {
+    // reuses the thread-bound Session: first-level cache hit after the first call
+    return state.hibernateTemplate.execute(session -> session.get(Item.class, 1L));
+  }
+
+  @Benchmark
+  public Object executeWithoutSessionAccess(BenchmarkState state, BoundSessionState boundSession) {
+    // measures the pure template overhead around the callback
+    return state.hibernateTemplate.execute(session -> session);
+  }
+
+}
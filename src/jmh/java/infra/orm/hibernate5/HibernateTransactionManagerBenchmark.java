@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import infra.jdbc.datasource.embedded.EmbeddedDatabase;
+import infra.orm.jmh.BenchmarkDatabase;
+import infra.orm.jmh.Item;
+import infra.transaction.TransactionStatus;
+import infra.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Benchmarks for {@link HibernateTransactionManager} begin/commit cycles.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HibernateTransactionManagerBenchmark {
+
+  @Param({ "true", "false" })
+  public boolean readOnly;
+
+  private EmbeddedDatabase dataSource;
+
+  private SessionFactory sessionFactory;
+
+  private HibernateTransactionManager transactionManager;
+
+  private DefaultTransactionDefinition definition;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.dataSource = BenchmarkDatabase.create();
+    this.sessionFactory = BenchmarkDatabase.sessionFactory(this.dataSource);
+    this.transactionManager = new HibernateTransactionManager(this.sessionFactory);
+    this.definition = new DefaultTransactionDefinition();
+    this.definition.setReadOnly(this.readOnly);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.sessionFactory.close();
+    this.dataSource.shutdown();
+  }
+
+  @Benchmark
+  public void emptyTransaction() {
+    TransactionStatus status = this.transactionManager.getTransaction(this.definition);
+    this.transactionManager.commit(status);
+  }
+
+  @Benchmark
+  public Item transactionWithGet() {
+    TransactionStatus status = this.transactionManager.getTransaction(this.definition);
+    try {
+      return this.sessionFactory.getCurrentSession().get(Item.class, 1L);
+    }
+    finally {
+      this.transactionManager.commit(status);
+    }
+  }
+
+}
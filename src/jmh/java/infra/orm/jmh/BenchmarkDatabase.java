@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jmh;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+
+import java.sql.SQLException;
+
+import infra.jdbc.datasource.embedded.EmbeddedDatabase;
+import infra.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import infra.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import infra.orm.hibernate5.LocalSessionFactoryBuilder;
+import infra.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import infra.orm.jpa.vendor.Database;
+import infra.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Embedded H2 database and ORM bootstrap shared by the benchmarks.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+public final class BenchmarkDatabase {
+
+  public static final long ITEM_COUNT = 100;
+
+  private BenchmarkDatabase() {
+  }
+
+  /**
+   * Create a new, uniquely named embedded H2 database.
+   */
+  public static EmbeddedDatabase create() {
+    return new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+  }
+
+  /**
+   * Bootstrap a JPA EntityManagerFactory for the {@link Item} entity
+   * and populate it with {@link #ITEM_COUNT} rows.
+   */
+  public static LocalContainerEntityManagerFactoryBean entityManagerFactory(EmbeddedDatabase dataSource) {
+    LocalContainerEntityManagerFactoryBean emfb = new LocalContainerEntityManagerFactoryBean();
+    emfb.setDataSource(dataSource);
+    emfb.setPackagesToScan(Item.class.getPackage().getName());
+    HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+    vendorAdapter.setGenerateDdl(true);
+    vendorAdapter.setDatabase(Database.H2);
+    emfb.setJpaVendorAdapter(vendorAdapter);
+    emfb.afterPropertiesSet();
+    populate(dataSource);
+    return emfb;
+  }
+
+  /**
+   * Bootstrap a native Hibernate SessionFactory for the {@link Item} entity
+   * and populate it with {@link #ITEM_COUNT} rows.
+   */
+  public static SessionFactory sessionFactory(EmbeddedDatabase dataSource) {
+    SessionFactory sessionFactory = new LocalSessionFactoryBuilder(dataSource)
+            .addAnnotatedClasses(Item.class)
+            .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+            .buildSessionFactory();
+    populate(dataSource);
+    return sessionFactory;
+  }
+
+  private static void populate(EmbeddedDatabase dataSource) {
+    try (var connection = dataSource.getConnection();
+            var statement = connection.prepareStatement("insert into Item (id, name) values (?, ?)")) {
+      for (long i = 0; i < ITEM_COUNT; i++) {
+        statement.setLong(1, i);
+        statement.setString(2, "item-" + i);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+    catch (SQLException ex) {
+      throw new IllegalStateException("Could not populate benchmark database", ex);
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import infra.jdbc.datasource.embedded.EmbeddedDatabase;
+import infra.orm.jmh.BenchmarkDatabase;
+import infra.orm.jmh.Item;
+import infra.transaction.TransactionStatus;
+import infra.transaction.support.DefaultTransactionDefinition;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Benchmarks for invocations on shared and extended EntityManager proxies.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EntityManagerProxyBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+
+    public EmbeddedDatabase dataSource;
+
+    public LocalContainerEntityManagerFactoryBean emfb;
+
+    public EntityManagerFactory emf;
+
+    public EntityManager sharedEntityManager;
+
+    public JpaTransactionManager transactionManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      this.dataSource = BenchmarkDatabase.create();
+      this.emfb = BenchmarkDatabase.entityManagerFactory(this.dataSource);
+      this.emf = this.emfb.getObject();
+      this.sharedEntityManager = SharedEntityManagerCreator.createSharedEntityManager(this.emf);
+      this.transactionManager = new JpaTransactionManager(this.emf);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      this.emfb.destroy();
+      this.dataSource.shutdown();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ExtendedState {
+
+    public EntityManager extendedEntityManager;
+
+    public Item item;
+
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkState state) {
+      this.extendedEntityManager = ExtendedEntityManagerCreator.createContainerManagedEntityManager(state.emf);
+      this.item = this.extendedEntityManager.find(Item.class, 1L);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+      this.extendedEntityManager.unwrap(null).close();
+    }
+  }
+
+  @Benchmark
+  public void sharedMetadataAccess(BenchmarkState state, Blackhole bh) {
+    // handled by the proxy itself, without obtaining an EntityManager
+    bh.consume(state.sharedEntityManager.getCriteriaBuilder());
+    bh.consume(state.sharedEntityManager.getEntityManagerFactory());
+  }
+
+  @Benchmark
+  public Item sharedFindWithoutTransaction(BenchmarkState state) {
+    // temporary EntityManager per invocation
+    return state.sharedEntityManager.find(Item.class, 1L);
+  }
+
+  @Benchmark
+  public void sharedFindWithinTransaction(BenchmarkState state, Blackhole bh) {
+    TransactionStatus status = state.transactionManager.getTransaction(new DefaultTransactionDefinition());
+    try {
+      for (long i = 0; i < 10; i++) {
+        bh.consume(state.sharedEntityManager.find(Item.class, i));
+      }
+    }
+    finally {
+      state.transactionManager.commit(status);
+    }
+  }
+
+  @Benchmark
+  public Item extendedFind(ExtendedState state) {
+    // first-level cache hit on the same extended EntityManager
+    return state.extendedEntityManager.find(Item.class, 1L);
+  }
+
+  @Benchmark
+  public boolean extendedContains(ExtendedState state) {
+    return state.extendedEntityManager.contains(state.item);
+  }
+
+}
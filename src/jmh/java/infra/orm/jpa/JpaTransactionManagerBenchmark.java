@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import infra.jdbc.datasource.embedded.EmbeddedDatabase;
+import infra.orm.jmh.BenchmarkDatabase;
+import infra.orm.jmh.Item;
+import infra.transaction.TransactionStatus;
+import infra.transaction.support.DefaultTransactionDefinition;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Benchmarks for {@link JpaTransactionManager} begin/commit cycles.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JpaTransactionManagerBenchmark {
+
+  @Param({ "true", "false" })
+  public boolean readOnly;
+
+  private EmbeddedDatabase dataSource;
+
+  private LocalContainerEntityManagerFactoryBean emfb;
+
+  private JpaTransactionManager transactionManager;
+
+  private EntityManager sharedEntityManager;
+
+  private DefaultTransactionDefinition definition;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.dataSource = BenchmarkDatabase.create();
+    this.emfb = BenchmarkDatabase.entityManagerFactory(this.dataSource);
+    this.transactionManager = new JpaTransactionManager(this.emfb.getObject());
+    this.sharedEntityManager = SharedEntityManagerCreator.createSharedEntityManager(this.emfb.getObject());
+    this.definition = new DefaultTransactionDefinition();
+    this.definition.setReadOnly(this.readOnly);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.emfb.destroy();
+    this.dataSource.shutdown();
+  }
+
+  @Benchmark
+  public void emptyTransaction() {
+    TransactionStatus status = this.transactionManager.getTransaction(this.definition);
+    this.transactionManager.commit(status);
+  }
+
+  @Benchmark
+  public Item transactionWithFind() {
+    TransactionStatus status = this.transactionManager.getTransaction(this.definition);
+    try {
+      return this.sharedEntityManager.find(Item.class, 1L);
+    }
+    finally {
+      this.transactionManager.commit(status);
+    }
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.persistenceunit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.spi.ClassTransformer;
+
+/**
+ * Startup benchmark for load-time weaving: every class defined while a
+ * persistence unit's transformer is registered passes through
+ * {@link ClassFileTransformerAdapter}. Simulates a few thousand class
+ * definitions (JDK, library and application classes, a small fraction of
+ * them entities), from one and from several class loading threads.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassFileTransformerAdapterBenchmark {
+
+  private static final int JDK_CLASSES = 1500;
+
+  private static final int PROVIDER_CLASSES = 1000;
+
+  private static final int APPLICATION_CLASSES = 1400;
+
+  private static final int ENTITY_CLASSES = 100;
+
+  /**
+   * Simulated cost of the persistence provider inspecting a class file.
+   */
+  private static final long INSPECTION_TOKENS = 2_000;
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+
+    @Param({ "true", "false" })
+    public boolean filtered;
+
+    public String[] classNames;
+
+    public byte[] classfileBuffer = new byte[1024];
+
+    public ClassFileTransformerAdapter adapter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      List<String> classNames = new ArrayList<>();
+      List<String> entityClassNames = new ArrayList<>();
+      for (int i = 0; i < JDK_CLASSES; i++) {
+        classNames.add("java/util/concurrent/Type" + i);
+      }
+      for (int i = 0; i < PROVIDER_CLASSES; i++) {
+        classNames.add("org/hibernate/internal/Type" + i);
+      }
+      for (int i = 0; i < APPLICATION_CLASSES; i++) {
+        classNames.add("com/example/service/Type" + i);
+      }
+      for (int i = 0; i < ENTITY_CLASSES; i++) {
+        classNames.add("com/example/domain/Entity" + i);
+        entityClassNames.add("com.example.domain.Entity" + i);
+      }
+      this.classNames = classNames.toArray(new String[0]);
+
+      ClassTransformer transformer = (loader, className, classBeingRedefined, protectionDomain, buffer) -> {
+        Blackhole.consumeCPU(INSPECTION_TOKENS);
+        return (className.startsWith("com/example/domain/") ? buffer : null);
+      };
+      this.adapter = this.filtered ?
+              new ClassFileTransformerAdapter(transformer, "org.hibernate", entityClassNames, null) :
+              new ClassFileTransformerAdapter(transformer);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void defineClassesSingleThread(BenchmarkState state, Blackhole bh) {
+    defineClasses(state, bh);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void defineClassesFourThreads(BenchmarkState state, Blackhole bh) {
+    defineClasses(state, bh);
+  }
+
+  private static void defineClasses(BenchmarkState state, Blackhole bh) {
+    for (String className : state.classNames) {
+      bh.consume(state.adapter.transform(null, className, null, null, state.classfileBuffer));
+    }
+  }
+
+}
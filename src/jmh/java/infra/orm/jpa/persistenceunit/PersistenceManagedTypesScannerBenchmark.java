@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.persistenceunit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import infra.core.io.DefaultResourceLoader;
+
+/**
+ * Startup benchmark for entity scanning without a components index: scans
+ * one and several packages of the classpath for JPA managed types.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PersistenceManagedTypesScannerBenchmark {
+
+  @Param({ "infra.orm", "infra.orm.jpa,infra.orm.hibernate5,infra.orm.jmh" })
+  public String packages;
+
+  private final PersistenceManagedTypesScanner scanner =
+          new PersistenceManagedTypesScanner(new DefaultResourceLoader());
+
+  @Benchmark
+  public PersistenceManagedTypes scan() {
+    return scanner.scan(packages.split(","));
+  }
+
+}
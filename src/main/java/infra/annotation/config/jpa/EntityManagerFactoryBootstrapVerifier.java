@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.annotation.config.jpa;
+
+import infra.beans.factory.ObjectProvider;
+import infra.context.SmartLifecycle;
+import infra.orm.jpa.EntityManagerFactoryInfo;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * {@link SmartLifecycle} that waits for EntityManagerFactory instances bootstrapped
+ * in the background, so that a bootstrap failure aborts the context refresh
+ * before any other lifecycle bean (such as an embedded web server) gets started.
+ *
+ * <p>All singletons have been instantiated at that point, so other beans got
+ * initialized in parallel with the persistence provider nevertheless.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see JpaProperties.Bootstrap
+ * @since 5.0
+ */
+class EntityManagerFactoryBootstrapVerifier implements SmartLifecycle {
+
+  private final ObjectProvider<EntityManagerFactory> entityManagerFactories;
+
+  private volatile boolean running;
+
+  EntityManagerFactoryBootstrapVerifier(ObjectProvider<EntityManagerFactory> entityManagerFactories) {
+    this.entityManagerFactories = entityManagerFactories;
+  }
+
+  @Override
+  public void start() {
+    for (EntityManagerFactory entityManagerFactory : entityManagerFactories) {
+      if (entityManagerFactory instanceof EntityManagerFactoryInfo info) {
+        // Blocks until bootstrapping completed, rethrowing a bootstrap failure
+        info.getNativeEntityManagerFactory();
+      }
+    }
+    this.running = true;
+  }
+
+  @Override
+  public void stop() {
+    this.running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.running;
+  }
+
+  @Override
+  public int getPhase() {
+    return Integer.MIN_VALUE;
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.annotation.config.jpa;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import infra.context.SmartLifecycle;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+import infra.orm.hibernate5.HibernateBeanContainer;
+import infra.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import infra.util.ClassUtils;
+
+/**
+ * {@link SmartLifecycle} that pre-warms the attribute converters and entity
+ * listeners of the auto-configured {@link PersistenceManagedTypes} in a
+ * {@link HibernateBeanContainer} with deferred creation.
+ *
+ * <p>Runs once all singletons have been instantiated, so that the bean creation
+ * on the executor threads does not wait for a singleton creation in progress.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see HibernateProperties#isPreWarmBeans()
+ * @since 5.0
+ */
+class HibernateBeanPreWarmer implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(HibernateBeanPreWarmer.class);
+
+  private final HibernateBeanContainer beanContainer;
+
+  @Nullable
+  private final PersistenceManagedTypes managedTypes;
+
+  @Nullable
+  private final ClassLoader classLoader;
+
+  private final Executor executor;
+
+  private boolean preWarmed;
+
+  private volatile boolean running;
+
+  HibernateBeanPreWarmer(HibernateBeanContainer beanContainer, @Nullable PersistenceManagedTypes managedTypes,
+          @Nullable ClassLoader classLoader, Executor executor) {
+    this.beanContainer = beanContainer;
+    this.managedTypes = managedTypes;
+    this.classLoader = classLoader;
+    this.executor = executor;
+  }
+
+  @Override
+  public void start() {
+    if (!this.preWarmed && this.managedTypes != null) {
+      List<Class<?>> managedClasses = new ArrayList<>();
+      for (String className : this.managedTypes.getManagedClassNames()) {
+        try {
+          managedClasses.add(ClassUtils.forName(className, this.classLoader));
+        }
+        catch (ClassNotFoundException | LinkageError ex) {
+          log.debug("Skipping pre-warming for managed class {}: {}", className, ex.toString());
+        }
+      }
+      this.beanContainer.preWarm(HibernateBeanContainer.findContainedBeanTypes(managedClasses), this.executor);
+      this.preWarmed = true;
+    }
+    this.running = true;
+  }
+
+  @Override
+  public void stop() {
+    this.running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.running;
+  }
+
+  @Override
+  public int getPhase() {
+    return Integer.MIN_VALUE;
+  }
+
+}
@@ -32,6 +32,7 @@ import javax.sql.DataSource;
 
 import infra.orm.hibernate5.HibernateBeanContainer;
 import infra.orm.hibernate5.support.HibernateJtaPlatform;
+import infra.orm.jpa.persistenceunit.PersistenceManagedTypes;
 import infra.orm.jpa.vendor.AbstractJpaVendorAdapter;
 import infra.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import infra.app.jdbc.metadata.CompositeDataSourcePoolMetadataProvider;
@@ -41,11 +42,15 @@ import infra.beans.factory.annotation.DisableAllDependencyInjection;
 import infra.beans.factory.annotation.DisableDependencyInjection;
 import infra.beans.factory.config.ConfigurableBeanFactory;
 import infra.context.annotation.Configuration;
+import infra.context.condition.ConditionalOnProperty;
 import infra.context.condition.ConditionalOnSingleCandidate;
 import infra.context.properties.EnableConfigurationProperties;
+import infra.core.task.SimpleAsyncTaskExecutor;
 import infra.jndi.JndiLocatorDelegate;
+import infra.lang.Assert;
 import infra.logging.Logger;
 import infra.logging.LoggerFactory;
+import infra.stereotype.Component;
 import infra.transaction.jta.JtaTransactionManager;
 import infra.util.ClassUtils;
 
@@ -85,6 +90,9 @@ class HibernateJpaConfiguration extends JpaBaseConfiguration {
   private final DataSourcePoolMetadataProvider poolMetadataProvider;
   private final List<HibernatePropertiesCustomizer> hibernatePropertiesCustomizers;
 
+  @Nullable
+  private final HibernateBeanContainer beanContainer;
+
   HibernateJpaConfiguration(DataSource dataSource, JpaProperties jpaProperties,
           ConfigurableBeanFactory beanFactory, HibernateProperties hibernateProperties,
           @Nullable JtaTransactionManager jtaTransactionManager,
@@ -95,20 +103,32 @@ class HibernateJpaConfiguration extends JpaBaseConfiguration {
     super(dataSource, jpaProperties, jtaTransactionManager);
     this.hibernateProperties = hibernateProperties;
     this.poolMetadataProvider = new CompositeDataSourcePoolMetadataProvider(metadataProviders);
+    this.beanContainer = createBeanContainer(beanFactory, hibernateProperties);
     this.hibernatePropertiesCustomizers = determineHibernatePropertiesCustomizers(
-            beanFactory, physicalNamingStrategy, implicitNamingStrategy, hibernatePropertiesCustomizers);
+            physicalNamingStrategy, implicitNamingStrategy, hibernatePropertiesCustomizers);
+  }
+
+  @Nullable
+  private HibernateBeanContainer createBeanContainer(
+          ConfigurableBeanFactory beanFactory, HibernateProperties hibernateProperties) {
+    if (ClassUtils.isPresent("org.hibernate.resource.beans.container.spi.BeanContainer",
+            getClass().getClassLoader())) {
+      HibernateBeanContainer beanContainer = new HibernateBeanContainer(beanFactory);
+      // Leave bean creation to the HibernateBeanPreWarmer
+      beanContainer.setDeferredCreation(hibernateProperties.isPreWarmBeans());
+      return beanContainer;
+    }
+    return null;
   }
 
   private List<HibernatePropertiesCustomizer> determineHibernatePropertiesCustomizers(
-          ConfigurableBeanFactory beanFactory,
           @Nullable PhysicalNamingStrategy physicalNamingStrategy,
           @Nullable ImplicitNamingStrategy implicitNamingStrategy,
           ObjectProvider<HibernatePropertiesCustomizer> hibernatePropertiesCustomizers) {
     var customizers = new ArrayList<HibernatePropertiesCustomizer>();
-    if (ClassUtils.isPresent("org.hibernate.resource.beans.container.spi.BeanContainer",
-            getClass().getClassLoader())) {
-      customizers.add(properties ->
-              properties.put(AvailableSettings.BEAN_CONTAINER, new HibernateBeanContainer(beanFactory)));
+    HibernateBeanContainer beanContainer = this.beanContainer;
+    if (beanContainer != null) {
+      customizers.add(properties -> properties.put(AvailableSettings.BEAN_CONTAINER, beanContainer));
     }
     if (physicalNamingStrategy != null || implicitNamingStrategy != null) {
       customizers.add(new NamingStrategiesHibernatePropertiesCustomizer(
@@ -119,6 +139,15 @@ class HibernateJpaConfiguration extends JpaBaseConfiguration {
     return customizers;
   }
 
+  @Component
+  @ConditionalOnProperty(prefix = "jpa.hibernate", name = "pre-warm-beans", havingValue = "true")
+  HibernateBeanPreWarmer hibernateBeanPreWarmer(ConfigurableBeanFactory beanFactory,
+          ObjectProvider<PersistenceManagedTypes> persistenceManagedTypes) {
+    Assert.state(beanContainer != null, "No HibernateBeanContainer available");
+    return new HibernateBeanPreWarmer(beanContainer, persistenceManagedTypes.getIfAvailable(),
+            beanFactory.getBeanClassLoader(), new SimpleAsyncTaskExecutor("hibernate-pre-warm-"));
+  }
+
   @Override
   protected AbstractJpaVendorAdapter createJpaVendorAdapter() {
     return new HibernateJpaVendorAdapter();
@@ -21,9 +21,13 @@ import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
 import org.hibernate.cfg.AvailableSettings;
 import org.jspecify.annotations.Nullable;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import infra.orm.hibernate5.CaffeineRegionFactory;
 import infra.orm.hibernate5.support.HibernateImplicitNamingStrategy;
 import infra.context.properties.ConfigurationProperties;
 import infra.lang.Assert;
@@ -50,6 +54,8 @@ public class HibernateProperties {
 
   private final Naming naming = new Naming();
 
+  private final Cache cache = new Cache();
+
   /**
    * DDL mode. This is actually a shortcut for the "hibernate.hbm2ddl.auto" property.
    * Defaults to "create-drop" when using an embedded database and no schema manager was
@@ -57,6 +63,13 @@ public class HibernateProperties {
    */
   private String ddlAuto;
 
+  /**
+   * Whether to create attribute converters and entity listeners in parallel once
+   * all singletons have been instantiated, rather than while the EntityManagerFactory
+   * gets built.
+   */
+  private boolean preWarmBeans;
+
   public String getDdlAuto() {
     return this.ddlAuto;
   }
@@ -65,10 +78,22 @@ public class HibernateProperties {
     this.ddlAuto = ddlAuto;
   }
 
+  public boolean isPreWarmBeans() {
+    return this.preWarmBeans;
+  }
+
+  public void setPreWarmBeans(boolean preWarmBeans) {
+    this.preWarmBeans = preWarmBeans;
+  }
+
   public Naming getNaming() {
     return this.naming;
   }
 
+  public Cache getCache() {
+    return this.cache;
+  }
+
   /**
    * Determine the configuration properties for the initialization of the main Hibernate
    * EntityManagerFactory based on standard JPA properties and {@link HibernateSettings}.
@@ -88,6 +113,7 @@ public class HibernateProperties {
     var result = new HashMap<String, Object>(existing);
     applyScanner(result);
     getNaming().applyNamingStrategies(result);
+    getCache().applyCacheSettings(result);
     String ddlAuto = determineDdlAuto(existing, settings);
     if (StringUtils.hasText(ddlAuto) && !"none".equals(ddlAuto)) {
       result.put(AvailableSettings.HBM2DDL_AUTO, ddlAuto);
@@ -124,6 +150,177 @@ public class HibernateProperties {
     return settings.getDdlAuto();
   }
 
+  /**
+   * Settings for the built-in {@link CaffeineRegionFactory second-level cache}.
+   *
+   * @since 5.0
+   */
+  public static class Cache {
+
+    /**
+     * Whether to enable the second-level cache with the built-in in-process
+     * region factory. Ignored if a region factory has been specified through
+     * "jpa.properties.hibernate.cache.region.factory_class".
+     */
+    private boolean enabled;
+
+    /**
+     * Maximum number of entries per cache region.
+     */
+    private long maximumSize = CaffeineRegionFactory.DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * Maximum weight per cache region, taking precedence over the maximum size.
+     */
+    @Nullable
+    private Long maximumWeight;
+
+    /**
+     * Time to live of cache region entries.
+     */
+    @Nullable
+    private Duration timeToLive;
+
+    /**
+     * Directory for persisting entity, collection and natural-id regions
+     * across restarts. Only suitable if the database does not get modified
+     * by anything but this application.
+     */
+    @Nullable
+    private Path persistentDirectory;
+
+    /**
+     * Region-specific settings, keyed by region name.
+     */
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+      return this.maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    @Nullable
+    public Long getMaximumWeight() {
+      return this.maximumWeight;
+    }
+
+    public void setMaximumWeight(@Nullable Long maximumWeight) {
+      this.maximumWeight = maximumWeight;
+    }
+
+    @Nullable
+    public Duration getTimeToLive() {
+      return this.timeToLive;
+    }
+
+    public void setTimeToLive(@Nullable Duration timeToLive) {
+      this.timeToLive = timeToLive;
+    }
+
+    @Nullable
+    public Path getPersistentDirectory() {
+      return this.persistentDirectory;
+    }
+
+    public void setPersistentDirectory(@Nullable Path persistentDirectory) {
+      this.persistentDirectory = persistentDirectory;
+    }
+
+    public Map<String, Region> getRegions() {
+      return this.regions;
+    }
+
+    private void applyCacheSettings(Map<String, Object> properties) {
+      if (!this.enabled || properties.containsKey(AvailableSettings.CACHE_REGION_FACTORY)) {
+        return;
+      }
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, CaffeineRegionFactory.class.getName());
+      properties.putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+      applyRegionSettings(properties, CaffeineRegionFactory.PREFIX,
+              this.maximumSize, this.maximumWeight, this.timeToLive);
+      if (this.persistentDirectory != null) {
+        properties.putIfAbsent(CaffeineRegionFactory.PERSISTENT_DIRECTORY, this.persistentDirectory.toString());
+      }
+      this.regions.forEach((name, region) -> applyRegionSettings(properties,
+              CaffeineRegionFactory.REGION_PREFIX + name + '.',
+              region.getMaximumSize(), region.getMaximumWeight(), region.getTimeToLive()));
+    }
+
+    private static void applyRegionSettings(Map<String, Object> properties, String prefix,
+            @Nullable Long maximumSize, @Nullable Long maximumWeight, @Nullable Duration timeToLive) {
+      if (maximumSize != null) {
+        properties.putIfAbsent(prefix + "maximum_size", maximumSize.toString());
+      }
+      if (maximumWeight != null) {
+        properties.putIfAbsent(prefix + "maximum_weight", maximumWeight.toString());
+      }
+      if (timeToLive != null) {
+        properties.putIfAbsent(prefix + "time_to_live", timeToLive.toString());
+      }
+    }
+
+    public static class Region {
+
+      /**
+       * Maximum number of entries of the region.
+       */
+      @Nullable
+      private Long maximumSize;
+
+      /**
+       * Maximum weight of the region, taking precedence over the maximum size.
+       */
+      @Nullable
+      private Long maximumWeight;
+
+      /**
+       * Time to live of the region entries.
+       */
+      @Nullable
+      private Duration timeToLive;
+
+      @Nullable
+      public Long getMaximumSize() {
+        return this.maximumSize;
+      }
+
+      public void setMaximumSize(@Nullable Long maximumSize) {
+        this.maximumSize = maximumSize;
+      }
+
+      @Nullable
+      public Long getMaximumWeight() {
+        return this.maximumWeight;
+      }
+
+      public void setMaximumWeight(@Nullable Long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+      }
+
+      @Nullable
+      public Duration getTimeToLive() {
+        return this.timeToLive;
+      }
+
+      public void setTimeToLive(@Nullable Duration timeToLive) {
+        this.timeToLive = timeToLive;
+      }
+
+    }
+
+  }
+
   public static class Naming {
 
     /**
@@ -33,22 +33,33 @@ import infra.orm.jpa.persistenceunit.PersistenceManagedTypesScanner;
 import infra.orm.jpa.persistenceunit.PersistenceUnitManager;
 import infra.orm.jpa.support.EntityManagerFactoryBuilder;
 import infra.orm.jpa.support.EntityManagerFactoryBuilderCustomizer;
+import infra.orm.jpa.support.OpenEntityManagerInViewInterceptor;
 import infra.orm.jpa.vendor.AbstractJpaVendorAdapter;
 import infra.annotation.config.transaction.TransactionManagerCustomizers;
 import infra.beans.factory.BeanFactory;
+import infra.beans.factory.ObjectProvider;
 import infra.context.annotation.Configuration;
 import infra.context.annotation.Primary;
 import infra.context.annotation.config.AutoConfigurationPackages;
 import infra.context.annotation.config.EnableAutoConfiguration;
+import infra.context.condition.ConditionalOnClass;
 import infra.context.condition.ConditionalOnMissingBean;
+import infra.context.condition.ConditionalOnProperty;
+import infra.context.condition.ConditionalOnWebApplication;
 import infra.context.properties.EnableConfigurationProperties;
 import infra.core.io.ResourceLoader;
+import infra.core.task.AsyncTaskExecutor;
+import infra.core.task.SimpleAsyncTaskExecutor;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
 import infra.stereotype.Component;
 import infra.transaction.PlatformTransactionManager;
 import infra.transaction.TransactionManager;
 import infra.transaction.jta.JtaTransactionManager;
 import infra.util.ObjectUtils;
 import infra.util.StringUtils;
+import infra.web.config.annotation.InterceptorRegistry;
+import infra.web.config.annotation.WebMvcConfigurer;
 import jakarta.persistence.EntityManagerFactory;
 
 /**
@@ -134,12 +145,23 @@ public abstract class JpaBaseConfiguration {
           EntityManagerFactoryBuilder factoryBuilder, PersistenceManagedTypes persistenceManagedTypes) {
     Map<String, Object> vendorProperties = getVendorProperties();
     customizeVendorProperties(vendorProperties);
-    return factoryBuilder.dataSource(this.dataSource)
+    LocalContainerEntityManagerFactoryBean factoryBean = factoryBuilder.dataSource(this.dataSource)
             .managedTypes(persistenceManagedTypes)
             .properties(vendorProperties)
             .mappingResources(getMappingResources())
             .jta(isJta())
             .build();
+    if (factoryBean.getBootstrapExecutor() == null) {
+      // An executor set through an EntityManagerFactoryBuilderCustomizer takes precedence
+      factoryBean.setBootstrapExecutor(createBootstrapExecutor(properties.getBootstrap()));
+    }
+    return factoryBean;
+  }
+
+  @Component
+  static EntityManagerFactoryBootstrapVerifier entityManagerFactoryBootstrapVerifier(
+          ObjectProvider<EntityManagerFactory> entityManagerFactories) {
+    return new EntityManagerFactoryBootstrapVerifier(entityManagerFactories);
   }
 
   protected abstract AbstractJpaVendorAdapter createJpaVendorAdapter();
@@ -156,6 +178,26 @@ public abstract class JpaBaseConfiguration {
 
   }
 
+  /**
+   * Create the executor for bootstrapping the EntityManagerFactory in the
+   * background, according to the configured bootstrap mode.
+   *
+   * @param bootstrap the bootstrap settings
+   * @return the executor, or {@code null} to bootstrap on the calling thread
+   */
+  @Nullable
+  protected AsyncTaskExecutor createBootstrapExecutor(JpaProperties.Bootstrap bootstrap) {
+    return switch (bootstrap.getMode()) {
+      case DEFAULT -> null;
+      case BACKGROUND -> new SimpleAsyncTaskExecutor(bootstrap.getThreadNamePrefix());
+      case VIRTUAL_THREADS -> {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(bootstrap.getThreadNamePrefix());
+        executor.setVirtualThreads(true);
+        yield executor;
+      }
+    };
+  }
+
   private String[] getMappingResources() {
     List<String> mappingResources = this.properties.getMappingResources();
     return (ObjectUtils.isNotEmpty(mappingResources) ? StringUtils.toStringArray(mappingResources) : null);
@@ -188,6 +230,44 @@ public abstract class JpaBaseConfiguration {
     return this.dataSource;
   }
 
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnWebApplication
+  @ConditionalOnClass(WebMvcConfigurer.class)
+  @ConditionalOnMissingBean(OpenEntityManagerInViewInterceptor.class)
+  @ConditionalOnProperty(prefix = "jpa", name = "open-in-view", havingValue = "true", matchIfMissing = true)
+  protected static class JpaWebConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaWebConfiguration.class);
+
+    private final JpaProperties jpaProperties;
+
+    protected JpaWebConfiguration(JpaProperties jpaProperties) {
+      this.jpaProperties = jpaProperties;
+    }
+
+    @Component
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+      if (jpaProperties.getOpenInView() == null) {
+        log.warn("jpa.open-in-view is enabled by default. Therefore, database queries may be performed "
+                + "during view rendering. Explicitly configure jpa.open-in-view to disable this warning");
+      }
+      return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Component
+    public WebMvcConfigurer openEntityManagerInViewInterceptorConfigurer(OpenEntityManagerInViewInterceptor interceptor) {
+      return new WebMvcConfigurer() {
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+          registry.addInterceptor(interceptor);
+        }
+
+      };
+    }
+
+  }
+
   @Configuration(proxyBeanMethods = false)
   @ConditionalOnMissingBean({ LocalContainerEntityManagerFactoryBean.class, EntityManagerFactory.class })
   static class PersistenceManagedTypesConfiguration {
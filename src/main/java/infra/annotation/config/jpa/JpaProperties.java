@@ -72,11 +72,16 @@ public class JpaProperties {
   private boolean showSql = false;
 
   /**
-   * Register OpenEntityManagerInViewInterceptor. Binds a JPA EntityManager to the
+   * Register OpenEntityManagerInViewInterceptor. Binds a lazily created JPA EntityManager to the
    * thread for the entire processing of the request.
    */
   private Boolean openInView;
 
+  /**
+   * EntityManagerFactory bootstrap settings.
+   */
+  private final Bootstrap bootstrap = new Bootstrap();
+
   public Map<String, String> getProperties() {
     return this.properties;
   }
@@ -129,4 +134,63 @@ public class JpaProperties {
     this.openInView = openInView;
   }
 
+  public Bootstrap getBootstrap() {
+    return this.bootstrap;
+  }
+
+  public static class Bootstrap {
+
+    /**
+     * How to bootstrap the EntityManagerFactory. In background modes, other beans
+     * keep initializing while the persistence provider builds its metadata; the
+     * first use of the EntityManagerFactory blocks until bootstrapping completed.
+     */
+    private Mode mode = Mode.DEFAULT;
+
+    /**
+     * Prefix of the names of the threads bootstrapping the EntityManagerFactory
+     * in the background.
+     */
+    private String threadNamePrefix = "jpa-bootstrap-";
+
+    public Mode getMode() {
+      return this.mode;
+    }
+
+    public void setMode(Mode mode) {
+      this.mode = mode;
+    }
+
+    public String getThreadNamePrefix() {
+      return this.threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+      this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * EntityManagerFactory bootstrap modes.
+     */
+    public enum Mode {
+
+      /**
+       * Bootstrap on the thread creating the EntityManagerFactory bean.
+       */
+      DEFAULT,
+
+      /**
+       * Bootstrap on a dedicated platform thread.
+       */
+      BACKGROUND,
+
+      /**
+       * Bootstrap on a virtual thread. Requires Java 21 or later.
+       */
+      VIRTUAL_THREADS
+
+    }
+
+  }
+
 }
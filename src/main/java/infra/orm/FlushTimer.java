@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+/**
+ * Handle for timing the flushes of a transactional EntityManager/Session
+ * through provider-specific flush events, including the flush implicitly
+ * performed on commit. Each flush gets reported as
+ * {@link TransactionPhase#FLUSH} to the {@link TransactionPhaseListener}
+ * that the timing has been started with.
+ *
+ * <p>Obtained by {@code JpaTransactionManager} through
+ * {@code JpaDialect#startFlushTiming}, and by {@code HibernateTransactionManager}
+ * directly, only if a {@link TransactionPhaseListener} has been registered.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see infra.orm.jpa.JpaDialect#startFlushTiming
+ * @since 5.0
+ */
+public interface FlushTimer {
+
+  /**
+   * Return the total time spent flushing since the timing has been started,
+   * in nanoseconds. Used for excluding the flush on commit from
+   * {@link TransactionPhase#COMMIT}.
+   */
+  long getFlushNanos();
+
+  /**
+   * Stop timing flushes, on cleanup of the transaction.
+   */
+  void stop();
+
+}
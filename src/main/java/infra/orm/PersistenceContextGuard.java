@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import infra.dao.DataAccessResourceFailureException;
+import infra.lang.Assert;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Policy for the number of entities managed by the persistence context of
+ * a transactional EntityManager/Session, guarding long-running transactions
+ * such as batch jobs against an unbounded first-level cache.
+ *
+ * <p>To be configured on {@code JpaTransactionManager} or
+ * {@code HibernateTransactionManager}, which apply it to each of their
+ * transactions. The managed-entity count gets checked at points where the
+ * persistence context is in a consistent state: after each operation on a
+ * shared EntityManager proxy, after {@code TransactionStatus.flush()} and
+ * after each {@code HibernateTemplate} callback.
+ *
+ * <p>Once the count exceeds the threshold, the configured {@link Action}
+ * applies. Note that {@link Action#FLUSH_AND_CLEAR} detaches all managed
+ * entities: application code must not keep working with entity instances
+ * obtained before that point.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see infra.orm.jpa.JpaTransactionManager#setPersistenceContextGuard
+ * @see infra.orm.hibernate5.HibernateTransactionManager#setPersistenceContextGuard
+ * @since 5.0
+ */
+public class PersistenceContextGuard {
+
+  private static final Logger logger = LoggerFactory.getLogger(PersistenceContextGuard.class);
+
+  /**
+   * Action to take once the threshold has been exceeded.
+   */
+  public enum Action {
+
+    /**
+     * Log a warning, once per transaction.
+     */
+    WARN,
+
+    /**
+     * Throw a {@link DataAccessResourceFailureException}, causing the
+     * transaction to roll back when propagated.
+     */
+    FAIL,
+
+    /**
+     * Flush pending changes and clear the persistence context. Within a
+     * read-only transaction, the entities just get detached without flushing.
+     */
+    FLUSH_AND_CLEAR
+  }
+
+  private final int threshold;
+
+  private final Action action;
+
+  /**
+   * Create a new PersistenceContextGuard.
+   *
+   * @param threshold the maximum number of managed entities
+   * @param action the action to take once the threshold has been exceeded
+   */
+  public PersistenceContextGuard(int threshold, Action action) {
+    Assert.isTrue(threshold > 0, "Threshold must be positive");
+    Assert.notNull(action, "Action is required");
+    this.threshold = threshold;
+    this.action = action;
+  }
+
+  /**
+   * Return the maximum number of managed entities.
+   */
+  public int getThreshold() {
+    return this.threshold;
+  }
+
+  /**
+   * Return the action to take once the threshold has been exceeded.
+   */
+  public Action getAction() {
+    return this.action;
+  }
+
+  /**
+   * Apply this policy to the given persistence context.
+   *
+   * @param entityManager the transactional EntityManager or Session
+   * @param managedEntityCount the current number of managed entities
+   * @param readOnly whether the current transaction is read-only
+   * @param warned whether a warning has been logged for the current transaction already
+   * @return {@code true} if the persistence context has been cleared
+   * @throws DataAccessResourceFailureException for {@link Action#FAIL}
+   */
+  public boolean apply(EntityManager entityManager, int managedEntityCount, boolean readOnly, boolean warned) {
+    if (managedEntityCount <= this.threshold) {
+      return false;
+    }
+    switch (this.action) {
+      case WARN -> {
+        if (!warned) {
+          logger.warn("Persistence context holds {} managed entities, exceeding the threshold of {} - " +
+                  "consider flushing and clearing it periodically", managedEntityCount, this.threshold);
+        }
+        return false;
+      }
+      case FAIL -> throw new DataAccessResourceFailureException("Persistence context holds " +
+              managedEntityCount + " managed entities, exceeding the threshold of " + this.threshold);
+      default -> {
+        if (logger.isDebugEnabled()) {
+          logger.debug("Clearing persistence context with {} managed entities", managedEntityCount);
+        }
+        if (!readOnly) {
+          entityManager.flush();
+        }
+        entityManager.clear();
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PersistenceContextGuard: threshold=" + this.threshold + ", action=" + this.action;
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.jspecify.annotations.Nullable;
+
+import infra.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Thread-bound routing information for {@link ReadWriteRoutingDataSource},
+ * maintained by {@code JpaTransactionManager} and {@code HibernateTransactionManager}.
+ *
+ * <p>The read-only flag of a transaction gets bound right at the start of
+ * {@code doBegin}, that is, before the EntityManager/Session acquires its
+ * JDBC Connection, and gets restored to the flag of the outer transaction
+ * (if any) on transaction cleanup. Successful commits of read-write
+ * transactions get recorded per thread, for "read your writes" pinning,
+ * until the outermost transaction has been cleaned up.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see ReadWriteRoutingDataSource
+ * @since 5.0
+ */
+public final class ReadWriteRoutingContext {
+
+  private static final ThreadLocal<Boolean> currentReadOnly = new ThreadLocal<>();
+
+  private static final ThreadLocal<Long> lastWriteTime = new ThreadLocal<>();
+
+  private ReadWriteRoutingContext() {
+  }
+
+  /**
+   * Bind the read-only flag of a transaction which is about to begin.
+   *
+   * @param readOnly whether the transaction is read-only
+   * @return the previously bound flag, to be passed to {@link #restore}
+   * on transaction cleanup
+   */
+  @Nullable
+  public static Boolean bind(boolean readOnly) {
+    Boolean previous = currentReadOnly.get();
+    currentReadOnly.set(readOnly);
+    return previous;
+  }
+
+  /**
+   * Restore the given previously bound read-only flag. If there was no outer
+   * transaction, the recorded write of the current thread gets cleared as well,
+   * so it does not outlive the outermost transaction on a pooled thread.
+   *
+   * @param previous the flag returned by {@link #bind}, or {@code null}
+   * if there was no outer transaction
+   */
+  public static void restore(@Nullable Boolean previous) {
+    if (previous != null) {
+      currentReadOnly.set(previous);
+    }
+    else {
+      currentReadOnly.remove();
+      lastWriteTime.remove();
+    }
+  }
+
+  /**
+   * Return whether the current transaction is read-only: as bound by a
+   * transaction manager, or as exposed through transaction synchronization.
+   */
+  public static boolean isCurrentReadOnly() {
+    Boolean readOnly = currentReadOnly.get();
+    if (readOnly != null) {
+      return readOnly;
+    }
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  /**
+   * Record a successful commit of a read-write transaction on the current thread.
+   */
+  public static void recordWrite() {
+    lastWriteTime.set(System.nanoTime());
+  }
+
+  /**
+   * Return whether the current thread has committed a read-write transaction
+   * within the given period.
+   *
+   * @param periodNanos the period in nanoseconds
+   */
+  public static boolean hasWrittenWithin(long periodNanos) {
+    Long time = lastWriteTime.get();
+    if (time == null) {
+      return false;
+    }
+    if (System.nanoTime() - time < periodNanos) {
+      return true;
+    }
+    lastWriteTime.remove();
+    return false;
+  }
+
+  /**
+   * Clear the recorded write of the current thread, if any.
+   */
+  public static void clearWrite() {
+    lastWriteTime.remove();
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import infra.jdbc.datasource.DelegatingDataSource;
+import infra.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import infra.lang.Assert;
+
+/**
+ * Routing DataSource which obtains the JDBC Connections of read-only
+ * transactions from replica DataSources, and all others from the primary
+ * DataSource.
+ *
+ * <p>The read-only flag gets determined through {@link ReadWriteRoutingContext}:
+ * {@code JpaTransactionManager} and {@code HibernateTransactionManager} bind it
+ * before the EntityManager/Session acquires its Connection, so the routing
+ * decision is made on actual Connection acquisition within {@code doBegin}.
+ * Outside of those transaction managers, the flag exposed through transaction
+ * synchronization applies, e.g. when used behind a
+ * {@link infra.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ *
+ * <p>Read-only Connections get distributed round-robin across the replicas.
+ * With a {@link #setReadYourWritesWindow "read your writes" window}, a thread
+ * which has just committed a read-write transaction keeps being routed to the
+ * primary for the given period, hiding the replication lag from it. Such a
+ * recorded write only lasts until the outermost transaction on the thread has
+ * completed, so pooled threads do not carry it over to unrelated work.
+ *
+ * <p>The transaction managers detect this DataSource as their configured one
+ * (see {@code setReadWriteRouting}); without it, they leave the routing state
+ * untouched.
+ *
+ * <p>Note that a pre-bound EntityManager/Session, e.g. in an "open in view"
+ * scenario, keeps the Connection it has initially acquired.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see ReadWriteRoutingContext
+ * @see infra.transaction.TransactionDefinition#isReadOnly()
+ * @since 5.0
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+  private static final String PRIMARY_KEY = "primary";
+
+  private final int replicaCount;
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  private long readYourWritesWindowNanos = 0;
+
+  /**
+   * Create a new ReadWriteRoutingDataSource.
+   *
+   * @param primary the DataSource for read-write transactions
+   * @param replicas the DataSources for read-only transactions
+   * (may be empty, routing everything to the primary)
+   */
+  public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    Assert.notNull(primary, "Primary DataSource is required");
+    Assert.notNull(replicas, "Replica DataSources are required");
+    Map<Object, Object> targetDataSources = new LinkedHashMap<>();
+    targetDataSources.put(PRIMARY_KEY, primary);
+    for (int i = 0; i < replicas.size(); i++) {
+      targetDataSources.put(i, replicas.get(i));
+    }
+    this.replicaCount = replicas.size();
+    setTargetDataSources(targetDataSources);
+    setDefaultTargetDataSource(primary);
+    setLenientFallback(false);
+    afterPropertiesSet();
+  }
+
+  /**
+   * Set the period for which a thread keeps being routed to the primary
+   * after it has committed a read-write transaction.
+   * <p>Default is none, routing every read-only transaction to a replica.
+   */
+  public void setReadYourWritesWindow(@Nullable Duration readYourWritesWindow) {
+    this.readYourWritesWindowNanos = (readYourWritesWindow != null ? readYourWritesWindow.toNanos() : 0);
+  }
+
+  /**
+   * Return the number of replica DataSources.
+   */
+  public int getReplicaCount() {
+    return this.replicaCount;
+  }
+
+  /**
+   * Determine whether the given DataSource is a ReadWriteRoutingDataSource,
+   * either directly or behind {@link DelegatingDataSource} proxies.
+   *
+   * @param dataSource the DataSource to check (may be {@code null})
+   */
+  public static boolean isReadWriteRouting(@Nullable DataSource dataSource) {
+    while (dataSource instanceof DelegatingDataSource delegating) {
+      dataSource = delegating.getTargetDataSource();
+    }
+    return dataSource instanceof ReadWriteRoutingDataSource;
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (this.replicaCount == 0 || !ReadWriteRoutingContext.isCurrentReadOnly()) {
+      return PRIMARY_KEY;
+    }
+    if (this.readYourWritesWindowNanos > 0
+            && ReadWriteRoutingContext.hasWrittenWithin(this.readYourWritesWindowNanos)) {
+      return PRIMARY_KEY;
+    }
+    return Math.floorMod(this.counter.getAndIncrement(), this.replicaCount);
+  }
+
+}
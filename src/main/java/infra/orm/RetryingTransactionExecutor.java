@@ -0,0 +1,350 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.jspecify.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import infra.dao.ConcurrencyFailureException;
+import infra.lang.Assert;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+import infra.transaction.PlatformTransactionManager;
+import infra.transaction.TransactionDefinition;
+import infra.transaction.TransactionException;
+import infra.transaction.support.ResourceHolderSupport;
+import infra.transaction.support.TransactionCallback;
+import infra.transaction.support.TransactionSynchronizationManager;
+import infra.transaction.support.TransactionTemplate;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+
+/**
+ * Executes transactions, re-running the whole transaction if it fails with
+ * a concurrency failure such as an optimistic locking failure, a lock
+ * acquisition failure or a serialization failure, typically on commit.
+ *
+ * <p>Each attempt runs in a new transaction and therefore with a fresh
+ * EntityManager or Session: entity state from a failed attempt never leaks
+ * into the next one. For the same reason, no retry happens when the
+ * transaction participates in an existing outer transaction, unless it
+ * gets executed with {@code PROPAGATION_REQUIRES_NEW}, and none happens
+ * with an EntityManager or Session pre-bound outside of any transaction,
+ * e.g. by {@code OpenEntityManagerInViewInterceptor}, which every attempt
+ * would share.
+ *
+ * <p>Retries are delayed by an exponential backoff with full jitter, and
+ * limited by a retry budget shared by all executions: each execution adds
+ * {@link #setRetryRatio a fraction} of a retry to the budget, up to
+ * {@link #setRetryBurst a maximum}, and each retry takes one. Under sustained
+ * contention, this caps the additional load caused by retries instead of
+ * multiplying it.
+ *
+ * <p>Counters of executions and retries are available on this executor.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see RetryingTransactionInterceptor
+ * @see #isRetryable
+ * @since 5.0
+ */
+public class RetryingTransactionExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(RetryingTransactionExecutor.class);
+
+  private static final long TOKEN = 1000;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private int maxAttempts = 3;
+
+  private Duration initialBackoff = Duration.ofMillis(20);
+
+  private Duration maxBackoff = Duration.ofSeconds(1);
+
+  private long retryRatioTokens = TOKEN / 10;
+
+  private long retryBurstTokens = 10 * TOKEN;
+
+  private final AtomicLong retryBudget = new AtomicLong(this.retryBurstTokens);
+
+  private final LongAdder executionCount = new LongAdder();
+
+  private final LongAdder retryCount = new LongAdder();
+
+  private final LongAdder recoveredCount = new LongAdder();
+
+  private final LongAdder exhaustedCount = new LongAdder();
+
+  private final LongAdder budgetRejectionCount = new LongAdder();
+
+  /**
+   * Create a new RetryingTransactionExecutor for default transactions.
+   *
+   * @param transactionManager the transaction manager to execute the transactions with
+   */
+  public RetryingTransactionExecutor(PlatformTransactionManager transactionManager) {
+    this(transactionManager, TransactionDefinition.withDefaults());
+  }
+
+  /**
+   * Create a new RetryingTransactionExecutor.
+   *
+   * @param transactionManager the transaction manager to execute the transactions with
+   * @param definition the definition of the transactions
+   */
+  public RetryingTransactionExecutor(PlatformTransactionManager transactionManager, TransactionDefinition definition) {
+    Assert.notNull(transactionManager, "PlatformTransactionManager is required");
+    Assert.notNull(definition, "TransactionDefinition is required");
+    this.transactionTemplate = new TransactionTemplate(transactionManager, definition);
+  }
+
+  /**
+   * Set the maximum number of attempts per execution, including the first one.
+   * <p>Default is 3.
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    Assert.isTrue(maxAttempts > 0, "Max attempts must be positive");
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Set the upper bound of the delay before the first retry, doubling for
+   * each further retry up to the {@link #setMaxBackoff maximum}. The actual
+   * delay is a random value between zero and that bound.
+   * <p>Default is 20 milliseconds.
+   */
+  public void setInitialBackoff(Duration initialBackoff) {
+    Assert.isTrue(initialBackoff != null && !initialBackoff.isNegative(), "Initial backoff must not be negative");
+    this.initialBackoff = initialBackoff;
+  }
+
+  /**
+   * Set the maximum upper bound of the delay before a retry.
+   * <p>Default is 1 second.
+   */
+  public void setMaxBackoff(Duration maxBackoff) {
+    Assert.isTrue(maxBackoff != null && !maxBackoff.isNegative(), "Max backoff must not be negative");
+    this.maxBackoff = maxBackoff;
+  }
+
+  /**
+   * Set the number of retries that each execution adds to the retry budget.
+   * <p>Default is 0.1, i.e. sustained retries are limited to 10% of executions.
+   */
+  public void setRetryRatio(double retryRatio) {
+    Assert.isTrue(retryRatio >= 0, "Retry ratio must not be negative");
+    this.retryRatioTokens = Math.round(retryRatio * TOKEN);
+  }
+
+  /**
+   * Set the maximum number of retries in the retry budget, i.e. the number
+   * of retries possible in a burst of failures. The budget starts full.
+   * <p>Default is 10.
+   */
+  public void setRetryBurst(int retryBurst) {
+    Assert.isTrue(retryBurst >= 0, "Retry burst must not be negative");
+    this.retryBurstTokens = retryBurst * TOKEN;
+    this.retryBudget.set(this.retryBurstTokens);
+  }
+
+  /**
+   * Execute the given action in a transaction, retrying the whole transaction
+   * on {@link #isRetryable retryable} failures.
+   *
+   * @param action the action to execute
+   * @return a result object returned by the action, or {@code null}
+   * @throws TransactionException in case of initialization, rollback or system errors
+   * @throws RuntimeException if thrown by the action and not retryable,
+   * or once the attempts or the retry budget have been exhausted
+   */
+  @Nullable
+  public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+    if (TransactionSynchronizationManager.isActualTransactionActive()
+            && this.transactionTemplate.getPropagationBehavior() != TransactionDefinition.PROPAGATION_REQUIRES_NEW) {
+      // Participating in an outer transaction: a retry would neither get a fresh
+      // persistence context nor succeed within a rollback-only outer transaction.
+      return this.transactionTemplate.execute(action);
+    }
+    if (hasPreBoundPersistenceContext()) {
+      // A pre-bound EntityManager or Session would be reused by every attempt,
+      // along with the entity state of the failed ones.
+      return this.transactionTemplate.execute(action);
+    }
+    this.executionCount.increment();
+    depositRetryBudget();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        T result = this.transactionTemplate.execute(action);
+        if (attempt > 1) {
+          this.recoveredCount.increment();
+        }
+        return result;
+      }
+      catch (RuntimeException ex) {
+        if (!isRetryable(ex)) {
+          throw ex;
+        }
+        if (attempt >= this.maxAttempts) {
+          this.exhaustedCount.increment();
+          throw ex;
+        }
+        if (!withdrawRetryBudget()) {
+          this.budgetRejectionCount.increment();
+          logger.debug("Retry budget exhausted - not retrying transaction after {}", ex.toString());
+          throw ex;
+        }
+        this.retryCount.increment();
+        if (logger.isDebugEnabled()) {
+          logger.debug("Retrying transaction (attempt {} of {}) after {}", attempt + 1, this.maxAttempts, ex.toString());
+        }
+        if (!backoff(attempt)) {
+          throw ex;
+        }
+      }
+    }
+  }
+
+  /**
+   * Determine whether the given exception, thrown from a transaction,
+   * is worth retrying the transaction for.
+   * <p>The default implementation checks the exception and its causes for a
+   * {@link ConcurrencyFailureException}, covering optimistic and pessimistic
+   * locking failures, for JPA lock exceptions and for {@link SQLException}s
+   * with an SQL state of class 40 (transaction rollback, e.g. serialization
+   * failures and deadlocks). Can be overridden in subclasses.
+   *
+   * @param ex the exception thrown from the transaction
+   * @return whether to retry the transaction
+   */
+  protected boolean isRetryable(Throwable ex) {
+    for (Throwable candidate = ex; candidate != null; candidate = candidate.getCause()) {
+      if (candidate instanceof ConcurrencyFailureException
+              || candidate instanceof OptimisticLockException
+              || candidate instanceof PessimisticLockException
+              || candidate instanceof LockTimeoutException) {
+        return true;
+      }
+      if (candidate instanceof SQLException sqlEx && sqlEx.getSQLState() != null
+              && sqlEx.getSQLState().startsWith("40")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determine whether an EntityManager or Session (the Hibernate SessionFactory
+   * being an EntityManagerFactory as well) has been bound to the thread outside
+   * of any transaction, i.e. whether the transactions would not get a fresh one.
+   */
+  private static boolean hasPreBoundPersistenceContext() {
+    for (Map.Entry<Object, Object> entry : TransactionSynchronizationManager.getResourceMap().entrySet()) {
+      if (entry.getKey() instanceof EntityManagerFactory
+              && entry.getValue() instanceof ResourceHolderSupport holder
+              && !holder.isSynchronizedWithTransaction()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void depositRetryBudget() {
+    long ratio = this.retryRatioTokens;
+    long burst = this.retryBurstTokens;
+    this.retryBudget.getAndUpdate(tokens -> Math.min(tokens + ratio, burst));
+  }
+
+  private boolean withdrawRetryBudget() {
+    long tokens;
+    do {
+      tokens = this.retryBudget.get();
+      if (tokens < TOKEN) {
+        return false;
+      }
+    }
+    while (!this.retryBudget.compareAndSet(tokens, tokens - TOKEN));
+    return true;
+  }
+
+  private boolean backoff(int attempt) {
+    long bound = Math.min(this.maxBackoff.toMillis(),
+            this.initialBackoff.toMillis() << Math.min(attempt - 1, 30));
+    if (bound <= 0) {
+      return true;
+    }
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+      return true;
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Return the number of executions that started a new transaction.
+   */
+  public long getExecutionCount() {
+    return this.executionCount.sum();
+  }
+
+  /**
+   * Return the number of retries, i.e. of attempts after the first one.
+   */
+  public long getRetryCount() {
+    return this.retryCount.sum();
+  }
+
+  /**
+   * Return the number of executions that succeeded after at least one retry.
+   */
+  public long getRecoveredCount() {
+    return this.recoveredCount.sum();
+  }
+
+  /**
+   * Return the number of executions that failed on their last attempt.
+   */
+  public long getExhaustedCount() {
+    return this.exhaustedCount.sum();
+  }
+
+  /**
+   * Return the number of retries denied since the retry budget was exhausted.
+   */
+  public long getBudgetRejectionCount() {
+    return this.budgetRejectionCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "RetryingTransactionExecutor [executions=" + getExecutionCount() + ", retries=" + getRetryCount() +
+            ", recovered=" + getRecoveredCount() + ", exhausted=" + getExhaustedCount() +
+            ", budgetRejections=" + getBudgetRejectionCount() + "]";
+  }
+
+}
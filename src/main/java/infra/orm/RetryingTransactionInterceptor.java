@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jspecify.annotations.Nullable;
+
+import infra.aop.ProxyMethodInvocation;
+import infra.lang.Assert;
+
+/**
+ * AOP Alliance MethodInterceptor running each method invocation in a
+ * transaction through a {@link RetryingTransactionExecutor}, re-invoking
+ * the method in a new transaction on concurrency failures.
+ *
+ * <p>Like declarative transactions, the transaction gets rolled back on
+ * runtime exceptions and errors but committed on checked exceptions,
+ * which are rethrown after the commit without a retry.
+ *
+ * <p>Each retry proceeds with a clone of the original invocation, so that
+ * interceptors further down the chain apply to each attempt again.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+public class RetryingTransactionInterceptor implements MethodInterceptor {
+
+  private final RetryingTransactionExecutor executor;
+
+  /**
+   * Create a new RetryingTransactionInterceptor.
+   *
+   * @param executor the executor to run the method invocations with
+   */
+  public RetryingTransactionInterceptor(RetryingTransactionExecutor executor) {
+    Assert.notNull(executor, "RetryingTransactionExecutor is required");
+    this.executor = executor;
+  }
+
+  /**
+   * Return the executor to run the method invocations with,
+   * e.g. for accessing its retry counters.
+   */
+  public RetryingTransactionExecutor getExecutor() {
+    return this.executor;
+  }
+
+  @Nullable
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Outcome outcome = this.executor.execute(status -> {
+      MethodInvocation attempt = invocation instanceof ProxyMethodInvocation pmi ? pmi.invocableClone() : invocation;
+      try {
+        return new Outcome(attempt.proceed(), null);
+      }
+      catch (RuntimeException | Error ex) {
+        throw ex;
+      }
+      catch (Throwable ex) {
+        return new Outcome(null, ex);
+      }
+    });
+    if (outcome == null) {
+      return null;
+    }
+    if (outcome.failure() != null) {
+      throw outcome.failure();
+    }
+    return outcome.result();
+  }
+
+  private record Outcome(@Nullable Object result, @Nullable Throwable failure) {
+  }
+
+}
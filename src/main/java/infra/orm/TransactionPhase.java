@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+/**
+ * Phases of an ORM-managed transaction, as reported to a
+ * {@link TransactionPhaseListener}.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see TransactionPhaseListener
+ * @since 5.0
+ */
+public enum TransactionPhase {
+
+  /**
+   * Transaction begin: creation of the EntityManager/Session (if necessary),
+   * preparation of the JDBC Connection and binding of the transactional resources.
+   */
+  BEGIN,
+
+  /**
+   * Flush of the transactional EntityManager/Session. With Hibernate, every
+   * flush gets reported, including automatic flushes before queries and the
+   * flush on commit. With other providers, only explicit flushes through
+   * {@link infra.transaction.TransactionStatus#flush()} get reported, and
+   * the flush on commit is part of {@link #COMMIT}.
+   *
+   * @see FlushTimer
+   */
+  FLUSH,
+
+  /**
+   * Commit of the resource transaction, excluding the flush on commit
+   * where that gets reported as {@link #FLUSH} on its own.
+   */
+  COMMIT,
+
+  /**
+   * Rollback of the resource transaction.
+   */
+  ROLLBACK,
+
+  /**
+   * Total lifetime of an EntityManager/Session opened for a transaction,
+   * from its creation until it has been closed after transaction completion.
+   */
+  RESOURCE_LIFETIME
+
+}
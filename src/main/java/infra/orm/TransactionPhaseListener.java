@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+/**
+ * Callback interface for recording the latency of individual
+ * {@link TransactionPhase transaction phases}, e.g. for exposing them
+ * as counters and histograms through a metrics library.
+ *
+ * <p>Registered on {@code JpaTransactionManager} or {@code HibernateTransactionManager}.
+ * Timings are only taken if a listener has been registered: without a listener,
+ * the transaction managers do not perform any additional work. Implementations are
+ * invoked on the transaction's thread and should therefore return quickly.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see TransactionPhaseStatistics
+ * @see infra.orm.jpa.JpaTransactionManager#setTransactionPhaseListener
+ * @see infra.orm.hibernate5.HibernateTransactionManager#setTransactionPhaseListener
+ * @since 5.0
+ */
+public interface TransactionPhaseListener {
+
+  /**
+   * Unit name reported for a persistence unit or SessionFactory without
+   * specific name.
+   */
+  String DEFAULT_UNIT_NAME = "default";
+
+  /**
+   * Called once the given phase has been completed, successfully or not.
+   *
+   * @param phase the completed phase
+   * @param unitName the name of the persistence unit or SessionFactory
+   * (never {@code null}, falling back to {@link #DEFAULT_UNIT_NAME})
+   * @param readOnly whether the transaction is read-only
+   * @param durationNanos the duration of the phase in nanoseconds
+   * @param success whether the phase completed without throwing an exception
+   */
+  void phaseCompleted(TransactionPhase phase, String unitName,
+          boolean readOnly, long durationNanos, boolean success);
+
+  /**
+   * Called at the end of a transaction that tracked the number of entities
+   * managed by its persistence context, i.e. with a {@link PersistenceContextGuard}
+   * in place and a provider that is able to count managed entities.
+   * <p>The default implementation does nothing.
+   *
+   * @param unitName the name of the persistence unit or SessionFactory
+   * (never {@code null}, falling back to {@link #DEFAULT_UNIT_NAME})
+   * @param readOnly whether the transaction is read-only
+   * @param managedEntityCount the number of managed entities as of the last
+   * check within the transaction
+   * @param peakManagedEntityCount the highest number of managed entities
+   * seen within the transaction
+   */
+  default void managedEntitiesCounted(String unitName, boolean readOnly,
+          int managedEntityCount, int peakManagedEntityCount) {
+  }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TransactionPhaseListener} that keeps in-memory counters and
+ * latency histograms per unit name, {@link TransactionPhase} and
+ * read-only versus read-write transactions, as well as the
+ * {@linkplain #getManagedEntityStatistics managed-entity counts}
+ * per unit name and transaction mode.
+ *
+ * <p>Histograms use power-of-two microsecond buckets: bucket {@code i}
+ * counts durations below {@code 2^i} microseconds (bucket 0 below one
+ * microsecond), with the last bucket collecting everything above.
+ * Recording does not allocate once a unit name has been seen.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+public class TransactionPhaseStatistics implements TransactionPhaseListener {
+
+  /**
+   * Number of histogram buckets.
+   */
+  public static final int BUCKET_COUNT = 32;
+
+  private static final TransactionPhase[] phases = TransactionPhase.values();
+
+  private final ConcurrentHashMap<String, PhaseStatistics[]> statistics = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, ManagedEntityStatistics[]> managedEntityStatistics = new ConcurrentHashMap<>();
+
+  @Override
+  public void phaseCompleted(TransactionPhase phase, String unitName,
+          boolean readOnly, long durationNanos, boolean success) {
+    PhaseStatistics[] unitStatistics = this.statistics.get(unitName);
+    if (unitStatistics == null) {
+      unitStatistics = this.statistics.computeIfAbsent(unitName, TransactionPhaseStatistics::createUnitStatistics);
+    }
+    unitStatistics[index(phase, readOnly)].record(durationNanos, success);
+  }
+
+  @Override
+  public void managedEntitiesCounted(String unitName, boolean readOnly,
+          int managedEntityCount, int peakManagedEntityCount) {
+    ManagedEntityStatistics[] unitStatistics = this.managedEntityStatistics.get(unitName);
+    if (unitStatistics == null) {
+      unitStatistics = this.managedEntityStatistics.computeIfAbsent(unitName,
+              name -> new ManagedEntityStatistics[] { new ManagedEntityStatistics(), new ManagedEntityStatistics() });
+    }
+    unitStatistics[readOnly ? 1 : 0].record(managedEntityCount, peakManagedEntityCount);
+  }
+
+  /**
+   * Return the statistics for the given unit, phase and transaction mode.
+   *
+   * @param unitName the name of the persistence unit or SessionFactory
+   * @param phase the transaction phase
+   * @param readOnly whether to return statistics for read-only transactions
+   * @return the statistics, or {@code null} if nothing has been recorded
+   * for the given unit so far
+   */
+  @Nullable
+  public PhaseStatistics getStatistics(String unitName, TransactionPhase phase, boolean readOnly) {
+    PhaseStatistics[] unitStatistics = this.statistics.get(unitName);
+    return (unitStatistics != null ? unitStatistics[index(phase, readOnly)] : null);
+  }
+
+  /**
+   * Return the managed-entity statistics for the given unit and transaction mode.
+   *
+   * @param unitName the name of the persistence unit or SessionFactory
+   * @param readOnly whether to return statistics for read-only transactions
+   * @return the statistics, or {@code null} if no managed-entity count has
+   * been recorded for the given unit so far
+   */
+  @Nullable
+  public ManagedEntityStatistics getManagedEntityStatistics(String unitName, boolean readOnly) {
+    ManagedEntityStatistics[] unitStatistics = this.managedEntityStatistics.get(unitName);
+    return (unitStatistics != null ? unitStatistics[readOnly ? 1 : 0] : null);
+  }
+
+  /**
+   * Reset all statistics recorded so far.
+   */
+  public void clear() {
+    this.statistics.clear();
+    this.managedEntityStatistics.clear();
+  }
+
+  private static int index(TransactionPhase phase, boolean readOnly) {
+    return phase.ordinal() * 2 + (readOnly ? 1 : 0);
+  }
+
+  private static PhaseStatistics[] createUnitStatistics(String unitName) {
+    PhaseStatistics[] unitStatistics = new PhaseStatistics[phases.length * 2];
+    for (int i = 0; i < unitStatistics.length; i++) {
+      unitStatistics[i] = new PhaseStatistics();
+    }
+    return unitStatistics;
+  }
+
+  /**
+   * Counters and latency histogram of a single phase.
+   */
+  public static final class PhaseStatistics {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long durationNanos, boolean success) {
+      this.count.increment();
+      if (!success) {
+        this.failureCount.increment();
+      }
+      this.totalNanos.add(durationNanos);
+      this.maxNanos.accumulateAndGet(durationNanos, Math::max);
+      this.histogram.incrementAndGet(bucketOf(durationNanos));
+    }
+
+    /**
+     * Return the number of completed phases.
+     */
+    public long getCount() {
+      return this.count.sum();
+    }
+
+    /**
+     * Return the number of phases that completed with an exception.
+     */
+    public long getFailureCount() {
+      return this.failureCount.sum();
+    }
+
+    /**
+     * Return the accumulated duration of all phases.
+     */
+    public long getTotalTime(TimeUnit unit) {
+      return unit.convert(this.totalNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Return the longest duration of a single phase.
+     */
+    public long getMaxTime(TimeUnit unit) {
+      return unit.convert(this.maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Return a snapshot of the latency histogram.
+     *
+     * @see #getBucketUpperBound(int, TimeUnit)
+     */
+    public long[] getHistogram() {
+      long[] snapshot = new long[BUCKET_COUNT];
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        snapshot[i] = this.histogram.get(i);
+      }
+      return snapshot;
+    }
+
+    /**
+     * Return the exclusive upper bound of the given histogram bucket,
+     * or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long getBucketUpperBound(int bucket, TimeUnit unit) {
+      if (bucket >= BUCKET_COUNT - 1) {
+        return Long.MAX_VALUE;
+      }
+      return unit.convert(1L << bucket, TimeUnit.MICROSECONDS);
+    }
+
+    static int bucketOf(long durationNanos) {
+      long micros = durationNanos / 1000;
+      return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+
+    @Override
+    public String toString() {
+      return "PhaseStatistics [count=" + getCount() + ", failures=" + getFailureCount() +
+              ", total=" + getTotalTime(TimeUnit.MICROSECONDS) + "us, max=" + getMaxTime(TimeUnit.MICROSECONDS) + "us]";
+    }
+  }
+
+  /**
+   * Counters and peak histogram of the managed-entity counts of transactions.
+   * <p>The histogram uses power-of-two buckets: bucket {@code i} counts peaks
+   * below {@code 2^i} entities, with the last bucket collecting everything above.
+   */
+  public static final class ManagedEntityStatistics {
+
+    private final LongAdder transactionCount = new LongAdder();
+
+    private final LongAdder totalManagedEntityCount = new LongAdder();
+
+    private final LongAdder totalPeakManagedEntityCount = new LongAdder();
+
+    private final AtomicLong maxPeakManagedEntityCount = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(int managedEntityCount, int peakManagedEntityCount) {
+      this.transactionCount.increment();
+      this.totalManagedEntityCount.add(managedEntityCount);
+      this.totalPeakManagedEntityCount.add(peakManagedEntityCount);
+      this.maxPeakManagedEntityCount.accumulateAndGet(peakManagedEntityCount, Math::max);
+      this.histogram.incrementAndGet(bucketOf(peakManagedEntityCount));
+    }
+
+    /**
+     * Return the number of transactions that reported a managed-entity count.
+     */
+    public long getTransactionCount() {
+      return this.transactionCount.sum();
+    }
+
+    /**
+     * Return the sum of the managed-entity counts at the end of each transaction.
+     */
+    public long getTotalManagedEntityCount() {
+      return this.totalManagedEntityCount.sum();
+    }
+
+    /**
+     * Return the sum of the peak managed-entity counts of each transaction.
+     */
+    public long getTotalPeakManagedEntityCount() {
+      return this.totalPeakManagedEntityCount.sum();
+    }
+
+    /**
+     * Return the highest peak managed-entity count of a single transaction.
+     */
+    public long getMaxPeakManagedEntityCount() {
+      return this.maxPeakManagedEntityCount.get();
+    }
+
+    /**
+     * Return a snapshot of the histogram of the peak managed-entity counts.
+     */
+    public long[] getHistogram() {
+      long[] snapshot = new long[BUCKET_COUNT];
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        snapshot[i] = this.histogram.get(i);
+      }
+      return snapshot;
+    }
+
+    static int bucketOf(int count) {
+      return Math.min(32 - Integer.numberOfLeadingZeros(count), BUCKET_COUNT - 1);
+    }
+
+    @Override
+    public String toString() {
+      return "ManagedEntityStatistics [transactions=" + getTransactionCount() +
+              ", totalPeak=" + getTotalPeakManagedEntityCount() + ", maxPeak=" + getMaxPeakManagedEntityCount() + "]";
+    }
+  }
+
+}
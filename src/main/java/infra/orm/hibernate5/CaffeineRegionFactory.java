@@ -0,0 +1,633 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.Version;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.CollectionDataCachingConfig;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.cfg.spi.EntityDataCachingConfig;
+import org.hibernate.cache.cfg.spi.NaturalIdDataCachingConfig;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.cache.spi.entry.CollectionCacheEntry;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.model.domain.NavigableRole;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.Type;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import infra.lang.Assert;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+import infra.util.StringUtils;
+
+/**
+ * Hibernate second-level cache {@link org.hibernate.cache.spi.RegionFactory}
+ * keeping each region in an in-process <a href="https://github.com/ben-manes/caffeine">Caffeine</a>
+ * cache, i.e. with Window TinyLFU eviction: new entries only get admitted to a
+ * full region if they are accessed more frequently than the eviction candidate.
+ *
+ * <p>Entity, collection and natural-id regions support the read-only,
+ * nonstrict-read-write and read-write access strategies, as provided by
+ * Hibernate's {@link RegionFactoryTemplate}. Entity, collection, natural-id
+ * and query-result regions are bounded by {@link #setMaximumSize size} or
+ * {@link #setMaximumWeight weight} and may expire after a
+ * {@link #setTimeToLive time to live}. The update-timestamps region is never
+ * bounded, since evicting timestamps would lead to stale query results.
+ *
+ * <p>Defaults can be set on the factory instance, e.g. when passed to
+ * {@link LocalSessionFactoryBuilder#setCacheRegionFactory}, and can be overridden
+ * through Hibernate properties, globally ({@link #MAXIMUM_SIZE}, {@link #MAXIMUM_WEIGHT},
+ * {@link #TIME_TO_LIVE}) or per region (prefixed with {@link #REGION_PREFIX} and the
+ * region name, e.g. "hibernate.cache.infra.region.com.example.Person.maximum_size").
+ *
+ * <p>Per-region hit, miss and eviction counts are available through
+ * {@link #getRegionStatistics}. Entity, collection and natural-id regions
+ * can optionally be backed by {@link #setPersistentDirectory persistent}
+ * off-heap stores which survive restarts.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see LocalSessionFactoryBuilder#setCacheRegionFactory
+ * @see LocalSessionFactoryBean#setCacheRegionFactory
+ * @since 5.0
+ */
+public class CaffeineRegionFactory extends RegionFactoryTemplate {
+
+  private static final Logger logger = LoggerFactory.getLogger(CaffeineRegionFactory.class);
+
+  /**
+   * Common prefix for the settings of this region factory.
+   */
+  public static final String PREFIX = "hibernate.cache.infra.";
+
+  /**
+   * Maximum number of entries per region.
+   */
+  public static final String MAXIMUM_SIZE = PREFIX + "maximum_size";
+
+  /**
+   * Maximum weight per region, taking precedence over the maximum size.
+   *
+   * @see #setMaximumWeight
+   */
+  public static final String MAXIMUM_WEIGHT = PREFIX + "maximum_weight";
+
+  /**
+   * Time to live of region entries: an ISO-8601 duration or a number of seconds.
+   */
+  public static final String TIME_TO_LIVE = PREFIX + "time_to_live";
+
+  /**
+   * Prefix for region-specific settings, to be followed by the region name
+   * and one of the setting suffixes: "maximum_size", "maximum_weight", "time_to_live".
+   */
+  public static final String REGION_PREFIX = PREFIX + "region.";
+
+  /**
+   * Directory for persisting entity, collection and natural-id regions.
+   *
+   * @see #setPersistentDirectory
+   */
+  public static final String PERSISTENT_DIRECTORY = PREFIX + "persistent.directory";
+
+  /**
+   * Maximum size in bytes of the persistent store of each region.
+   */
+  public static final String PERSISTENT_CAPACITY = PREFIX + "persistent.capacity";
+
+  /**
+   * Maximum time for a persistent store to get reused after it has been
+   * closed: an ISO-8601 duration or a number of seconds.
+   */
+  public static final String PERSISTENT_MAX_AGE = PREFIX + "persistent.max_age";
+
+  /**
+   * Default maximum number of entries per region.
+   */
+  public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  /**
+   * Default maximum size in bytes of the persistent store of each region.
+   */
+  public static final int DEFAULT_PERSISTENT_CAPACITY = 64 * 1024 * 1024;
+
+  /**
+   * Default maximum time for a persistent store to get reused after it has been closed.
+   */
+  public static final Duration DEFAULT_PERSISTENT_MAX_AGE = Duration.ofDays(1);
+
+  private RegionSettings defaults = new RegionSettings(DEFAULT_MAXIMUM_SIZE, null, null);
+
+  private Map<?, ?> configValues = Map.of();
+
+  private final ConcurrentHashMap<String, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, PersistentRegionStore> persistentStores = new ConcurrentHashMap<>();
+
+  @Nullable
+  private Path persistentDirectory;
+
+  private int persistentCapacity = DEFAULT_PERSISTENT_CAPACITY;
+
+  private Duration persistentMaxAge = DEFAULT_PERSISTENT_MAX_AGE;
+
+  /**
+   * Set the default maximum number of entries per region.
+   * <p>Default is {@link #DEFAULT_MAXIMUM_SIZE}.
+   */
+  public void setMaximumSize(long maximumSize) {
+    Assert.isTrue(maximumSize >= 0, "Maximum size must not be negative");
+    this.defaults = new RegionSettings(maximumSize, this.defaults.maximumWeight, this.defaults.timeToLive);
+  }
+
+  /**
+   * Set the default maximum weight per region, taking precedence over the
+   * maximum size. Plain entity and collection entries weigh their number of
+   * disassembled state elements, all other entries (e.g. entries wrapped by
+   * the read-write access strategy) weigh 1.
+   * <p>Default is none.
+   */
+  public void setMaximumWeight(@Nullable Long maximumWeight) {
+    this.defaults = new RegionSettings(this.defaults.maximumSize, maximumWeight, this.defaults.timeToLive);
+  }
+
+  /**
+   * Set the default time to live of region entries.
+   * <p>Default is none, i.e. entries only get evicted by size or weight.
+   */
+  public void setTimeToLive(@Nullable Duration timeToLive) {
+    this.defaults = new RegionSettings(this.defaults.maximumSize, this.defaults.maximumWeight, timeToLive);
+  }
+
+  /**
+   * Set a directory for persisting the entries of entity, collection and
+   * natural-id regions in memory-mapped files, one per region.
+   * <p>Persisted entries live off-heap, with only the hot entries kept in
+   * the in-process cache, and survive restarts: a restarted application
+   * starts with a warm cache if the previous one has been shut down cleanly
+   * within the {@link #setPersistentMaxAge maximum age} and the mapping of the
+   * region's entities and collections has not changed. Query results and update
+   * timestamps are never persisted, since their validity cannot be verified
+   * after a restart.
+   * <p>Only suitable if the database does not get modified by anything but
+   * this application, at least while it is down. Each store file is locked
+   * while in use, so the directory must not be shared by concurrently running
+   * applications: a region whose file is locked only gets cached in-process.
+   * Default is none.
+   */
+  public void setPersistentDirectory(@Nullable Path persistentDirectory) {
+    this.persistentDirectory = persistentDirectory;
+  }
+
+  /**
+   * Set the maximum size in bytes of the persistent store of each region.
+   * Superseded records get compacted once the store fills up; entries that
+   * do not fit even then only get cached in-process.
+   * <p>Default is {@link #DEFAULT_PERSISTENT_CAPACITY}.
+   */
+  public void setPersistentCapacity(int persistentCapacity) {
+    Assert.isTrue(persistentCapacity > 0, "Persistent capacity must be positive");
+    this.persistentCapacity = persistentCapacity;
+  }
+
+  /**
+   * Set the maximum time for a persistent store to get reused after it
+   * has been closed.
+   * <p>Default is {@link #DEFAULT_PERSISTENT_MAX_AGE}.
+   */
+  public void setPersistentMaxAge(Duration persistentMaxAge) {
+    Assert.notNull(persistentMaxAge, "Persistent max age is required");
+    this.persistentMaxAge = persistentMaxAge;
+  }
+
+  @Override
+  protected void prepareForUse(SessionFactoryOptions settings, @SuppressWarnings("rawtypes") Map configValues) {
+    this.configValues = configValues;
+    this.defaults = resolveSettings(PREFIX, this.defaults);
+    Object directory = configValues.get(PERSISTENT_DIRECTORY);
+    if (directory instanceof Path path) {
+      this.persistentDirectory = path;
+    }
+    else if (directory != null && StringUtils.hasText(directory.toString())) {
+      this.persistentDirectory = Path.of(directory.toString().trim());
+    }
+    Long capacity = longValue(PERSISTENT_CAPACITY);
+    if (capacity != null) {
+      setPersistentCapacity((int) Math.min(capacity, Integer.MAX_VALUE));
+    }
+    Duration maxAge = durationValue(PERSISTENT_MAX_AGE);
+    if (maxAge != null) {
+      setPersistentMaxAge(maxAge);
+    }
+  }
+
+  @Override
+  protected void releaseFromUse() {
+    for (Cache<Object, Object> cache : this.caches.values()) {
+      cache.invalidateAll();
+      cache.cleanUp();
+    }
+    this.caches.clear();
+    for (PersistentRegionStore store : this.persistentStores.values()) {
+      store.close();
+    }
+    this.persistentStores.clear();
+  }
+
+  @Override
+  protected DomainDataStorageAccess createDomainDataStorageAccess(
+          DomainDataRegionConfig regionConfig, DomainDataRegionBuildingContext buildingContext) {
+    String regionName = regionConfig.getRegionName();
+    Cache<Object, Object> cache = createRegionCache(regionName, true);
+    PersistentRegionStore store = openPersistentStore(regionName);
+    if (store != null) {
+      SessionFactoryImplementor sessionFactory = buildingContext.getSessionFactory();
+      return new PersistentStorageAccess(cache, store, toValidate -> toValidate.validate(
+              fingerprint(regionConfig, sessionFactory), domainPackages(regionConfig, sessionFactory)));
+    }
+    return new CaffeineStorageAccess(cache);
+  }
+
+  @Override
+  protected StorageAccess createQueryResultsRegionStorageAccess(
+          String regionName, SessionFactoryImplementor sessionFactory) {
+    return new CaffeineStorageAccess(createRegionCache(regionName, true));
+  }
+
+  @Override
+  protected StorageAccess createTimestampsRegionStorageAccess(
+          String regionName, SessionFactoryImplementor sessionFactory) {
+    return new CaffeineStorageAccess(createRegionCache(regionName, false));
+  }
+
+  /**
+   * Return the names of the regions created by this factory.
+   */
+  public Set<String> getRegionNames() {
+    return this.caches.keySet();
+  }
+
+  /**
+   * Return the hit, miss and eviction statistics of the given region.
+   *
+   * @param regionName the (qualified) region name
+   * @return the statistics, or {@code null} if no such region has been created
+   */
+  @Nullable
+  public CacheStats getRegionStatistics(String regionName) {
+    Cache<Object, Object> cache = this.caches.get(regionName);
+    return (cache != null ? cache.stats() : null);
+  }
+
+  @Nullable
+  Cache<Object, Object> getRegionCache(String regionName) {
+    return this.caches.get(regionName);
+  }
+
+  private Cache<Object, Object> createRegionCache(String regionName, boolean bounded) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+    if (bounded) {
+      RegionSettings settings = resolveSettings(REGION_PREFIX + regionName + '.', this.defaults);
+      if (settings.maximumWeight != null) {
+        builder.maximumWeight(settings.maximumWeight).weigher(CaffeineRegionFactory::weigh);
+      }
+      else {
+        builder.maximumSize(settings.maximumSize);
+      }
+      if (settings.timeToLive != null) {
+        builder.expireAfterWrite(settings.timeToLive);
+      }
+    }
+    Cache<Object, Object> cache = builder.build();
+    this.caches.put(regionName, cache);
+    return cache;
+  }
+
+  @Nullable
+  private PersistentRegionStore openPersistentStore(String regionName) {
+    Path directory = this.persistentDirectory;
+    if (directory == null) {
+      return null;
+    }
+    Path file = directory.resolve(regionName.replaceAll("[^A-Za-z0-9._-]", "_") + ".cache");
+    try {
+      PersistentRegionStore store = PersistentRegionStore.open(file, this.persistentCapacity, this.persistentMaxAge);
+      this.persistentStores.put(regionName, store);
+      return store;
+    }
+    catch (IOException ex) {
+      logger.warn("Could not open persistent store [{}] for cache region '{}': caching in-process only",
+              file, regionName, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Compute a fingerprint of the mapping of the given region's entities and
+   * collections, which determines the layout of their cache entries.
+   * Only to be called once the SessionFactory has been fully initialized.
+   */
+  static long fingerprint(DomainDataRegionConfig regionConfig, SessionFactoryImplementor sessionFactory) {
+    StringBuilder mapping = new StringBuilder(Version.getVersionString());
+    mapping.append(sessionFactory.getSessionFactoryOptions().isStructuredCacheEntriesEnabled());
+    MetamodelImplementor metamodel = sessionFactory.getMetamodel();
+    for (EntityDataCachingConfig entityCaching : regionConfig.getEntityCaching()) {
+      for (NavigableRole role : entityCaching.getCachedTypes()) {
+        EntityPersister persister = metamodel.entityPersister(role.getFullPath());
+        mapping.append('|').append(persister.getEntityName())
+                .append(':').append(persister.getIdentifierType().getName());
+        String[] propertyNames = persister.getPropertyNames();
+        Type[] propertyTypes = persister.getPropertyTypes();
+        for (int i = 0; i < propertyNames.length; i++) {
+          mapping.append(',').append(propertyNames[i]).append('=').append(propertyTypes[i].getName());
+        }
+      }
+    }
+    for (CollectionDataCachingConfig collectionCaching : regionConfig.getCollectionCaching()) {
+      CollectionPersister persister = metamodel.collectionPersister(collectionCaching.getNavigableRole().getFullPath());
+      mapping.append('|').append(persister.getRole())
+              .append(':').append(persister.getKeyType().getName())
+              .append('=').append(persister.getElementType().getName());
+    }
+    for (NaturalIdDataCachingConfig naturalIdCaching : regionConfig.getNaturalIdCaching()) {
+      mapping.append('|').append(naturalIdCaching.getNavigableRole().getFullPath());
+    }
+    // 64-bit FNV-1a
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < mapping.length(); i++) {
+      hash ^= mapping.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Determine the packages of the classes that the cache keys and entries of
+   * the given region may hold: its entity classes, their identifier classes
+   * and the classes of their property values, e.g. embeddables and enums.
+   * Only to be called once the SessionFactory has been fully initialized.
+   */
+  static Set<String> domainPackages(DomainDataRegionConfig regionConfig, SessionFactoryImplementor sessionFactory) {
+    Set<String> packages = new HashSet<>();
+    MetamodelImplementor metamodel = sessionFactory.getMetamodel();
+    for (EntityDataCachingConfig entityCaching : regionConfig.getEntityCaching()) {
+      for (NavigableRole role : entityCaching.getCachedTypes()) {
+        EntityPersister persister = metamodel.entityPersister(role.getFullPath());
+        addPackage(packages, persister.getMappedClass());
+        addPackage(packages, persister.getIdentifierType());
+        for (Type propertyType : persister.getPropertyTypes()) {
+          addPackage(packages, propertyType);
+        }
+      }
+    }
+    for (CollectionDataCachingConfig collectionCaching : regionConfig.getCollectionCaching()) {
+      CollectionPersister persister = metamodel.collectionPersister(collectionCaching.getNavigableRole().getFullPath());
+      addPackage(packages, persister.getKeyType());
+      addPackage(packages, persister.getElementType());
+    }
+    for (NaturalIdDataCachingConfig naturalIdCaching : regionConfig.getNaturalIdCaching()) {
+      EntityPersister persister = metamodel.entityPersister(naturalIdCaching.getNavigableRole().getFullPath());
+      for (Type propertyType : persister.getPropertyTypes()) {
+        addPackage(packages, propertyType);
+      }
+    }
+    return packages;
+  }
+
+  private static void addPackage(Set<String> packages, Type type) {
+    if (type.isComponentType()) {
+      for (Type subtype : ((CompositeType) type).getSubtypes()) {
+        addPackage(packages, subtype);
+      }
+    }
+    addPackage(packages, type.getReturnedClass());
+  }
+
+  private static void addPackage(Set<String> packages, @Nullable Class<?> type) {
+    if (type != null) {
+      while (type.isArray()) {
+        type = type.getComponentType();
+      }
+      packages.add(type.getPackageName());
+    }
+  }
+
+  private RegionSettings resolveSettings(String prefix, RegionSettings defaults) {
+    Long maximumSize = longValue(prefix + "maximum_size");
+    Long maximumWeight = longValue(prefix + "maximum_weight");
+    Duration timeToLive = durationValue(prefix + "time_to_live");
+    return new RegionSettings(
+            maximumSize != null ? maximumSize : defaults.maximumSize,
+            maximumWeight != null ? maximumWeight : defaults.maximumWeight,
+            timeToLive != null ? timeToLive : defaults.timeToLive);
+  }
+
+  @Nullable
+  private Long longValue(String key) {
+    Object value = this.configValues.get(key);
+    if (value instanceof Number number) {
+      return number.longValue();
+    }
+    if (value instanceof String string && StringUtils.hasText(string)) {
+      return Long.parseLong(string.trim());
+    }
+    return null;
+  }
+
+  @Nullable
+  private Duration durationValue(String key) {
+    Object value = this.configValues.get(key);
+    if (value instanceof Duration duration) {
+      return duration;
+    }
+    if (value instanceof Number number) {
+      return Duration.ofSeconds(number.longValue());
+    }
+    if (value instanceof String string && StringUtils.hasText(string)) {
+      string = string.trim();
+      return (Character.isDigit(string.charAt(0)) ?
+              Duration.ofSeconds(Long.parseLong(string)) : Duration.parse(string));
+    }
+    return null;
+  }
+
+  private static int weigh(Object key, Object value) {
+    if (value instanceof CacheEntry entry) {
+      return Math.max(1, entry.getDisassembledState().length);
+    }
+    if (value instanceof CollectionCacheEntry entry) {
+      return Math.max(1, entry.getState().length);
+    }
+    if (value instanceof Collection<?> collection) {
+      return Math.max(1, collection.size());
+    }
+    return 1;
+  }
+
+  private record RegionSettings(long maximumSize, @Nullable Long maximumWeight, @Nullable Duration timeToLive) {
+  }
+
+  /**
+   * {@link DomainDataStorageAccess} on top of a Caffeine cache.
+   */
+  private static class CaffeineStorageAccess implements DomainDataStorageAccess {
+
+    protected final Cache<Object, Object> cache;
+
+    CaffeineStorageAccess(Cache<Object, Object> cache) {
+      this.cache = cache;
+    }
+
+    @Nullable
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+      return this.cache.getIfPresent(key);
+    }
+
+    @Override
+    public void putIntoCache(Object key, @Nullable Object value, SharedSessionContractImplementor session) {
+      if (value != null) {
+        this.cache.put(key, value);
+      }
+      else {
+        this.cache.invalidate(key);
+      }
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return this.cache.asMap().containsKey(key);
+    }
+
+    @Override
+    public void evictData() {
+      this.cache.invalidateAll();
+    }
+
+    @Override
+    public void evictData(Object key) {
+      this.cache.invalidate(key);
+    }
+
+    @Override
+    public void release() {
+      this.cache.invalidateAll();
+    }
+  }
+
+  /**
+   * {@link CaffeineStorageAccess} backed by a {@link PersistentRegionStore},
+   * which gets validated on first access, i.e. once the SessionFactory has
+   * been fully initialized. Store writes happen within Caffeine's per-key
+   * computations, so that promotions from the store cannot resurrect entries
+   * that have concurrently been replaced, soft-locked or evicted.
+   */
+  private static final class PersistentStorageAccess extends CaffeineStorageAccess {
+
+    private final PersistentRegionStore store;
+
+    private final Consumer<PersistentRegionStore> validation;
+
+    private volatile boolean validated;
+
+    PersistentStorageAccess(Cache<Object, Object> cache, PersistentRegionStore store, Consumer<PersistentRegionStore> validation) {
+      super(cache);
+      this.store = store;
+      this.validation = validation;
+    }
+
+    private PersistentRegionStore store() {
+      if (!this.validated) {
+        this.validation.accept(this.store);
+        this.validated = true;
+      }
+      return this.store;
+    }
+
+    @Nullable
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+      // Promotion is atomic per key with respect to puts and evictions
+      return this.cache.get(key, store()::get);
+    }
+
+    @Override
+    public void putIntoCache(Object key, @Nullable Object value, SharedSessionContractImplementor session) {
+      PersistentRegionStore store = store();
+      this.cache.asMap().compute(key, (k, previous) -> {
+        if (value == null || value instanceof SoftLock) {
+          // Transient lock state must not survive a restart
+          store.remove(k);
+        }
+        else {
+          store.put(k, value);
+        }
+        return value;
+      });
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      return super.contains(key) || store().contains(key);
+    }
+
+    @Override
+    public void evictData() {
+      store().clear();
+      super.evictData();
+    }
+
+    @Override
+    public void evictData(Object key) {
+      PersistentRegionStore store = store();
+      this.cache.asMap().compute(key, (k, previous) -> {
+        store.remove(k);
+        return null;
+      });
+    }
+
+    @Override
+    public void release() {
+      super.release();
+      this.store.close();
+    }
+  }
+
+}
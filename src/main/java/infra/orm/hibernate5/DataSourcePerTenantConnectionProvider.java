@@ -0,0 +1,356 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Stoppable;
+import org.jspecify.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import infra.lang.Assert;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+
+/**
+ * Hibernate {@link MultiTenantConnectionProvider} for database-per-tenant
+ * multi-tenancy, creating the DataSource of each tenant lazily on first use
+ * and closing it again once evicted by a least-recently-used and idle-time
+ * policy.
+ *
+ * <p>Serves a single SessionFactory or EntityManagerFactory for all tenants,
+ * configured with {@code hibernate.multiTenancy=DATABASE}: the mapping
+ * metadata gets built once and the metamodel exists once, regardless of
+ * the number of tenants, while connection pools only exist for the tenants
+ * currently in use.
+ *
+ * <p>Once more than the maximum number of tenant DataSources exist, the least
+ * recently used one gets evicted. DataSources not used for the maximum idle
+ * time get evicted by a sweep running at most once per second on connection
+ * checkout, or on {@link #evictIdle()}. An evicted DataSource gets closed once
+ * its last connection has been released; DataSources which are not
+ * {@link AutoCloseable} are just dropped.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see LocalSessionFactoryBuilder#setMultiTenantConnectionProvider
+ * @see LocalSessionFactoryBuilder#setCurrentTenantIdentifierResolver
+ * @since 5.0
+ */
+@SuppressWarnings("serial")
+public class DataSourcePerTenantConnectionProvider implements MultiTenantConnectionProvider, Stoppable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataSourcePerTenantConnectionProvider.class);
+
+  private final DataSource defaultDataSource;
+
+  private final Function<String, ? extends DataSource> dataSourceFactory;
+
+  private final int maximumTenants;
+
+  private final long maximumIdleNanos;
+
+  private final ConcurrentHashMap<String, TenantDataSource> dataSources = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+  private final ConcurrentHashMap<Connection, TenantDataSource> checkedOut = new ConcurrentHashMap<>();
+
+  private final LongAdder createdCount = new LongAdder();
+
+  private final LongAdder evictedCount = new LongAdder();
+
+  /**
+   * Create a new DataSourcePerTenantConnectionProvider, keeping at most 100
+   * tenant DataSources, each for up to 30 minutes since it has last been used.
+   *
+   * @param defaultDataSource the DataSource for connections without a tenant,
+   * used by Hibernate for bootstrapping and schema tooling
+   * @param dataSourceFactory the factory for the DataSource of a given tenant identifier
+   */
+  public DataSourcePerTenantConnectionProvider(DataSource defaultDataSource,
+          Function<String, ? extends DataSource> dataSourceFactory) {
+    this(defaultDataSource, dataSourceFactory, 100, Duration.ofMinutes(30));
+  }
+
+  /**
+   * Create a new DataSourcePerTenantConnectionProvider.
+   *
+   * @param defaultDataSource the DataSource for connections without a tenant,
+   * used by Hibernate for bootstrapping and schema tooling
+   * @param dataSourceFactory the factory for the DataSource of a given tenant identifier
+   * @param maximumTenants the maximum number of tenant DataSources to keep,
+   * evicting the least recently used ones beyond
+   * @param maximumIdleTime the time after which a tenant DataSource that has
+   * not been used gets evicted
+   */
+  public DataSourcePerTenantConnectionProvider(DataSource defaultDataSource,
+          Function<String, ? extends DataSource> dataSourceFactory, int maximumTenants, Duration maximumIdleTime) {
+    Assert.notNull(defaultDataSource, "Default DataSource is required");
+    Assert.notNull(dataSourceFactory, "DataSource factory is required");
+    Assert.isTrue(maximumTenants > 0, "Maximum tenants must be positive");
+    Assert.notNull(maximumIdleTime, "Maximum idle time is required");
+    this.defaultDataSource = defaultDataSource;
+    this.dataSourceFactory = dataSourceFactory;
+    this.maximumTenants = maximumTenants;
+    this.maximumIdleNanos = maximumIdleTime.toNanos();
+  }
+
+  @Override
+  public Connection getAnyConnection() throws SQLException {
+    return this.defaultDataSource.getConnection();
+  }
+
+  @Override
+  public void releaseAnyConnection(Connection connection) throws SQLException {
+    connection.close();
+  }
+
+  @Override
+  public Connection getConnection(String tenantIdentifier) throws SQLException {
+    while (true) {
+      TenantDataSource dataSource = this.dataSources.get(tenantIdentifier);
+      if (dataSource == null) {
+        dataSource = this.dataSources.computeIfAbsent(tenantIdentifier, this::createDataSource);
+        evictLeastRecentlyUsed();
+      }
+      long now = System.nanoTime();
+      dataSource.lastAccess = now;
+      long sweep = this.nextSweep.get();
+      if (now - sweep >= 0 && this.nextSweep.compareAndSet(sweep, now + TimeUnit.SECONDS.toNanos(1))) {
+        evictIdle();
+      }
+      if (dataSource.acquire()) {
+        try {
+          Connection con = dataSource.dataSource.getConnection();
+          this.checkedOut.put(con, dataSource);
+          return con;
+        }
+        catch (SQLException | RuntimeException ex) {
+          dataSource.release();
+          throw ex;
+        }
+      }
+      // Closed after eviction in the meantime: obtain a new one
+    }
+  }
+
+  @Override
+  public void releaseConnection(String tenantIdentifier, Connection connection) throws SQLException {
+    try {
+      connection.close();
+    }
+    finally {
+      TenantDataSource dataSource = this.checkedOut.remove(connection);
+      if (dataSource != null) {
+        dataSource.release();
+      }
+    }
+  }
+
+  private TenantDataSource createDataSource(String tenantIdentifier) {
+    DataSource dataSource = this.dataSourceFactory.apply(tenantIdentifier);
+    Assert.state(dataSource != null, () -> "No DataSource for tenant '" + tenantIdentifier + "'");
+    logger.debug("Created DataSource for tenant '{}'", tenantIdentifier);
+    this.createdCount.increment();
+    return new TenantDataSource(tenantIdentifier, dataSource);
+  }
+
+  private synchronized void evictLeastRecentlyUsed() {
+    while (this.dataSources.size() > this.maximumTenants) {
+      TenantDataSource leastRecentlyUsed = null;
+      for (TenantDataSource dataSource : this.dataSources.values()) {
+        if (leastRecentlyUsed == null || dataSource.lastAccess - leastRecentlyUsed.lastAccess < 0) {
+          leastRecentlyUsed = dataSource;
+        }
+      }
+      if (leastRecentlyUsed == null) {
+        return;
+      }
+      evict(leastRecentlyUsed, "least recently used");
+    }
+  }
+
+  private void evict(TenantDataSource dataSource, String reason) {
+    if (this.dataSources.remove(dataSource.tenantIdentifier, dataSource)) {
+      logger.debug("Evicting DataSource for tenant '{}' ({})", dataSource.tenantIdentifier, reason);
+      this.evictedCount.increment();
+      dataSource.evict();
+    }
+  }
+
+  /**
+   * Close the given tenant DataSource after eviction, once it has no
+   * checked-out connections anymore.
+   * <p>The default implementation closes {@link AutoCloseable} DataSources.
+   *
+   * @param tenantIdentifier the tenant identifier
+   * @param dataSource the DataSource to close
+   */
+  protected void closeDataSource(String tenantIdentifier, DataSource dataSource) {
+    if (dataSource instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      }
+      catch (Exception ex) {
+        logger.warn("Could not close DataSource for tenant '{}'", tenantIdentifier, ex);
+      }
+    }
+  }
+
+  /**
+   * Evict the DataSource of the given tenant, if any, e.g. after the
+   * tenant's database has been moved.
+   */
+  public void evict(String tenantIdentifier) {
+    TenantDataSource dataSource = this.dataSources.get(tenantIdentifier);
+    if (dataSource != null) {
+      evict(dataSource, "explicit");
+    }
+  }
+
+  /**
+   * Evict the DataSources of all tenants that have not been used for the
+   * maximum idle time, e.g. for calling from a scheduled task in addition
+   * to the sweep on connection checkout.
+   */
+  public void evictIdle() {
+    long now = System.nanoTime();
+    for (TenantDataSource dataSource : this.dataSources.values()) {
+      if (now - dataSource.lastAccess > this.maximumIdleNanos) {
+        evict(dataSource, "idle");
+      }
+    }
+  }
+
+  /**
+   * Evict all tenant DataSources.
+   */
+  @Override
+  public void stop() {
+    for (TenantDataSource dataSource : this.dataSources.values()) {
+      evict(dataSource, "stopped");
+    }
+  }
+
+  /**
+   * Return the number of tenant DataSources currently kept.
+   */
+  public int getTenantCount() {
+    return this.dataSources.size();
+  }
+
+  /**
+   * Return the number of tenant DataSources created so far.
+   */
+  public long getCreatedCount() {
+    return this.createdCount.sum();
+  }
+
+  /**
+   * Return the number of tenant DataSources evicted so far.
+   */
+  public long getEvictedCount() {
+    return this.evictedCount.sum();
+  }
+
+  @Override
+  public boolean supportsAggressiveRelease() {
+    return false;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public boolean isUnwrappableAs(Class unwrapType) {
+    return unwrapType.isInstance(this) || unwrapType.isInstance(this.defaultDataSource);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T unwrap(Class<T> unwrapType) {
+    if (unwrapType.isInstance(this)) {
+      return (T) this;
+    }
+    if (unwrapType.isInstance(this.defaultDataSource)) {
+      return (T) this.defaultDataSource;
+    }
+    throw new UnknownUnwrapTypeException(unwrapType);
+  }
+
+  /**
+   * DataSource of a tenant with a count of checked-out connections,
+   * or -1 once closed.
+   */
+  private final class TenantDataSource {
+
+    private final String tenantIdentifier;
+
+    private final DataSource dataSource;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private volatile long lastAccess = System.nanoTime();
+
+    private volatile boolean evicted;
+
+    TenantDataSource(String tenantIdentifier, DataSource dataSource) {
+      this.tenantIdentifier = tenantIdentifier;
+      this.dataSource = dataSource;
+    }
+
+    boolean acquire() {
+      int count;
+      do {
+        count = this.activeCount.get();
+        if (count < 0) {
+          return false;
+        }
+      }
+      while (!this.activeCount.compareAndSet(count, count + 1));
+      return true;
+    }
+
+    void release() {
+      if (this.activeCount.decrementAndGet() == 0 && this.evicted) {
+        closeIfIdle();
+      }
+    }
+
+    void evict() {
+      this.evicted = true;
+      closeIfIdle();
+    }
+
+    private void closeIfIdle() {
+      if (this.activeCount.compareAndSet(0, -1)) {
+        closeDataSource(this.tenantIdentifier, this.dataSource);
+      }
+    }
+  }
+
+}
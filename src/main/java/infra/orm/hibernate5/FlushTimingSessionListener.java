@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serial;
+
+import infra.orm.FlushTimer;
+import infra.orm.TransactionPhase;
+import infra.orm.TransactionPhaseListener;
+
+/**
+ * Session listener reporting each flush of a Hibernate Session, including
+ * automatic flushes before queries and the flush on commit, as
+ * {@link TransactionPhase#FLUSH} to a {@link TransactionPhaseListener}.
+ *
+ * <p>Registered once per Session, then re-activated for each transaction,
+ * since Hibernate does not allow for removing Session listeners. The Session
+ * holds on to it as a property, so it lives exactly as long as the Session;
+ * it stays inactive between transactions. Flushes are reported as successful
+ * once they have ended: a failing flush on commit surfaces as a failed
+ * {@link TransactionPhase#COMMIT}.
+ *
+ * <p>Used by {@link HibernateTransactionManager} and
+ * {@link infra.orm.jpa.vendor.HibernateJpaDialect}.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+public final class FlushTimingSessionListener extends BaseSessionEventListener implements FlushTimer {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private static final String SESSION_PROPERTY = FlushTimingSessionListener.class.getName();
+
+  @Nullable
+  private transient TransactionPhaseListener listener;
+
+  @Nullable
+  private transient String unitName;
+
+  private transient boolean readOnly;
+
+  private transient long flushStart;
+
+  private transient long flushNanos;
+
+  private FlushTimingSessionListener() {
+  }
+
+  /**
+   * Start timing the flushes of the given Session for a transaction,
+   * registering the listener with the Session on first use.
+   *
+   * @param session the transactional Session
+   * @param listener the listener to report flushes to
+   * @param unitName the unit name to report
+   * @param readOnly whether the transaction is read-only
+   * @return the handle for the flush timing, to be stopped on transaction cleanup
+   */
+  public static FlushTimer start(SessionImplementor session,
+          TransactionPhaseListener listener, String unitName, boolean readOnly) {
+    FlushTimingSessionListener timer;
+    if (session.getProperties().get(SESSION_PROPERTY) instanceof FlushTimingSessionListener existing) {
+      timer = existing;
+    }
+    else {
+      timer = new FlushTimingSessionListener();
+      session.addEventListeners(timer);
+      session.setProperty(SESSION_PROPERTY, timer);
+    }
+    timer.listener = listener;
+    timer.unitName = unitName;
+    timer.readOnly = readOnly;
+    timer.flushStart = 0;
+    timer.flushNanos = 0;
+    return timer;
+  }
+
+  @Override
+  public void flushStart() {
+    if (this.listener != null) {
+      this.flushStart = System.nanoTime();
+    }
+  }
+
+  @Override
+  public void flushEnd(int numberOfEntities, int numberOfCollections) {
+    TransactionPhaseListener listener = this.listener;
+    if (listener != null && this.flushStart != 0) {
+      long duration = System.nanoTime() - this.flushStart;
+      this.flushStart = 0;
+      this.flushNanos += duration;
+      listener.phaseCompleted(TransactionPhase.FLUSH, this.unitName, this.readOnly, duration, true);
+    }
+  }
+
+  @Override
+  public long getFlushNanos() {
+    return this.flushNanos;
+  }
+
+  @Override
+  public void stop() {
+    this.listener = null;
+    this.unitName = null;
+    this.flushStart = 0;
+  }
+
+}
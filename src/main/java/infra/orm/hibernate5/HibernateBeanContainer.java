@@ -19,12 +19,24 @@ package infra.orm.hibernate5;
 
 import org.hibernate.resource.beans.container.spi.BeanContainer;
 import org.hibernate.resource.beans.container.spi.ContainedBean;
+import org.hibernate.resource.beans.internal.FallbackBeanInstanceProducer;
 import org.hibernate.resource.beans.spi.BeanInstanceProducer;
 import org.hibernate.type.spi.TypeBootstrapContext;
 import org.jspecify.annotations.Nullable;
 
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import infra.beans.BeansException;
 import infra.beans.factory.BeanCreationException;
@@ -35,6 +47,11 @@ import infra.logging.Logger;
 import infra.logging.LoggerFactory;
 import infra.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import infra.util.ConcurrentReferenceHashMap;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Converter;
+import jakarta.persistence.Converts;
+import jakarta.persistence.EntityListeners;
 
 /**
  * Framework's implementation of Hibernate's {@link BeanContainer} SPI,
@@ -70,6 +87,12 @@ import infra.util.ConcurrentReferenceHashMap;
  * {@code EntityManagerFactory} interface as well, and Hibernate {@code BeanContainer}
  * integration will be registered out of the box.
  *
+ * <p>Cached beans get created once per bean type or name, even on concurrent
+ * first requests. With {@link #setDeferredCreation deferred creation}, Hibernate
+ * only receives a handle while building the {@code SessionFactory}, and attribute
+ * converters and entity listeners can get created in parallel through {@link #preWarm}
+ * once all singletons have been instantiated, see {@link LocalSessionFactoryBean#setPreWarmExecutor}.
+ *
  * @author Juergen Hoeller
  * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
  * @see LocalSessionFactoryBean#setBeanFactory
@@ -82,9 +105,28 @@ public final class HibernateBeanContainer implements BeanContainer {
 
   private static final Logger log = LoggerFactory.getLogger(HibernateBeanContainer.class);
 
+  /**
+   * Lifecycle options that Hibernate's {@code ManagedBeanRegistry} applies to
+   * attribute converters and entity listeners.
+   */
+  private static final LifecycleOptions PRE_WARM_OPTIONS = new LifecycleOptions() {
+
+    @Override
+    public boolean canUseCachedReferences() {
+      return true;
+    }
+
+    @Override
+    public boolean useJpaCompliantCreation() {
+      return true;
+    }
+  };
+
   private final ConfigurableBeanFactory beanFactory;
 
-  private final Map<Object, HibernateContainedBean<?>> beanCache = new ConcurrentReferenceHashMap<>();
+  private final Map<Object, CachedBean> beanCache = new ConcurrentReferenceHashMap<>();
+
+  private volatile boolean deferredCreation;
 
   /**
    * Instantiate a new HibernateBeanContainer for the given bean factory.
@@ -96,23 +138,34 @@ public final class HibernateBeanContainer implements BeanContainer {
     this.beanFactory = beanFactory;
   }
 
+  /**
+   * Specify whether cached beans should only get created on first access to
+   * their instance, rather than when Hibernate requests them. Hibernate accesses
+   * attribute converter and entity listener instances on first use only, so
+   * building the {@code SessionFactory} does not create them anymore.
+   * <p>Default is {@code false}. Switch this on for pre-warming the beans
+   * through {@link #preWarm} after the {@code SessionFactory} got built.
+   *
+   * @since 5.0
+   */
+  public void setDeferredCreation(boolean deferredCreation) {
+    this.deferredCreation = deferredCreation;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public <B> ContainedBean<B> getBean(
       Class<B> beanType, LifecycleOptions lifecycleOptions, BeanInstanceProducer fallbackProducer) {
 
-    HibernateContainedBean<?> bean;
     if (lifecycleOptions.canUseCachedReferences()) {
-      bean = this.beanCache.get(beanType);
-      if (bean == null) {
-        bean = createBean(beanType, lifecycleOptions, fallbackProducer);
-        this.beanCache.put(beanType, bean);
+      CachedBean bean = this.beanCache.computeIfAbsent(beanType,
+              key -> new CachedBean(() -> createBean(beanType, lifecycleOptions, fallbackProducer)));
+      if (!this.deferredCreation) {
+        bean.getBeanInstance();
       }
+      return (ContainedBean<B>) bean;
     }
-    else {
-      bean = createBean(beanType, lifecycleOptions, fallbackProducer);
-    }
-    return (HibernateContainedBean<B>) bean;
+    return (ContainedBean<B>) createBean(beanType, lifecycleOptions, fallbackProducer);
   }
 
   @Override
@@ -120,26 +173,114 @@ public final class HibernateBeanContainer implements BeanContainer {
   public <B> ContainedBean<B> getBean(
       String name, Class<B> beanType, LifecycleOptions lifecycleOptions, BeanInstanceProducer fallbackProducer) {
 
-    HibernateContainedBean<?> bean;
     if (lifecycleOptions.canUseCachedReferences()) {
-      bean = this.beanCache.get(name);
-      if (bean == null) {
-        bean = createBean(name, beanType, lifecycleOptions, fallbackProducer);
-        this.beanCache.put(name, bean);
+      CachedBean bean = this.beanCache.computeIfAbsent(name,
+              key -> new CachedBean(() -> createBean(name, beanType, lifecycleOptions, fallbackProducer)));
+      if (!this.deferredCreation) {
+        bean.getBeanInstance();
       }
+      return (ContainedBean<B>) bean;
     }
-    else {
-      bean = createBean(name, beanType, lifecycleOptions, fallbackProducer);
-    }
-    return (HibernateContainedBean<B>) bean;
+    return (ContainedBean<B>) createBean(name, beanType, lifecycleOptions, fallbackProducer);
   }
 
   @Override
   public void stop() {
-    this.beanCache.values().forEach(HibernateContainedBean::destroyIfNecessary);
+    this.beanCache.values().forEach(CachedBean::destroyIfNecessary);
     this.beanCache.clear();
   }
 
+  /**
+   * Create and cache the given bean types in parallel, the way Hibernate
+   * requests attribute converters and entity listeners, so that serving
+   * first requests does not include their creation anymore. Blocks until
+   * all beans have been created.
+   * <p>Beans that fail to get created are skipped here, leaving it to
+   * Hibernate's actual request to create them or to report the failure.
+   * <p><b>Do not call this while the calling thread creates a singleton,</b>
+   * e.g. from an {@code InitializingBean} callback: bean creation on the
+   * executor threads waits for the singleton lock held by the calling thread,
+   * which in turn waits for them. Call it once all singletons have been
+   * instantiated instead, e.g. from {@link infra.context.SmartLifecycle#start()}.
+   *
+   * @param beanTypes the bean types to create
+   * @param executor the executor to create the beans with
+   * @see #findContainedBeanTypes
+   */
+  public void preWarm(Collection<Class<?>> beanTypes, Executor executor) {
+    Assert.notNull(beanTypes, "Bean types is required");
+    Assert.notNull(executor, "Executor is required");
+    long start = System.nanoTime();
+    List<CompletableFuture<Void>> futures = new ArrayList<>(beanTypes.size());
+    for (Class<?> beanType : beanTypes) {
+      futures.add(CompletableFuture.runAsync(() -> {
+        try {
+          getBean(beanType, PRE_WARM_OPTIONS, FallbackBeanInstanceProducer.INSTANCE).getBeanInstance();
+        }
+        catch (RuntimeException ex) {
+          log.debug("Skipping pre-warming of {}: {}", beanType, ex.toString());
+        }
+      }, executor));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    if (log.isDebugEnabled()) {
+      log.debug("Pre-warmed {} Hibernate-contained beans in {} ms",
+              beanTypes.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+  }
+
+  /**
+   * Find the attribute converters and entity listeners referenced by the given
+   * managed classes: {@link Converter} classes themselves, {@link EntityListeners}
+   * and the converters of {@link Convert} declarations on classes, fields and methods.
+   * <p>Identifier generators are not included, since Hibernate does not request
+   * them as cacheable beans.
+   *
+   * @param managedClasses the managed classes, e.g. as listed by
+   * {@link infra.orm.jpa.persistenceunit.PersistenceManagedTypes#getManagedClassNames()}
+   * @return the bean types, in order of discovery
+   */
+  public static Set<Class<?>> findContainedBeanTypes(Collection<Class<?>> managedClasses) {
+    Set<Class<?>> beanTypes = new LinkedHashSet<>();
+    for (Class<?> managedClass : managedClasses) {
+      if (managedClass.isAnnotationPresent(Converter.class)
+              && AttributeConverter.class.isAssignableFrom(managedClass)) {
+        beanTypes.add(managedClass);
+      }
+      EntityListeners listeners = managedClass.getAnnotation(EntityListeners.class);
+      if (listeners != null) {
+        beanTypes.addAll(List.of(listeners.value()));
+      }
+      addConverters(managedClass, beanTypes);
+      for (Field field : managedClass.getDeclaredFields()) {
+        addConverters(field, beanTypes);
+      }
+      for (Method method : managedClass.getDeclaredMethods()) {
+        addConverters(method, beanTypes);
+      }
+    }
+    return beanTypes;
+  }
+
+  private static void addConverters(AnnotatedElement element, Set<Class<?>> beanTypes) {
+    Converts converts = element.getAnnotation(Converts.class);
+    if (converts != null) {
+      for (Convert convert : converts.value()) {
+        addConverter(convert, beanTypes);
+      }
+    }
+    Convert convert = element.getAnnotation(Convert.class);
+    if (convert != null) {
+      addConverter(convert, beanTypes);
+    }
+  }
+
+  private static void addConverter(Convert convert, Set<Class<?>> beanTypes) {
+    if (!convert.disableConversion() && AttributeConverter.class.isAssignableFrom(convert.converter())) {
+      beanTypes.add(convert.converter());
+    }
+  }
+
   private HibernateContainedBean<?> createBean(
       Class<?> beanType, LifecycleOptions lifecycleOptions, BeanInstanceProducer fallbackProducer) {
 
@@ -231,6 +372,48 @@ public final class HibernateBeanContainer implements BeanContainer {
     }
   }
 
+  /**
+   * Cache entry creating its bean at most once, on first access to its instance:
+   * concurrent requests wait for the first one, while a failed creation leaves
+   * the entry empty for retry.
+   */
+  private static final class CachedBean implements ContainedBean<Object> {
+
+    @Nullable
+    private Supplier<HibernateContainedBean<?>> beanFactory;
+
+    @Nullable
+    private volatile HibernateContainedBean<?> bean;
+
+    public CachedBean(Supplier<HibernateContainedBean<?>> beanFactory) {
+      this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object getBeanInstance() {
+      HibernateContainedBean<?> bean = this.bean;
+      if (bean == null) {
+        synchronized(this) {
+          bean = this.bean;
+          if (bean == null) {
+            Assert.state(this.beanFactory != null, "No bean factory");
+            bean = this.beanFactory.get();
+            this.bean = bean;
+            this.beanFactory = null;
+          }
+        }
+      }
+      return bean.getBeanInstance();
+    }
+
+    public void destroyIfNecessary() {
+      HibernateContainedBean<?> bean = this.bean;
+      if (bean != null) {
+        bean.destroyIfNecessary();
+      }
+    }
+  }
+
   private static final class HibernateContainedBean<B> implements ContainedBean<B> {
 
     private final B beanInstance;
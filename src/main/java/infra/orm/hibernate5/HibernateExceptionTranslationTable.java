@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.HibernateException;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import infra.dao.DataAccessException;
+import infra.lang.Assert;
+import infra.util.ReflectionUtils;
+
+/**
+ * Table of translations from {@link HibernateException} types to exceptions
+ * of the {@code infra.dao} hierarchy, resolved once per concrete exception
+ * class and cached in a {@link ClassValue}: translating an exception costs
+ * a single lookup instead of a chain of {@code instanceof} checks.
+ *
+ * <p>The translation registered for the most specific superclass of an
+ * exception applies, falling back to the table's default translation.
+ * Custom translations can be {@link #register registered} at any time,
+ * e.g. for application-specific Hibernate exception subclasses.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see SessionFactoryUtils#getExceptionTranslationTable()
+ * @see HibernateExceptionTranslator#setExceptionTranslationTable
+ * @see infra.orm.jpa.vendor.HibernateJpaDialect#getExceptionTranslationTable()
+ * @since 5.0
+ */
+public class HibernateExceptionTranslationTable {
+
+  private static final ClassValue<Method> identifierAccessors = new ClassValue<>() {
+
+    @Nullable
+    @Override
+    protected Method computeValue(Class<?> type) {
+      // getIdentifier declares Serializable return value on 5.x but Object on 6.x
+      // -> not binary compatible, let's invoke it reflectively for the time being
+      return ReflectionUtils.getMethodIfAvailable(type, "getIdentifier");
+    }
+  };
+
+  private final Function<HibernateException, DataAccessException> defaultTranslation;
+
+  private final Map<Class<?>, Function<HibernateException, DataAccessException>> translations = new LinkedHashMap<>();
+
+  private volatile ClassValue<Function<HibernateException, DataAccessException>> resolvedTranslations = resolve();
+
+  /**
+   * Create a new table without any registered translation.
+   *
+   * @param defaultTranslation the translation of exceptions without a
+   * registered translation for any of their superclasses
+   */
+  public HibernateExceptionTranslationTable(Function<? super HibernateException, ? extends DataAccessException> defaultTranslation) {
+    Assert.notNull(defaultTranslation, "Default translation is required");
+    this.defaultTranslation = defaultTranslation::apply;
+  }
+
+  /**
+   * Register a translation for the given exception type and its subclasses,
+   * replacing any existing translation for that exact type.
+   *
+   * @param exceptionType the Hibernate exception type
+   * @param translation the translation to an exception of the {@code infra.dao} hierarchy
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <E extends HibernateException> void register(
+          Class<E> exceptionType, Function<? super E, ? extends DataAccessException> translation) {
+    Assert.notNull(exceptionType, "Exception type is required");
+    Assert.notNull(translation, "Translation is required");
+    this.translations.put(exceptionType, ex -> translation.apply((E) ex));
+    this.resolvedTranslations = resolve();
+  }
+
+  /**
+   * Translate the given HibernateException.
+   *
+   * @param ex the HibernateException that occurred
+   * @return the corresponding DataAccessException instance
+   */
+  public DataAccessException translate(HibernateException ex) {
+    return this.resolvedTranslations.get(ex.getClass()).apply(ex);
+  }
+
+  /**
+   * Create a copy of this table, to register further translations on
+   * without affecting this table.
+   */
+  public synchronized HibernateExceptionTranslationTable copy() {
+    HibernateExceptionTranslationTable copy = new HibernateExceptionTranslationTable(this.defaultTranslation);
+    copy.translations.putAll(this.translations);
+    copy.resolvedTranslations = copy.resolve();
+    return copy;
+  }
+
+  private ClassValue<Function<HibernateException, DataAccessException>> resolve() {
+    // Snapshot taken on registration: previously resolved entries get discarded
+    // along with the previous ClassValue instance.
+    Map<Class<?>, Function<HibernateException, DataAccessException>> translations = new LinkedHashMap<>(this.translations);
+    return new ClassValue<>() {
+
+      @Override
+      protected Function<HibernateException, DataAccessException> computeValue(Class<?> type) {
+        for (Class<?> candidate = type; candidate != null; candidate = candidate.getSuperclass()) {
+          Function<HibernateException, DataAccessException> translation = translations.get(candidate);
+          if (translation != null) {
+            return translation;
+          }
+        }
+        return defaultTranslation;
+      }
+    };
+  }
+
+  /**
+   * Return the identifier exposed by the given HibernateException, if any,
+   * through a {@code getIdentifier()} accessor resolved once per exception class.
+   *
+   * @param ex the HibernateException, e.g. an {@code UnresolvableObjectException}
+   * or {@code StaleObjectStateException}
+   * @return the identifier, or {@code null} if none
+   */
+  @Nullable
+  public static Object getIdentifier(HibernateException ex) {
+    Method accessor = identifierAccessors.get(ex.getClass());
+    return (accessor != null ? ReflectionUtils.invokeMethod(accessor, ex) : null);
+  }
+
+}
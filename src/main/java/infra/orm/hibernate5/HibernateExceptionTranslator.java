@@ -49,6 +49,9 @@ public class HibernateExceptionTranslator implements PersistenceExceptionTransla
   @Nullable
   private SQLExceptionTranslator jdbcExceptionTranslator;
 
+  @Nullable
+  private HibernateExceptionTranslationTable exceptionTranslationTable;
+
   /**
    * Set the JDBC exception translator for Hibernate exception translation purposes.
    * <p>Applied to any detected {@link java.sql.SQLException} root cause of a Hibernate
@@ -65,6 +68,19 @@ public class HibernateExceptionTranslator implements PersistenceExceptionTransla
     this.jdbcExceptionTranslator = jdbcExceptionTranslator;
   }
 
+  /**
+   * Set the table for translating Hibernate exceptions, e.g. a
+   * {@link HibernateExceptionTranslationTable#copy() copy} of the shared
+   * table with custom translations registered.
+   * <p>Default is the table shared with {@link SessionFactoryUtils}.
+   *
+   * @see SessionFactoryUtils#getExceptionTranslationTable()
+   * @since 5.0
+   */
+  public void setExceptionTranslationTable(@Nullable HibernateExceptionTranslationTable exceptionTranslationTable) {
+    this.exceptionTranslationTable = exceptionTranslationTable;
+  }
+
   @Override
   @Nullable
   public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
@@ -98,6 +114,9 @@ public class HibernateExceptionTranslator implements PersistenceExceptionTransla
         return dae;
       }
     }
+    if (exceptionTranslationTable != null) {
+      return exceptionTranslationTable.translate(ex);
+    }
     return SessionFactoryUtils.convertHibernateAccessException(ex);
   }
 
@@ -23,7 +23,6 @@ import org.hibernate.WrongClassException;
 import org.jspecify.annotations.Nullable;
 
 import infra.orm.ObjectRetrievalFailureException;
-import infra.util.ReflectionUtils;
 
 /**
  * Hibernate-specific subclass of ObjectRetrievalFailureException.
@@ -46,14 +45,7 @@ public class HibernateObjectRetrievalFailureException extends ObjectRetrievalFai
 
   @Nullable
   static Object getIdentifier(HibernateException hibEx) {
-    try {
-      // getIdentifier declares Serializable return value on 5.x but Object on 6.x
-      // -> not binary compatible, let's invoke it reflectively for the time being
-      return ReflectionUtils.invokeMethod(hibEx.getClass().getMethod("getIdentifier"), hibEx);
-    }
-    catch (NoSuchMethodException ex) {
-      return null;
-    }
+    return HibernateExceptionTranslationTable.getIdentifier(hibEx);
   }
 
 }
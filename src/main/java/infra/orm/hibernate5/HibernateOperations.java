@@ -27,6 +27,8 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import infra.orm.ObjectOptimisticLockingFailureException;
 import infra.orm.ObjectRetrievalFailureException;
@@ -602,6 +604,72 @@ public interface HibernateOperations {
    */
   void deleteAll(Collection<?> entities) throws DataAccessException;
 
+  /**
+   * Save all given transient instances, flushing and clearing the current
+   * Hibernate {@link org.hibernate.Session} after every {@code batchSize}
+   * entities, so that bulk imports run within constant memory.
+   * <p>Entities are saved in the given order, so that orderings required by
+   * foreign keys are preserved. For combining the statements into JDBC batches,
+   * configure {@code hibernate.jdbc.batch_size} (ideally matching
+   * {@code batchSize}) along with {@code hibernate.order_inserts} and
+   * {@code hibernate.order_updates}, which let Hibernate sort statements by
+   * entity type while respecting dependencies between them.
+   * <p>Note that clearing the Session detaches <i>all</i> of its persistent
+   * instances, including the ones loaded before this call.
+   *
+   * @param entities the transient instances to persist
+   * @param batchSize the number of entities to save between flushes
+   * @return the generated identifiers, in the order of the given entities
+   * @throws DataAccessException in case of Hibernate errors
+   * @see org.hibernate.Session#save(Object)
+   * @see org.hibernate.cfg.AvailableSettings#STATEMENT_BATCH_SIZE
+   * @see org.hibernate.cfg.AvailableSettings#ORDER_INSERTS
+   */
+  List<Serializable> saveAll(Collection<?> entities, int batchSize) throws DataAccessException;
+
+  /**
+   * Persist all given transient instances, flushing and clearing the current
+   * Hibernate {@link org.hibernate.Session} after every {@code batchSize}
+   * entities. Follows JSR-220 semantics.
+   * <p>Batches are processed as described for {@link #saveAll(Collection, int)}.
+   *
+   * @param entities the transient instances to persist
+   * @param batchSize the number of entities to persist between flushes
+   * @throws DataAccessException in case of Hibernate errors
+   * @see org.hibernate.Session#persist(Object)
+   * @see #saveAll(Collection, int)
+   */
+  void persistAll(Collection<?> entities, int batchSize) throws DataAccessException;
+
+  /**
+   * Merge all given instances, flushing and clearing the current Hibernate
+   * {@link org.hibernate.Session} after every {@code batchSize} entities.
+   * Follows JSR-220 semantics.
+   * <p>Batches are processed as described for {@link #saveAll(Collection, int)}.
+   * As a consequence, the returned instances are detached.
+   *
+   * @param entities the instances to merge
+   * @param batchSize the number of entities to merge between flushes
+   * @return the merged instances, in the order of the given entities
+   * @throws DataAccessException in case of Hibernate errors
+   * @see org.hibernate.Session#merge(Object)
+   * @see #saveAll(Collection, int)
+   */
+  <T> List<T> mergeAll(Collection<T> entities, int batchSize) throws DataAccessException;
+
+  /**
+   * Delete all given persistent instances, flushing and clearing the current
+   * Hibernate {@link org.hibernate.Session} after every {@code batchSize} entities.
+   * <p>Batches are processed as described for {@link #saveAll(Collection, int)}.
+   *
+   * @param entities the persistent instances to delete
+   * @param batchSize the number of entities to delete between flushes
+   * @throws DataAccessException in case of Hibernate errors
+   * @see org.hibernate.Session#delete(Object)
+   * @see #saveAll(Collection, int)
+   */
+  void deleteAll(Collection<?> entities, int batchSize) throws DataAccessException;
+
   /**
    * Flush all pending saves, updates and deletes to the database.
    * <p>Only invoke this for selective eager flushing, for example when
@@ -832,6 +900,105 @@ public interface HibernateOperations {
    */
   List<?> findByNamedQueryAndValueBean(String queryName, Object valueBean) throws DataAccessException;
 
+  //-------------------------------------------------------------------------
+  // Convenience finder methods for streaming large results
+  //-------------------------------------------------------------------------
+
+  /**
+   * Execute an HQL query, binding a number of values to "?" parameters
+   * in the query string, and return the results as a lazily populated
+   * {@link Stream} backed by a {@link org.hibernate.ScrollMode#FORWARD_ONLY
+   * forward-only} cursor.
+   * <p>The template's {@link HibernateTemplate#setFetchSize fetch size} is
+   * applied to the cursor, and each entity is evicted from the Session once
+   * it has passed through the stream, so memory usage stays bounded.
+   * <p>The returned stream <b>must be closed</b> after use, preferably in a
+   * try-with-resources block, in order to release the underlying cursor.
+   * If no transactional Session is available, a new Session is opened and
+   * closed together with the stream.
+   *
+   * @param queryString a query expressed in Hibernate's query language
+   * @param values the values of the parameters
+   * @return a {@link Stream} of the query results
+   * @throws DataAccessException in case of Hibernate errors
+   * @see org.hibernate.query.Query#scroll(org.hibernate.ScrollMode)
+   * @see #forEach(String, Consumer, Object...)
+   */
+  <T> Stream<T> stream(String queryString, @Nullable Object... values) throws DataAccessException;
+
+  /**
+   * Execute a query based on the given Hibernate criteria object and return
+   * the results as a lazily populated {@link Stream}.
+   * <p>See {@link #stream(String, Object...)} for cursor handling and eviction.
+   *
+   * @param criteria the detached Hibernate criteria object.
+   * <b>Note: Do not reuse criteria objects! They need to recreated per execution,
+   * due to the suboptimal design of Hibernate's criteria facility.</b>
+   * @return a {@link Stream} of the query results
+   * @throws DataAccessException in case of Hibernate errors
+   * @see org.hibernate.Criteria#scroll(org.hibernate.ScrollMode)
+   */
+  <T> Stream<T> stream(DetachedCriteria criteria) throws DataAccessException;
+
+  /**
+   * Execute an HQL query, binding a number of values to "?" parameters
+   * in the query string, and pass each result to the given action.
+   * <p>Results are read through a {@link org.hibernate.ScrollMode#FORWARD_ONLY
+   * forward-only} cursor using the template's fetch size, each entity is
+   * evicted from the Session after it has been processed, and the cursor
+   * is closed before this method returns.
+   *
+   * @param queryString a query expressed in Hibernate's query language
+   * @param action the action to perform for each result
+   * @param values the values of the parameters
+   * @throws DataAccessException in case of Hibernate errors
+   * @see #stream(String, Object...)
+   */
+  <T> void forEach(String queryString, Consumer<? super T> action, @Nullable Object... values)
+          throws DataAccessException;
+
+  /**
+   * Execute a query based on the given Hibernate criteria object and pass
+   * each result to the given action.
+   * <p>See {@link #forEach(String, Consumer, Object...)} for cursor handling
+   * and eviction.
+   *
+   * @param criteria the detached Hibernate criteria object
+   * @param action the action to perform for each result
+   * @throws DataAccessException in case of Hibernate errors
+   */
+  <T> void forEach(DetachedCriteria criteria, Consumer<? super T> action) throws DataAccessException;
+
+  /**
+   * Execute an HQL query, binding a number of values to "?" parameters
+   * in the query string, and pass the results to the given action in
+   * chunks of up to {@code chunkSize} elements.
+   * <p>The entities of a chunk are evicted from the Session once the action
+   * has processed the chunk. See {@link #forEach(String, Consumer, Object...)}
+   * for cursor handling.
+   *
+   * @param queryString a query expressed in Hibernate's query language
+   * @param chunkSize the maximum number of results per chunk
+   * @param action the action to perform for each chunk of results
+   * @param values the values of the parameters
+   * @throws DataAccessException in case of Hibernate errors
+   */
+  <T> void forEachBatch(String queryString, int chunkSize, Consumer<List<T>> action,
+          @Nullable Object... values) throws DataAccessException;
+
+  /**
+   * Execute a query based on the given Hibernate criteria object and pass
+   * the results to the given action in chunks of up to {@code chunkSize} elements.
+   * <p>See {@link #forEachBatch(String, int, Consumer, Object...)} for details.
+   *
+   * @param criteria the detached Hibernate criteria object
+   * @param chunkSize the maximum number of results per chunk
+   * @param action the action to perform for each chunk of results
+   * @throws DataAccessException in case of Hibernate errors
+   */
+  <T> void forEachBatch(DetachedCriteria criteria, int chunkSize, Consumer<List<T>> action)
+          throws DataAccessException;
+
   //-------------------------------------------------------------------------
   // Convenience query methods for iteration and bulk updates/deletes
   //-------------------------------------------------------------------------
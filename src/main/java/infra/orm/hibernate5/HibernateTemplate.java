@@ -25,12 +25,16 @@ import org.hibernate.HibernateException;
 import org.hibernate.LockMode;
 import org.hibernate.LockOptions;
 import org.hibernate.ReplicationMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Example;
 import org.hibernate.engine.spi.SessionDelegatorBaseImpl;
 import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.query.Query;
 import org.hibernate.query.spi.NativeQueryImplementor;
 import org.hibernate.query.spi.QueryImplementor;
@@ -41,9 +45,16 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import infra.beans.factory.InitializingBean;
 import infra.dao.DataAccessException;
@@ -51,6 +62,7 @@ import infra.dao.InvalidDataAccessApiUsageException;
 import infra.lang.Assert;
 import infra.logging.Logger;
 import infra.logging.LoggerFactory;
+import infra.orm.jpa.EntityManagerHolder;
 import infra.transaction.support.ResourceHolderSupport;
 import infra.transaction.support.TransactionSynchronizationManager;
 import jakarta.persistence.PersistenceException;
@@ -117,6 +129,8 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
 
   private int maxResults = 0;
 
+  private final ValueBeanBinder.Cache valueBeanBinders = new ValueBeanBinder.Cache();
+
   /**
    * Create a new HibernateTemplate instance.
    */
@@ -138,6 +152,8 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
    */
   public void setSessionFactory(@Nullable SessionFactory sessionFactory) {
     this.sessionFactory = sessionFactory;
+    // Binding plans depend on the query definitions of the SessionFactory
+    this.valueBeanBinders.clear();
   }
 
   /**
@@ -375,7 +391,12 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
       enableFilters(session);
       Session sessionToExpose = enforceNativeSession || isExposeNativeSession()
                                 ? session : createSessionProxy(session);
-      return action.doInHibernate(sessionToExpose);
+      T result = action.doInHibernate(sessionToExpose);
+      if (!isNew && TransactionSynchronizationManager.getResource(
+              obtainSessionFactory()) instanceof EntityManagerHolder holder) {
+        holder.checkPersistenceContextSize();
+      }
+      return result;
     }
     catch (HibernateException ex) {
       throw SessionFactoryUtils.convertHibernateAccessException(ex);
@@ -796,6 +817,45 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
     });
   }
 
+  @Override
+  public List<Serializable> saveAll(Collection<?> entities, int batchSize) throws DataAccessException {
+    return nonNull(executeWithNativeSession(session -> {
+      checkWriteOperationAllowed(session);
+      Serializable[] ids = new Serializable[entities.size()];
+      doInBatches(session, entities, batchSize, (index, entity) -> ids[index] = session.save(entity));
+      return Arrays.asList(ids);
+    }));
+  }
+
+  @Override
+  public void persistAll(Collection<?> entities, int batchSize) throws DataAccessException {
+    executeWithNativeSession(session -> {
+      checkWriteOperationAllowed(session);
+      doInBatches(session, entities, batchSize, (index, entity) -> session.persist(entity));
+      return null;
+    });
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> List<T> mergeAll(Collection<T> entities, int batchSize) throws DataAccessException {
+    return nonNull(executeWithNativeSession(session -> {
+      checkWriteOperationAllowed(session);
+      Object[] merged = new Object[entities.size()];
+      doInBatches(session, entities, batchSize, (index, entity) -> merged[index] = session.merge(entity));
+      return (List<T>) Arrays.asList(merged);
+    }));
+  }
+
+  @Override
+  public void deleteAll(Collection<?> entities, int batchSize) throws DataAccessException {
+    executeWithNativeSession(session -> {
+      checkWriteOperationAllowed(session);
+      doInBatches(session, entities, batchSize, (index, entity) -> session.delete(entity));
+      return null;
+    });
+  }
+
   @Override
   public void flush() throws DataAccessException {
     executeWithNativeSession(session -> {
@@ -922,7 +982,8 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
     return nonNull(executeWithNativeSession((HibernateCallback<List<?>>) session -> {
       Query<?> queryObject = session.createQuery(queryString);
       prepareQuery(queryObject);
-      queryObject.setProperties(valueBean);
+      valueBeanBinders.forQuery(queryString, false, queryObject, valueBean.getClass(), session.getSessionFactory())
+              .bind(this, queryObject, valueBean);
       return queryObject.list();
     }));
   }
@@ -977,11 +1038,224 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
     return nonNull(executeWithNativeSession((HibernateCallback<List<?>>) session -> {
       Query<?> queryObject = session.getNamedQuery(queryName);
       prepareQuery(queryObject);
-      queryObject.setProperties(valueBean);
+      valueBeanBinders.forQuery(queryName, true, queryObject, valueBean.getClass(), session.getSessionFactory())
+              .bind(this, queryObject, valueBean);
       return queryObject.list();
     }));
   }
 
+  //-------------------------------------------------------------------------
+  // Convenience finder methods for streaming large results
+  //-------------------------------------------------------------------------
+
+  @Override
+  public <T> Stream<T> stream(String queryString, @Nullable Object... values) throws DataAccessException {
+    return doStream(session -> scrollQuery(session, queryString, values));
+  }
+
+  @Override
+  public <T> Stream<T> stream(DetachedCriteria criteria) throws DataAccessException {
+    Assert.notNull(criteria, "DetachedCriteria is required");
+    return doStream(session -> scrollCriteria(session, criteria));
+  }
+
+  @Override
+  public <T> void forEach(String queryString, Consumer<? super T> action, @Nullable Object... values)
+          throws DataAccessException {
+
+    doForEach(session -> scrollQuery(session, queryString, values), action);
+  }
+
+  @Override
+  public <T> void forEach(DetachedCriteria criteria, Consumer<? super T> action) throws DataAccessException {
+    Assert.notNull(criteria, "DetachedCriteria is required");
+    doForEach(session -> scrollCriteria(session, criteria), action);
+  }
+
+  @Override
+  public <T> void forEachBatch(String queryString, int chunkSize, Consumer<List<T>> action,
+          @Nullable Object... values) throws DataAccessException {
+
+    doForEachBatch(session -> scrollQuery(session, queryString, values), chunkSize, action);
+  }
+
+  @Override
+  public <T> void forEachBatch(DetachedCriteria criteria, int chunkSize, Consumer<List<T>> action)
+          throws DataAccessException {
+
+    Assert.notNull(criteria, "DetachedCriteria is required");
+    doForEachBatch(session -> scrollCriteria(session, criteria), chunkSize, action);
+  }
+
+  private ScrollableResults scrollQuery(Session session, String queryString, @Nullable Object[] values) {
+    // Prefer the StatelessSession of a read-only transaction, bypassing the persistence context
+    StatelessSession statelessSession = getTransactionalStatelessSession(session);
+    Query<?> queryObject = (statelessSession != null ?
+                            statelessSession.createQuery(queryString) : session.createQuery(queryString));
+    prepareQuery(queryObject);
+    if (values != null) {
+      for (int i = 0; i < values.length; i++) {
+        queryObject.setParameter(i, values[i]);
+      }
+    }
+    return queryObject.scroll(ScrollMode.FORWARD_ONLY);
+  }
+
+  /**
+   * Return the StatelessSession of the current read-only transaction, provided that
+   * the given Session is the transactional Session of this template's SessionFactory
+   * (rather than a new Session or a Session of another SessionFactory).
+   */
+  @Nullable
+  private StatelessSession getTransactionalStatelessSession(Session session) {
+    Object resource = TransactionSynchronizationManager.getResource(obtainSessionFactory());
+    if (resource instanceof SessionHolder sessionHolder && sessionHolder.getSession() == session) {
+      return sessionHolder.getStatelessSession();
+    }
+    return null;
+  }
+
+  private ScrollableResults scrollCriteria(Session session, DetachedCriteria criteria) {
+    Criteria executableCriteria = criteria.getExecutableCriteria(session);
+    prepareCriteria(executableCriteria);
+    return executableCriteria.scroll(ScrollMode.FORWARD_ONLY);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void doForEach(HibernateCallback<ScrollableResults> scroller, Consumer<? super T> action) {
+    Assert.notNull(action, "Action is required");
+    executeWithNativeSession(session -> {
+      ScrollableResults results = nonNull(scroller.doInHibernate(session));
+      try {
+        while (results.next()) {
+          Object result = currentResult(results);
+          action.accept((T) result);
+          evict(session, result);
+        }
+      }
+      finally {
+        results.close();
+      }
+      return null;
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void doForEachBatch(HibernateCallback<ScrollableResults> scroller,
+          int chunkSize, Consumer<List<T>> action) {
+
+    Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+    Assert.notNull(action, "Action is required");
+    executeWithNativeSession(session -> {
+      ScrollableResults results = nonNull(scroller.doInHibernate(session));
+      try {
+        ArrayList<T> chunk = new ArrayList<>(chunkSize);
+        while (results.next()) {
+          chunk.add((T) currentResult(results));
+          if (chunk.size() == chunkSize) {
+            action.accept(chunk);
+            evictAll(session, chunk);
+            chunk = new ArrayList<>(chunkSize);
+          }
+        }
+        if (!chunk.isEmpty()) {
+          action.accept(chunk);
+          evictAll(session, chunk);
+        }
+      }
+      finally {
+        results.close();
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Open a cursor within the current Session, or within a new Session
+   * that is going to be closed along with the returned Stream.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Stream<T> doStream(HibernateCallback<ScrollableResults> scroller) throws DataAccessException {
+    Session session = null;
+    boolean isNew = false;
+    try {
+      session = obtainSessionFactory().getCurrentSession();
+    }
+    catch (HibernateException ex) {
+      logger.debug("Could not retrieve pre-bound Hibernate session", ex);
+    }
+    if (session == null) {
+      session = obtainSessionFactory().openSession();
+      session.setHibernateFlushMode(FlushMode.MANUAL);
+      isNew = true;
+    }
+
+    ScrollableResults results;
+    try {
+      enableFilters(session);
+      results = nonNull(scroller.doInHibernate(session));
+    }
+    catch (RuntimeException ex) {
+      releaseStreamSession(session, isNew);
+      throw translateException(ex);
+    }
+    ScrollingSpliterator spliterator = new ScrollingSpliterator(session, isNew, results);
+    return (Stream<T>) StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+  }
+
+  private void releaseStreamSession(Session session, boolean isNew) {
+    if (isNew) {
+      SessionFactoryUtils.closeSession(session);
+    }
+    else {
+      disableFilters(session);
+    }
+  }
+
+  private static Object currentResult(ScrollableResults results) {
+    Object[] row = results.get();
+    return (row.length == 1 ? row[0] : row);
+  }
+
+  private static void evictAll(Session session, List<?> results) {
+    for (Object result : results) {
+      evict(session, result);
+    }
+  }
+
+  /**
+   * Evict the given query result from the Session: either a single
+   * entity or a tuple, ignoring scalar values.
+   */
+  private static void evict(Session session, @Nullable Object result) {
+    if (result instanceof Object[] tuple) {
+      for (Object element : tuple) {
+        evictEntity(session, element);
+      }
+    }
+    else {
+      evictEntity(session, result);
+    }
+  }
+
+  private static void evictEntity(Session session, @Nullable Object candidate) {
+    if (candidate instanceof HibernateProxy
+            || (candidate != null && session instanceof SessionImplementor sessionImplementor
+            && sessionImplementor.getPersistenceContext().getEntry(candidate) != null)) {
+      session.evict(candidate);
+    }
+  }
+
+  private static RuntimeException translateException(RuntimeException ex) {
+    if (ex instanceof HibernateException hibernateException) {
+      return SessionFactoryUtils.convertHibernateAccessException(hibernateException);
+    }
+    if (ex instanceof PersistenceException && ex.getCause() instanceof HibernateException hibernateException) {
+      return SessionFactoryUtils.convertHibernateAccessException(hibernateException);
+    }
+    return ex;
+  }
+
   //-------------------------------------------------------------------------
   // Convenience query methods for iteration and bulk updates/deletes
   //-------------------------------------------------------------------------
@@ -1129,11 +1403,98 @@ public class HibernateTemplate implements HibernateOperations, InitializingBean
     }
   }
 
+  /**
+   * Apply the given operation to all entities in the given order,
+   * flushing and clearing the Session after every {@code batchSize} entities.
+   */
+  private static <T> void doInBatches(Session session, Collection<T> entities,
+          int batchSize, BatchOperation<T> operation) throws HibernateException {
+    Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+    int index = 0;
+    for (T entity : entities) {
+      operation.apply(index++, entity);
+      if (index % batchSize == 0) {
+        session.flush();
+        session.clear();
+      }
+    }
+    if (index % batchSize != 0) {
+      session.flush();
+      session.clear();
+    }
+  }
+
   private static <T> T nonNull(@Nullable T result) {
     Assert.state(result != null, "No result");
     return result;
   }
 
+  /**
+   * Spliterator over a forward-only cursor that evicts each result once it
+   * has been passed downstream, releasing the cursor (and a Session opened
+   * for the stream) on exhaustion, on failure or when the stream gets closed.
+   */
+  private class ScrollingSpliterator extends Spliterators.AbstractSpliterator<Object> {
+
+    private final Session session;
+
+    private final boolean isNewSession;
+
+    private final ScrollableResults results;
+
+    private boolean closed;
+
+    ScrollingSpliterator(Session session, boolean isNewSession, ScrollableResults results) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED);
+      this.session = session;
+      this.isNewSession = isNewSession;
+      this.results = results;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Object> action) {
+      if (this.closed) {
+        return false;
+      }
+      Object result;
+      try {
+        if (!this.results.next()) {
+          close();
+          return false;
+        }
+        result = currentResult(this.results);
+      }
+      catch (RuntimeException ex) {
+        close();
+        throw translateException(ex);
+      }
+      action.accept(result);
+      evict(this.session, result);
+      return true;
+    }
+
+    void close() {
+      if (!this.closed) {
+        this.closed = true;
+        try {
+          this.results.close();
+        }
+        finally {
+          releaseStreamSession(this.session, this.isNewSession);
+        }
+      }
+    }
+  }
+
+  /**
+   * Operation on a single entity of a batched write.
+   */
+  @FunctionalInterface
+  private interface BatchOperation<T> {
+
+    void apply(int index, T entity) throws HibernateException;
+  }
+
   /**
    * Invocation handler that suppresses close calls on Hibernate Sessions.
    * Also prepares returned Query and Criteria objects.
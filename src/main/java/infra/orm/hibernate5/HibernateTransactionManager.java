@@ -23,7 +23,9 @@ import org.hibernate.HibernateException;
 import org.hibernate.Interceptor;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.boot.spi.SessionFactoryOptions;
 import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.resource.transaction.spi.TransactionStatus;
 import org.jspecify.annotations.Nullable;
@@ -45,6 +47,12 @@ import infra.jdbc.datasource.DataSourceUtils;
 import infra.jdbc.datasource.JdbcTransactionObjectSupport;
 import infra.jdbc.datasource.TransactionAwareDataSourceProxy;
 import infra.lang.Assert;
+import infra.orm.FlushTimer;
+import infra.orm.PersistenceContextGuard;
+import infra.orm.ReadWriteRoutingContext;
+import infra.orm.ReadWriteRoutingDataSource;
+import infra.orm.TransactionPhase;
+import infra.orm.TransactionPhaseListener;
 import infra.transaction.CannotCreateTransactionException;
 import infra.transaction.IllegalTransactionStateException;
 import infra.transaction.InvalidIsolationLevelException;
@@ -55,6 +63,7 @@ import infra.transaction.support.DefaultTransactionStatus;
 import infra.transaction.support.ResourceTransactionManager;
 import infra.transaction.support.SynchronizationInfo;
 import infra.transaction.support.TransactionSynchronizationManager;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceException;
 
 /**
@@ -128,6 +137,8 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
 
   private boolean hibernateManagedSession = false;
 
+  private boolean statelessStreaming = false;
+
   @Nullable
   private Consumer<Session> sessionInitializer;
 
@@ -142,6 +153,18 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
   @Nullable
   private BeanFactory beanFactory;
 
+  @Nullable
+  private TransactionPhaseListener transactionPhaseListener;
+
+  @Nullable
+  private PersistenceContextGuard persistenceContextGuard;
+
+  @Nullable
+  private Boolean readWriteRouting;
+
+  @Nullable
+  private String phaseUnitName;
+
   /**
    * Create a new HibernateTransactionManager instance.
    * A SessionFactory has to be set to be able to use it.
@@ -310,6 +333,42 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
     this.hibernateManagedSession = hibernateManagedSession;
   }
 
+  /**
+   * Set whether read-only transactions should expose a {@link StatelessSession}
+   * for streaming reads without a persistence context.
+   * <p>Default is "false". Switch this flag to "true" in order to expose a
+   * StatelessSession on the JDBC Connection of every new Session created for
+   * a read-only transaction, through {@link SessionHolder#getStatelessSession()}
+   * and {@link SessionFactoryUtils#getStatelessSession}. The StatelessSession
+   * is only opened on first access, so read-only transactions which never ask
+   * for it do not pay for it. Queries executed through it neither register the
+   * loaded entities in the first-level cache nor keep snapshots for dirty
+   * checking, which makes large reads considerably cheaper.
+   * <p>This is limited to streaming: {@link HibernateTemplate}'s {@code stream}
+   * and {@code forEach} finders for HQL queries pick it up automatically, as
+   * long as they run on the transactional Session of the same SessionFactory.
+   * All other reads, e.g. {@code find}, {@code get} and criteria queries on the
+   * template or through {@link SessionFactory#getCurrentSession()}, keep going
+   * through the regular Session and its persistence context. That Session still
+   * gets opened and bound as usual, since it owns the JDBC Connection and the
+   * transaction that the StatelessSession runs on. Note that Session filters
+   * do not apply to a StatelessSession, and neither does lazy loading.
+   *
+   * @see SessionFactory#withStatelessOptions()
+   * @see HibernateTemplate#stream(String, Object...)
+   */
+  public void setStatelessStreaming(boolean statelessStreaming) {
+    this.statelessStreaming = statelessStreaming;
+  }
+
+  /**
+   * Return whether read-only transactions expose a {@link StatelessSession}
+   * for streaming reads.
+   */
+  public boolean isStatelessStreaming() {
+    return this.statelessStreaming;
+  }
+
   /**
    * Specify a callback for customizing every Hibernate {@code Session} resource
    * created for a new transaction managed by this {@code HibernateTransactionManager}.
@@ -382,6 +441,82 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
     }
   }
 
+  /**
+   * Specify a listener for timing the phases of the transactions managed by
+   * this {@code HibernateTransactionManager}: begin, flush, commit,
+   * rollback and the lifetime of the transactional Session.
+   * <p>Every flush of the transactional Session gets timed through a
+   * {@link FlushTimingSessionListener}, including the flush on commit,
+   * which then is not part of the commit timing.
+   * <p>Phases are reported for the configured name of the SessionFactory, if any.
+   * Default is none, in which case no timings are taken at all.
+   * <p>With a {@link #setPersistenceContextGuard persistence-context guard} in place,
+   * the managed-entity count and peak of each transaction get reported as well.
+   *
+   * @see infra.orm.TransactionPhaseStatistics
+   */
+  public void setTransactionPhaseListener(@Nullable TransactionPhaseListener transactionPhaseListener) {
+    this.transactionPhaseListener = transactionPhaseListener;
+  }
+
+  /**
+   * Return the listener for timing transaction phases, if any.
+   */
+  @Nullable
+  public TransactionPhaseListener getTransactionPhaseListener() {
+    return this.transactionPhaseListener;
+  }
+
+  /**
+   * Specify a policy for the number of entities managed by the transactional
+   * Session, e.g. for automatically flushing and clearing it within
+   * long-running batch transactions. Default is none.
+   *
+   * @see SessionHolder#checkPersistenceContextSize()
+   * @see HibernateTemplate
+   * @since 5.0
+   */
+  public void setPersistenceContextGuard(@Nullable PersistenceContextGuard persistenceContextGuard) {
+    this.persistenceContextGuard = persistenceContextGuard;
+  }
+
+  /**
+   * Return the policy for the number of managed entities, if any.
+   *
+   * @since 5.0
+   */
+  @Nullable
+  public PersistenceContextGuard getPersistenceContextGuard() {
+    return this.persistenceContextGuard;
+  }
+
+  /**
+   * Set whether to expose the read-only flag of each transaction to a
+   * {@link ReadWriteRoutingDataSource} before the Session acquires its
+   * JDBC Connection, and to record read-write commits for its "read your
+   * writes" window.
+   * <p>Default is to detect a ReadWriteRoutingDataSource as the DataSource
+   * of this transaction manager (possibly behind a DelegatingDataSource),
+   * so that transactions do not touch the routing state otherwise.
+   *
+   * @see ReadWriteRoutingContext
+   * @since 5.0
+   */
+  public void setReadWriteRouting(boolean readWriteRouting) {
+    this.readWriteRouting = readWriteRouting;
+  }
+
+  /**
+   * Return whether transactions expose their read-only flag to a
+   * {@link ReadWriteRoutingDataSource}.
+   *
+   * @since 5.0
+   */
+  public boolean isReadWriteRouting() {
+    Boolean readWriteRouting = this.readWriteRouting;
+    return readWriteRouting != null ? readWriteRouting : ReadWriteRoutingDataSource.isReadWriteRouting(getDataSource());
+  }
+
   /**
    * The bean factory just needs to be known for resolving entity interceptor
    * bean names. It does not need to be set for any other mode of operation.
@@ -476,6 +611,14 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
 
     SessionImplementor session = null;
 
+    // Expose the read-only flag before the Session acquires its Connection.
+    if (isReadWriteRouting()) {
+      txObject.setPreviousRoutingReadOnly(ReadWriteRoutingContext.bind(definition.isReadOnly()));
+      txObject.setReadWriteRouting(true);
+    }
+
+    long startTime = phaseStartTime();
+    boolean success = false;
     try {
       if (!txObject.hasSessionHolder() || txObject.getSessionHolder().isSynchronizedWithTransaction()) {
         Interceptor entityInterceptor = getEntityInterceptor();
@@ -489,6 +632,7 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
           logger.debug("Opened new Session [{}] for Hibernate transaction", newSession);
         }
         txObject.setSession(newSession);
+        txObject.setOpenedAt(startTime);
       }
 
       session = txObject.getSessionHolder().getSession().unwrap(SessionImplementor.class);
@@ -580,11 +724,38 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
         txObject.setConnectionHolder(conHolder);
       }
 
+      // Expose a StatelessSession on the same JDBC Connection for read-only transactions,
+      // to be opened on first access only.
+      if (this.statelessStreaming && definition.isReadOnly() && txObject.isNewSession()) {
+        final SessionImplementor sessionToUse = session;
+        txObject.getSessionHolder().setStatelessSessionSupplier(() -> {
+          Connection con = sessionToUse.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection();
+          StatelessSession statelessSession = obtainSessionFactory().withStatelessOptions().connection(con).openStatelessSession();
+          if (logger.isDebugEnabled()) {
+            logger.debug("Opened new StatelessSession [{}] for read-only Hibernate transaction", statelessSession);
+          }
+          return statelessSession;
+        });
+      }
+
+      // Time all flushes of the Session, including the one on commit.
+      TransactionPhaseListener phaseListener = this.transactionPhaseListener;
+      if (phaseListener != null) {
+        txObject.setFlushTimer(FlushTimingSessionListener.start(
+                session, phaseListener, getPhaseUnitName(), definition.isReadOnly()));
+      }
+
       // Bind the session holder to the thread.
       if (txObject.isNewSessionHolder()) {
         TransactionSynchronizationManager.bindResource(obtainSessionFactory(), txObject.getSessionHolder());
       }
       txObject.getSessionHolder().setSynchronizedWithTransaction(true);
+      txObject.setDefinitionReadOnly(definition.isReadOnly());
+      if (this.persistenceContextGuard != null) {
+        txObject.getSessionHolder().setPersistenceContextGuard(this.persistenceContextGuard,
+                HibernateTransactionManager::countManagedEntities, definition.isReadOnly());
+      }
+      success = true;
     }
 
     catch (Throwable ex) {
@@ -598,12 +769,24 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
           logger.debug("Could not rollback Session after failed transaction begin", ex);
         }
         finally {
+          if (txObject.hasSessionHolder()) {
+            SessionFactoryUtils.closeStatelessSession(txObject.getSessionHolder().getOpenedStatelessSession());
+          }
           SessionFactoryUtils.closeSession(session);
           txObject.setSessionHolder(null);
         }
       }
       throw new CannotCreateTransactionException("Could not open Hibernate Session for transaction", ex);
     }
+    finally {
+      if (!success && txObject.isReadWriteRouting()) {
+        ReadWriteRoutingContext.restore(txObject.getPreviousRoutingReadOnly());
+      }
+      if (!success && txObject.getFlushTimer() != null) {
+        txObject.getFlushTimer().stop();
+      }
+      phaseCompleted(TransactionPhase.BEGIN, definition.isReadOnly(), startTime, success);
+    }
   }
 
   @Override
@@ -645,8 +828,16 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
       logger.debug("Committing Hibernate transaction on Session [{}]", txObject.getSessionHolder().getSession());
     }
 
+    FlushTimer flushTimer = txObject.getFlushTimer();
+    long flushNanos = (flushTimer != null ? flushTimer.getFlushNanos() : 0L);
+    long startTime = phaseStartTime();
+    boolean success = false;
     try {
       hibTx.commit();
+      success = true;
+      if (!status.isReadOnly() && txObject.isReadWriteRouting()) {
+        ReadWriteRoutingContext.recordWrite();
+      }
     }
     catch (org.hibernate.TransactionException ex) {
       // assumably from commit call to the underlying JDBC connection
@@ -662,6 +853,13 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
       }
       throw ex;
     }
+    finally {
+      // The flush on commit has been reported as FLUSH already
+      if (flushTimer != null) {
+        startTime += flushTimer.getFlushNanos() - flushNanos;
+      }
+      phaseCompleted(TransactionPhase.COMMIT, status.isReadOnly(), startTime, success);
+    }
   }
 
   @Override
@@ -673,8 +871,11 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
       logger.debug("Rolling back Hibernate transaction on Session [{}]", txObject.getSessionHolder().getSession());
     }
 
+    long startTime = phaseStartTime();
+    boolean success = false;
     try {
       hibTx.rollback();
+      success = true;
     }
     catch (org.hibernate.TransactionException ex) {
       throw new TransactionSystemException("Could not roll back Hibernate transaction", ex);
@@ -695,6 +896,7 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
         // Necessary for pre-bound Sessions, to avoid inconsistent state.
         txObject.getSessionHolder().getSession().clear();
       }
+      phaseCompleted(TransactionPhase.ROLLBACK, status.isReadOnly(), startTime, success);
     }
   }
 
@@ -723,6 +925,11 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
       info.unbindResource(getDataSource());
     }
 
+    FlushTimer flushTimer = txObject.getFlushTimer();
+    if (flushTimer != null) {
+      flushTimer.stop();
+    }
+
     SessionImplementor session = txObject.getSessionHolder().getSession().unwrap(SessionImplementor.class);
     if (txObject.needsConnectionReset()
             && session.getJdbcCoordinator().getLogicalConnection().isPhysicallyConnected()) {
@@ -750,7 +957,9 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
       if (logger.isDebugEnabled()) {
         logger.debug("Closing Hibernate Session [{}] after transaction", session);
       }
+      SessionFactoryUtils.closeStatelessSession(txObject.getSessionHolder().getOpenedStatelessSession());
       SessionFactoryUtils.closeSession(session);
+      phaseCompleted(TransactionPhase.RESOURCE_LIFETIME, txObject.isDefinitionReadOnly(), txObject.getOpenedAt(), true);
     }
     else {
       if (logger.isDebugEnabled()) {
@@ -763,7 +972,26 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
         disconnectOnCompletion(session);
       }
     }
+    int peakManagedEntityCount = txObject.getSessionHolder().getPeakManagedEntityCount();
+    if (peakManagedEntityCount >= 0) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Persistence context held up to {} managed entities within Hibernate transaction",
+                peakManagedEntityCount);
+      }
+      TransactionPhaseListener listener = this.transactionPhaseListener;
+      if (listener != null) {
+        listener.managedEntitiesCounted(getPhaseUnitName(), txObject.isDefinitionReadOnly(),
+                txObject.getSessionHolder().getManagedEntityCount(), peakManagedEntityCount);
+      }
+    }
     txObject.getSessionHolder().clear();
+    if (txObject.isReadWriteRouting()) {
+      ReadWriteRoutingContext.restore(txObject.getPreviousRoutingReadOnly());
+    }
+  }
+
+  private static int countManagedEntities(EntityManager session) {
+    return session.unwrap(SessionImplementor.class).getPersistenceContext().getNumberOfManagedEntities();
   }
 
   /**
@@ -795,6 +1023,40 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
     return SessionFactoryUtils.convertHibernateAccessException(ex);
   }
 
+  /**
+   * Return the start time for a transaction phase to be timed,
+   * or 0 if no {@link TransactionPhaseListener} has been registered.
+   */
+  private long phaseStartTime() {
+    return (this.transactionPhaseListener != null ? System.nanoTime() : 0L);
+  }
+
+  /**
+   * Report a completed transaction phase to the registered
+   * {@link TransactionPhaseListener}, if any.
+   */
+  private void phaseCompleted(TransactionPhase phase, boolean readOnly, long startTime, boolean success) {
+    TransactionPhaseListener listener = this.transactionPhaseListener;
+    if (listener != null && startTime != 0L) {
+      listener.phaseCompleted(phase, getPhaseUnitName(), readOnly, System.nanoTime() - startTime, success);
+    }
+  }
+
+  private String getPhaseUnitName() {
+    String unitName = this.phaseUnitName;
+    if (unitName == null) {
+      SessionFactoryOptions options = obtainSessionFactory().getSessionFactoryOptions();
+      if (options != null) {
+        unitName = options.getSessionFactoryName();
+      }
+      if (unitName == null) {
+        unitName = TransactionPhaseListener.DEFAULT_UNIT_NAME;
+      }
+      this.phaseUnitName = unitName;
+    }
+    return unitName;
+  }
+
   /**
    * Hibernate transaction object, representing a SessionHolder.
    * Used as transaction object by HibernateTransactionManager.
@@ -813,6 +1075,18 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
     @Nullable
     private Integer previousHoldability;
 
+    private boolean definitionReadOnly;
+
+    private long openedAt;
+
+    @Nullable
+    private Boolean previousRoutingReadOnly;
+
+    private boolean readWriteRouting;
+
+    @Nullable
+    private FlushTimer flushTimer;
+
     public void setSession(Session session) {
       this.sessionHolder = new SessionHolder(session);
       this.newSessionHolder = true;
@@ -865,6 +1139,48 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
       return this.previousHoldability;
     }
 
+    public void setDefinitionReadOnly(boolean definitionReadOnly) {
+      this.definitionReadOnly = definitionReadOnly;
+    }
+
+    public boolean isDefinitionReadOnly() {
+      return this.definitionReadOnly;
+    }
+
+    public void setOpenedAt(long openedAt) {
+      this.openedAt = openedAt;
+    }
+
+    public long getOpenedAt() {
+      return this.openedAt;
+    }
+
+    public void setPreviousRoutingReadOnly(@Nullable Boolean previousRoutingReadOnly) {
+      this.previousRoutingReadOnly = previousRoutingReadOnly;
+    }
+
+    @Nullable
+    public Boolean getPreviousRoutingReadOnly() {
+      return this.previousRoutingReadOnly;
+    }
+
+    public void setReadWriteRouting(boolean readWriteRouting) {
+      this.readWriteRouting = readWriteRouting;
+    }
+
+    public boolean isReadWriteRouting() {
+      return this.readWriteRouting;
+    }
+
+    public void setFlushTimer(@Nullable FlushTimer flushTimer) {
+      this.flushTimer = flushTimer;
+    }
+
+    @Nullable
+    public FlushTimer getFlushTimer() {
+      return this.flushTimer;
+    }
+
     public boolean hasInfraManagedTransaction() {
       return (this.sessionHolder != null && this.sessionHolder.getTransaction() != null);
     }
@@ -889,8 +1205,14 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
 
     @Override
     public void flush() {
+      // Timed here unless the Session's flush events are timed already
+      boolean timed = (this.flushTimer == null);
+      long startTime = (timed ? phaseStartTime() : 0L);
+      boolean success = false;
       try {
         getSessionHolder().getSession().flush();
+        success = true;
+        getSessionHolder().checkPersistenceContextSize();
       }
       catch (HibernateException ex) {
         throw convertHibernateAccessException(ex);
@@ -901,6 +1223,11 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
         }
         throw ex;
       }
+      finally {
+        if (timed) {
+          phaseCompleted(TransactionPhase.FLUSH, this.definitionReadOnly, startTime, success);
+        }
+      }
     }
   }
 
@@ -34,6 +34,8 @@ import org.jspecify.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.sql.DataSource;
 
@@ -44,6 +46,7 @@ import infra.beans.factory.FactoryBean;
 import infra.beans.factory.InitializingBean;
 import infra.beans.factory.config.ConfigurableBeanFactory;
 import infra.context.ResourceLoaderAware;
+import infra.context.SmartLifecycle;
 import infra.core.io.ClassPathResource;
 import infra.core.io.PathMatchingPatternResourceLoader;
 import infra.core.io.PatternResourceLoader;
@@ -52,6 +55,7 @@ import infra.core.io.ResourceLoader;
 import infra.core.task.AsyncTaskExecutor;
 import infra.core.type.filter.TypeFilter;
 import infra.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import infra.orm.jpa.persistenceunit.PersistenceManagedTypes;
 
 /**
  * {@link FactoryBean} that creates a Hibernate {@link SessionFactory}. This is the usual
@@ -67,6 +71,9 @@ import infra.orm.jpa.LocalContainerEntityManagerFactoryBean;
  * {@link HibernateTransactionManager}, this naturally allows for mixing JPA access code
  * with native Hibernate access code within the same transaction.
  *
+ * <p>Acts as a {@link SmartLifecycle} for pre-warming the Hibernate-contained
+ * beans once all singletons have been instantiated, see {@link #setPreWarmExecutor}.
+ *
  * @author Juergen Hoeller
  * @see #setDataSource
  * @see #setPackagesToScan
@@ -76,7 +83,8 @@ import infra.orm.jpa.LocalContainerEntityManagerFactoryBean;
  * @since 4.0
  */
 public class LocalSessionFactoryBean extends HibernateExceptionTranslator
-        implements FactoryBean<SessionFactory>, ResourceLoaderAware, BeanFactoryAware, InitializingBean, DisposableBean {
+        implements FactoryBean<SessionFactory>, ResourceLoaderAware, BeanFactoryAware,
+        InitializingBean, DisposableBean, SmartLifecycle {
 
   @Nullable
   private DataSource dataSource;
@@ -135,9 +143,15 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
   @Nullable
   private String[] packagesToScan;
 
+  @Nullable
+  private PersistenceManagedTypes managedTypes;
+
   @Nullable
   private AsyncTaskExecutor bootstrapExecutor;
 
+  @Nullable
+  private Executor preWarmExecutor;
+
   @Nullable
   private Integrator[] hibernateIntegrators;
 
@@ -158,6 +172,14 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
   @Nullable
   private SessionFactory sessionFactory;
 
+  @Nullable
+  private HibernateBeanContainer preWarmBeanContainer;
+
+  @Nullable
+  private Set<Class<?>> preWarmBeanTypes;
+
+  private volatile boolean running;
+
   /**
    * Set the DataSource to be used by the SessionFactory.
    * If set, this will override corresponding settings in Hibernate properties.
@@ -394,6 +416,19 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
     this.packagesToScan = packagesToScan;
   }
 
+  /**
+   * Set the {@link PersistenceManagedTypes} to register with this Hibernate
+   * SessionFactory, as an alternative to entity scanning. This allows for
+   * reusing the managed types of a JPA {@code EntityManagerFactory} set-up
+   * instead of scanning the classpath twice.
+   *
+   * @param managedTypes the managed types
+   * @see LocalSessionFactoryBuilder#addManagedTypes(PersistenceManagedTypes)
+   */
+  public void setManagedTypes(PersistenceManagedTypes managedTypes) {
+    this.managedTypes = managedTypes;
+  }
+
   /**
    * Specify an asynchronous executor for background bootstrapping,
    * e.g. a {@link infra.core.task.SimpleAsyncTaskExecutor}.
@@ -412,6 +447,24 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
     this.bootstrapExecutor = bootstrapExecutor;
   }
 
+  /**
+   * Specify an executor for creating the attribute converters and entity
+   * listeners of the managed types in parallel, rather than one after the other
+   * while Hibernate builds the {@code SessionFactory}. Only applies along with
+   * the containing {@link ConfigurableBeanFactory}, see {@link #setBeanFactory}.
+   * <p>The beans get created on {@link #start()}, i.e. once all singletons
+   * have been instantiated, since the executor threads could not create them
+   * while this factory bean gets initialized. Requests for them before that
+   * point create them on demand.
+   *
+   * @see HibernateBeanContainer#setDeferredCreation
+   * @see HibernateBeanContainer#preWarm
+   * @since 5.0
+   */
+  public void setPreWarmExecutor(Executor preWarmExecutor) {
+    this.preWarmExecutor = preWarmExecutor;
+  }
+
   /**
    * Specify one or more Hibernate {@link Integrator} implementations to apply.
    * <p>This will only be applied for an internally built {@link MetadataSources}
@@ -578,7 +631,15 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
     }
 
     if (beanFactory != null) {
-      sfb.setBeanContainer(beanFactory);
+      if (preWarmExecutor != null) {
+        HibernateBeanContainer beanContainer = new HibernateBeanContainer(beanFactory);
+        beanContainer.setDeferredCreation(true);
+        sfb.setBeanContainer(beanContainer);
+        this.preWarmBeanContainer = beanContainer;
+      }
+      else {
+        sfb.setBeanContainer(beanFactory);
+      }
     }
 
     if (cacheRegionFactory != null) {
@@ -609,10 +670,18 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
       sfb.addPackages(annotatedPackages);
     }
 
+    if (managedTypes != null) {
+      sfb.addManagedTypes(managedTypes);
+    }
+
     if (packagesToScan != null) {
       sfb.scanPackages(packagesToScan);
     }
 
+    if (preWarmBeanContainer != null) {
+      this.preWarmBeanTypes = sfb.getContainedBeanTypes();
+    }
+
     // Build SessionFactory instance.
     this.configuration = sfb;
     this.sessionFactory = buildSessionFactory(sfb);
@@ -664,6 +733,31 @@ public class LocalSessionFactoryBean extends HibernateExceptionTranslator
     return true;
   }
 
+  @Override
+  public void start() {
+    if (preWarmBeanContainer != null && preWarmBeanTypes != null && preWarmExecutor != null) {
+      preWarmBeanContainer.preWarm(preWarmBeanTypes, preWarmExecutor);
+      // Once is enough: a restart finds the beans cached already
+      this.preWarmBeanTypes = null;
+    }
+    this.running = true;
+  }
+
+  @Override
+  public void stop() {
+    this.running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.running;
+  }
+
+  @Override
+  public int getPhase() {
+    return Integer.MIN_VALUE;
+  }
+
   @Override
   public void destroy() {
     if (sessionFactory != null) {
@@ -19,6 +19,7 @@ package infra.orm.hibernate5;
 
 import org.hibernate.HibernateException;
 import org.hibernate.MappingException;
+import org.hibernate.MultiTenancyStrategy;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.BootstrapServiceRegistryBuilder;
@@ -37,8 +38,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -61,12 +66,15 @@ import infra.core.type.filter.AnnotationTypeFilter;
 import infra.core.type.filter.TypeFilter;
 import infra.lang.Assert;
 import infra.lang.TodayStrategies;
+import infra.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import infra.orm.jpa.persistenceunit.PersistenceManagedTypesScanner;
 import infra.transaction.jta.JtaTransactionManager;
 import infra.util.ClassUtils;
 import jakarta.persistence.Converter;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PersistenceException;
 import jakarta.transaction.TransactionManager;
 
 /**
@@ -120,9 +128,13 @@ public class LocalSessionFactoryBuilder extends Configuration {
 
   private final PatternResourceLoader patternResourceLoader;
 
+  private final MetadataSources metadataSources;
+
   @Nullable
   private TypeFilter[] entityTypeFilters = DEFAULT_ENTITY_TYPE_FILTERS;
 
+  private final Set<Class<?>> scannedConverterClasses = new LinkedHashSet<>();
+
   /**
    * Create a new LocalSessionFactoryBuilder for the given DataSource.
    *
@@ -177,6 +189,7 @@ public class LocalSessionFactoryBuilder extends Configuration {
 
     properties.put(AvailableSettings.CLASSLOADERS, Collections.singleton(resourceLoader.getClassLoader()));
     this.patternResourceLoader = PatternResourceLoader.fromResourceLoader(resourceLoader);
+    this.metadataSources = metadataSources;
   }
 
   /**
@@ -240,6 +253,44 @@ public class LocalSessionFactoryBuilder extends Configuration {
     return this;
   }
 
+  /**
+   * Set the given Hibernate {@link org.hibernate.resource.beans.container.spi.BeanContainer},
+   * e.g. a {@link HibernateBeanContainer} with deferred creation for pre-warming its beans.
+   *
+   * @see HibernateBeanContainer#setDeferredCreation
+   * @see AvailableSettings#BEAN_CONTAINER
+   * @since 5.0
+   */
+  public LocalSessionFactoryBuilder setBeanContainer(HibernateBeanContainer beanContainer) {
+    getProperties().put(AvailableSettings.BEAN_CONTAINER, beanContainer);
+    return this;
+  }
+
+  /**
+   * Return the attribute converters and entity listeners referenced by the
+   * classes registered so far, for pre-warming them in a {@link HibernateBeanContainer}.
+   * <p>To be called after registering all managed types, e.g. through
+   * {@link #addManagedTypes} or {@link #scanPackages}.
+   *
+   * @see HibernateBeanContainer#preWarm
+   * @see HibernateBeanContainer#findContainedBeanTypes
+   * @since 5.0
+   */
+  public Set<Class<?>> getContainedBeanTypes() {
+    List<Class<?>> managedClasses = new ArrayList<>(metadataSources.getAnnotatedClasses());
+    ClassLoader cl = this.patternResourceLoader.getClassLoader();
+    try {
+      for (String className : metadataSources.getAnnotatedClassNames()) {
+        managedClasses.add(ClassUtils.forName(className, cl));
+      }
+    }
+    catch (ClassNotFoundException ex) {
+      throw new MappingException("Failed to load annotated classes from classpath", ex);
+    }
+    managedClasses.addAll(this.scannedConverterClasses);
+    return HibernateBeanContainer.findContainedBeanTypes(managedClasses);
+  }
+
   /**
    * Set the Hibernate {@link RegionFactory} to use for the SessionFactory.
    * Allows for using a Framework-managed {@code RegionFactory} instance.
@@ -255,11 +306,21 @@ public class LocalSessionFactoryBuilder extends Configuration {
 
   /**
    * Set a {@link MultiTenantConnectionProvider} to be passed on to the SessionFactory.
+   * <p>For a {@link DataSourcePerTenantConnectionProvider} or a
+   * {@link SchemaPerTenantConnectionProvider}, the corresponding multi-tenancy
+   * strategy gets applied as well, unless specified explicitly.
    *
    * @see AvailableSettings#MULTI_TENANT_CONNECTION_PROVIDER
+   * @see AvailableSettings#MULTI_TENANT
    */
   public LocalSessionFactoryBuilder setMultiTenantConnectionProvider(MultiTenantConnectionProvider multiTenantConnectionProvider) {
     getProperties().put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, multiTenantConnectionProvider);
+    if (multiTenantConnectionProvider instanceof DataSourcePerTenantConnectionProvider) {
+      getProperties().putIfAbsent(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.DATABASE);
+    }
+    else if (multiTenantConnectionProvider instanceof SchemaPerTenantConnectionProvider) {
+      getProperties().putIfAbsent(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.SCHEMA);
+    }
     return this;
   }
 
@@ -313,14 +374,53 @@ public class LocalSessionFactoryBuilder extends Configuration {
     return this;
   }
 
+  /**
+   * Register the given managed types with this {@code Configuration}: managed
+   * classes as annotated classes (including attribute converters), managed
+   * packages as annotated packages.
+   * <p>Classes are registered by name, leaving it to Hibernate to load them
+   * while building the metadata. This allows for sharing a single
+   * {@link PersistenceManagedTypes} result between a native Hibernate
+   * {@code SessionFactory} and a JPA {@code EntityManagerFactory}.
+   *
+   * @param managedTypes the managed types, e.g. as obtained from a
+   * {@link PersistenceManagedTypesScanner}
+   * @see #scanPackages
+   */
+  public LocalSessionFactoryBuilder addManagedTypes(PersistenceManagedTypes managedTypes) {
+    for (String className : managedTypes.getManagedClassNames()) {
+      metadataSources.addAnnotatedClassName(className);
+    }
+    for (String packageName : managedTypes.getManagedPackages()) {
+      addPackage(packageName);
+    }
+    return this;
+  }
+
   /**
    * Perform Framework-based scanning for entity classes, registering them
    * as annotated classes with this {@code Configuration}.
+   * <p>With the default entity type filters, scanning is delegated to a
+   * {@link PersistenceManagedTypesScanner}, using the candidate components
+   * index if available and a parallel classpath scan otherwise.
    *
    * @param packagesToScan one or more Java package names
    * @throws HibernateException if scanning fails for any reason
+   * @see #addManagedTypes
    */
   public LocalSessionFactoryBuilder scanPackages(String... packagesToScan) throws HibernateException {
+    if (entityTypeFilters == DEFAULT_ENTITY_TYPE_FILTERS) {
+      PersistenceManagedTypes managedTypes;
+      try {
+        managedTypes = new PersistenceManagedTypesScanner(patternResourceLoader).scan(packagesToScan);
+      }
+      catch (PersistenceException ex) {
+        throw new MappingException(ex.getMessage(), ex.getCause());
+      }
+      return addManagedTypes(managedTypes);
+    }
+
+    // Custom entity type filters: scan the classpath ourselves
     TreeSet<String> packageNames = new TreeSet<>();
     TreeSet<String> entityClassNames = new TreeSet<>();
     TreeSet<String> converterClassNames = new TreeSet<>();
@@ -366,7 +466,9 @@ public class LocalSessionFactoryBuilder extends Configuration {
         addAnnotatedClass(ClassUtils.forName(className, cl));
       }
       for (String className : converterClassNames) {
-        addAttributeConverter(ClassUtils.forName(className, cl));
+        Class<?> converterClass = ClassUtils.forName(className, cl);
+        addAttributeConverter(converterClass);
+        this.scannedConverterClasses.add(converterClass);
       }
       for (String packageName : packageNames) {
         addPackage(packageName);
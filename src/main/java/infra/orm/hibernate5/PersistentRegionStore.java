@@ -0,0 +1,500 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+
+/**
+ * Append-only store for the serialized entries of a cache region, kept in
+ * a memory-mapped file so that entries live off-heap and survive restarts.
+ * Only the keys and their file offsets are held on the heap.
+ *
+ * <p>File layout: a header (magic, version, fingerprint, sealing time, end
+ * of data) followed by records of {@code [key length][value length][key][value]}.
+ * Updates append a new record, leaving the previous one as garbage; once the
+ * file is full, and on {@link #close()}, the live records get compacted to the
+ * start of the file. A sealed file thus only contains live records.
+ *
+ * <p>The store only gets reused on startup if it has been sealed on a clean
+ * shutdown, matches the given fingerprint and is not older than the given
+ * maximum age; otherwise it starts empty. The file is locked while open,
+ * so that processes sharing the same directory do not corrupt each other's
+ * entries. Entries that do not fit even after compaction are not persisted.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see CaffeineRegionFactory#setPersistentDirectory
+ * @since 5.0
+ */
+final class PersistentRegionStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(PersistentRegionStore.class);
+
+  private static final int MAGIC = 0x494e4643;
+
+  private static final int VERSION = 1;
+
+  private static final int FINGERPRINT_OFFSET = 8;
+
+  private static final int SEALED_AT_OFFSET = 16;
+
+  private static final int END_OFFSET = 24;
+
+  static final int HEADER_SIZE = 32;
+
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  /**
+   * JDK packages of the basic values held by cache keys and entries.
+   */
+  private static final Set<String> JDK_PACKAGES = Set.of(
+          "java.lang", "java.util", "java.math", "java.time", "java.sql");
+
+  /**
+   * Hibernate packages, including sub-packages, of the cache key and entry
+   * types and of the {@link org.hibernate.type.Type types} held by cache keys.
+   */
+  private static final List<String> HIBERNATE_PACKAGES = List.of("org.hibernate.cache", "org.hibernate.type");
+
+  private final Path file;
+
+  private final FileChannel channel;
+
+  private final FileLock lock;
+
+  private final MappedByteBuffer buffer;
+
+  /**
+   * Record offset per key; guarded by {@link #rwLock}, with compaction
+   * relocating records under the write lock.
+   */
+  private final HashMap<Object, Integer> index = new HashMap<>();
+
+  private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+  private final Duration maxAge;
+
+  private int end = HEADER_SIZE;
+
+  /**
+   * Total length of the live records, i.e. the size of the data after compaction.
+   */
+  private int liveBytes;
+
+  private ObjectInputFilter filter = info -> ObjectInputFilter.Status.REJECTED;
+
+  private boolean validated;
+
+  private boolean full;
+
+  private boolean closed;
+
+  private PersistentRegionStore(Path file, FileChannel channel, FileLock lock, MappedByteBuffer buffer, Duration maxAge) {
+    this.file = file;
+    this.channel = channel;
+    this.lock = lock;
+    this.buffer = buffer;
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Open the store in the given file, creating it if necessary.
+   * The existing entries only become visible after {@link #validate}.
+   *
+   * @param file the store file
+   * @param capacity the maximum size of the store file in bytes
+   * @param maxAge the maximum time since the store has been sealed
+   * for its entries to get reused
+   * @throws IOException if the file cannot be mapped, or is in use by another store
+   */
+  static PersistentRegionStore open(Path file, int capacity, Duration maxAge) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      FileLock lock;
+      try {
+        lock = channel.tryLock();
+      }
+      catch (OverlappingFileLockException ex) {
+        lock = null;
+      }
+      if (lock == null) {
+        throw new IOException("Persistent cache store [" + file + "] is in use by another process");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, HEADER_SIZE));
+      return new PersistentRegionStore(file, channel, lock, buffer, maxAge);
+    }
+    catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Validate the existing entries against the given fingerprint of the
+   * region's mapping, loading their keys if valid and discarding them otherwise.
+   * Marks the store as in use, i.e. not sealed, until {@link #close()}.
+   * <p>Only classes of the JDK's basic value packages, of Hibernate's cache
+   * key and entry types and of the given packages get deserialized, so that
+   * a tampered store file cannot instantiate arbitrary classes.
+   *
+   * @param fingerprint the fingerprint of the region's mapping
+   * @param packages the packages of the region's entity, identifier and
+   * property value classes
+   */
+  void validate(long fingerprint, Set<String> packages) {
+    this.rwLock.writeLock().lock();
+    try {
+      if (this.validated || this.closed) {
+        return;
+      }
+      this.validated = true;
+      this.filter = filter(packages);
+      if (isReusable(fingerprint)) {
+        loadIndex(this.buffer.getInt(END_OFFSET));
+        if (logger.isDebugEnabled()) {
+          logger.debug("Reusing {} persistent cache entries from [{}]", this.index.size(), this.file);
+        }
+      }
+      else if (this.buffer.getInt(0) == MAGIC) {
+        logger.debug("Discarding outdated persistent cache entries in [{}]", this.file);
+      }
+      this.buffer.putInt(0, MAGIC);
+      this.buffer.putInt(4, VERSION);
+      this.buffer.putLong(FINGERPRINT_OFFSET, fingerprint);
+      this.buffer.putLong(SEALED_AT_OFFSET, 0);
+      this.buffer.putInt(END_OFFSET, this.end);
+      this.buffer.force();
+    }
+    finally {
+      this.rwLock.writeLock().unlock();
+    }
+  }
+
+  private boolean isReusable(long fingerprint) {
+    if (this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION
+            || this.buffer.getLong(FINGERPRINT_OFFSET) != fingerprint) {
+      return false;
+    }
+    long sealedAt = this.buffer.getLong(SEALED_AT_OFFSET);
+    if (sealedAt <= 0 || System.currentTimeMillis() - sealedAt > this.maxAge.toMillis()) {
+      return false;
+    }
+    int end = this.buffer.getInt(END_OFFSET);
+    return end >= HEADER_SIZE && end <= this.buffer.capacity();
+  }
+
+  private void loadIndex(int end) {
+    int position = HEADER_SIZE;
+    try {
+      while (position + RECORD_HEADER_SIZE <= end) {
+        int keyLength = this.buffer.getInt(position);
+        int valueLength = this.buffer.getInt(position + 4);
+        this.index.put(deserialize(position + RECORD_HEADER_SIZE, keyLength), position);
+        position += RECORD_HEADER_SIZE + keyLength + valueLength;
+      }
+      this.end = position;
+      for (int recordPosition : this.index.values()) {
+        this.liveBytes += recordLength(recordPosition);
+      }
+    }
+    catch (Exception ex) {
+      logger.debug("Discarding unreadable persistent cache entries in [{}]", this.file, ex);
+      this.index.clear();
+      this.end = HEADER_SIZE;
+      this.liveBytes = 0;
+    }
+  }
+
+  @Nullable
+  Object get(Object key) {
+    this.rwLock.readLock().lock();
+    try {
+      Integer position = this.index.get(key);
+      if (position == null) {
+        return null;
+      }
+      int keyLength = this.buffer.getInt(position);
+      int valueLength = this.buffer.getInt(position + 4);
+      return deserialize(position + RECORD_HEADER_SIZE + keyLength, valueLength);
+    }
+    catch (Exception ex) {
+      logger.debug("Could not read persistent cache entry for key [{}]", key, ex);
+      return null;
+    }
+    finally {
+      this.rwLock.readLock().unlock();
+    }
+  }
+
+  boolean contains(Object key) {
+    this.rwLock.readLock().lock();
+    try {
+      return this.index.containsKey(key);
+    }
+    finally {
+      this.rwLock.readLock().unlock();
+    }
+  }
+
+  int size() {
+    this.rwLock.readLock().lock();
+    try {
+      return this.index.size();
+    }
+    finally {
+      this.rwLock.readLock().unlock();
+    }
+  }
+
+  void put(Object key, Object value) {
+    byte[] keyBytes = serialize(key);
+    byte[] valueBytes = (value instanceof Serializable ? serialize(value) : null);
+    this.rwLock.writeLock().lock();
+    try {
+      if (this.closed) {
+        return;
+      }
+      discard(this.index.remove(key));
+      int position = (keyBytes != null && valueBytes != null ? append(keyBytes, valueBytes) : -1);
+      if (position >= 0) {
+        this.index.put(key, position);
+        this.liveBytes += recordLength(position);
+      }
+    }
+    finally {
+      this.rwLock.writeLock().unlock();
+    }
+  }
+
+  void remove(Object key) {
+    this.rwLock.writeLock().lock();
+    try {
+      discard(this.index.remove(key));
+    }
+    finally {
+      this.rwLock.writeLock().unlock();
+    }
+  }
+
+  void clear() {
+    this.rwLock.writeLock().lock();
+    try {
+      this.index.clear();
+      this.end = HEADER_SIZE;
+      this.liveBytes = 0;
+      this.full = false;
+    }
+    finally {
+      this.rwLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Seal the store, allowing its entries to get reused on next startup,
+   * and release the file.
+   */
+  void close() {
+    this.rwLock.writeLock().lock();
+    try {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      if (this.validated) {
+        compact();
+        this.buffer.putInt(END_OFFSET, this.end);
+        this.buffer.putLong(SEALED_AT_OFFSET, System.currentTimeMillis());
+        this.buffer.force();
+      }
+      try {
+        this.lock.release();
+        this.channel.close();
+      }
+      catch (IOException ex) {
+        logger.debug("Could not release persistent cache store [{}]", this.file, ex);
+      }
+    }
+    finally {
+      this.rwLock.writeLock().unlock();
+    }
+  }
+
+  private int append(byte[] keyBytes, byte[] valueBytes) {
+    int length = RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+    if (length > this.buffer.capacity() - this.end) {
+      // Only compact once enough space can be reclaimed, rather than on every
+      // append to a store that is mostly filled with live records
+      int garbage = this.end - HEADER_SIZE - this.liveBytes;
+      if (garbage >= length && garbage >= (this.buffer.capacity() - HEADER_SIZE) / 8) {
+        compact();
+      }
+      if (length > this.buffer.capacity() - this.end) {
+        if (!this.full) {
+          logger.info("Persistent cache store [{}] is full: not persisting further entries until space is freed", this.file);
+          this.full = true;
+        }
+        return -1;
+      }
+    }
+    int position = this.end;
+    this.buffer.putInt(position, keyBytes.length);
+    this.buffer.putInt(position + 4, valueBytes.length);
+    this.buffer.put(position + RECORD_HEADER_SIZE, keyBytes);
+    this.buffer.put(position + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+    this.end = position + length;
+    this.full = false;
+    return position;
+  }
+
+  /**
+   * Move the live records to the start of the file, in their current order,
+   * dropping the records of updated and removed keys. Records only ever move
+   * towards the start of the file, so each one can be copied in place.
+   */
+  private void compact() {
+    List<Map.Entry<Object, Integer>> live = new ArrayList<>(this.index.entrySet());
+    live.sort(Map.Entry.comparingByValue());
+    int position = HEADER_SIZE;
+    for (Map.Entry<Object, Integer> entry : live) {
+      int source = entry.getValue();
+      int length = recordLength(source);
+      if (source != position) {
+        byte[] record = new byte[length];
+        this.buffer.get(source, record);
+        this.buffer.put(position, record);
+        entry.setValue(position);
+      }
+      position += length;
+    }
+    if (position < this.end && logger.isDebugEnabled()) {
+      logger.debug("Compacted persistent cache store [{}] from {} to {} bytes", this.file, this.end, position);
+    }
+    this.end = position;
+    this.liveBytes = position - HEADER_SIZE;
+  }
+
+  private void discard(@Nullable Integer position) {
+    if (position != null) {
+      this.liveBytes -= recordLength(position);
+    }
+  }
+
+  private int recordLength(int position) {
+    return RECORD_HEADER_SIZE + this.buffer.getInt(position) + this.buffer.getInt(position + 4);
+  }
+
+  private Object deserialize(int position, int length) throws IOException, ClassNotFoundException {
+    byte[] bytes = new byte[length];
+    this.buffer.get(position, bytes);
+    try (ObjectInputStream in = new ContextObjectInputStream(new ByteArrayInputStream(bytes))) {
+      in.setObjectInputFilter(this.filter);
+      return in.readObject();
+    }
+  }
+
+  private static ObjectInputFilter filter(Set<String> packages) {
+    return info -> {
+      Class<?> type = info.serialClass();
+      if (type == null) {
+        // depth and reference limits are up to the process-wide filter
+        return ObjectInputFilter.Status.UNDECIDED;
+      }
+      while (type.isArray()) {
+        type = type.getComponentType();
+      }
+      String packageName = type.getPackageName();
+      if (type.isPrimitive() || JDK_PACKAGES.contains(packageName) || packages.contains(packageName)) {
+        return ObjectInputFilter.Status.ALLOWED;
+      }
+      for (String hibernatePackage : HIBERNATE_PACKAGES) {
+        if (packageName.equals(hibernatePackage) || packageName.startsWith(hibernatePackage + '.')) {
+          return ObjectInputFilter.Status.ALLOWED;
+        }
+      }
+      return ObjectInputFilter.Status.REJECTED;
+    };
+  }
+
+  @Nullable
+  private static byte[] serialize(Object object) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    catch (IOException ex) {
+      logger.debug("Could not serialize cache entry [{}]", object, ex);
+      return null;
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * ObjectInputStream resolving classes against the thread context ClassLoader,
+   * e.g. for entity classes loaded by a web application ClassLoader.
+   */
+  private static final class ContextObjectInputStream extends ObjectInputStream {
+
+    ContextObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      if (classLoader != null) {
+        try {
+          return Class.forName(desc.getName(), false, classLoader);
+        }
+        catch (ClassNotFoundException ex) {
+          // fall back to default resolution
+        }
+      }
+      return super.resolveClass(desc);
+    }
+  }
+
+}
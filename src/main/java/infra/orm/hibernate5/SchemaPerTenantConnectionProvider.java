@@ -0,0 +1,404 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.jspecify.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import infra.jdbc.support.JdbcUtils;
+import infra.lang.Assert;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+import infra.transaction.support.TransactionSynchronization;
+import infra.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hibernate {@link MultiTenantConnectionProvider} for schema-per-tenant
+ * multi-tenancy, multiplexing a single (pooled) {@link DataSource} across
+ * all tenants instead of keeping a pool per tenant.
+ *
+ * <p>Tenant identifiers get resolved by Hibernate, typically through a
+ * {@link org.hibernate.context.spi.CurrentTenantIdentifierResolver}, and are
+ * mapped to schema names through a {@link #setSchemaNameResolver resolver}.
+ * On checkout, the connection gets switched to the tenant's schema. The current
+ * schema of each physical connection is tracked, so that the switch statement
+ * is skipped if the pooled connection is still on the requested schema, which
+ * commonly is the case for a pool serving few hot tenants.
+ *
+ * <p>Schemas are switched through a SQL statement determined by the database
+ * product, or {@link #setSchemaSwitchStatement specified} explicitly, rather than
+ * through {@link Connection#setSchema}: connection pools such as HikariCP reset
+ * a schema changed through the JDBC API when the connection is returned,
+ * which would defeat the tracking. The tracking relies on the schema not
+ * getting changed by other code sharing the same pool.
+ *
+ * <p>On databases such as PostgreSQL, a schema switch is part of the current
+ * transaction and reverted on rollback. A switch on a connection that is not
+ * in auto-commit mode therefore gets committed right away. In addition, the
+ * tracked schema of a connection obtained within a transaction with active
+ * synchronization gets dropped once that transaction rolls back, forcing a
+ * switch on the next checkout.
+ *
+ * <p>Per-tenant checkout counts, schema switches and hold times are available
+ * through {@link #getTenantStatistics}.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see LocalSessionFactoryBuilder#setMultiTenantConnectionProvider
+ * @see LocalSessionFactoryBuilder#setCurrentTenantIdentifierResolver
+ * @since 5.0
+ */
+@SuppressWarnings("serial")
+public class SchemaPerTenantConnectionProvider implements MultiTenantConnectionProvider {
+
+  private static final Logger logger = LoggerFactory.getLogger(SchemaPerTenantConnectionProvider.class);
+
+  private static final Pattern SCHEMA_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+  private final DataSource dataSource;
+
+  private Function<String, String> schemaNameResolver = Function.identity();
+
+  @Nullable
+  private String defaultSchema;
+
+  @Nullable
+  private volatile String schemaSwitchStatement;
+
+  /**
+   * Current schema per physical connection, weakly keyed so that connections
+   * discarded by the pool do not get retained.
+   */
+  private final Map<Connection, String> currentSchemas = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final ConcurrentHashMap<Connection, Long> checkoutTimes = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, TenantStatistics> statistics = new ConcurrentHashMap<>();
+
+  /**
+   * Create a new SchemaPerTenantConnectionProvider.
+   *
+   * @param dataSource the DataSource shared by all tenants
+   */
+  public SchemaPerTenantConnectionProvider(DataSource dataSource) {
+    Assert.notNull(dataSource, "DataSource is required");
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Set the function mapping tenant identifiers to schema names.
+   * <p>Default is the identity function, i.e. tenant identifiers are schema names.
+   * Schema names are required to be plain SQL identifiers.
+   */
+  public void setSchemaNameResolver(Function<String, String> schemaNameResolver) {
+    Assert.notNull(schemaNameResolver, "Schema name resolver is required");
+    this.schemaNameResolver = schemaNameResolver;
+  }
+
+  /**
+   * Set the schema to switch connections obtained without a tenant
+   * to, e.g. for Hibernate's schema tooling.
+   * <p>Default is none, i.e. such connections are used with whatever
+   * schema they are currently on.
+   *
+   * @see #getAnyConnection()
+   */
+  public void setDefaultSchema(@Nullable String defaultSchema) {
+    this.defaultSchema = defaultSchema;
+  }
+
+  /**
+   * Set the statement switching a connection's schema, with a {@code %s}
+   * placeholder for the schema name, e.g. {@code "SET search_path TO %s"}.
+   * <p>Default is a statement determined from the database product name:
+   * {@code SET search_path TO} for PostgreSQL, {@code USE} for MySQL and
+   * MariaDB, {@code ALTER SESSION SET CURRENT_SCHEMA} for Oracle and
+   * {@code SET SCHEMA} otherwise.
+   */
+  public void setSchemaSwitchStatement(@Nullable String schemaSwitchStatement) {
+    Assert.isTrue(schemaSwitchStatement == null || schemaSwitchStatement.contains("%s"),
+            "Schema switch statement must contain a '%s' placeholder");
+    this.schemaSwitchStatement = schemaSwitchStatement;
+  }
+
+  @Override
+  public Connection getAnyConnection() throws SQLException {
+    Connection con = this.dataSource.getConnection();
+    if (this.defaultSchema != null) {
+      switchSchema(con, this.defaultSchema, null);
+    }
+    return con;
+  }
+
+  @Override
+  public void releaseAnyConnection(Connection connection) throws SQLException {
+    connection.close();
+  }
+
+  @Override
+  public Connection getConnection(String tenantIdentifier) throws SQLException {
+    String schema = this.schemaNameResolver.apply(tenantIdentifier);
+    TenantStatistics tenantStatistics = this.statistics.computeIfAbsent(tenantIdentifier, id -> new TenantStatistics());
+    Connection con = this.dataSource.getConnection();
+    switchSchema(con, schema, tenantStatistics);
+    tenantStatistics.checkedOut();
+    this.checkoutTimes.put(con, System.nanoTime());
+    return con;
+  }
+
+  @Override
+  public void releaseConnection(String tenantIdentifier, Connection connection) throws SQLException {
+    Long checkoutTime = this.checkoutTimes.remove(connection);
+    TenantStatistics tenantStatistics = this.statistics.get(tenantIdentifier);
+    if (tenantStatistics != null && checkoutTime != null) {
+      tenantStatistics.released(System.nanoTime() - checkoutTime);
+    }
+    connection.close();
+  }
+
+  private void switchSchema(Connection con, String schema, @Nullable TenantStatistics tenantStatistics) throws SQLException {
+    if (!SCHEMA_NAME.matcher(schema).matches()) {
+      JdbcUtils.closeConnection(con);
+      throw new SQLException("Invalid schema name '" + schema + "'");
+    }
+    Connection physicalCon = getPhysicalConnection(con);
+    if (!schema.equals(this.currentSchemas.get(physicalCon))) {
+      String statement = getSchemaSwitchStatement(con);
+      try (Statement stmt = con.createStatement()) {
+        stmt.execute(statement.formatted(schema));
+        if (!con.getAutoCommit()) {
+          // Make the switch survive a rollback of the upcoming transaction.
+          con.commit();
+        }
+      }
+      catch (SQLException | RuntimeException ex) {
+        this.currentSchemas.remove(physicalCon);
+        JdbcUtils.closeConnection(con);
+        throw ex;
+      }
+      this.currentSchemas.put(physicalCon, schema);
+      if (tenantStatistics != null) {
+        tenantStatistics.switched();
+      }
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+              new SchemaTrackingSynchronization(physicalCon, schema));
+    }
+  }
+
+  /**
+   * Return the physical connection underneath the given pooled connection,
+   * identifying it across checkouts for tracking its current schema.
+   * <p>The default implementation unwraps the connection through
+   * {@link Connection#unwrap}, which is supported by common pools.
+   */
+  protected Connection getPhysicalConnection(Connection con) {
+    try {
+      if (con.isWrapperFor(Connection.class)) {
+        return con.unwrap(Connection.class);
+      }
+    }
+    catch (SQLException ex) {
+      logger.debug("Could not unwrap JDBC Connection: {}", ex.toString());
+    }
+    return con;
+  }
+
+  private String getSchemaSwitchStatement(Connection con) throws SQLException {
+    String statement = this.schemaSwitchStatement;
+    if (statement == null) {
+      String productName = con.getMetaData().getDatabaseProductName();
+      statement = determineSchemaSwitchStatement(productName);
+      if (logger.isDebugEnabled()) {
+        logger.debug("Using schema switch statement [{}] for database product '{}'", statement, productName);
+      }
+      this.schemaSwitchStatement = statement;
+    }
+    return statement;
+  }
+
+  static String determineSchemaSwitchStatement(@Nullable String productName) {
+    String name = (productName != null ? productName.toLowerCase() : "");
+    if (name.contains("postgres")) {
+      return "SET search_path TO %s";
+    }
+    if (name.contains("mysql") || name.contains("mariadb")) {
+      return "USE %s";
+    }
+    if (name.contains("oracle")) {
+      return "ALTER SESSION SET CURRENT_SCHEMA = %s";
+    }
+    return "SET SCHEMA %s";
+  }
+
+  @Override
+  public boolean supportsAggressiveRelease() {
+    return false;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public boolean isUnwrappableAs(Class unwrapType) {
+    return unwrapType.isInstance(this) || unwrapType.isInstance(this.dataSource);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T unwrap(Class<T> unwrapType) {
+    if (unwrapType.isInstance(this)) {
+      return (T) this;
+    }
+    if (unwrapType.isInstance(this.dataSource)) {
+      return (T) this.dataSource;
+    }
+    throw new UnknownUnwrapTypeException(unwrapType);
+  }
+
+  /**
+   * Return the identifiers of all tenants that connections have been obtained for.
+   */
+  public Set<String> getTenantIdentifiers() {
+    return this.statistics.keySet();
+  }
+
+  /**
+   * Return the connection usage statistics of the given tenant.
+   *
+   * @param tenantIdentifier the tenant identifier
+   * @return the statistics, or {@code null} if no connection has been
+   * obtained for the given tenant so far
+   */
+  @Nullable
+  public TenantStatistics getTenantStatistics(String tenantIdentifier) {
+    return this.statistics.get(tenantIdentifier);
+  }
+
+  /**
+   * Drops the tracked schema of a connection after a rollback, which
+   * might have reverted a switch issued within the transaction.
+   */
+  private final class SchemaTrackingSynchronization implements TransactionSynchronization {
+
+    private final Connection physicalCon;
+
+    private final String schema;
+
+    SchemaTrackingSynchronization(Connection physicalCon, String schema) {
+      this.physicalCon = physicalCon;
+      this.schema = schema;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      if (status != STATUS_COMMITTED) {
+        currentSchemas.remove(this.physicalCon, this.schema);
+      }
+    }
+  }
+
+  /**
+   * Connection usage statistics of a single tenant.
+   */
+  public static final class TenantStatistics {
+
+    private final LongAdder checkoutCount = new LongAdder();
+
+    private final LongAdder schemaSwitchCount = new LongAdder();
+
+    private final LongAdder totalHoldNanos = new LongAdder();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final AtomicInteger peakActiveCount = new AtomicInteger();
+
+    void checkedOut() {
+      this.checkoutCount.increment();
+      this.peakActiveCount.accumulateAndGet(this.activeCount.incrementAndGet(), Math::max);
+    }
+
+    void switched() {
+      this.schemaSwitchCount.increment();
+    }
+
+    void released(long holdNanos) {
+      this.activeCount.decrementAndGet();
+      this.totalHoldNanos.add(holdNanos);
+    }
+
+    /**
+     * Return the number of connections obtained.
+     */
+    public long getCheckoutCount() {
+      return this.checkoutCount.sum();
+    }
+
+    /**
+     * Return the number of schema switches, i.e. of checkouts of a
+     * connection that was not on the tenant's schema already.
+     */
+    public long getSchemaSwitchCount() {
+      return this.schemaSwitchCount.sum();
+    }
+
+    /**
+     * Return the number of connections currently held.
+     */
+    public int getActiveCount() {
+      return this.activeCount.get();
+    }
+
+    /**
+     * Return the maximum number of connections held at the same time.
+     */
+    public int getPeakActiveCount() {
+      return this.peakActiveCount.get();
+    }
+
+    /**
+     * Return the accumulated time between obtaining and releasing connections.
+     */
+    public long getTotalHoldTime(TimeUnit unit) {
+      return unit.convert(this.totalHoldNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+      return "TenantStatistics [checkouts=" + getCheckoutCount() + ", switches=" + getSchemaSwitchCount() +
+              ", active=" + getActiveCount() + ", peak=" + getPeakActiveCount() +
+              ", hold=" + getTotalHoldTime(TimeUnit.MILLISECONDS) + "ms]";
+    }
+  }
+
+}
@@ -31,6 +31,7 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.StaleStateException;
+import org.hibernate.StatelessSession;
 import org.hibernate.TransientObjectException;
 import org.hibernate.UnresolvableObjectException;
 import org.hibernate.WrongClassException;
@@ -49,6 +50,7 @@ import org.jspecify.annotations.Nullable;
 
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.function.Function;
 
 import javax.sql.DataSource;
 
@@ -64,6 +66,7 @@ import infra.dao.PessimisticLockingFailureException;
 import infra.jdbc.datasource.DataSourceUtils;
 import infra.logging.Logger;
 import infra.logging.LoggerFactory;
+import infra.transaction.support.TransactionSynchronizationManager;
 import infra.util.ReflectionUtils;
 import jakarta.persistence.PersistenceException;
 
@@ -93,6 +96,9 @@ public abstract class SessionFactoryUtils {
 
   static final Logger logger = LoggerFactory.getLogger(SessionFactoryUtils.class);
 
+  private static final HibernateExceptionTranslationTable exceptionTranslationTable =
+          createExceptionTranslationTable();
+
   /**
    * Trigger a flush on the given Hibernate Session, converting regular
    * {@link HibernateException} instances as well as Hibernate 5.2's
@@ -144,6 +150,42 @@ public abstract class SessionFactoryUtils {
     }
   }
 
+  /**
+   * Perform actual closing of the Hibernate StatelessSession,
+   * catching and logging any cleanup exceptions thrown.
+   *
+   * @param session the Hibernate StatelessSession to close (may be {@code null})
+   * @see StatelessSession#close()
+   */
+  public static void closeStatelessSession(@Nullable StatelessSession session) {
+    if (session != null) {
+      try {
+        if (session.isOpen()) {
+          session.close();
+        }
+      }
+      catch (Throwable ex) {
+        logger.error("Failed to release Hibernate StatelessSession", ex);
+      }
+    }
+  }
+
+  /**
+   * Return the {@link StatelessSession} of the current read-only transaction
+   * for the given SessionFactory, if any, opening it on first access. Such a
+   * StatelessSession shares the JDBC Connection and the transaction of the
+   * transactional Session.
+   *
+   * @param sessionFactory the SessionFactory to check
+   * @return the StatelessSession, or {@code null} if none bound
+   * @see HibernateTransactionManager#setStatelessStreaming
+   */
+  @Nullable
+  public static StatelessSession getStatelessSession(SessionFactory sessionFactory) {
+    Object resource = TransactionSynchronizationManager.getResource(sessionFactory);
+    return (resource instanceof SessionHolder sessionHolder ? sessionHolder.getStatelessSession() : null);
+  }
+
   /**
    * Determine the DataSource of the given SessionFactory.
    *
@@ -183,82 +225,85 @@ public abstract class SessionFactoryUtils {
    *
    * @param ex the HibernateException that occurred
    * @return the corresponding DataAccessException instance
+   * @see #getExceptionTranslationTable()
    * @see HibernateExceptionTranslator#convertHibernateAccessException
    * @see HibernateTransactionManager#convertHibernateAccessException
    */
   public static DataAccessException convertHibernateAccessException(HibernateException ex) {
-    if (ex instanceof JDBCConnectionException) {
-      return new DataAccessResourceFailureException(ex.getMessage(), ex);
-    }
-    if (ex instanceof SQLGrammarException jdbcEx) {
-      return new InvalidDataAccessResourceUsageException(ex.getMessage() + "; SQL [" + jdbcEx.getSQL() + "]", ex);
-    }
-    if (ex instanceof QueryTimeoutException jdbcEx) {
-      return new infra.dao.QueryTimeoutException(ex.getMessage() + "; SQL [" + jdbcEx.getSQL() + "]", ex);
-    }
-    if (ex instanceof LockAcquisitionException jdbcEx) {
-      return new CannotAcquireLockException(ex.getMessage() + "; SQL [" + jdbcEx.getSQL() + "]", ex);
-    }
-    if (ex instanceof PessimisticLockException jdbcEx) {
-      return new PessimisticLockingFailureException(ex.getMessage() + "; SQL [" + jdbcEx.getSQL() + "]", ex);
-    }
-    if (ex instanceof ConstraintViolationException jdbcEx) {
-      return new DataIntegrityViolationException(ex.getMessage() + "; SQL [" + jdbcEx.getSQL() +
-              "]; constraint [" + jdbcEx.getConstraintName() + "]", ex);
-    }
-    if (ex instanceof DataException jdbcEx) {
-      return new DataIntegrityViolationException(ex.getMessage() + "; SQL [" + jdbcEx.getSQL() + "]", ex);
-    }
-    if (ex instanceof JDBCException) {
-      return new HibernateJdbcException((JDBCException) ex);
-    }
-    // end of JDBCException (subclass) handling
+    return exceptionTranslationTable.translate(ex);
+  }
 
-    if (ex instanceof QueryException) {
-      return new HibernateQueryException((QueryException) ex);
-    }
-    if (ex instanceof NonUniqueResultException) {
-      return new IncorrectResultSizeDataAccessException(ex.getMessage(), 1, ex);
-    }
-    if (ex instanceof NonUniqueObjectException) {
-      return new DuplicateKeyException(ex.getMessage(), ex);
-    }
-    if (ex instanceof PropertyValueException) {
-      return new DataIntegrityViolationException(ex.getMessage(), ex);
-    }
-    if (ex instanceof PersistentObjectException) {
-      return new InvalidDataAccessApiUsageException(ex.getMessage(), ex);
-    }
-    if (ex instanceof TransientObjectException) {
-      return new InvalidDataAccessApiUsageException(ex.getMessage(), ex);
-    }
-    if (ex instanceof ObjectDeletedException) {
-      return new InvalidDataAccessApiUsageException(ex.getMessage(), ex);
-    }
-    if (ex instanceof UnresolvableObjectException) {
-      return new HibernateObjectRetrievalFailureException((UnresolvableObjectException) ex);
-    }
-    if (ex instanceof WrongClassException) {
-      return new HibernateObjectRetrievalFailureException((WrongClassException) ex);
-    }
-    if (ex instanceof StaleObjectStateException) {
-      return new HibernateOptimisticLockingFailureException((StaleObjectStateException) ex);
-    }
-    if (ex instanceof StaleStateException) {
-      return new HibernateOptimisticLockingFailureException((StaleStateException) ex);
-    }
-    if (ex instanceof OptimisticEntityLockException) {
-      return new HibernateOptimisticLockingFailureException((OptimisticEntityLockException) ex);
-    }
-    if (ex instanceof PessimisticEntityLockException) {
+  /**
+   * Return the translation table applied by {@link #convertHibernateAccessException},
+   * e.g. for registering translations of custom HibernateException subclasses.
+   * <p>Shared by {@link HibernateTemplate}, {@link HibernateTransactionManager}
+   * and, unless configured otherwise, {@link HibernateExceptionTranslator}.
+   *
+   * @see HibernateExceptionTranslationTable#register
+   * @since 5.0
+   */
+  public static HibernateExceptionTranslationTable getExceptionTranslationTable() {
+    return exceptionTranslationTable;
+  }
+
+  /**
+   * Create a new translation table with the translations that apply to native
+   * Hibernate and JPA access alike: JDBCException subclasses, result size and
+   * object state violations as well as pessimistic locking failures.
+   * <p>Callers register their specific translations on top, i.e. for
+   * {@code JDBCException} itself, {@code QueryException}, object retrieval
+   * and optimistic locking failures.
+   *
+   * @param defaultTranslation the translation of exceptions without a
+   * registered translation for any of their superclasses
+   * @see #getExceptionTranslationTable()
+   * @see infra.orm.jpa.vendor.HibernateJpaDialect#getExceptionTranslationTable()
+   * @since 5.0
+   */
+  public static HibernateExceptionTranslationTable createExceptionTranslationTable(
+          Function<? super HibernateException, ? extends DataAccessException> defaultTranslation) {
+
+    HibernateExceptionTranslationTable table = new HibernateExceptionTranslationTable(defaultTranslation);
+    table.register(JDBCConnectionException.class, ex -> new DataAccessResourceFailureException(ex.getMessage(), ex));
+    table.register(SQLGrammarException.class, ex ->
+            new InvalidDataAccessResourceUsageException(ex.getMessage() + "; SQL [" + ex.getSQL() + "]", ex));
+    table.register(QueryTimeoutException.class, ex ->
+            new infra.dao.QueryTimeoutException(ex.getMessage() + "; SQL [" + ex.getSQL() + "]", ex));
+    table.register(LockAcquisitionException.class, ex ->
+            new CannotAcquireLockException(ex.getMessage() + "; SQL [" + ex.getSQL() + "]", ex));
+    table.register(PessimisticLockException.class, ex ->
+            new PessimisticLockingFailureException(ex.getMessage() + "; SQL [" + ex.getSQL() + "]", ex));
+    table.register(ConstraintViolationException.class, ex -> new DataIntegrityViolationException(ex.getMessage() +
+            "; SQL [" + ex.getSQL() + "]; constraint [" + ex.getConstraintName() + "]", ex));
+    table.register(DataException.class, ex ->
+            new DataIntegrityViolationException(ex.getMessage() + "; SQL [" + ex.getSQL() + "]", ex));
+    // end of JDBCException subclass handling
+
+    table.register(NonUniqueResultException.class, ex -> new IncorrectResultSizeDataAccessException(ex.getMessage(), 1, ex));
+    table.register(NonUniqueObjectException.class, ex -> new DuplicateKeyException(ex.getMessage(), ex));
+    table.register(PropertyValueException.class, ex -> new DataIntegrityViolationException(ex.getMessage(), ex));
+    table.register(PersistentObjectException.class, ex -> new InvalidDataAccessApiUsageException(ex.getMessage(), ex));
+    table.register(TransientObjectException.class, ex -> new InvalidDataAccessApiUsageException(ex.getMessage(), ex));
+    table.register(ObjectDeletedException.class, ex -> new InvalidDataAccessApiUsageException(ex.getMessage(), ex));
+    table.register(PessimisticEntityLockException.class, ex -> {
       if (ex.getCause() instanceof LockAcquisitionException) {
         return new CannotAcquireLockException(ex.getMessage(), ex.getCause());
       }
       return new PessimisticLockingFailureException(ex.getMessage(), ex);
-    }
+    });
+    return table;
+  }
 
-    // fallback
-    return new HibernateSystemException(ex);
+  private static HibernateExceptionTranslationTable createExceptionTranslationTable() {
+    HibernateExceptionTranslationTable table = createExceptionTranslationTable(HibernateSystemException::new);
+    table.register(JDBCException.class, HibernateJdbcException::new);
+    table.register(QueryException.class, HibernateQueryException::new);
+    table.register(UnresolvableObjectException.class, HibernateObjectRetrievalFailureException::new);
+    table.register(WrongClassException.class, HibernateObjectRetrievalFailureException::new);
+    table.register(StaleObjectStateException.class, HibernateOptimisticLockingFailureException::new);
+    table.register(StaleStateException.class, HibernateOptimisticLockingFailureException::new);
+    table.register(OptimisticEntityLockException.class, HibernateOptimisticLockingFailureException::new);
+    return table;
   }
 
 }
@@ -19,9 +19,12 @@ package infra.orm.hibernate5;
 
 import org.hibernate.FlushMode;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.jspecify.annotations.Nullable;
 
+import java.util.function.Supplier;
+
 import infra.orm.jpa.EntityManagerHolder;
 
 /**
@@ -45,6 +48,12 @@ public class SessionHolder extends EntityManagerHolder {
   @Nullable
   private FlushMode previousFlushMode;
 
+  @Nullable
+  private StatelessSession statelessSession;
+
+  @Nullable
+  private Supplier<StatelessSession> statelessSessionSupplier;
+
   public SessionHolder(Session session) {
     super(session);
   }
@@ -72,11 +81,58 @@ public class SessionHolder extends EntityManagerHolder {
     return this.previousFlushMode;
   }
 
+  /**
+   * Expose a {@link StatelessSession} sharing the JDBC Connection of the
+   * transactional Session, for reading without first-level caching.
+   *
+   * @see HibernateTransactionManager#setStatelessStreaming
+   */
+  public void setStatelessSession(@Nullable StatelessSession statelessSession) {
+    this.statelessSession = statelessSession;
+    this.statelessSessionSupplier = null;
+  }
+
+  /**
+   * Expose a {@link StatelessSession} to be opened on first access only,
+   * so that transactions which never use it do not pay for it.
+   *
+   * @see #getStatelessSession()
+   * @see HibernateTransactionManager#setStatelessStreaming
+   */
+  public void setStatelessSessionSupplier(@Nullable Supplier<StatelessSession> statelessSessionSupplier) {
+    this.statelessSession = null;
+    this.statelessSessionSupplier = statelessSessionSupplier;
+  }
+
+  /**
+   * Return the {@link StatelessSession} sharing the JDBC Connection
+   * of the transactional Session, if any, opening it if necessary.
+   */
+  @Nullable
+  public StatelessSession getStatelessSession() {
+    if (this.statelessSession == null && this.statelessSessionSupplier != null) {
+      this.statelessSession = this.statelessSessionSupplier.get();
+      this.statelessSessionSupplier = null;
+    }
+    return this.statelessSession;
+  }
+
+  /**
+   * Return the {@link StatelessSession} if it has been opened already,
+   * without opening it on demand.
+   */
+  @Nullable
+  StatelessSession getOpenedStatelessSession() {
+    return this.statelessSession;
+  }
+
   @Override
   public void clear() {
     super.clear();
     this.transaction = null;
     this.previousFlushMode = null;
+    this.statelessSession = null;
+    this.statelessSessionSupplier = null;
   }
 
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.HibernateException;
+import org.hibernate.PropertyAccessException;
+import org.hibernate.PropertyNotFoundException;
+import org.hibernate.internal.util.ReflectHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.ParameterMetadata;
+import org.hibernate.query.Query;
+import org.hibernate.query.QueryParameter;
+import org.hibernate.type.Type;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+
+import infra.core.NativeDetector;
+import infra.util.ConcurrentReferenceHashMap;
+import infra.util.ReflectionUtils;
+
+/**
+ * Precomputed binding plan for the named parameters of a query from the
+ * properties of a value bean, as used by
+ * {@link HibernateTemplate#findByValueBean} and
+ * {@link HibernateTemplate#findByNamedQueryAndValueBean}.
+ *
+ * <p>Equivalent to {@link Query#setProperties(Object)}, but the matching
+ * of named parameters against bean getters and the resolution of their
+ * Hibernate types happen once per query and bean class: subsequent
+ * bindings just invoke the resolved getters through
+ * {@link MethodHandle MethodHandles}. Named parameters without
+ * a corresponding getter are skipped, just like with Hibernate itself.
+ *
+ * <p>Binders get cached per {@link HibernateTemplate} through a {@link Cache},
+ * since the same query string or query name may declare different named
+ * parameters in different {@code SessionFactory} instances.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see HibernateTemplate#applyNamedParameterToQuery
+ * @since 5.0
+ */
+final class ValueBeanBinder {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private final Class<?> beanClass;
+
+  private final String[] parameterNames;
+
+  private final Method[] getters;
+
+  @Nullable
+  private final MethodHandle[] getterHandles;
+
+  private final boolean[] multiValued;
+
+  private final @Nullable Type[] types;
+
+  private ValueBeanBinder(Class<?> beanClass, Query<?> queryObject, @Nullable SessionFactory sessionFactory) {
+    ParameterMetadata parameterMetadata = queryObject.getParameterMetadata();
+    Set<String> namedParameters = parameterMetadata.getNamedParameterNames();
+    ArrayList<String> parameterNames = new ArrayList<>(namedParameters.size());
+    ArrayList<Method> getters = new ArrayList<>(namedParameters.size());
+    for (String parameterName : namedParameters) {
+      Method getter = findGetter(beanClass, parameterName);
+      if (getter != null) {
+        parameterNames.add(parameterName);
+        getters.add(getter);
+      }
+    }
+    this.beanClass = beanClass;
+    this.parameterNames = parameterNames.toArray(new String[0]);
+    this.getters = getters.toArray(new Method[0]);
+    this.getterHandles = createGetterHandles(this.getters);
+    this.multiValued = new boolean[this.getters.length];
+    this.types = new Type[this.getters.length];
+    for (int i = 0; i < this.getters.length; i++) {
+      Class<?> returnType = this.getters[i].getReturnType();
+      if (Collection.class.isAssignableFrom(returnType) || returnType.isArray()) {
+        this.multiValued[i] = true;
+      }
+      else {
+        this.types[i] = determineType(parameterMetadata, this.parameterNames[i], returnType, sessionFactory);
+      }
+    }
+  }
+
+  /**
+   * Bind the properties of the given bean to the named parameters of the given query.
+   * <p>Like {@link Query#setProperties(Object)}, the binding follows the declared
+   * return type of each getter: Collection and array properties get bound as
+   * parameter lists through the given template, all others as single values
+   * with a Hibernate type resolved from the query or from the return type, so
+   * that {@code null} values get bound with a proper type as well.
+   *
+   * @param template the template to apply Collection and array values through
+   * @param queryObject the query to bind
+   * @param valueBean the bean to obtain the parameter values from
+   * @throws HibernateException if a getter failed
+   */
+  void bind(HibernateTemplate template, Query<?> queryObject, Object valueBean) throws HibernateException {
+    for (int i = 0; i < this.parameterNames.length; i++) {
+      Object value = getValue(i, valueBean);
+      if (this.multiValued[i]) {
+        template.applyNamedParameterToQuery(queryObject, this.parameterNames[i], value);
+      }
+      else {
+        Type type = this.types[i];
+        if (type != null) {
+          queryObject.setParameter(this.parameterNames[i], value, type);
+        }
+        else {
+          queryObject.setParameter(this.parameterNames[i], value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Determine the Hibernate type for a single-valued parameter, just like
+   * Hibernate does for {@link Query#setProperties(Object)}: the type expected
+   * by the query if known, else the type for the getter's return type.
+   */
+  @Nullable
+  private static Type determineType(ParameterMetadata parameterMetadata, String parameterName,
+          Class<?> returnType, @Nullable SessionFactory sessionFactory) {
+    QueryParameter<?> parameter = parameterMetadata.getQueryParameter(parameterName);
+    Type type = (parameter != null ? parameter.getHibernateType() : null);
+    if (type == null && sessionFactory instanceof SessionFactoryImplementor factory) {
+      type = factory.resolveParameterBindType(returnType);
+    }
+    return type;
+  }
+
+  @Nullable
+  private Object getValue(int index, Object valueBean) {
+    try {
+      MethodHandle[] getterHandles = this.getterHandles;
+      if (getterHandles != null) {
+        return (Object) getterHandles[index].invokeExact(valueBean);
+      }
+      return this.getters[index].invoke(valueBean);
+    }
+    catch (InvocationTargetException ex) {
+      throw new PropertyAccessException(ex.getTargetException(), "Exception occurred inside",
+              false, this.beanClass, this.parameterNames[index]);
+    }
+    catch (RuntimeException | Error ex) {
+      throw ex;
+    }
+    catch (Throwable ex) {
+      throw new PropertyAccessException(ex, "Exception occurred inside",
+              false, this.beanClass, this.parameterNames[index]);
+    }
+  }
+
+  @Nullable
+  private static Method findGetter(Class<?> beanClass, String propertyName) {
+    try {
+      Method getter = ReflectHelper.findGetterMethod(beanClass, propertyName);
+      ReflectionUtils.makeAccessible(getter);
+      return getter;
+    }
+    catch (PropertyNotFoundException ex) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static MethodHandle[] createGetterHandles(Method[] getters) {
+    if (NativeDetector.inNativeImage()) {
+      // Method handles require additional reachability metadata on native images
+      return null;
+    }
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle[] handles = new MethodHandle[getters.length];
+    try {
+      for (int i = 0; i < getters.length; i++) {
+        handles[i] = lookup.unreflect(getters[i]).asType(GETTER_TYPE);
+      }
+    }
+    catch (IllegalAccessException ex) {
+      // Fall back to reflective invocation
+      return null;
+    }
+    return handles;
+  }
+
+  private record Key(String queryKey, boolean namedQuery, Class<?> beanClass) {
+  }
+
+  /**
+   * Cache of binders for the queries of a single {@code SessionFactory}.
+   */
+  static final class Cache {
+
+    private final ConcurrentReferenceHashMap<Key, ValueBeanBinder> binders =
+            new ConcurrentReferenceHashMap<>(64);
+
+    /**
+     * Obtain the cached binder for the given query and bean class.
+     *
+     * @param queryKey the query string, or the name of a named query
+     * @param namedQuery whether the key refers to a named query
+     * @param queryObject the query to resolve the named parameters from
+     * if no binder has been cached yet
+     * @param beanClass the class of the value bean
+     * @param sessionFactory the SessionFactory to resolve parameter types with
+     */
+    ValueBeanBinder forQuery(String queryKey, boolean namedQuery, Query<?> queryObject,
+            Class<?> beanClass, @Nullable SessionFactory sessionFactory) {
+      Key key = new Key(queryKey, namedQuery, beanClass);
+      ValueBeanBinder binder = this.binders.get(key);
+      if (binder == null) {
+        binder = this.binders.computeIfAbsent(key, k -> new ValueBeanBinder(beanClass, queryObject, sessionFactory));
+      }
+      return binder;
+    }
+
+    /**
+     * Remove all cached binders, e.g. when switching to another {@code SessionFactory}.
+     */
+    void clear() {
+      this.binders.clear();
+    }
+  }
+
+}
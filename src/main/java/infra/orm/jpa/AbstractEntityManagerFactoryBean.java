@@ -26,7 +26,6 @@ import java.io.ObjectStreamException;
 import java.io.Serial;
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
@@ -489,11 +488,11 @@ public abstract class AbstractEntityManagerFactoryBean implements FactoryBean<En
    * Delegate an incoming invocation from the proxy, dispatching to EntityManagerFactoryInfo
    * or the native EntityManagerFactory accordingly.
    */
-  Object invokeProxyMethod(Method method, @Nullable Object[] args) throws Throwable {
-    if (method.getDeclaringClass().isAssignableFrom(EntityManagerFactoryInfo.class)) {
-      return method.invoke(this, args);
+  Object invokeProxyMethod(ProxyMethod proxyMethod, @Nullable Object[] args) throws Throwable {
+    if (proxyMethod.entityManagerFactoryInfoMethod) {
+      return proxyMethod.invoke(this, args);
     }
-    else if (method.getName().equals("createEntityManager") && args != null && args.length > 0 &&
+    else if (proxyMethod.kind == ProxyMethod.Kind.CREATE_ENTITY_MANAGER && args != null && args.length > 0 &&
             args[0] == SynchronizationType.SYNCHRONIZED) {
       // JPA 2.1's createEntityManager(SynchronizationType, Map)
       // Redirect to plain createEntityManager and add synchronization semantics through Framework proxy
@@ -523,7 +522,7 @@ public abstract class AbstractEntityManagerFactoryBean implements FactoryBean<En
     }
 
     // Standard delegation to the native factory, just post-processing EntityManager return values
-    Object retVal = method.invoke(getNativeEntityManagerFactory(), args);
+    Object retVal = proxyMethod.invoke(getNativeEntityManagerFactory(), args);
     if (retVal instanceof EntityManager rawEntityManager) {
       // Any other createEntityManager variant - expecting non-synchronized semantics
       postProcessEntityManager(rawEntityManager);
@@ -714,14 +713,15 @@ public abstract class AbstractEntityManagerFactoryBean implements FactoryBean<En
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-      switch (method.getName()) {
-        case "equals":
+      ProxyMethod proxyMethod = ProxyMethod.forMethod(method);
+      switch (proxyMethod.kind) {
+        case EQUALS:
           // Only consider equal when proxies are identical.
           return (proxy == args[0]);
-        case "hashCode":
+        case HASH_CODE:
           // Use hashCode of EntityManagerFactory proxy.
           return System.identityHashCode(proxy);
-        case "unwrap":
+        case UNWRAP:
           // Handle JPA 2.1 unwrap method - could be a proxy match.
           Class<?> targetClass = (Class<?>) args[0];
           if (targetClass == null) {
@@ -733,12 +733,7 @@ public abstract class AbstractEntityManagerFactoryBean implements FactoryBean<En
           break;
       }
 
-      try {
-        return this.entityManagerFactoryBean.invokeProxyMethod(method, args);
-      }
-      catch (InvocationTargetException ex) {
-        throw ex.getTargetException();
-      }
+      return this.entityManagerFactoryBean.invokeProxyMethod(proxyMethod, args);
     }
   }
 
@@ -356,6 +356,23 @@ public abstract class EntityManagerFactoryUtils {
     }
   }
 
+  /**
+   * Apply the persistence-context size policy of the current transaction,
+   * if any, to the transactional EntityManager of the given factory.
+   * <p>To be called in between EntityManager operations only.
+   *
+   * @param emf the JPA EntityManagerFactory
+   * @see EntityManagerHolder#checkPersistenceContextSize()
+   * @see JpaTransactionManager#setPersistenceContextGuard
+   * @since 5.0
+   */
+  public static void checkPersistenceContextSize(EntityManagerFactory emf) {
+    EntityManagerHolder emHolder = TransactionSynchronizationManager.getResource(emf);
+    if (emHolder != null) {
+      emHolder.checkPersistenceContextSize();
+    }
+  }
+
   /**
    * Convert the given runtime exception to an appropriate exception from the
    * {@code infra.dao} hierarchy.
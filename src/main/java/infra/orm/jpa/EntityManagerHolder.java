@@ -19,7 +19,11 @@ package infra.orm.jpa;
 
 import org.jspecify.annotations.Nullable;
 
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
 import infra.lang.Assert;
+import infra.orm.PersistenceContextGuard;
 import infra.orm.hibernate5.SessionHolder;
 import infra.transaction.SavepointManager;
 import infra.transaction.support.ResourceHolderSupport;
@@ -43,20 +47,163 @@ import jakarta.persistence.EntityManager;
 public class EntityManagerHolder extends ResourceHolderSupport {
 
   @Nullable
-  private final EntityManager entityManager;
+  private EntityManager entityManager;
+
+  @Nullable
+  private Supplier<EntityManager> entityManagerSupplier;
+
+  private boolean releaseConnectionAfterTransaction;
 
   private boolean transactionActive;
 
   @Nullable
   private SavepointManager savepointManager;
 
+  @Nullable
+  private PersistenceContextGuard persistenceContextGuard;
+
+  @Nullable
+  private ToIntFunction<EntityManager> managedEntityCounter;
+
+  private boolean guardReadOnly;
+
+  private boolean guardWarned;
+
+  private int managedEntityCount = -1;
+
+  private int peakManagedEntityCount = -1;
+
   public EntityManagerHolder(@Nullable EntityManager entityManager) {
     this.entityManager = entityManager;
   }
 
+  /**
+   * Create a holder for an EntityManager to be created on first access,
+   * e.g. for binding an EntityManager to a request that might not use it.
+   *
+   * @param entityManagerSupplier the supplier of the EntityManager,
+   * invoked at most once
+   * @see #hasEntityManager()
+   * @since 5.0
+   */
+  public EntityManagerHolder(Supplier<EntityManager> entityManagerSupplier) {
+    Assert.notNull(entityManagerSupplier, "EntityManager supplier is required");
+    this.entityManagerSupplier = entityManagerSupplier;
+  }
+
   public EntityManager getEntityManager() {
-    Assert.state(this.entityManager != null, "No EntityManager available");
-    return this.entityManager;
+    EntityManager entityManager = this.entityManager;
+    if (entityManager == null && this.entityManagerSupplier != null) {
+      entityManager = this.entityManagerSupplier.get();
+      this.entityManager = entityManager;
+      this.entityManagerSupplier = null;
+    }
+    Assert.state(entityManager != null, "No EntityManager available");
+    return entityManager;
+  }
+
+  /**
+   * Return whether this holder's EntityManager has been created already,
+   * i.e. whether it is a plain holder or a lazy holder got accessed.
+   *
+   * @since 5.0
+   */
+  public boolean hasEntityManager() {
+    return this.entityManager != null;
+  }
+
+  /**
+   * Set whether the EntityManager should release its JDBC connection after
+   * each transaction it participates in, keeping its persistence context.
+   * <p>Default is "false". Meant for long-lived pre-bound EntityManagers,
+   * e.g. in an open-EntityManager-in-view scenario.
+   *
+   * @see JpaDialect#releaseConnectionAfterTransaction
+   * @since 5.0
+   */
+  public void setReleaseConnectionAfterTransaction(boolean releaseConnectionAfterTransaction) {
+    this.releaseConnectionAfterTransaction = releaseConnectionAfterTransaction;
+  }
+
+  /**
+   * Return whether the EntityManager should release its JDBC connection
+   * after each transaction it participates in.
+   *
+   * @since 5.0
+   */
+  public boolean isReleaseConnectionAfterTransaction() {
+    return this.releaseConnectionAfterTransaction;
+  }
+
+  /**
+   * Apply the given persistence-context size policy to the current transaction.
+   *
+   * @param guard the policy to apply
+   * @param managedEntityCounter strategy for determining the number of entities
+   * managed by the EntityManager, returning a negative value if unknown
+   * @param readOnly whether the current transaction is read-only
+   * @see #checkPersistenceContextSize()
+   * @since 5.0
+   */
+  public void setPersistenceContextGuard(PersistenceContextGuard guard,
+          ToIntFunction<EntityManager> managedEntityCounter, boolean readOnly) {
+    this.persistenceContextGuard = guard;
+    this.managedEntityCounter = managedEntityCounter;
+    this.guardReadOnly = readOnly;
+    this.guardWarned = false;
+  }
+
+  /**
+   * Update the managed-entity count of the EntityManager and apply the
+   * persistence-context size policy of the current transaction, if any.
+   * <p>Only to be called while the persistence context is in a consistent
+   * state, i.e. not from within an ongoing EntityManager operation.
+   *
+   * @see #setPersistenceContextGuard
+   * @since 5.0
+   */
+  public void checkPersistenceContextSize() {
+    PersistenceContextGuard guard = this.persistenceContextGuard;
+    ToIntFunction<EntityManager> counter = this.managedEntityCounter;
+    EntityManager entityManager = this.entityManager;
+    if (guard == null || counter == null || entityManager == null) {
+      return;
+    }
+    int count = counter.applyAsInt(entityManager);
+    if (count < 0) {
+      return;
+    }
+    this.managedEntityCount = count;
+    if (count > this.peakManagedEntityCount) {
+      this.peakManagedEntityCount = count;
+    }
+    if (guard.apply(entityManager, count, this.guardReadOnly, this.guardWarned)) {
+      this.managedEntityCount = 0;
+    }
+    else if (count > guard.getThreshold()) {
+      this.guardWarned = true;
+    }
+  }
+
+  /**
+   * Return the number of managed entities as of the last
+   * {@linkplain #checkPersistenceContextSize() check} within the current
+   * transaction, or -1 if not tracked.
+   *
+   * @since 5.0
+   */
+  public int getManagedEntityCount() {
+    return this.managedEntityCount;
+  }
+
+  /**
+   * Return the highest number of managed entities seen within the current
+   * transaction, or -1 if not tracked.
+   *
+   * @since 5.0
+   */
+  public int getPeakManagedEntityCount() {
+    return this.peakManagedEntityCount;
   }
 
   protected void setTransactionActive(boolean transactionActive) {
@@ -81,6 +228,11 @@ public class EntityManagerHolder extends ResourceHolderSupport {
     super.clear();
     this.transactionActive = false;
     this.savepointManager = null;
+    this.persistenceContextGuard = null;
+    this.managedEntityCounter = null;
+    this.guardWarned = false;
+    this.managedEntityCount = -1;
+    this.peakManagedEntityCount = -1;
   }
 
 }
@@ -21,7 +21,6 @@ import org.jspecify.annotations.Nullable;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.LinkedHashSet;
@@ -301,18 +300,19 @@ public abstract class ExtendedEntityManagerCreator {
     @Nullable
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
       // Invocation on EntityManager interface coming in...
+      ProxyMethod proxyMethod = ProxyMethod.forMethod(method);
 
-      switch (method.getName()) {
-        case "equals":
+      switch (proxyMethod.kind) {
+        case EQUALS:
           // Only consider equal when proxies are identical.
           return (proxy == args[0]);
-        case "hashCode":
+        case HASH_CODE:
           // Use hashCode of EntityManager proxy.
           return hashCode();
-        case "getTargetEntityManager":
+        case GET_TARGET_ENTITY_MANAGER:
           // Handle EntityManagerProxy interface.
           return this.target;
-        case "unwrap":
+        case UNWRAP:
           // Handle JPA 2.0 unwrap method - could be a proxy match.
           Class<?> targetClass = (Class<?>) args[0];
           if (targetClass == null) {
@@ -322,12 +322,12 @@ public abstract class ExtendedEntityManagerCreator {
             return proxy;
           }
           break;
-        case "isOpen":
+        case IS_OPEN:
           if (this.containerManaged) {
             return true;
           }
           break;
-        case "close":
+        case CLOSE:
           if (this.containerManaged) {
             throw new IllegalStateException("Invalid usage: Cannot close a container-managed EntityManager");
           }
@@ -339,16 +339,16 @@ public abstract class ExtendedEntityManagerCreator {
             return null;
           }
           break;
-        case "getTransaction":
+        case GET_TRANSACTION:
           if (this.synchronizedWithTransaction) {
             throw new IllegalStateException(
                     "Cannot obtain local EntityTransaction from a transaction-synchronized EntityManager");
           }
           break;
-        case "joinTransaction":
+        case JOIN_TRANSACTION:
           doJoinTransaction(true);
           return null;
-        case "isJoinedToTransaction":
+        case IS_JOINED_TO_TRANSACTION:
           // Handle JPA 2.1 isJoinedToTransaction method for the non-JTA case.
           if (!this.jta) {
             return TransactionSynchronizationManager.hasResource(this.target);
@@ -357,17 +357,12 @@ public abstract class ExtendedEntityManagerCreator {
       }
 
       // Do automatic joining if required. Excludes toString, equals, hashCode calls.
-      if (this.synchronizedWithTransaction && method.getDeclaringClass().isInterface()) {
+      if (this.synchronizedWithTransaction && proxyMethod.interfaceMethod) {
         doJoinTransaction(false);
       }
 
       // Invoke method on current EntityManager.
-      try {
-        return method.invoke(this.target, args);
-      }
-      catch (InvocationTargetException ex) {
-        throw ex.getTargetException();
-      }
+      return proxyMethod.invoke(this.target, args);
     }
 
     /**
@@ -23,6 +23,8 @@ import java.sql.SQLException;
 
 import infra.dao.support.PersistenceExceptionTranslator;
 import infra.jdbc.datasource.ConnectionHandle;
+import infra.orm.FlushTimer;
+import infra.orm.TransactionPhaseListener;
 import infra.transaction.TransactionDefinition;
 import infra.transaction.TransactionException;
 import jakarta.persistence.EntityManager;
@@ -176,4 +178,61 @@ public interface JpaDialect extends PersistenceExceptionTranslator {
   void releaseJdbcConnection(ConnectionHandle conHandle, EntityManager entityManager)
           throws PersistenceException, SQLException;
 
+  /**
+   * Release the JDBC Connection held by the given long-lived EntityManager after
+   * a transaction it participated in, keeping its persistence context intact.
+   * The EntityManager is expected to acquire a new Connection on demand.
+   * <p>Called by JpaTransactionManager for pre-bound EntityManagers that ask for it.
+   * The default implementation does nothing, leaving Connection handling to the
+   * persistence provider.
+   *
+   * @param entityManager the pre-bound JPA EntityManager
+   * @throws PersistenceException if thrown by JPA methods
+   * @see EntityManagerHolder#setReleaseConnectionAfterTransaction
+   * @since 5.0
+   */
+  default void releaseConnectionAfterTransaction(EntityManager entityManager) throws PersistenceException {
+  }
+
+  /**
+   * Determine the number of entities currently managed by the persistence
+   * context of the given EntityManager.
+   * <p>Used by JpaTransactionManager for applying a persistence-context size
+   * policy. The default implementation returns -1, since plain JPA does not
+   * expose that number: the policy does not apply then.
+   *
+   * @param entityManager the current JPA EntityManager
+   * @return the number of managed entities, or -1 if unknown
+   * @throws PersistenceException if thrown by JPA methods
+   * @see infra.orm.PersistenceContextGuard
+   * @since 5.0
+   */
+  default int getManagedEntityCount(EntityManager entityManager) throws PersistenceException {
+    return -1;
+  }
+
+  /**
+   * Start timing the flushes of the given transactional EntityManager, including
+   * the flush implicitly performed on commit, reporting each of them as
+   * {@link infra.orm.TransactionPhase#FLUSH} to the given listener.
+   * <p>Called by JpaTransactionManager on transaction begin, only if a
+   * {@link TransactionPhaseListener} has been registered. The default
+   * implementation returns {@code null}, since plain JPA does not expose flush
+   * events: only explicit flushes through the transaction status get timed then.
+   *
+   * @param entityManager the transactional JPA EntityManager
+   * @param listener the listener to report flushes to
+   * @param unitName the unit name to report
+   * @param readOnly whether the transaction is read-only
+   * @return the handle for the flush timing, or {@code null} if not supported
+   * @throws PersistenceException if thrown by JPA methods
+   * @see JpaTransactionManager#setTransactionPhaseListener
+   * @since 5.0
+   */
+  @Nullable
+  default FlushTimer startFlushTiming(EntityManager entityManager,
+          TransactionPhaseListener listener, String unitName, boolean readOnly) throws PersistenceException {
+    return null;
+  }
+
 }
@@ -37,6 +37,12 @@ import infra.jdbc.datasource.ConnectionHolder;
 import infra.jdbc.datasource.JdbcTransactionObjectSupport;
 import infra.jdbc.datasource.TransactionAwareDataSourceProxy;
 import infra.lang.Assert;
+import infra.orm.FlushTimer;
+import infra.orm.PersistenceContextGuard;
+import infra.orm.ReadWriteRoutingContext;
+import infra.orm.ReadWriteRoutingDataSource;
+import infra.orm.TransactionPhase;
+import infra.orm.TransactionPhaseListener;
 import infra.orm.jpa.support.SharedEntityManagerBean;
 import infra.transaction.CannotCreateTransactionException;
 import infra.transaction.IllegalTransactionStateException;
@@ -136,6 +142,18 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
   @Nullable
   private Consumer<EntityManager> entityManagerInitializer;
 
+  @Nullable
+  private TransactionPhaseListener transactionPhaseListener;
+
+  @Nullable
+  private PersistenceContextGuard persistenceContextGuard;
+
+  @Nullable
+  private Boolean readWriteRouting;
+
+  @Nullable
+  private String phaseUnitName;
+
   /**
    * Create a new JpaTransactionManager instance.
    * <p>An EntityManagerFactory has to be set to be able to use it.
@@ -327,6 +345,87 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
     this.entityManagerInitializer = entityManagerInitializer;
   }
 
+  /**
+   * Specify a listener for timing the phases of the transactions managed by
+   * this {@code JpaTransactionManager}: begin, flush, commit, rollback
+   * and the lifetime of the transactional EntityManager.
+   * <p>Flushes are timed through {@link JpaDialect#startFlushTiming} where the
+   * dialect supports it (as {@link infra.orm.jpa.vendor.HibernateJpaDialect} does),
+   * covering the flush on commit as well, which then is not part of the commit
+   * timing. Otherwise, only explicit flushes through the transaction status get timed.
+   * <p>Phases are reported for the persistence unit name specified on this
+   * transaction manager or exposed by the EntityManagerFactory, if any.
+   * Default is none, in which case no timings are taken at all.
+   * <p>With a {@link #setPersistenceContextGuard persistence-context guard} in place,
+   * the managed-entity count and peak of each transaction get reported as well.
+   *
+   * @see infra.orm.TransactionPhaseStatistics
+   */
+  public void setTransactionPhaseListener(@Nullable TransactionPhaseListener transactionPhaseListener) {
+    this.transactionPhaseListener = transactionPhaseListener;
+  }
+
+  /**
+   * Return the listener for timing transaction phases, if any.
+   */
+  @Nullable
+  public TransactionPhaseListener getTransactionPhaseListener() {
+    return this.transactionPhaseListener;
+  }
+
+  /**
+   * Specify a policy for the number of entities managed by the transactional
+   * EntityManager, e.g. for automatically flushing and clearing it within
+   * long-running batch transactions.
+   * <p>The managed-entity count gets determined through
+   * {@link JpaDialect#getManagedEntityCount}, so this requires a provider-specific
+   * JpaDialect such as {@link infra.orm.jpa.vendor.HibernateJpaDialect}.
+   * Default is none.
+   *
+   * @see EntityManagerHolder#checkPersistenceContextSize()
+   * @since 5.0
+   */
+  public void setPersistenceContextGuard(@Nullable PersistenceContextGuard persistenceContextGuard) {
+    this.persistenceContextGuard = persistenceContextGuard;
+  }
+
+  /**
+   * Return the policy for the number of managed entities, if any.
+   *
+   * @since 5.0
+   */
+  @Nullable
+  public PersistenceContextGuard getPersistenceContextGuard() {
+    return this.persistenceContextGuard;
+  }
+
+  /**
+   * Set whether to expose the read-only flag of each transaction to a
+   * {@link ReadWriteRoutingDataSource} before the EntityManager acquires its
+   * JDBC Connection, and to record read-write commits for its "read your
+   * writes" window.
+   * <p>Default is to detect a ReadWriteRoutingDataSource as the DataSource
+   * of this transaction manager (possibly behind a DelegatingDataSource),
+   * so that transactions do not touch the routing state otherwise.
+   *
+   * @see ReadWriteRoutingContext
+   * @since 5.0
+   */
+  public void setReadWriteRouting(boolean readWriteRouting) {
+    this.readWriteRouting = readWriteRouting;
+  }
+
+  /**
+   * Return whether transactions expose their read-only flag to a
+   * {@link ReadWriteRoutingDataSource}.
+   *
+   * @since 5.0
+   */
+  public boolean isReadWriteRouting() {
+    Boolean readWriteRouting = this.readWriteRouting;
+    return readWriteRouting != null ? readWriteRouting : ReadWriteRoutingDataSource.isReadWriteRouting(getDataSource());
+  }
+
   /**
    * Retrieves an EntityManagerFactory by persistence unit name, if none set explicitly.
    * Falls back to a default EntityManagerFactory bean if no persistence unit specified.
@@ -406,6 +505,14 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
                       "on a single DataSource, no matter whether JPA or JDBC access.");
     }
 
+    // Expose the read-only flag before the EntityManager acquires its Connection.
+    if (isReadWriteRouting()) {
+      txObject.setPreviousRoutingReadOnly(ReadWriteRoutingContext.bind(definition.isReadOnly()));
+      txObject.setReadWriteRouting(true);
+    }
+
+    long startTime = phaseStartTime();
+    boolean success = false;
     try {
       if (!txObject.hasEntityManagerHolder() ||
               txObject.getEntityManagerHolder().isSynchronizedWithTransaction()) {
@@ -414,6 +521,7 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
           logger.debug("Opened new EntityManager [{}] for JPA transaction", newEm);
         }
         txObject.setEntityManagerHolder(new EntityManagerHolder(newEm), true);
+        txObject.setOpenedAt(startTime);
       }
 
       EntityManager em = txObject.getEntityManagerHolder().getEntityManager();
@@ -425,6 +533,13 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       txObject.setTransactionData(transactionData);
       txObject.setReadOnly(definition.isReadOnly());
 
+      // Time the provider's flushes, including the one on commit, if supported.
+      TransactionPhaseListener phaseListener = this.transactionPhaseListener;
+      if (phaseListener != null) {
+        txObject.setFlushTimer(getJpaDialect().startFlushTiming(
+                em, phaseListener, getPhaseUnitName(), definition.isReadOnly()));
+      }
+
       // Register transaction timeout.
       if (timeoutToUse != TransactionDefinition.TIMEOUT_DEFAULT) {
         txObject.getEntityManagerHolder().setTimeoutInSeconds(timeoutToUse);
@@ -458,6 +573,11 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
                 obtainEntityManagerFactory(), txObject.getEntityManagerHolder());
       }
       txObject.getEntityManagerHolder().setSynchronizedWithTransaction(true);
+      if (this.persistenceContextGuard != null) {
+        txObject.getEntityManagerHolder().setPersistenceContextGuard(
+                this.persistenceContextGuard, getJpaDialect()::getManagedEntityCount, definition.isReadOnly());
+      }
+      success = true;
     }
 
     catch (TransactionException ex) {
@@ -468,6 +588,15 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       closeEntityManagerAfterFailedBegin(txObject);
       throw new CannotCreateTransactionException("Could not open JPA EntityManager for transaction", ex);
     }
+    finally {
+      if (!success && txObject.isReadWriteRouting()) {
+        ReadWriteRoutingContext.restore(txObject.getPreviousRoutingReadOnly());
+      }
+      if (!success && txObject.getFlushTimer() != null) {
+        txObject.getFlushTimer().stop();
+      }
+      phaseCompleted(TransactionPhase.BEGIN, definition.isReadOnly(), startTime, success);
+    }
   }
 
   /**
@@ -562,9 +691,17 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       logger.debug("Committing JPA transaction on EntityManager [{}]",
               txObject.getEntityManagerHolder().getEntityManager());
     }
+    FlushTimer flushTimer = txObject.getFlushTimer();
+    long flushNanos = (flushTimer != null ? flushTimer.getFlushNanos() : 0L);
+    long startTime = phaseStartTime();
+    boolean success = false;
     try {
       EntityTransaction tx = txObject.getEntityManagerHolder().getEntityManager().getTransaction();
       tx.commit();
+      success = true;
+      if (!status.isReadOnly() && txObject.isReadWriteRouting()) {
+        ReadWriteRoutingContext.recordWrite();
+      }
     }
     catch (RollbackException ex) {
       if (ex.getCause() instanceof RuntimeException) {
@@ -579,6 +716,13 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       // Assumably failed to flush changes to database.
       throw DataAccessUtils.translateIfNecessary(ex, getJpaDialect());
     }
+    finally {
+      // The flush on commit has been reported as FLUSH already
+      if (flushTimer != null) {
+        startTime += flushTimer.getFlushNanos() - flushNanos;
+      }
+      phaseCompleted(TransactionPhase.COMMIT, status.isReadOnly(), startTime, success);
+    }
   }
 
   @Override
@@ -588,11 +732,14 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       logger.debug("Rolling back JPA transaction on EntityManager [{}]",
               txObject.getEntityManagerHolder().getEntityManager());
     }
+    long startTime = phaseStartTime();
+    boolean success = false;
     try {
       EntityTransaction tx = txObject.getEntityManagerHolder().getEntityManager().getTransaction();
       if (tx.isActive()) {
         tx.rollback();
       }
+      success = true;
     }
     catch (PersistenceException ex) {
       DataAccessException dae = getJpaDialect().translateExceptionIfPossible(ex);
@@ -607,6 +754,7 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
         // Necessary for pre-bound EntityManagers, to avoid inconsistent state.
         txObject.getEntityManagerHolder().getEntityManager().clear();
       }
+      phaseCompleted(TransactionPhase.ROLLBACK, status.isReadOnly(), startTime, success);
     }
   }
 
@@ -630,6 +778,18 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
     if (txObject.isNewEntityManagerHolder()) {
       info.unbindResourceIfPossible(obtainEntityManagerFactory());
     }
+    int peakManagedEntityCount = txObject.getEntityManagerHolder().getPeakManagedEntityCount();
+    if (peakManagedEntityCount >= 0) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Persistence context held up to {} managed entities within JPA transaction",
+                peakManagedEntityCount);
+      }
+      TransactionPhaseListener listener = this.transactionPhaseListener;
+      if (listener != null) {
+        listener.managedEntitiesCounted(getPhaseUnitName(), txObject.isReadOnly(),
+                txObject.getEntityManagerHolder().getManagedEntityCount(), peakManagedEntityCount);
+      }
+    }
     txObject.getEntityManagerHolder().clear();
 
     // Remove the JDBC connection holder from the thread, if exposed.
@@ -648,6 +808,10 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       }
     }
 
+    FlushTimer flushTimer = txObject.getFlushTimer();
+    if (flushTimer != null) {
+      flushTimer.stop();
+    }
     getJpaDialect().cleanupTransaction(txObject.getTransactionData());
 
     // Remove the entity manager holder from the thread.
@@ -657,12 +821,60 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
         logger.debug("Closing JPA EntityManager [{}] after transaction", em);
       }
       EntityManagerFactoryUtils.closeEntityManager(em);
+      phaseCompleted(TransactionPhase.RESOURCE_LIFETIME, txObject.isReadOnly(), txObject.getOpenedAt(), true);
     }
     else {
       logger.debug("Not closing pre-bound JPA EntityManager after transaction");
+      EntityManagerHolder emHolder = txObject.getEntityManagerHolder();
+      if (emHolder.isReleaseConnectionAfterTransaction()) {
+        try {
+          getJpaDialect().releaseConnectionAfterTransaction(emHolder.getEntityManager());
+        }
+        catch (Throwable ex) {
+          // Just log it, to keep a transaction-related exception.
+          logger.error("Failed to release JDBC connection of pre-bound EntityManager after transaction", ex);
+        }
+      }
+    }
+    if (txObject.isReadWriteRouting()) {
+      ReadWriteRoutingContext.restore(txObject.getPreviousRoutingReadOnly());
+    }
+  }
+
+  /**
+   * Return the start time for a transaction phase to be timed,
+   * or 0 if no {@link TransactionPhaseListener} has been registered.
+   */
+  private long phaseStartTime() {
+    return (this.transactionPhaseListener != null ? System.nanoTime() : 0L);
+  }
+
+  /**
+   * Report a completed transaction phase to the registered
+   * {@link TransactionPhaseListener}, if any.
+   */
+  private void phaseCompleted(TransactionPhase phase, boolean readOnly, long startTime, boolean success) {
+    TransactionPhaseListener listener = this.transactionPhaseListener;
+    if (listener != null && startTime != 0L) {
+      listener.phaseCompleted(phase, getPhaseUnitName(), readOnly, System.nanoTime() - startTime, success);
     }
   }
 
+  private String getPhaseUnitName() {
+    String unitName = this.phaseUnitName;
+    if (unitName == null) {
+      unitName = getPersistenceUnitName();
+      if (unitName == null && getEntityManagerFactory() instanceof EntityManagerFactoryInfo emfInfo) {
+        unitName = emfInfo.getPersistenceUnitName();
+      }
+      if (unitName == null) {
+        unitName = TransactionPhaseListener.DEFAULT_UNIT_NAME;
+      }
+      this.phaseUnitName = unitName;
+    }
+    return unitName;
+  }
+
   /**
    * JPA transaction object, representing a EntityManagerHolder.
    * Used as transaction object by JpaTransactionManager.
@@ -677,6 +889,16 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
     @Nullable
     private Object transactionData;
 
+    private long openedAt;
+
+    @Nullable
+    private Boolean previousRoutingReadOnly;
+
+    private boolean readWriteRouting;
+
+    @Nullable
+    private FlushTimer flushTimer;
+
     public void setEntityManagerHolder(
             @Nullable EntityManagerHolder entityManagerHolder, boolean newEntityManagerHolder) {
 
@@ -697,6 +919,40 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
       return this.newEntityManagerHolder;
     }
 
+    public void setOpenedAt(long openedAt) {
+      this.openedAt = openedAt;
+    }
+
+    public long getOpenedAt() {
+      return this.openedAt;
+    }
+
+    public void setPreviousRoutingReadOnly(@Nullable Boolean previousRoutingReadOnly) {
+      this.previousRoutingReadOnly = previousRoutingReadOnly;
+    }
+
+    @Nullable
+    public Boolean getPreviousRoutingReadOnly() {
+      return this.previousRoutingReadOnly;
+    }
+
+    public void setReadWriteRouting(boolean readWriteRouting) {
+      this.readWriteRouting = readWriteRouting;
+    }
+
+    public boolean isReadWriteRouting() {
+      return this.readWriteRouting;
+    }
+
+    public void setFlushTimer(@Nullable FlushTimer flushTimer) {
+      this.flushTimer = flushTimer;
+    }
+
+    @Nullable
+    public FlushTimer getFlushTimer() {
+      return this.flushTimer;
+    }
+
     public boolean hasTransaction() {
       return entityManagerHolder != null && entityManagerHolder.isTransactionActive();
     }
@@ -732,12 +988,23 @@ public class JpaTransactionManager extends AbstractPlatformTransactionManager
 
     @Override
     public void flush() {
+      // Timed here unless the provider's flush events are timed already
+      boolean timed = (this.flushTimer == null);
+      long startTime = (timed ? phaseStartTime() : 0L);
+      boolean success = false;
       try {
         getEntityManagerHolder().getEntityManager().flush();
+        success = true;
+        getEntityManagerHolder().checkPersistenceContextSize();
       }
       catch (RuntimeException ex) {
         throw DataAccessUtils.translateIfNecessary(ex, getJpaDialect());
       }
+      finally {
+        if (timed) {
+          phaseCompleted(TransactionPhase.FLUSH, isReadOnly(), startTime, success);
+        }
+      }
     }
 
     @Override
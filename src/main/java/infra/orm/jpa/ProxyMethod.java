@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+import infra.core.NativeDetector;
+import infra.util.ConcurrentReferenceHashMap;
+
+/**
+ * Precomputed dispatch information for a method invoked through one of
+ * the JPA proxies created by this package.
+ *
+ * <p>The behavior of a proxied method only depends on the {@link Method}
+ * itself, so it gets classified once and cached: the invocation handlers
+ * switch on the precomputed {@link Kind} instead of matching method names,
+ * and delegate to the target through a {@link MethodHandle} instead of
+ * reflective {@link Method#invoke} calls.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see SharedEntityManagerCreator
+ * @see ExtendedEntityManagerCreator
+ * @see AbstractEntityManagerFactoryBean
+ * @since 5.0
+ */
+final class ProxyMethod {
+
+  private static final ConcurrentReferenceHashMap<Method, ProxyMethod> cache =
+          new ConcurrentReferenceHashMap<>(256);
+
+  private static final Set<String> transactionRequiringMethods = Set.of(
+          "joinTransaction",
+          "flush",
+          "persist",
+          "merge",
+          "remove",
+          "refresh");
+
+  private static final Set<String> entityLoadingMethods = Set.of(
+          "persist",
+          "merge",
+          "find",
+          "getReference");
+
+  private static final Set<String> queryTerminatingMethods = Set.of(
+          "execute",  // jakarta.persistence.StoredProcedureQuery.execute()
+          "executeUpdate", // jakarta.persistence.Query.executeUpdate()
+          "getSingleResult",  // jakarta.persistence.Query.getSingleResult()
+          "getResultStream",  // jakarta.persistence.Query.getResultStream()
+          "getResultList",  // jakarta.persistence.Query.getResultList()
+          "list",  // org.hibernate.query.Query.list()
+          "scroll",  // org.hibernate.query.Query.scroll()
+          "stream",  // org.hibernate.query.Query.stream()
+          "uniqueResult",  // org.hibernate.query.Query.uniqueResult()
+          "uniqueResultOptional"  // org.hibernate.query.Query.uniqueResultOptional()
+  );
+
+  /**
+   * Methods that get special treatment in at least one of the proxies.
+   */
+  enum Kind {
+    EQUALS,
+    HASH_CODE,
+    TO_STRING,
+    UNWRAP,
+    IS_OPEN,
+    CLOSE,
+    GET_TRANSACTION,
+    JOIN_TRANSACTION,
+    IS_JOINED_TO_TRANSACTION,
+    GET_ENTITY_MANAGER_FACTORY,
+    GET_CRITERIA_BUILDER,
+    GET_METAMODEL,
+    GET_TARGET_ENTITY_MANAGER,
+    CREATE_ENTITY_MANAGER,
+    GET_OUTPUT_PARAMETER_VALUE,
+    REGISTER_STORED_PROCEDURE_PARAMETER,
+    OTHER
+  }
+
+  final Method method;
+
+  final Kind kind;
+
+  /**
+   * Whether the method requires an actual transaction on a shared EntityManager.
+   */
+  final boolean transactionRequiring;
+
+  /**
+   * Whether the method may add entities to the persistence context.
+   */
+  final boolean entityLoading;
+
+  /**
+   * Whether the method executes a query, releasing a deferred EntityManager.
+   */
+  final boolean queryTerminating;
+
+  /**
+   * Whether the method returns a lazily consumed query result,
+   * such as a {@code Stream} or a scrollable cursor.
+   */
+  final boolean resultStreaming;
+
+  /**
+   * Whether the method is declared on an interface (rather than {@code Object}).
+   */
+  final boolean interfaceMethod;
+
+  /**
+   * Whether the method is declared on {@link EntityManagerFactoryInfo}
+   * or one of its super-types.
+   */
+  final boolean entityManagerFactoryInfoMethod;
+
+  /** Spread invoker: (Object target, Object[] args) -> Object. */
+  @Nullable
+  private final MethodHandle invoker;
+
+  private ProxyMethod(Method method) {
+    String name = method.getName();
+    this.method = method;
+    this.kind = kindOf(name, method.getParameterCount());
+    this.transactionRequiring = transactionRequiringMethods.contains(name);
+    this.entityLoading = entityLoadingMethods.contains(name);
+    this.queryTerminating = queryTerminatingMethods.contains(name);
+    this.resultStreaming = name.equals("getResultStream") || name.equals("stream") || name.equals("scroll");
+    this.interfaceMethod = method.getDeclaringClass().isInterface();
+    this.entityManagerFactoryInfoMethod = method.getDeclaringClass().isAssignableFrom(EntityManagerFactoryInfo.class);
+    this.invoker = createInvoker(method);
+  }
+
+  /**
+   * Invoke the underlying method on the given target, propagating any
+   * exception thrown by the target method as-is.
+   *
+   * @param target the target object
+   * @param args the invocation arguments (may be {@code null} for no arguments)
+   * @return the return value, or {@code null} for {@code void} methods
+   */
+  @Nullable
+  Object invoke(Object target, @Nullable Object[] args) throws Throwable {
+    MethodHandle invoker = this.invoker;
+    if (invoker != null) {
+      return (Object) invoker.invokeExact(target, args);
+    }
+    try {
+      return method.invoke(target, args);
+    }
+    catch (InvocationTargetException ex) {
+      throw ex.getTargetException();
+    }
+  }
+
+  /**
+   * Obtain the cached {@code ProxyMethod} for the given method.
+   */
+  static ProxyMethod forMethod(Method method) {
+    ProxyMethod proxyMethod = cache.get(method);
+    if (proxyMethod == null) {
+      proxyMethod = cache.computeIfAbsent(method, ProxyMethod::new);
+    }
+    return proxyMethod;
+  }
+
+  private static Kind kindOf(String name, int parameterCount) {
+    return switch (name) {
+      case "equals" -> parameterCount == 1 ? Kind.EQUALS : Kind.OTHER;
+      case "hashCode" -> parameterCount == 0 ? Kind.HASH_CODE : Kind.OTHER;
+      case "toString" -> parameterCount == 0 ? Kind.TO_STRING : Kind.OTHER;
+      case "unwrap" -> Kind.UNWRAP;
+      case "isOpen" -> Kind.IS_OPEN;
+      case "close" -> Kind.CLOSE;
+      case "getTransaction" -> Kind.GET_TRANSACTION;
+      case "joinTransaction" -> Kind.JOIN_TRANSACTION;
+      case "isJoinedToTransaction" -> Kind.IS_JOINED_TO_TRANSACTION;
+      case "getEntityManagerFactory" -> Kind.GET_ENTITY_MANAGER_FACTORY;
+      case "getCriteriaBuilder" -> Kind.GET_CRITERIA_BUILDER;
+      case "getMetamodel" -> Kind.GET_METAMODEL;
+      case "getTargetEntityManager" -> Kind.GET_TARGET_ENTITY_MANAGER;
+      case "createEntityManager" -> Kind.CREATE_ENTITY_MANAGER;
+      case "getOutputParameterValue" -> Kind.GET_OUTPUT_PARAMETER_VALUE;
+      case "registerStoredProcedureParameter" -> Kind.REGISTER_STORED_PROCEDURE_PARAMETER;
+      default -> Kind.OTHER;
+    };
+  }
+
+  @Nullable
+  private static MethodHandle createInvoker(Method method) {
+    if (NativeDetector.inNativeImage()) {
+      // Method handles require additional reachability metadata on native images
+      return null;
+    }
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+      return handle.asType(handle.type().generic())
+              .asSpreader(Object[].class, method.getParameterCount());
+    }
+    catch (IllegalAccessException ex) {
+      // Non-public interface: fall back to reflective invocation
+      return null;
+    }
+  }
+
+}
@@ -24,13 +24,18 @@ import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import infra.lang.TodayStrategies;
 import infra.logging.Logger;
 import infra.logging.LoggerFactory;
 import infra.transaction.support.TransactionSynchronizationManager;
@@ -70,32 +75,31 @@ import jakarta.persistence.TransactionRequiredException;
  */
 public abstract class SharedEntityManagerCreator {
 
+  /**
+   * System property that instructs shared EntityManagers to keep the temporary
+   * EntityManager of a non-transactional query open while a lazily consumed result
+   * ({@code getResultStream}, {@code stream} or {@code scroll}) is being read,
+   * i.e. {@value #STREAMING_QUERY_RESULTS_PROPERTY_NAME}.
+   * <p>The default is "false", closing the temporary EntityManager right after
+   * the query has been executed. When switched on, the EntityManager (and its
+   * JDBC connection) gets released once the returned {@code Stream} has been
+   * exhausted or closed, or once the returned scrollable result has been closed.
+   * Consumed rows get evicted from the persistence context along the way, by
+   * clearing the temporary EntityManager: rows buffered further down a stream
+   * pipeline (e.g. by {@code sorted()}) are detached as well, so their lazy
+   * associations cannot be initialized anymore. Callers are required to close
+   * such results, preferably through try-with-resources.
+   */
+  public static final String STREAMING_QUERY_RESULTS_PROPERTY_NAME = "infra.orm.jpa.streaming-query-results";
+
+  private static final boolean streamingQueryResults =
+          TodayStrategies.getFlag(STREAMING_QUERY_RESULTS_PROPERTY_NAME);
+
   private static final Class<?>[] NO_ENTITY_MANAGER_INTERFACES = new Class<?>[0];
 
   private static final ConcurrentReferenceHashMap<Class<?>, Class<?>[]>
           cachedQueryInterfaces = new ConcurrentReferenceHashMap<>(4);
 
-  private static final Set<String> transactionRequiringMethods = Set.of(
-          "joinTransaction",
-          "flush",
-          "persist",
-          "merge",
-          "remove",
-          "refresh");
-
-  private static final Set<String> queryTerminatingMethods = Set.of(
-          "execute",  // jakarta.persistence.StoredProcedureQuery.execute()
-          "executeUpdate", // jakarta.persistence.Query.executeUpdate()
-          "getSingleResult",  // jakarta.persistence.Query.getSingleResult()
-          "getResultStream",  // jakarta.persistence.Query.getResultStream()
-          "getResultList",  // jakarta.persistence.Query.getResultList()
-          "list",  // org.hibernate.query.Query.list()
-          "scroll",  // org.hibernate.query.Query.scroll()
-          "stream",  // org.hibernate.query.Query.stream()
-          "uniqueResult",  // org.hibernate.query.Query.uniqueResult()
-          "uniqueResultOptional"  // org.hibernate.query.Query.uniqueResultOptional()
-  );
-
   /**
    * Create a transactional EntityManager proxy for the given EntityManagerFactory.
    *
@@ -220,43 +224,41 @@ public abstract class SharedEntityManagerCreator {
     @Nullable
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
       // Invocation on EntityManager interface coming in...
+      ProxyMethod proxyMethod = ProxyMethod.forMethod(method);
 
-      switch (method.getName()) {
-        case "equals":
+      switch (proxyMethod.kind) {
+        case EQUALS:
           // Only consider equal when proxies are identical.
           return (proxy == args[0]);
-        case "hashCode":
+        case HASH_CODE:
           // Use hashCode of EntityManager proxy.
           return hashCode();
-        case "toString":
+        case TO_STRING:
           // Deliver toString without touching a target EntityManager.
           return "Shared EntityManager proxy for target factory [" + this.targetFactory + "]";
-        case "getEntityManagerFactory":
+        case GET_ENTITY_MANAGER_FACTORY:
           // JPA 2.0: return EntityManagerFactory without creating an EntityManager.
           return this.targetFactory;
-        case "getCriteriaBuilder":
-        case "getMetamodel":
-          // JPA 2.0: return EntityManagerFactory's CriteriaBuilder/Metamodel (avoid creation of EntityManager)
-          try {
-            return EntityManagerFactory.class.getMethod(method.getName()).invoke(this.targetFactory);
-          }
-          catch (InvocationTargetException ex) {
-            throw ex.getTargetException();
-          }
-        case "unwrap":
+        case GET_CRITERIA_BUILDER:
+          // JPA 2.0: return EntityManagerFactory's CriteriaBuilder (avoid creation of EntityManager)
+          return this.targetFactory.getCriteriaBuilder();
+        case GET_METAMODEL:
+          // JPA 2.0: return EntityManagerFactory's Metamodel (avoid creation of EntityManager)
+          return this.targetFactory.getMetamodel();
+        case UNWRAP:
           // JPA 2.0: handle unwrap method - could be a proxy match.
           Class<?> targetClass = (Class<?>) args[0];
           if (targetClass != null && targetClass.isInstance(proxy)) {
             return proxy;
           }
           break;
-        case "isOpen":
+        case IS_OPEN:
           // Handle isOpen method: always return true.
           return true;
-        case "close":
+        case CLOSE:
           // Handle close method: suppress, not valid.
           return null;
-        case "getTransaction":
+        case GET_TRANSACTION:
           throw new IllegalStateException(
                   "Not allowed to create transaction on shared EntityManager - " +
                           "use Framework transactions or EJB CMT instead");
@@ -267,15 +269,15 @@ public abstract class SharedEntityManagerCreator {
       EntityManager target = EntityManagerFactoryUtils.doGetTransactionalEntityManager(
               this.targetFactory, this.properties, this.synchronizedWithTransaction);
 
-      switch (method.getName()) {
-        case "getTargetEntityManager" -> {
+      switch (proxyMethod.kind) {
+        case GET_TARGET_ENTITY_MANAGER -> {
           // Handle EntityManagerProxy interface.
           if (target == null) {
             throw new IllegalStateException("No transactional EntityManager available");
           }
           return target;
         }
-        case "unwrap" -> {
+        case UNWRAP -> {
           Class<?> targetClass = (Class<?>) args[0];
           if (targetClass == null) {
             return (target != null ? target : proxy);
@@ -288,7 +290,7 @@ public abstract class SharedEntityManagerCreator {
         // Still perform unwrap call on target EntityManager.
       }
 
-      if (transactionRequiringMethods.contains(method.getName())) {
+      if (proxyMethod.transactionRequiring) {
         // We need a transactional target now, according to the JPA spec.
         // Otherwise, the operation would get accepted but remain unflushed...
         if (target == null || (!TransactionSynchronizationManager.isActualTransactionActive() &&
@@ -307,16 +309,20 @@ public abstract class SharedEntityManagerCreator {
                 this.targetFactory.createEntityManager();
         isNewEm = true;
       }
+      else if (proxyMethod.entityLoading) {
+        // Consistent persistence context: apply the size policy of the transaction, if any.
+        EntityManagerFactoryUtils.checkPersistenceContextSize(this.targetFactory);
+      }
 
       // Invoke method on current EntityManager.
       try {
-        Object result = method.invoke(target, args);
+        Object result = proxyMethod.invoke(target, args);
         if (result instanceof Query query) {
           if (isNewEm) {
             Class<?>[] ifcs = cachedQueryInterfaces.computeIfAbsent(query.getClass(), key ->
                     ClassUtils.getAllInterfacesForClass(key, this.proxyClassLoader));
             result = Proxy.newProxyInstance(this.proxyClassLoader, ifcs,
-                    new DeferredQueryInvocationHandler(query, target));
+                    new DeferredQueryInvocationHandler(query, target, this.proxyClassLoader));
             isNewEm = false;
           }
           else {
@@ -325,9 +331,6 @@ public abstract class SharedEntityManagerCreator {
         }
         return result;
       }
-      catch (InvocationTargetException ex) {
-        throw ex.getTargetException();
-      }
       finally {
         if (isNewEm) {
           EntityManagerFactoryUtils.closeEntityManager(target);
@@ -361,23 +364,28 @@ public abstract class SharedEntityManagerCreator {
     @Nullable
     private Map<Object, Object> outputParameters;
 
-    public DeferredQueryInvocationHandler(Query target, EntityManager entityManager) {
+    @Nullable
+    private final ClassLoader proxyClassLoader;
+
+    public DeferredQueryInvocationHandler(Query target, EntityManager entityManager, @Nullable ClassLoader proxyClassLoader) {
       this.target = target;
       this.entityManager = entityManager;
+      this.proxyClassLoader = proxyClassLoader;
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
       // Invocation on Query interface coming in...
+      ProxyMethod proxyMethod = ProxyMethod.forMethod(method);
 
-      switch (method.getName()) {
-        case "equals":
+      switch (proxyMethod.kind) {
+        case EQUALS:
           // Only consider equal when proxies are identical.
           return (proxy == args[0]);
-        case "hashCode":
+        case HASH_CODE:
           // Use hashCode of EntityManager proxy.
           return hashCode();
-        case "unwrap":
+        case UNWRAP:
           // Handle JPA 2.0 unwrap method - could be a proxy match.
           Class<?> targetClass = (Class<?>) args[0];
           if (targetClass == null) {
@@ -387,7 +395,7 @@ public abstract class SharedEntityManagerCreator {
             return proxy;
           }
           break;
-        case "getOutputParameterValue":
+        case GET_OUTPUT_PARAMETER_VALUE:
           if (this.entityManager == null) {
             Object key = args[0];
             if (this.outputParameters == null || !this.outputParameters.containsKey(key)) {
@@ -404,8 +412,8 @@ public abstract class SharedEntityManagerCreator {
 
       // Invoke method on actual Query object.
       try {
-        Object retVal = method.invoke(this.target, args);
-        if (method.getName().equals("registerStoredProcedureParameter")
+        Object retVal = proxyMethod.invoke(this.target, args);
+        if (proxyMethod.kind == ProxyMethod.Kind.REGISTER_STORED_PROCEDURE_PARAMETER
                 && args.length == 3
                 && (args[2] == ParameterMode.OUT || args[2] == ParameterMode.INOUT)) {
           if (this.outputParameters == null) {
@@ -413,13 +421,18 @@ public abstract class SharedEntityManagerCreator {
           }
           this.outputParameters.put(args[0], null);
         }
+        if (streamingQueryResults && proxyMethod.resultStreaming && this.entityManager != null) {
+          Object streamingResult = StreamingQueryResult.decorate(retVal, this.entityManager, this.proxyClassLoader);
+          if (streamingResult != null) {
+            // The EntityManager is closed along with the result from now on.
+            this.entityManager = null;
+            return streamingResult;
+          }
+        }
         return retVal == this.target ? proxy : retVal;
       }
-      catch (InvocationTargetException ex) {
-        throw ex.getTargetException();
-      }
       finally {
-        if (queryTerminatingMethods.contains(method.getName())) {
+        if (proxyMethod.queryTerminating) {
           // Actual execution of the query: close the EntityManager right
           // afterwards, since that was the only reason we kept it open.
           if (this.outputParameters != null && this.target instanceof StoredProcedureQuery storedProc) {
@@ -445,4 +458,166 @@ public abstract class SharedEntityManagerCreator {
     }
   }
 
+  /**
+   * Lazily consumed query result that keeps the temporary EntityManager of a
+   * deferred query open until the result has been exhausted or closed.
+   * <p>Rows are evicted from the persistence context as they are consumed:
+   * the temporary EntityManager serves this query only and never holds any
+   * pending changes, so it simply gets cleared before moving on to the next row.
+   * Clearing rather than detaching the emitted row also covers tuple and scalar
+   * rows as well as entities fetched along with the row, e.g. eager associations,
+   * which a {@code detach} call would leave behind unless cascaded.
+   */
+  static final class StreamingQueryResult {
+
+    private static final Set<String> cursorMovingMethods = Set.of(
+            "next", "previous", "scroll", "first", "last", "beforeFirst", "afterLast", "position", "setRowNumber");
+
+    private final AutoCloseable result;
+
+    private final EntityManager entityManager;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private StreamingQueryResult(AutoCloseable result, EntityManager entityManager) {
+      this.result = result;
+      this.entityManager = entityManager;
+    }
+
+    /**
+     * Decorate the given query result, if it is a {@link Stream} or a closeable
+     * cursor such as Hibernate's {@code ScrollableResults}.
+     *
+     * @return the decorated result, or {@code null} if the given result is
+     * not lazily consumed (in which case the EntityManager remains untouched)
+     */
+    @Nullable
+    static Object decorate(@Nullable Object result, EntityManager entityManager, @Nullable ClassLoader classLoader) {
+      if (result instanceof Stream<?> stream) {
+        StreamingQueryResult streamingResult = new StreamingQueryResult(stream, entityManager);
+        return StreamSupport.stream(streamingResult.new EvictingSpliterator<>(stream.spliterator()), stream.isParallel())
+                .onClose(streamingResult::close);
+      }
+      else if (result instanceof AutoCloseable closeable) {
+        StreamingQueryResult streamingResult = new StreamingQueryResult(closeable, entityManager);
+        Class<?>[] ifcs = cachedQueryInterfaces.computeIfAbsent(result.getClass(), key ->
+                ClassUtils.getAllInterfacesForClass(key, classLoader));
+        return Proxy.newProxyInstance(classLoader, ifcs, streamingResult.new CursorInvocationHandler());
+      }
+      return null;
+    }
+
+    /**
+     * Evict the previously consumed row(s) from the persistence context.
+     */
+    void evict() {
+      if (!this.closed.get()) {
+        this.entityManager.clear();
+      }
+    }
+
+    /**
+     * Close the underlying result and then the EntityManager, exactly once.
+     */
+    void close() {
+      if (this.closed.compareAndSet(false, true)) {
+        try {
+          this.result.close();
+        }
+        catch (Exception ex) {
+          LoggerFactory.getLogger(StreamingQueryResult.class).debug("Could not close streaming query result", ex);
+        }
+        finally {
+          EntityManagerFactoryUtils.closeEntityManager(this.entityManager);
+        }
+      }
+    }
+
+    /**
+     * Sequential spliterator evicting each row once it has been passed
+     * through the stream pipeline, closing the result on exhaustion.
+     */
+    private final class EvictingSpliterator<T> implements Spliterator<T> {
+
+      private final Spliterator<T> source;
+
+      EvictingSpliterator(Spliterator<T> source) {
+        this.source = source;
+      }
+
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed.get()) {
+          return false;
+        }
+        boolean advanced;
+        try {
+          advanced = this.source.tryAdvance(action);
+        }
+        catch (RuntimeException | Error ex) {
+          close();
+          throw ex;
+        }
+        if (advanced) {
+          evict();
+        }
+        else {
+          close();
+        }
+        return advanced;
+      }
+
+      @Override
+      public void forEachRemaining(Consumer<? super T> action) {
+        while (tryAdvance(action)) {
+          // keep consuming one row at a time
+        }
+      }
+
+      @Nullable
+      @Override
+      public Spliterator<T> trySplit() {
+        // a database cursor can only be consumed sequentially
+        return null;
+      }
+
+      @Override
+      public long estimateSize() {
+        return this.source.estimateSize();
+      }
+
+      @Override
+      public int characteristics() {
+        return this.source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+      }
+    }
+
+    /**
+     * Invocation handler for closeable cursors, evicting the current row
+     * when the cursor moves and closing the EntityManager along with the cursor.
+     */
+    private final class CursorInvocationHandler implements InvocationHandler {
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        ProxyMethod proxyMethod = ProxyMethod.forMethod(method);
+        switch (proxyMethod.kind) {
+          case EQUALS:
+            // Only consider equal when proxies are identical.
+            return (proxy == args[0]);
+          case HASH_CODE:
+            // Use hashCode of cursor proxy.
+            return System.identityHashCode(proxy);
+          case CLOSE:
+            close();
+            return null;
+        }
+        if (cursorMovingMethods.contains(method.getName())) {
+          evict();
+        }
+        return proxyMethod.invoke(result, args);
+      }
+    }
+  }
+
 }
@@ -21,10 +21,15 @@ import org.jspecify.annotations.Nullable;
 
 import java.lang.instrument.ClassFileTransformer;
 import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import infra.lang.Assert;
 import infra.logging.Logger;
 import infra.logging.LoggerFactory;
+import infra.util.StringUtils;
 import jakarta.persistence.spi.ClassTransformer;
 
 /**
@@ -32,8 +37,15 @@ import jakarta.persistence.spi.ClassTransformer;
  * interface based on a JPA {@code ClassTransformer} which a JPA PersistenceProvider
  * asks the {@code PersistenceUnitInfo} to install in the current runtime.
  *
+ * <p>Transformation does not involve any global lock, so classes may get
+ * loaded in parallel. Classes that cannot be subject to weaving (JDK classes,
+ * and the persistence provider's own classes) are passed through without
+ * invoking the provider at all. If the persistence unit lists all of its
+ * managed classes, any other class is passed through as well.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
  * @see jakarta.persistence.spi.PersistenceUnitInfo#addTransformer(ClassTransformer)
  * @since 4.0
  */
@@ -41,56 +53,141 @@ class ClassFileTransformerAdapter implements ClassFileTransformer {
 
   private static final Logger log = LoggerFactory.getLogger(ClassFileTransformerAdapter.class);
 
+  /**
+   * Hibernate property for enhancing field access in non-entity classes,
+   * which needs to see every class.
+   */
+  private static final String EXTENDED_ENHANCEMENT_PROPERTY = "hibernate.enhancer.enableExtendedEnhancement";
+
+  private static final String[] DEFAULT_EXCLUDED_PREFIXES = {
+          "java/", "javax/", "jdk/", "sun/", "com/sun/", "jakarta/"
+  };
+
   private final ClassTransformer classTransformer;
 
-  private boolean currentlyTransforming = false;
+  private final String[] excludedPrefixes;
+
+  /**
+   * Managed class names in internal form, or {@code null} to consider all classes.
+   */
+  @Nullable
+  private final Set<String> managedClassNames;
+
+  private final String[] managedPackagePrefixes;
+
+  private final ThreadLocal<Boolean> currentlyTransforming = new ThreadLocal<>();
 
   public ClassFileTransformerAdapter(ClassTransformer classTransformer) {
+    this(classTransformer, null, null, null);
+  }
+
+  /**
+   * Create a new ClassFileTransformerAdapter for the given transformer.
+   *
+   * @param classTransformer the JPA ClassTransformer to delegate to
+   * @param excludedPackage an additional package whose classes never need to
+   * be transformed, typically the persistence provider's package (may be {@code null})
+   * @param managedClassNames the complete set of managed class names, or
+   * {@code null} if further classes may need to be transformed
+   * @param managedPackages packages whose classes need to be transformed in any case
+   * (only relevant in combination with a set of managed class names)
+   */
+  ClassFileTransformerAdapter(ClassTransformer classTransformer, @Nullable String excludedPackage,
+          @Nullable Collection<String> managedClassNames, @Nullable Collection<String> managedPackages) {
+
     Assert.notNull(classTransformer, "ClassTransformer is required");
     this.classTransformer = classTransformer;
+    if (StringUtils.hasText(excludedPackage)) {
+      this.excludedPrefixes = Arrays.copyOf(DEFAULT_EXCLUDED_PREFIXES, DEFAULT_EXCLUDED_PREFIXES.length + 1);
+      this.excludedPrefixes[DEFAULT_EXCLUDED_PREFIXES.length] = toInternalPrefix(excludedPackage);
+    }
+    else {
+      this.excludedPrefixes = DEFAULT_EXCLUDED_PREFIXES;
+    }
+    if (managedClassNames != null) {
+      HashSet<String> internalNames = new HashSet<>(managedClassNames.size() * 2);
+      for (String managedClassName : managedClassNames) {
+        internalNames.add(managedClassName.replace('.', '/'));
+      }
+      this.managedClassNames = internalNames;
+      this.managedPackagePrefixes = (managedPackages != null ?
+              managedPackages.stream().map(ClassFileTransformerAdapter::toInternalPrefix).toArray(String[]::new) :
+              new String[0]);
+    }
+    else {
+      this.managedClassNames = null;
+      this.managedPackagePrefixes = new String[0];
+    }
   }
 
   @Override
   @Nullable
-  public byte[] transform(ClassLoader loader, String className,
-          Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
-
-    synchronized(this) {
-      if (this.currentlyTransforming) {
-        // Defensively back out when called from within the transform delegate below:
-        // in particular, for the over-eager transformer implementation in Hibernate 5.
-        return null;
-      }
+  public byte[] transform(@Nullable ClassLoader loader, @Nullable String className,
+          @Nullable Class<?> classBeingRedefined, @Nullable ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+
+    if (!isCandidate(className)) {
+      return null;
+    }
+    if (this.currentlyTransforming.get() != null) {
+      // Defensively back out when called from within the transform delegate below:
+      // in particular, for the over-eager transformer implementation in Hibernate 5.
+      return null;
+    }
 
-      this.currentlyTransforming = true;
-      try {
-        byte[] transformed = classTransformer.transform(
-                loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
-        if (transformed != null && log.isDebugEnabled()) {
-          log.debug("Transformer of class [{}] transformed class [{}]; bytes in={}; bytes out={}",
-                  classTransformer.getClass().getName(), className, classfileBuffer.length, transformed.length);
-        }
-        return transformed;
+    this.currentlyTransforming.set(Boolean.TRUE);
+    try {
+      byte[] transformed = classTransformer.transform(
+              loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+      if (transformed != null && log.isDebugEnabled()) {
+        log.debug("Transformer of class [{}] transformed class [{}]; bytes in={}; bytes out={}",
+                classTransformer.getClass().getName(), className, classfileBuffer.length, transformed.length);
       }
-      catch (ClassCircularityError ex) {
-        if (log.isErrorEnabled()) {
-          log.error("Circularity error while weaving class [{}] with transformer of class [{}]",
-                  className, classTransformer.getClass().getName(), ex);
-        }
-        throw new IllegalStateException("Failed to weave class [" + className + "]", ex);
+      return transformed;
+    }
+    catch (ClassCircularityError ex) {
+      if (log.isErrorEnabled()) {
+        log.error("Circularity error while weaving class [{}] with transformer of class [{}]",
+                className, classTransformer.getClass().getName(), ex);
       }
-      catch (Throwable ex) {
-        if (log.isWarnEnabled()) {
-          log.warn("Error weaving class [{}] with transformer of class [{}]",
-                  className, classTransformer.getClass().getName(), ex);
-        }
-        // The exception will be ignored by the class loader, anyway...
-        throw new IllegalStateException("Could not weave class [" + className + "]", ex);
+      throw new IllegalStateException("Failed to weave class [" + className + "]", ex);
+    }
+    catch (Throwable ex) {
+      if (log.isWarnEnabled()) {
+        log.warn("Error weaving class [{}] with transformer of class [{}]",
+                className, classTransformer.getClass().getName(), ex);
       }
-      finally {
-        this.currentlyTransforming = false;
+      // The exception will be ignored by the class loader, anyway...
+      throw new IllegalStateException("Could not weave class [" + className + "]", ex);
+    }
+    finally {
+      this.currentlyTransforming.remove();
+    }
+  }
+
+  /**
+   * Determine whether the given class may need to be passed to the JPA ClassTransformer.
+   *
+   * @param className the name of the class in internal form, e.g. "com/example/Person"
+   */
+  boolean isCandidate(@Nullable String className) {
+    if (className == null) {
+      return true;
+    }
+    for (String excludedPrefix : this.excludedPrefixes) {
+      if (className.startsWith(excludedPrefix)) {
+        return false;
       }
     }
+    Set<String> managedClassNames = this.managedClassNames;
+    if (managedClassNames == null || managedClassNames.contains(className)) {
+      return true;
+    }
+    for (String managedPackagePrefix : this.managedPackagePrefixes) {
+      if (className.startsWith(managedPackagePrefix)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -98,4 +195,25 @@ class ClassFileTransformerAdapter implements ClassFileTransformer {
     return "Standard ClassFileTransformer wrapping JPA transformer: " + classTransformer;
   }
 
+  /**
+   * Create a ClassFileTransformerAdapter for the given persistence unit,
+   * restricting transformation to its managed classes if the unit lists all
+   * of them: that is, if it excludes unlisted classes and does not specify
+   * any mapping files that could declare further classes.
+   */
+  static ClassFileTransformerAdapter forPersistenceUnit(
+          ClassTransformer classTransformer, MutablePersistenceUnitInfo unitInfo) {
+
+    boolean managedClassesListed = unitInfo.excludeUnlistedClasses()
+            && unitInfo.getMappingFileNames().isEmpty()
+            && !Boolean.parseBoolean(unitInfo.getProperties().getProperty(EXTENDED_ENHANCEMENT_PROPERTY));
+    return new ClassFileTransformerAdapter(classTransformer, unitInfo.getPersistenceProviderPackageName(),
+            managedClassesListed ? unitInfo.getManagedClassNames() : null, unitInfo.getManagedPackages());
+  }
+
+  private static String toInternalPrefix(String packageName) {
+    String prefix = packageName.replace('.', '/');
+    return (prefix.endsWith("/") ? prefix : prefix + "/");
+  }
+
 }
@@ -63,7 +63,9 @@ import jakarta.persistence.spi.PersistenceUnitInfo;
  * with configurable file locations, JDBC DataSource lookup and load-time weaving.
  *
  * <p>Builds a persistence unit based on the state of a {@link PersistenceManagedTypes},
- * typically built using a {@link PersistenceManagedTypesScanner}.</p>
+ * typically built using a {@link PersistenceManagedTypesScanner}. The scanner
+ * reads the {@link PersistenceManagedTypesIndex} generated at build time when
+ * available, without any classpath scanning.</p>
  *
  * <p>The default XML file location is {@code classpath*:META-INF/persistence.xml},
  * scanning for all matching files in the classpath (as defined in the JPA specification).
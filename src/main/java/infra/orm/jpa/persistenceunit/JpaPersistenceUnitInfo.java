@@ -75,12 +75,13 @@ class JpaPersistenceUnitInfo extends MutablePersistenceUnitInfo {
   }
 
   /**
-   * This implementation delegates to the LoadTimeWeaver, if specified.
+   * This implementation delegates to the LoadTimeWeaver, if specified,
+   * restricting the transformer to this unit's managed classes where possible.
    */
   @Override
   public void addTransformer(ClassTransformer classTransformer) {
     if (this.loadTimeWeaver != null) {
-      this.loadTimeWeaver.addTransformer(new ClassFileTransformerAdapter(classTransformer));
+      this.loadTimeWeaver.addTransformer(ClassFileTransformerAdapter.forPersistenceUnit(classTransformer, this));
     }
     else {
       LoggerFactory.getLogger(getClass())
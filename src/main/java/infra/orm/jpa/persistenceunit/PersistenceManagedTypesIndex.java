@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.persistenceunit;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import infra.lang.TodayStrategies;
+import infra.logging.Logger;
+import infra.logging.LoggerFactory;
+import infra.util.ConcurrentReferenceHashMap;
+import infra.util.ResourceUtils;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Index of the JPA managed types available on the classpath, as generated at
+ * build time by the annotation processor of the {@code infra-persistence-processor}
+ * artifact.
+ *
+ * <p>Each {@value #INDEX_LOCATION} resource lists the {@code @Entity},
+ * {@code @Embeddable}, {@code @MappedSuperclass} and {@code @Converter} types
+ * as well as the annotated packages of its jar, so that managed types can be
+ * resolved without any classpath scanning or class file parsing.
+ *
+ * <p>Just like the candidate components index, the index is all-or-nothing:
+ * once present, types of jars that have not been compiled with the annotation
+ * processor are not detected. A warning gets logged for each requested package
+ * without any index entries. Set the {@value #IGNORE_INDEX} flag to fall back
+ * to classpath scanning.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see PersistenceManagedTypesScanner
+ * @since 5.0
+ */
+public final class PersistenceManagedTypesIndex {
+
+  /**
+   * The location of the managed types index resources, relative to the classpath root.
+   */
+  public static final String INDEX_LOCATION = "META-INF/today.persistence-types";
+
+  /**
+   * System property that instructs the framework to ignore the managed types
+   * index, i.e. to always return {@code null} from {@link #loadIndex(ClassLoader)}.
+   * <p>The default is "false", allowing for regular use of the index.
+   */
+  public static final String IGNORE_INDEX = "infra.persistence.index.ignore";
+
+  /**
+   * Stereotype of index entries denoting an annotated package.
+   */
+  static final String PACKAGE_STEREOTYPE = "package-info";
+
+  private static final Logger logger = LoggerFactory.getLogger(PersistenceManagedTypesIndex.class);
+
+  private static final boolean shouldIgnoreIndex = TodayStrategies.getFlag(IGNORE_INDEX);
+
+  private static final ConcurrentReferenceHashMap<ClassLoader, PersistenceManagedTypesIndex> cache =
+          new ConcurrentReferenceHashMap<>();
+
+  private final List<Entry> entries;
+
+  PersistenceManagedTypesIndex(List<Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Resolve the managed types of the given packages (including their
+   * sub-packages) from this index.
+   * <p>Types are listed by package, in the given order, and by index
+   * resource, in classpath order. The persistence unit root URL is
+   * the jar file of the first index resource contributing a class.
+   *
+   * @param basePackages the packages to resolve
+   * @return the {@link PersistenceManagedTypes} instance
+   */
+  public PersistenceManagedTypes getManagedTypes(String... basePackages) {
+    var managedClassNames = new LinkedHashSet<String>();
+    var managedPackages = new LinkedHashSet<String>();
+    URL persistenceUnitRootUrl = null;
+    for (String basePackage : basePackages) {
+      boolean found = false;
+      for (Entry entry : entries) {
+        if (entry.managedPackage) {
+          if (isInPackage(entry.name, basePackage)) {
+            managedPackages.add(entry.name);
+            found = true;
+          }
+        }
+        else if (isInPackage(packageOf(entry.name), basePackage)) {
+          managedClassNames.add(entry.name);
+          found = true;
+          if (persistenceUnitRootUrl == null) {
+            persistenceUnitRootUrl = entry.jarFileUrl;
+          }
+        }
+      }
+      if (!found) {
+        logger.warn("No managed types index entries for package '{}': types of jars compiled " +
+                "without infra-persistence-processor are not detected while an index is present. " +
+                "Set '{}' to fall back to classpath scanning.", basePackage, IGNORE_INDEX);
+      }
+    }
+    return new SimplePersistenceManagedTypes(new ArrayList<>(managedClassNames),
+            new ArrayList<>(managedPackages), persistenceUnitRootUrl);
+  }
+
+  private static boolean isInPackage(String packageName, String basePackage) {
+    return basePackage.isEmpty() || packageName.equals(basePackage)
+            || (packageName.startsWith(basePackage) && packageName.charAt(basePackage.length()) == '.');
+  }
+
+  private static String packageOf(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return (lastDot != -1 ? className.substring(0, lastDot) : "");
+  }
+
+  /**
+   * Load and instantiate the {@link PersistenceManagedTypesIndex} from
+   * {@value #INDEX_LOCATION}, using the given class loader. If no index
+   * is available, return {@code null}.
+   *
+   * @param classLoader the ClassLoader to use for loading (can be {@code null} to use the default)
+   * @return the index to use or {@code null} if no index was found
+   * @throws PersistenceException if an index resource could not be read
+   */
+  @Nullable
+  public static PersistenceManagedTypesIndex loadIndex(@Nullable ClassLoader classLoader) {
+    if (shouldIgnoreIndex) {
+      return null;
+    }
+    ClassLoader classLoaderToUse = classLoader;
+    if (classLoaderToUse == null) {
+      classLoaderToUse = PersistenceManagedTypesIndex.class.getClassLoader();
+    }
+    PersistenceManagedTypesIndex index = cache.computeIfAbsent(classLoaderToUse, PersistenceManagedTypesIndex::doLoadIndex);
+    return (index.entries.isEmpty() ? null : index);
+  }
+
+  private static PersistenceManagedTypesIndex doLoadIndex(ClassLoader classLoader) {
+    try {
+      var entries = new ArrayList<Entry>();
+      Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+      while (urls.hasMoreElements()) {
+        URL url = urls.nextElement();
+        Properties properties = new Properties();
+        try (InputStream inputStream = url.openStream()) {
+          properties.load(inputStream);
+        }
+        URL jarFileUrl = ResourceUtils.isJarURL(url) ? ResourceUtils.extractJarFileURL(url) : null;
+        // Sort by type name: Properties do not keep the order of the resource
+        new TreeMap<>(properties).forEach((name, stereotype) -> entries.add(
+                new Entry((String) name, PACKAGE_STEREOTYPE.equals(stereotype), jarFileUrl)));
+      }
+      if (!entries.isEmpty() && logger.isDebugEnabled()) {
+        logger.debug("Loaded {} managed types index entries", entries.size());
+      }
+      return new PersistenceManagedTypesIndex(entries);
+    }
+    catch (IOException ex) {
+      throw new PersistenceException("Unable to load managed types index from location [" + INDEX_LOCATION + "]", ex);
+    }
+  }
+
+  /**
+   * An index entry: a managed class or an annotated package.
+   *
+   * @param name the class or package name
+   * @param managedPackage whether the name denotes a package
+   * @param jarFileUrl the URL of the jar file containing the index resource, if any
+   */
+  record Entry(String name, boolean managedPackage, @Nullable URL jarFileUrl) {
+  }
+
+}
@@ -23,19 +23,26 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import infra.context.index.CandidateComponentsIndex;
 import infra.context.index.CandidateComponentsIndexLoader;
 import infra.core.io.PatternResourceLoader;
 import infra.core.io.Resource;
 import infra.core.io.ResourceLoader;
-import infra.core.type.classreading.CachingMetadataReaderFactory;
 import infra.core.type.classreading.ClassFormatException;
 import infra.core.type.classreading.MetadataReader;
 import infra.core.type.classreading.MetadataReaderFactory;
+import infra.core.type.classreading.SimpleMetadataReaderFactory;
 import infra.core.type.filter.AnnotationTypeFilter;
 import infra.core.type.filter.TypeFilter;
 import infra.lang.TodayStrategies;
@@ -65,6 +72,11 @@ public final class PersistenceManagedTypesScanner {
 
   private static final String PACKAGE_INFO_SUFFIX = ".package-info";
 
+  /**
+   * Minimum number of class resources for reading them in parallel.
+   */
+  private static final int PARALLEL_THRESHOLD = 64;
+
   private final List<AnnotationTypeFilter> entityTypeFilters = List.of(
           new AnnotationTypeFilter(Entity.class, false),
           new AnnotationTypeFilter(Embeddable.class, false),
@@ -74,81 +86,180 @@ public final class PersistenceManagedTypesScanner {
 
   private final PatternResourceLoader patternResourceLoader;
 
+  @Nullable
+  private final PersistenceManagedTypesIndex managedTypesIndex;
+
   @Nullable
   private final CandidateComponentsIndex componentsIndex;
 
   public PersistenceManagedTypesScanner(ResourceLoader resourceLoader) {
     this.patternResourceLoader = PatternResourceLoader.fromResourceLoader(resourceLoader);
+    this.managedTypesIndex = PersistenceManagedTypesIndex.loadIndex(resourceLoader.getClassLoader());
     this.componentsIndex = CandidateComponentsIndexLoader.loadIndex(resourceLoader.getClassLoader());
   }
 
   /**
    * Scan the specified packages and return a {@link PersistenceManagedTypes} that
    * represents the result of the scanning.
+   * <p>A {@link PersistenceManagedTypesIndex} generated at build time takes
+   * precedence, followed by the candidate components index. Without either,
+   * the class resources of all packages are read in parallel, on a short-lived
+   * pool of scanner threads rather than the common {@code ForkJoinPool}, since
+   * reading class resources from jar files blocks. The managed types are listed
+   * in a deterministic order nevertheless: by package, in the given order, and
+   * by class resource, in classpath order.
    *
    * @param packagesToScan the packages to scan
    * @return the {@link PersistenceManagedTypes} instance
    */
   public PersistenceManagedTypes scan(String... packagesToScan) {
+    if (managedTypesIndex != null) {
+      return managedTypesIndex.getManagedTypes(packagesToScan);
+    }
     ScanResult scanResult = new ScanResult();
-    for (String pkg : packagesToScan) {
-      scanPackage(pkg, scanResult);
+    if (componentsIndex != null) {
+      for (String pkg : packagesToScan) {
+        scanIndex(componentsIndex, pkg, scanResult);
+      }
+    }
+    else {
+      scanClasspath(packagesToScan, scanResult);
     }
     return scanResult.toJpaManagedTypes();
   }
 
-  private void scanPackage(String pkg, ScanResult scanResult) {
-    if (componentsIndex != null) {
-      var candidates = new HashSet<String>();
-      for (AnnotationTypeFilter filter : entityTypeFilters) {
-        candidates.addAll(componentsIndex.getCandidateTypes(pkg, filter.getAnnotationType().getName()));
+  private void scanIndex(CandidateComponentsIndex componentsIndex, String pkg, ScanResult scanResult) {
+    var candidates = new HashSet<String>();
+    for (AnnotationTypeFilter filter : entityTypeFilters) {
+      candidates.addAll(componentsIndex.getCandidateTypes(pkg, filter.getAnnotationType().getName()));
+    }
+    scanResult.managedClassNames.addAll(candidates);
+    scanResult.managedPackages.addAll(componentsIndex.getCandidateTypes(pkg, "package-info"));
+  }
+
+  private void scanClasspath(String[] packagesToScan, ScanResult scanResult) {
+    // Resolve class resources per package, in parallel but keeping the package order
+    List<Set<Resource>> resourcesPerPackage = map(Arrays.asList(packagesToScan),
+            this::findClassResources, packagesToScan.length > 1);
+
+    // Overlapping packages contribute each class resource only once
+    LinkedHashSet<Resource> resources = new LinkedHashSet<>();
+    for (Set<Resource> packageResources : resourcesPerPackage) {
+      resources.addAll(packageResources);
+    }
+
+    // Every resource gets read exactly once, so there is nothing to cache:
+    // a plain factory avoids any shared state between the reading threads.
+    var readerFactory = new SimpleMetadataReaderFactory(patternResourceLoader);
+    List<Candidate> candidates = map(new ArrayList<>(resources),
+            resource -> readCandidate(resource, readerFactory), resources.size() >= PARALLEL_THRESHOLD);
+
+    for (Candidate candidate : candidates) {
+      if (candidate == null) {
+        continue;
+      }
+      if (candidate.managedPackage) {
+        scanResult.managedPackages.add(candidate.name);
+      }
+      else {
+        scanResult.managedClassNames.add(candidate.name);
+        if (scanResult.persistenceUnitRootUrl == null) {
+          scanResult.persistenceUnitRootUrl = candidate.jarFileUrl;
+        }
       }
-      scanResult.managedClassNames.addAll(candidates);
-      scanResult.managedPackages.addAll(componentsIndex.getCandidateTypes(pkg, "package-info"));
-      return;
     }
+  }
 
+  private Set<Resource> findClassResources(String pkg) {
     try {
       String pattern = PatternResourceLoader.CLASSPATH_ALL_URL_PREFIX +
               ClassUtils.convertClassNameToResourcePath(pkg) + CLASS_RESOURCE_PATTERN;
-      Set<Resource> resources = patternResourceLoader.getResources(pattern);
-      var readerFactory = new CachingMetadataReaderFactory(patternResourceLoader);
-      for (Resource resource : resources) {
-        try {
-          MetadataReader reader = readerFactory.getMetadataReader(resource);
-          String className = reader.getClassMetadata().getClassName();
-          if (matchesFilter(reader, readerFactory)) {
-            scanResult.managedClassNames.add(className);
-            if (scanResult.persistenceUnitRootUrl == null) {
-              URL url = resource.getURL();
-              if (ResourceUtils.isJarURL(url)) {
-                scanResult.persistenceUnitRootUrl = ResourceUtils.extractJarFileURL(url);
-              }
-            }
-          }
-          else if (className.endsWith(PACKAGE_INFO_SUFFIX)) {
-            scanResult.managedPackages.add(className.substring(0,
-                    className.length() - PACKAGE_INFO_SUFFIX.length()));
-          }
-        }
-        catch (FileNotFoundException ex) {
-          // Ignore non-readable resource
-        }
-        catch (ClassFormatException ex) {
-          if (!shouldIgnoreClassFormatException) {
-            throw new PersistenceException("Incompatible class format in " + resource, ex);
-          }
-        }
-        catch (Throwable ex) {
-          throw new PersistenceException("Failed to read candidate component class: " + resource, ex);
-        }
-      }
+      return patternResourceLoader.getResources(pattern);
     }
     catch (IOException ex) {
       throw new PersistenceException("Failed to scan classpath for unlisted entity classes", ex);
     }
   }
 
+  /**
+   * Read the given class resource, returning a managed class or package,
+   * or {@code null} if the class is not relevant for JPA.
+   */
+  @Nullable
+  private Candidate readCandidate(Resource resource, MetadataReaderFactory readerFactory) {
+    try {
+      MetadataReader reader = readerFactory.getMetadataReader(resource);
+      String className = reader.getClassMetadata().getClassName();
+      if (matchesFilter(reader, readerFactory)) {
+        URL url = resource.getURL();
+        return new Candidate(className, false,
+                ResourceUtils.isJarURL(url) ? ResourceUtils.extractJarFileURL(url) : null);
+      }
+      else if (className.endsWith(PACKAGE_INFO_SUFFIX)) {
+        return new Candidate(className.substring(0,
+                className.length() - PACKAGE_INFO_SUFFIX.length()), true, null);
+      }
+      return null;
+    }
+    catch (FileNotFoundException ex) {
+      // Ignore non-readable resource
+      return null;
+    }
+    catch (ClassFormatException ex) {
+      if (!shouldIgnoreClassFormatException) {
+        throw new PersistenceException("Incompatible class format in " + resource, ex);
+      }
+      return null;
+    }
+    catch (Throwable ex) {
+      throw new PersistenceException("Failed to read candidate component class: " + resource, ex);
+    }
+  }
+
+  /**
+   * Apply the given function to all items, returning the results in the order
+   * of the items. In parallel mode, the items get processed on a dedicated pool
+   * of daemon threads which is shut down afterwards.
+   */
+  private static <T, R> List<R> map(List<T> items, Function<T, R> function, boolean parallel) {
+    ArrayList<R> results = new ArrayList<>(items.size());
+    if (!parallel) {
+      for (T item : items) {
+        results.add(function.apply(item));
+      }
+      return results;
+    }
+    int threads = Math.min(items.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "persistence-types-scanner");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      ArrayList<Future<R>> futures = new ArrayList<>(items.size());
+      for (T item : items) {
+        futures.add(executor.submit(() -> function.apply(item)));
+      }
+      for (Future<R> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new PersistenceException("Interrupted while scanning for managed types", ex);
+    }
+    catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new PersistenceException("Failed to scan for managed types", ex.getCause());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Check whether any of the configured entity type filters matches
    * the current class descriptor contained in the metadata reader.
@@ -162,6 +273,16 @@ public final class PersistenceManagedTypesScanner {
     return false;
   }
 
+  /**
+   * A managed class or package found on the classpath.
+   *
+   * @param name the class or package name
+   * @param managedPackage whether the name denotes a package
+   * @param jarFileUrl the URL of the jar file containing the class, if any
+   */
+  private record Candidate(String name, boolean managedPackage, @Nullable URL jarFileUrl) {
+  }
+
   private static class ScanResult {
 
     public final ArrayList<String> managedClassNames = new ArrayList<>();
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.support;
+
+import org.jspecify.annotations.Nullable;
+
+import infra.dao.DataAccessResourceFailureException;
+import infra.orm.jpa.EntityManagerFactoryAccessor;
+import infra.orm.jpa.EntityManagerFactoryUtils;
+import infra.orm.jpa.EntityManagerHolder;
+import infra.orm.jpa.JpaTransactionManager;
+import infra.transaction.support.SynchronizationInfo;
+import infra.transaction.support.TransactionSynchronizationManager;
+import infra.web.HandlerInterceptor;
+import infra.web.InterceptorChain;
+import infra.web.RequestContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Web request interceptor that binds a JPA EntityManager to the thread for the
+ * entire processing of the request. Intended for the "Open EntityManager in
+ * View" pattern, i.e. to allow for lazy loading in web views despite the
+ * original transactions already being completed.
+ *
+ * <p>The EntityManager is created lazily: the interceptor binds an
+ * {@link EntityManagerHolder} that only creates its EntityManager on first
+ * access, typically through {@link EntityManagerFactoryUtils#doGetTransactionalEntityManager}
+ * or {@link JpaTransactionManager}. Requests that never touch JPA do not pay
+ * for an EntityManager at all.
+ *
+ * <p>The bound EntityManager releases its JDBC connection after each transaction
+ * it participates in (if supported by the {@link infra.orm.jpa.JpaDialect}),
+ * acquiring a new one on demand, instead of holding a connection for the whole
+ * request. Turn this off through {@link #setReleaseConnectionAfterTransaction}.
+ *
+ * <p>In contrast to {@code SharedEntityManagerCreator} proxies on their own,
+ * this interceptor makes JPA EntityManagers available via the current thread,
+ * which will be autodetected by transaction managers. It is suitable for service
+ * layer transactions via {@link JpaTransactionManager} as well as for non-transactional
+ * read-only execution.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @see EntityManagerHolder#EntityManagerHolder(java.util.function.Supplier)
+ * @see JpaTransactionManager
+ * @since 5.0
+ */
+public class OpenEntityManagerInViewInterceptor extends EntityManagerFactoryAccessor implements HandlerInterceptor {
+
+  private boolean releaseConnectionAfterTransaction = true;
+
+  /**
+   * Set whether the bound EntityManager should release its JDBC connection
+   * after each transaction, keeping its persistence context for the view.
+   * <p>Default is "true". Switch this off to hold on to the connection for
+   * the entire request, e.g. for iterating over results outside of transactions.
+   */
+  public void setReleaseConnectionAfterTransaction(boolean releaseConnectionAfterTransaction) {
+    this.releaseConnectionAfterTransaction = releaseConnectionAfterTransaction;
+  }
+
+  @Nullable
+  @Override
+  public Object intercept(RequestContext request, InterceptorChain chain) throws Throwable {
+    EntityManagerFactory emf = obtainEntityManagerFactory();
+    SynchronizationInfo info = TransactionSynchronizationManager.getSynchronizationInfo();
+    if (info.hasResource(emf)) {
+      // Do not modify the EntityManager: just proceed with the bound one.
+      return chain.proceed(request);
+    }
+
+    logger.debug("Binding lazy JPA EntityManager in OpenEntityManagerInViewInterceptor");
+    EntityManagerHolder emHolder = new EntityManagerHolder(this::createRequestEntityManager);
+    emHolder.setReleaseConnectionAfterTransaction(releaseConnectionAfterTransaction);
+    info.bindResource(emf, emHolder);
+    try {
+      return chain.proceed(request);
+    }
+    finally {
+      info.unbindResource(emf);
+      if (emHolder.hasEntityManager()) {
+        logger.debug("Closing JPA EntityManager in OpenEntityManagerInViewInterceptor");
+        EntityManagerFactoryUtils.closeEntityManager(emHolder.getEntityManager());
+      }
+    }
+  }
+
+  private EntityManager createRequestEntityManager() {
+    logger.debug("Opening JPA EntityManager in OpenEntityManagerInViewInterceptor");
+    try {
+      return createEntityManager();
+    }
+    catch (PersistenceException ex) {
+      throw new DataAccessResourceFailureException("Could not create JPA EntityManager", ex);
+    }
+  }
+
+}
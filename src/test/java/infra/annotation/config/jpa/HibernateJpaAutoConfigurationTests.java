@@ -48,6 +48,7 @@ import javax.sql.DataSource;
 import infra.annotation.config.TestAutoConfigurationPackage;
 import infra.annotation.config.jpa.mapping.NonAnnotatedEntity;
 import infra.annotation.config.jpa.test.City;
+import infra.orm.hibernate5.HibernateBeanContainer;
 import infra.orm.hibernate5.support.HibernateImplicitNamingStrategy;
 import infra.orm.hibernate5.support.HibernateJtaPlatform;
 import infra.orm.jpa.JpaTransactionManager;
@@ -413,6 +414,55 @@ class HibernateJpaAutoConfigurationTests extends AbstractJpaAutoConfigurationTes
     });
   }
 
+  @Test
+  void backgroundBootstrapModeUsesBootstrapExecutor() {
+    contextRunner().withPropertyValues("jpa.bootstrap.mode=background").run((context) -> {
+      assertThat(context).hasNotFailed();
+      assertThat(context.getBean(LocalContainerEntityManagerFactoryBean.class).getBootstrapExecutor()).isNotNull();
+      assertThatNoException()
+              .isThrownBy(() -> context.getBean(EntityManagerFactory.class).createEntityManager());
+    });
+  }
+
+  @Test
+  void defaultBootstrapModeDoesNotUseBootstrapExecutor() {
+    contextRunner().run((context) ->
+            assertThat(context.getBean(LocalContainerEntityManagerFactoryBean.class).getBootstrapExecutor()).isNull());
+  }
+
+  @Test
+  void bootstrapExecutorFromCustomizerTakesPrecedence() {
+    contextRunner().withUserConfiguration(AsyncBootstrappingConfiguration.class)
+            .withPropertyValues("jpa.bootstrap.mode=background")
+            .run((context) -> assertThat(context.getBean(LocalContainerEntityManagerFactoryBean.class)
+                    .getBootstrapExecutor()).isSameAs(context.getBean(ThreadPoolTaskExecutor.class)));
+  }
+
+  @Test
+  void backgroundBootstrapFailureAbortsRefresh() {
+    contextRunner().withPropertyValues("jpa.bootstrap.mode=background",
+                    "jpa.database-platform=com.example.NonExistentDialect")
+            .run((context) -> assertThat(context).hasFailed());
+  }
+
+  @Test
+  void beansPreWarmedOnceSingletonsInstantiated() {
+    contextRunner().withPropertyValues("jpa.hibernate.pre-warm-beans=true", "jpa.bootstrap.mode=background")
+            .run((context) -> {
+              assertThat(context).hasNotFailed().hasSingleBean(HibernateBeanPreWarmer.class);
+              assertThat(context.getBean(HibernateBeanPreWarmer.class).isRunning()).isTrue();
+              assertThat(context.getBean(LocalContainerEntityManagerFactoryBean.class).getJpaPropertyMap()
+                      .get(AvailableSettings.BEAN_CONTAINER)).isInstanceOf(HibernateBeanContainer.class);
+              assertThatNoException()
+                      .isThrownBy(() -> context.getBean(EntityManagerFactory.class).createEntityManager());
+            });
+  }
+
+  @Test
+  void beansNotPreWarmedByDefault() {
+    contextRunner().run((context) -> assertThat(context).doesNotHaveBean(HibernateBeanPreWarmer.class));
+  }
+
   @Test
   void whenLocalContainerEntityManagerFactoryBeanHasNoJpaVendorAdapterAutoConfigurationSucceeds() {
     contextRunner()
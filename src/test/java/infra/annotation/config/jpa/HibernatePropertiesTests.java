@@ -24,10 +24,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import infra.orm.hibernate5.CaffeineRegionFactory;
 import infra.orm.hibernate5.support.HibernateImplicitNamingStrategy;
 import infra.app.test.context.assertj.AssertableApplicationContext;
 import infra.app.test.context.runner.ApplicationContextRunner;
@@ -108,6 +110,51 @@ class HibernatePropertiesTests {
                     AvailableSettings.SCANNER, "org.hibernate.boot.archive.scan.internal.StandardScanner")));
   }
 
+  @Test
+  void cacheRegionFactoryNotAppliedByDefault() {
+    this.contextRunner.run(assertHibernateProperties((hibernateProperties) -> assertThat(hibernateProperties)
+            .doesNotContainKeys(AvailableSettings.CACHE_REGION_FACTORY, CaffeineRegionFactory.MAXIMUM_SIZE)));
+  }
+
+  @Test
+  void cacheRegionFactoryApplied() {
+    this.contextRunner
+            .withPropertyValues("jpa.hibernate.cache.enabled=true",
+                    "jpa.hibernate.cache.maximum-size=500",
+                    "jpa.hibernate.cache.time-to-live=10m",
+                    "jpa.hibernate.cache.regions.[com.example.Person].maximum-weight=2000")
+            .run(assertHibernateProperties((hibernateProperties) -> {
+              assertThat(hibernateProperties).contains(
+                      entry(AvailableSettings.CACHE_REGION_FACTORY, CaffeineRegionFactory.class.getName()),
+                      entry(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true"),
+                      entry(CaffeineRegionFactory.MAXIMUM_SIZE, "500"),
+                      entry(CaffeineRegionFactory.TIME_TO_LIVE, "PT10M"),
+                      entry(CaffeineRegionFactory.REGION_PREFIX + "com.example.Person.maximum_weight", "2000"));
+              assertThat(hibernateProperties).doesNotContainKey(CaffeineRegionFactory.MAXIMUM_WEIGHT);
+            }));
+  }
+
+  @Test
+  void cacheRegionFactoryWithPersistentDirectory() {
+    this.contextRunner
+            .withPropertyValues("jpa.hibernate.cache.enabled=true",
+                    "jpa.hibernate.cache.persistent-directory=build/cache")
+            .run(assertHibernateProperties((hibernateProperties) -> assertThat(hibernateProperties)
+                    .containsEntry(CaffeineRegionFactory.PERSISTENT_DIRECTORY, Path.of("build/cache").toString())));
+  }
+
+  @Test
+  void cacheRegionFactoryBacksOffFromCustomRegionFactory() {
+    this.contextRunner
+            .withPropertyValues("jpa.hibernate.cache.enabled=true",
+                    "jpa.properties.hibernate.cache.region.factory_class=com.example.RegionFactory")
+            .run(assertHibernateProperties((hibernateProperties) -> {
+              assertThat(hibernateProperties).containsEntry(
+                      AvailableSettings.CACHE_REGION_FACTORY, "com.example.RegionFactory");
+              assertThat(hibernateProperties).doesNotContainKey(CaffeineRegionFactory.MAXIMUM_SIZE);
+            }));
+  }
+
   @Test
   void defaultDdlAutoIsNotInvokedIfPropertyIsSet() {
     this.contextRunner.withPropertyValues("jpa.hibernate.ddl-auto=validate")
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.junit.jupiter.api.Test;
+
+import infra.dao.DataAccessResourceFailureException;
+import infra.orm.PersistenceContextGuard.Action;
+import jakarta.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class PersistenceContextGuardTests {
+
+  private final EntityManager entityManager = mock(EntityManager.class);
+
+  @Test
+  void invalidThreshold() {
+    assertThatIllegalArgumentException().isThrownBy(() -> new PersistenceContextGuard(0, Action.WARN));
+  }
+
+  @Test
+  void withinThreshold() {
+    for (Action action : Action.values()) {
+      assertThat(new PersistenceContextGuard(10, action).apply(entityManager, 10, false, false)).isFalse();
+    }
+    verifyNoInteractions(entityManager);
+  }
+
+  @Test
+  void warn() {
+    assertThat(new PersistenceContextGuard(10, Action.WARN).apply(entityManager, 11, false, false)).isFalse();
+    verifyNoInteractions(entityManager);
+  }
+
+  @Test
+  void fail() {
+    PersistenceContextGuard guard = new PersistenceContextGuard(10, Action.FAIL);
+    assertThatExceptionOfType(DataAccessResourceFailureException.class)
+            .isThrownBy(() -> guard.apply(entityManager, 11, false, false))
+            .withMessageContaining("11 managed entities");
+    verifyNoInteractions(entityManager);
+  }
+
+  @Test
+  void flushAndClear() {
+    assertThat(new PersistenceContextGuard(10, Action.FLUSH_AND_CLEAR).apply(entityManager, 11, false, false)).isTrue();
+    verify(entityManager).flush();
+    verify(entityManager).clear();
+  }
+
+  @Test
+  void clearWithoutFlushWhenReadOnly() {
+    assertThat(new PersistenceContextGuard(10, Action.FLUSH_AND_CLEAR).apply(entityManager, 11, true, false)).isTrue();
+    verify(entityManager, never()).flush();
+    verify(entityManager).clear();
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class ReadWriteRoutingDataSourceTests {
+
+  private final Connection primaryCon = mock(Connection.class);
+
+  private final Connection replicaCon1 = mock(Connection.class);
+
+  private final Connection replicaCon2 = mock(Connection.class);
+
+  private final ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(
+          dataSource(primaryCon), List.of(dataSource(replicaCon1), dataSource(replicaCon2)));
+
+  @AfterEach
+  void cleanup() {
+    ReadWriteRoutingContext.restore(null);
+    ReadWriteRoutingContext.clearWrite();
+  }
+
+  @Test
+  void readWriteRoutedToPrimary() throws Exception {
+    assertThat(dataSource.getConnection()).isSameAs(primaryCon);
+
+    ReadWriteRoutingContext.bind(false);
+    assertThat(dataSource.getConnection()).isSameAs(primaryCon);
+  }
+
+  @Test
+  void readOnlyRoutedRoundRobinToReplicas() throws Exception {
+    ReadWriteRoutingContext.bind(true);
+
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon1);
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon2);
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon1);
+  }
+
+  @Test
+  void readOnlyWithoutReplicasRoutedToPrimary() throws Exception {
+    ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(dataSource(primaryCon), List.of());
+    ReadWriteRoutingContext.bind(true);
+
+    assertThat(dataSource.getReplicaCount()).isZero();
+    assertThat(dataSource.getConnection()).isSameAs(primaryCon);
+  }
+
+  @Test
+  void nestedBindingRestored() {
+    Boolean outer = ReadWriteRoutingContext.bind(true);
+    Boolean inner = ReadWriteRoutingContext.bind(false);
+    assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isFalse();
+
+    ReadWriteRoutingContext.restore(inner);
+    assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isTrue();
+    ReadWriteRoutingContext.restore(outer);
+    assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isFalse();
+  }
+
+  @Test
+  void readYourWritesWindowPinsToPrimary() throws Exception {
+    dataSource.setReadYourWritesWindow(Duration.ofMinutes(1));
+    ReadWriteRoutingContext.bind(true);
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon1);
+
+    ReadWriteRoutingContext.recordWrite();
+    assertThat(dataSource.getConnection()).isSameAs(primaryCon);
+
+    ReadWriteRoutingContext.clearWrite();
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon2);
+  }
+
+  @Test
+  void readYourWritesWindowExpired() throws Exception {
+    dataSource.setReadYourWritesWindow(Duration.ofNanos(1));
+    ReadWriteRoutingContext.bind(true);
+    ReadWriteRoutingContext.recordWrite();
+    Thread.sleep(1);
+
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon1);
+    assertThat(ReadWriteRoutingContext.hasWrittenWithin(Long.MAX_VALUE)).isFalse();
+  }
+
+  @Test
+  void writeIgnoredWithoutWindow() throws Exception {
+    ReadWriteRoutingContext.bind(true);
+    ReadWriteRoutingContext.recordWrite();
+
+    assertThat(dataSource.getConnection()).isSameAs(replicaCon1);
+  }
+
+  private static DataSource dataSource(Connection con) {
+    DataSource dataSource = mock(DataSource.class);
+    try {
+      given(dataSource.getConnection()).willReturn(con);
+    }
+    catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+    return dataSource;
+  }
+
+}
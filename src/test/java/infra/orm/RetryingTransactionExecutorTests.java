@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import infra.aop.framework.ProxyFactory;
+import infra.dao.CannotAcquireLockException;
+import infra.orm.jpa.EntityManagerHolder;
+import infra.transaction.PlatformTransactionManager;
+import infra.transaction.TransactionStatus;
+import infra.transaction.support.TransactionSynchronizationManager;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class RetryingTransactionExecutorTests {
+
+  private final PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+
+  private final TransactionStatus status = mock(TransactionStatus.class);
+
+  private final RetryingTransactionExecutor executor = new RetryingTransactionExecutor(tm);
+
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  @BeforeEach
+  void setup() {
+    given(tm.getTransaction(any())).willReturn(status);
+    executor.setInitialBackoff(Duration.ZERO);
+  }
+
+  @Test
+  void retryOnOptimisticLockingFailure() {
+    String result = executor.execute(status -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new ObjectOptimisticLockingFailureException("Item", 1L);
+      }
+      return "done";
+    });
+
+    assertThat(result).isEqualTo("done");
+    verify(tm, times(3)).getTransaction(any());
+    verify(tm, times(2)).rollback(status);
+    verify(tm).commit(status);
+    assertThat(executor.getExecutionCount()).isEqualTo(1);
+    assertThat(executor.getRetryCount()).isEqualTo(2);
+    assertThat(executor.getRecoveredCount()).isEqualTo(1);
+  }
+
+  @Test
+  void retryOnSerializationFailure() {
+    executor.execute(status -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new IllegalStateException("commit failed", new SQLException("could not serialize", "40001"));
+      }
+      return null;
+    });
+
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void noRetryOnOtherFailure() {
+    assertThatIllegalStateException().isThrownBy(() -> executor.execute(status -> {
+      attempts.incrementAndGet();
+      throw new IllegalStateException();
+    }));
+
+    assertThat(attempts).hasValue(1);
+    assertThat(executor.getRetryCount()).isZero();
+  }
+
+  @Test
+  void attemptsExhausted() {
+    executor.setMaxAttempts(2);
+
+    assertThatExceptionOfType(CannotAcquireLockException.class).isThrownBy(() -> executor.execute(status -> {
+      attempts.incrementAndGet();
+      throw new CannotAcquireLockException("locked");
+    }));
+
+    assertThat(attempts).hasValue(2);
+    assertThat(executor.getExhaustedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void retryBudgetExhausted() {
+    executor.setRetryBurst(1);
+    executor.setRetryRatio(0);
+
+    assertThatExceptionOfType(CannotAcquireLockException.class).isThrownBy(() -> executor.execute(status -> {
+      attempts.incrementAndGet();
+      throw new CannotAcquireLockException("locked");
+    }));
+
+    assertThat(attempts).hasValue(2);
+    assertThat(executor.getRetryCount()).isEqualTo(1);
+    assertThat(executor.getBudgetRejectionCount()).isEqualTo(1);
+  }
+
+  @Test
+  void retryBudgetReplenishedByExecutions() {
+    executor.setRetryBurst(1);
+    executor.setRetryRatio(0.5);
+    executor.setMaxAttempts(2);
+
+    executor.execute(status -> failOnFirstAttempt());
+    assertThatExceptionOfType(CannotAcquireLockException.class).isThrownBy(() ->
+            executor.execute(status -> failOnFirstAttempt()));
+    executor.execute(status -> attempts.getAndIncrement());
+    executor.execute(status -> failOnFirstAttempt());
+
+    assertThat(executor.getRecoveredCount()).isEqualTo(2);
+    assertThat(executor.getBudgetRejectionCount()).isEqualTo(1);
+  }
+
+  @Test
+  void noRetryWithinOuterTransaction() {
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      assertThatExceptionOfType(CannotAcquireLockException.class).isThrownBy(() -> executor.execute(status -> {
+        attempts.incrementAndGet();
+        throw new CannotAcquireLockException("locked");
+      }));
+    }
+    finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    assertThat(attempts).hasValue(1);
+    assertThat(executor.getExecutionCount()).isZero();
+  }
+
+  @Test
+  void noRetryWithPreBoundEntityManager() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(mock(EntityManager.class)));
+    try {
+      assertThatExceptionOfType(CannotAcquireLockException.class).isThrownBy(() -> executor.execute(status -> {
+        attempts.incrementAndGet();
+        throw new CannotAcquireLockException("locked");
+      }));
+    }
+    finally {
+      TransactionSynchronizationManager.unbindResource(emf);
+    }
+
+    assertThat(attempts).hasValue(1);
+    assertThat(executor.getExecutionCount()).isZero();
+  }
+
+  @Test
+  void retryWithEntityManagerOfSuspendedTransaction() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    EntityManagerHolder emHolder = new EntityManagerHolder(mock(EntityManager.class));
+    emHolder.setSynchronizedWithTransaction(true);
+    TransactionSynchronizationManager.bindResource(emf, emHolder);
+    try {
+      String result = executor.execute(status -> {
+        if (attempts.incrementAndGet() == 1) {
+          throw new CannotAcquireLockException("locked");
+        }
+        return "done";
+      });
+      assertThat(result).isEqualTo("done");
+    }
+    finally {
+      TransactionSynchronizationManager.unbindResource(emf);
+    }
+
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void interceptorRetriesInvocation() throws IOException {
+    ProxyFactory proxyFactory = new ProxyFactory(new Service() {
+      @Override
+      public String call() throws IOException {
+        if (attempts.incrementAndGet() == 1) {
+          throw new CannotAcquireLockException("locked");
+        }
+        if (attempts.get() == 3) {
+          throw new IOException("checked");
+        }
+        return "done";
+      }
+    });
+    proxyFactory.addAdvice(new RetryingTransactionInterceptor(executor));
+    Service service = (Service) proxyFactory.getProxy();
+
+    assertThat(service.call()).isEqualTo("done");
+    assertThat(attempts).hasValue(2);
+    verify(tm).rollback(status);
+    verify(tm).commit(status);
+
+    assertThatExceptionOfType(IOException.class).isThrownBy(service::call);
+    assertThat(attempts).hasValue(3);
+    verify(tm, times(2)).commit(status);
+  }
+
+  @Nullable
+  private Object failOnFirstAttempt() {
+    if (attempts.getAndIncrement() % 2 == 0) {
+      throw new CannotAcquireLockException("locked");
+    }
+    return null;
+  }
+
+  interface Service {
+
+    String call() throws IOException;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import infra.orm.TransactionPhaseStatistics.ManagedEntityStatistics;
+import infra.orm.TransactionPhaseStatistics.PhaseStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class TransactionPhaseStatisticsTests {
+
+  private final TransactionPhaseStatistics statistics = new TransactionPhaseStatistics();
+
+  @Test
+  void recordsPerUnitPhaseAndMode() {
+    statistics.phaseCompleted(TransactionPhase.COMMIT, "unit", false, 3_000, true);
+    statistics.phaseCompleted(TransactionPhase.COMMIT, "unit", false, 5_000, false);
+    statistics.phaseCompleted(TransactionPhase.COMMIT, "unit", true, 1_000, true);
+
+    PhaseStatistics readWrite = statistics.getStatistics("unit", TransactionPhase.COMMIT, false);
+    assertThat(readWrite.getCount()).isEqualTo(2);
+    assertThat(readWrite.getFailureCount()).isEqualTo(1);
+    assertThat(readWrite.getTotalTime(TimeUnit.NANOSECONDS)).isEqualTo(8_000);
+    assertThat(readWrite.getMaxTime(TimeUnit.MICROSECONDS)).isEqualTo(5);
+
+    assertThat(statistics.getStatistics("unit", TransactionPhase.COMMIT, true).getCount()).isEqualTo(1);
+    assertThat(statistics.getStatistics("unit", TransactionPhase.BEGIN, false).getCount()).isZero();
+    assertThat(statistics.getStatistics("other", TransactionPhase.COMMIT, false)).isNull();
+  }
+
+  @Test
+  void histogramBuckets() {
+    assertThat(PhaseStatistics.bucketOf(500)).isZero();
+    assertThat(PhaseStatistics.bucketOf(1_000)).isEqualTo(1);
+    assertThat(PhaseStatistics.bucketOf(3_000)).isEqualTo(2);
+    assertThat(PhaseStatistics.bucketOf(Long.MAX_VALUE)).isEqualTo(TransactionPhaseStatistics.BUCKET_COUNT - 1);
+
+    assertThat(PhaseStatistics.getBucketUpperBound(2, TimeUnit.MICROSECONDS)).isEqualTo(4);
+    assertThat(PhaseStatistics.getBucketUpperBound(TransactionPhaseStatistics.BUCKET_COUNT - 1, TimeUnit.MICROSECONDS))
+            .isEqualTo(Long.MAX_VALUE);
+
+    statistics.phaseCompleted(TransactionPhase.FLUSH, "unit", false, 3_000, true);
+    long[] histogram = statistics.getStatistics("unit", TransactionPhase.FLUSH, false).getHistogram();
+    assertThat(histogram).hasSize(TransactionPhaseStatistics.BUCKET_COUNT);
+    assertThat(histogram[2]).isEqualTo(1);
+  }
+
+  @Test
+  void recordsManagedEntityCountsPerUnitAndMode() {
+    statistics.managedEntitiesCounted("unit", false, 1, 3);
+    statistics.managedEntitiesCounted("unit", false, 0, 10);
+    statistics.managedEntitiesCounted("unit", true, 5, 5);
+
+    ManagedEntityStatistics readWrite = statistics.getManagedEntityStatistics("unit", false);
+    assertThat(readWrite.getTransactionCount()).isEqualTo(2);
+    assertThat(readWrite.getTotalManagedEntityCount()).isEqualTo(1);
+    assertThat(readWrite.getTotalPeakManagedEntityCount()).isEqualTo(13);
+    assertThat(readWrite.getMaxPeakManagedEntityCount()).isEqualTo(10);
+    assertThat(readWrite.getHistogram()[2]).isEqualTo(1);
+    assertThat(readWrite.getHistogram()[4]).isEqualTo(1);
+
+    assertThat(statistics.getManagedEntityStatistics("unit", true).getTransactionCount()).isEqualTo(1);
+    assertThat(statistics.getManagedEntityStatistics("other", false)).isNull();
+    assertThat(statistics.getStatistics("unit", TransactionPhase.COMMIT, false)).isNull();
+  }
+
+  @Test
+  void clear() {
+    statistics.phaseCompleted(TransactionPhase.BEGIN, "unit", false, 1_000, true);
+    statistics.managedEntitiesCounted("unit", false, 1, 1);
+    statistics.clear();
+    assertThat(statistics.getStatistics("unit", TransactionPhase.BEGIN, false)).isNull();
+    assertThat(statistics.getManagedEntityStatistics("unit", false)).isNull();
+  }
+
+}
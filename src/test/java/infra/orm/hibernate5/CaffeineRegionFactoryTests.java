@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class CaffeineRegionFactoryTests {
+
+  private final SharedSessionContractImplementor session = mock(SharedSessionContractImplementor.class);
+
+  private final CaffeineRegionFactory regionFactory = new CaffeineRegionFactory();
+
+  @AfterEach
+  void stop() {
+    regionFactory.stop();
+  }
+
+  @Test
+  void domainDataRegionWithDefaults() {
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    DomainDataStorageAccess access = domainDataStorage("person");
+
+    assertThat(access.getFromCache("key", session)).isNull();
+    access.putIntoCache("key", "value", session);
+    assertThat(access.contains("key")).isTrue();
+    assertThat(access.getFromCache("key", session)).isEqualTo("value");
+    access.evictData("key");
+    assertThat(access.contains("key")).isFalse();
+
+    CacheStats stats = regionFactory.getRegionStatistics("person");
+    assertThat(stats.hitCount()).isEqualTo(1);
+    assertThat(stats.missCount()).isEqualTo(1);
+    assertThat(regionFactory.getRegionNames()).containsExactly("person");
+    Policy.Eviction<Object, Object> eviction = regionCache("person").policy().eviction().orElseThrow();
+    assertThat(eviction.isWeighted()).isFalse();
+    assertThat(eviction.getMaximum()).isEqualTo(CaffeineRegionFactory.DEFAULT_MAXIMUM_SIZE);
+    assertThat(regionCache("person").policy().expireAfterWrite()).isEmpty();
+  }
+
+  @Test
+  void regionsBoundedBySize() {
+    regionFactory.setMaximumSize(100);
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    DomainDataStorageAccess access = domainDataStorage("person");
+
+    for (int i = 0; i < 1000; i++) {
+      access.putIntoCache(i, "value" + i, session);
+    }
+    regionCache("person").cleanUp();
+
+    assertThat(regionCache("person").estimatedSize()).isEqualTo(100);
+    assertThat(regionFactory.getRegionStatistics("person").evictionCount()).isEqualTo(900);
+  }
+
+  @Test
+  void regionSpecificSettings() {
+    regionFactory.setTimeToLive(Duration.ofMinutes(1));
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of(
+            CaffeineRegionFactory.MAXIMUM_SIZE, "50",
+            CaffeineRegionFactory.REGION_PREFIX + "order.maximum_weight", "200",
+            CaffeineRegionFactory.REGION_PREFIX + "order.time_to_live", "30"));
+    domainDataStorage("person");
+    domainDataStorage("order");
+
+    assertThat(regionCache("person").policy().eviction().orElseThrow().getMaximum()).isEqualTo(50);
+    assertThat(regionCache("person").policy().expireAfterWrite().orElseThrow().getExpiresAfter())
+            .isEqualTo(Duration.ofMinutes(1));
+    Policy.Eviction<Object, Object> eviction = regionCache("order").policy().eviction().orElseThrow();
+    assertThat(eviction.isWeighted()).isTrue();
+    assertThat(eviction.getMaximum()).isEqualTo(200);
+    assertThat(regionCache("order").policy().expireAfterWrite().orElseThrow().getExpiresAfter())
+            .isEqualTo(Duration.ofSeconds(30));
+  }
+
+  @Test
+  void queryResultsWeighedByRows() {
+    regionFactory.setMaximumWeight(10L);
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    StorageAccess access = regionFactory.createQueryResultsRegionStorageAccess(
+            "query", mock(SessionFactoryImplementor.class));
+
+    access.putIntoCache("key", List.of(1, 2, 3, 4), session);
+
+    assertThat(regionCache("query").policy().eviction().orElseThrow().weightedSize()).hasValue(4);
+  }
+
+  @Test
+  void timestampsRegionUnbounded() {
+    regionFactory.setMaximumSize(1);
+    regionFactory.setTimeToLive(Duration.ofSeconds(1));
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    StorageAccess access = regionFactory.createTimestampsRegionStorageAccess(
+            "timestamps", mock(SessionFactoryImplementor.class));
+
+    access.putIntoCache("a", 1L, session);
+    access.putIntoCache("b", 2L, session);
+    regionCache("timestamps").cleanUp();
+
+    assertThat(regionCache("timestamps").policy().eviction()).isEmpty();
+    assertThat(regionCache("timestamps").policy().expireAfterWrite()).isEmpty();
+    assertThat(regionCache("timestamps").estimatedSize()).isEqualTo(2);
+  }
+
+  @Test
+  void regionsReleasedOnStop() {
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    domainDataStorage("person").putIntoCache("key", "value", session);
+
+    regionFactory.stop();
+
+    assertThat(regionFactory.getRegionNames()).isEmpty();
+    assertThat(regionFactory.getRegionStatistics("person")).isNull();
+  }
+
+  @Test
+  void persistentRegionsSurviveRestart(@TempDir Path directory) {
+    Map<String, Object> settings = Map.of(CaffeineRegionFactory.PERSISTENT_DIRECTORY, directory.toString());
+    regionFactory.start(mock(SessionFactoryOptions.class), settings);
+    DomainDataStorageAccess access = persistentDomainDataStorage(regionFactory, false);
+    access.putIntoCache("key", "value", session);
+    access.putIntoCache("lock", mock(SoftLock.class), session);
+    regionFactory.stop();
+    assertThat(directory.resolve("person.cache")).exists();
+
+    CaffeineRegionFactory restarted = new CaffeineRegionFactory();
+    restarted.start(mock(SessionFactoryOptions.class), settings);
+    access = persistentDomainDataStorage(restarted, false);
+    assertThat(restarted.getRegionCache("person").getIfPresent("key")).isNull();
+    assertThat(access.getFromCache("key", session)).isEqualTo("value");
+    assertThat(restarted.getRegionCache("person").getIfPresent("key")).isEqualTo("value");
+    assertThat(access.contains("lock")).isFalse();
+    restarted.stop();
+  }
+
+  @Test
+  void persistentRegionsDiscardedOnMappingChange(@TempDir Path directory) {
+    regionFactory.setPersistentDirectory(directory);
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    persistentDomainDataStorage(regionFactory, false).putIntoCache("key", "value", session);
+    regionFactory.stop();
+
+    CaffeineRegionFactory restarted = new CaffeineRegionFactory();
+    restarted.setPersistentDirectory(directory);
+    restarted.start(mock(SessionFactoryOptions.class), Map.of());
+    assertThat(persistentDomainDataStorage(restarted, true).getFromCache("key", session)).isNull();
+    restarted.stop();
+  }
+
+  @Test
+  void persistentRegionEvictionNotUndoneByStore(@TempDir Path directory) {
+    regionFactory.setPersistentDirectory(directory);
+    regionFactory.start(mock(SessionFactoryOptions.class), Map.of());
+    DomainDataStorageAccess access = persistentDomainDataStorage(regionFactory, false);
+    access.putIntoCache("key", "value", session);
+    access.putIntoCache("lock", "value", session);
+
+    access.evictData("key");
+    SoftLock lock = mock(SoftLock.class);
+    access.putIntoCache("lock", lock, session);
+
+    assertThat(access.getFromCache("key", session)).isNull();
+    assertThat(access.contains("key")).isFalse();
+    regionCache("person").invalidate("lock");
+    assertThat(access.getFromCache("lock", session)).isNull();
+  }
+
+  private DomainDataStorageAccess persistentDomainDataStorage(CaffeineRegionFactory regionFactory, boolean structuredEntries) {
+    DomainDataRegionConfig regionConfig = mock(DomainDataRegionConfig.class);
+    given(regionConfig.getRegionName()).willReturn("person");
+    SessionFactoryOptions options = mock(SessionFactoryOptions.class);
+    given(options.isStructuredCacheEntriesEnabled()).willReturn(structuredEntries);
+    SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+    given(sessionFactory.getSessionFactoryOptions()).willReturn(options);
+    given(sessionFactory.getMetamodel()).willReturn(mock(MetamodelImplementor.class));
+    DomainDataRegionBuildingContext buildingContext = mock(DomainDataRegionBuildingContext.class);
+    given(buildingContext.getSessionFactory()).willReturn(sessionFactory);
+    return regionFactory.createDomainDataStorageAccess(regionConfig, buildingContext);
+  }
+
+  private DomainDataStorageAccess domainDataStorage(String regionName) {
+    DomainDataRegionConfig regionConfig = mock(DomainDataRegionConfig.class);
+    given(regionConfig.getRegionName()).willReturn(regionName);
+    return regionFactory.createDomainDataStorageAccess(regionConfig, mock(DomainDataRegionBuildingContext.class));
+  }
+
+  private Cache<Object, Object> regionCache(String regionName) {
+    Cache<Object, Object> cache = regionFactory.getRegionCache(regionName);
+    assertThat(cache).isNotNull();
+    return cache;
+  }
+
+}
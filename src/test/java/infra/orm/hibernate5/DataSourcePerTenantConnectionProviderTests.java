@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class DataSourcePerTenantConnectionProviderTests {
+
+  private final DataSource defaultDataSource = mock(DataSource.class);
+
+  private final Map<String, DataSource> dataSources = new LinkedHashMap<>();
+
+  private final DataSourcePerTenantConnectionProvider provider = new DataSourcePerTenantConnectionProvider(
+          defaultDataSource, this::createDataSource, 2, Duration.ofHours(1));
+
+  @Test
+  void dataSourceCreatedLazilyAndReused() throws SQLException {
+    assertThat(provider.getTenantCount()).isZero();
+
+    Connection con = provider.getConnection("a");
+    provider.releaseConnection("a", con);
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    assertThat(dataSources).containsOnlyKeys("a");
+    assertThat(provider.getCreatedCount()).isEqualTo(1);
+    assertThat(provider.getTenantCount()).isEqualTo(1);
+    verify(con).close();
+  }
+
+  @Test
+  void connectionWithoutTenantFromDefaultDataSource() throws SQLException {
+    Connection con = mock(Connection.class);
+    given(defaultDataSource.getConnection()).willReturn(con);
+
+    assertThat(provider.getAnyConnection()).isSameAs(con);
+    assertThat(dataSources).isEmpty();
+  }
+
+  @Test
+  void idleDataSourceClosedOnEviction() throws Exception {
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    provider.evict("a");
+
+    verify((AutoCloseable) dataSources.get("a")).close();
+    assertThat(provider.getEvictedCount()).isEqualTo(1);
+    provider.releaseConnection("a", provider.getConnection("a"));
+    assertThat(provider.getCreatedCount()).isEqualTo(2);
+  }
+
+  @Test
+  void activeDataSourceClosedOnceReleased() throws Exception {
+    Connection con = provider.getConnection("a");
+
+    provider.evict("a");
+    verify((AutoCloseable) dataSources.get("a"), never()).close();
+
+    provider.releaseConnection("a", con);
+    verify((AutoCloseable) dataSources.get("a")).close();
+  }
+
+  @Test
+  void numberOfTenantsBounded() throws SQLException {
+    for (String tenant : new String[] { "a", "b", "c", "d" }) {
+      provider.releaseConnection(tenant, provider.getConnection(tenant));
+    }
+
+    assertThat(provider.getTenantCount()).isEqualTo(2);
+    assertThat(provider.getEvictedCount()).isEqualTo(2);
+    verify((AutoCloseable) dataSources.get("a")).close();
+    verify((AutoCloseable) dataSources.get("b")).close();
+    verify((AutoCloseable) dataSources.get("c"), never()).close();
+  }
+
+  @Test
+  void leastRecentlyUsedEvicted() throws Exception {
+    provider.releaseConnection("a", provider.getConnection("a"));
+    provider.releaseConnection("b", provider.getConnection("b"));
+    provider.releaseConnection("a", provider.getConnection("a"));
+    provider.releaseConnection("c", provider.getConnection("c"));
+
+    verify((AutoCloseable) dataSources.get("a"), never()).close();
+    verify((AutoCloseable) dataSources.get("b")).close();
+  }
+
+  @Test
+  void idleDataSourceEvicted() throws Exception {
+    DataSourcePerTenantConnectionProvider provider = new DataSourcePerTenantConnectionProvider(
+            defaultDataSource, this::createDataSource, 2, Duration.ofMillis(1));
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    Thread.sleep(5);
+    provider.evictIdle();
+
+    verify((AutoCloseable) dataSources.get("a")).close();
+    assertThat(provider.getTenantCount()).isZero();
+  }
+
+  @Test
+  void allDataSourcesClosedOnStop() throws Exception {
+    provider.releaseConnection("a", provider.getConnection("a"));
+    provider.releaseConnection("b", provider.getConnection("b"));
+
+    provider.stop();
+
+    verify((AutoCloseable) dataSources.get("a")).close();
+    verify((AutoCloseable) dataSources.get("b")).close();
+    assertThat(provider.getTenantCount()).isZero();
+  }
+
+  private DataSource createDataSource(String tenantIdentifier) {
+    DataSource dataSource = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+    try {
+      given(dataSource.getConnection()).willAnswer(invocation -> mock(Connection.class));
+    }
+    catch (SQLException ex) {
+      throw new IllegalStateException(ex);
+    }
+    dataSources.put(tenantIdentifier, dataSource);
+    return dataSource;
+  }
+
+}
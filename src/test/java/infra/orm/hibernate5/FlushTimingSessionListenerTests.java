@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import infra.orm.FlushTimer;
+import infra.orm.TransactionPhase;
+import infra.orm.TransactionPhaseListener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class FlushTimingSessionListenerTests {
+
+  private final SessionImplementor session = mock(SessionImplementor.class);
+
+  private final Map<String, Object> sessionProperties = new HashMap<>();
+
+  private final TransactionPhaseListener listener = mock(TransactionPhaseListener.class);
+
+  FlushTimingSessionListenerTests() {
+    given(session.getProperties()).willReturn(sessionProperties);
+    willAnswer(invocation -> sessionProperties.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .given(session).setProperty(anyString(), any());
+  }
+
+  @Test
+  void flushReportedAndAccumulated() {
+    FlushTimer timer = FlushTimingSessionListener.start(session, listener, "myUnit", true);
+    FlushTimingSessionListener sessionListener = (FlushTimingSessionListener) timer;
+
+    sessionListener.flushStart();
+    sessionListener.flushEnd(2, 0);
+    sessionListener.flushStart();
+    sessionListener.flushEnd(1, 0);
+
+    verify(listener, times(2)).phaseCompleted(
+            eq(TransactionPhase.FLUSH), eq("myUnit"), eq(true), anyLong(), eq(true));
+    assertThat(timer.getFlushNanos()).isNotNegative();
+  }
+
+  @Test
+  void registeredOncePerSession() {
+    FlushTimer timer = FlushTimingSessionListener.start(session, listener, "myUnit", false);
+    timer.stop();
+    FlushTimer next = FlushTimingSessionListener.start(session, listener, "myUnit", false);
+
+    assertThat(next).isSameAs(timer);
+    verify(session, times(1)).addEventListeners(any());
+  }
+
+  @Test
+  void stoppedTimerReportsNothing() {
+    FlushTimer timer = FlushTimingSessionListener.start(session, listener, "myUnit", false);
+    timer.stop();
+
+    FlushTimingSessionListener sessionListener = (FlushTimingSessionListener) timer;
+    sessionListener.flushStart();
+    sessionListener.flushEnd(1, 0);
+
+    verify(listener, never()).phaseCompleted(any(), anyString(), anyBoolean(), anyLong(), anyBoolean());
+    verifyNoMoreInteractions(listener);
+  }
+
+  @Test
+  void restartResetsAccumulatedFlushTime() {
+    FlushTimer timer = FlushTimingSessionListener.start(session, listener, "myUnit", false);
+    FlushTimingSessionListener sessionListener = (FlushTimingSessionListener) timer;
+    sessionListener.flushStart();
+    sessionListener.flushEnd(1, 0);
+    timer.stop();
+
+    FlushTimingSessionListener.start(session, listener, "myUnit", false);
+    assertThat(timer.getFlushNanos()).isZero();
+  }
+
+}
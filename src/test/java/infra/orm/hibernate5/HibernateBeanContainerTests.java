@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.resource.beans.container.spi.BeanContainer.LifecycleOptions;
+import org.hibernate.resource.beans.container.spi.ContainedBean;
+import org.hibernate.resource.beans.spi.BeanInstanceProducer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import infra.beans.factory.BeanCreationException;
+import infra.beans.factory.config.ConfigurableBeanFactory;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Converter;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class HibernateBeanContainerTests {
+
+  private final ConfigurableBeanFactory beanFactory = mock(ConfigurableBeanFactory.class);
+
+  private final HibernateBeanContainer beanContainer = new HibernateBeanContainer(beanFactory);
+
+  private final LifecycleOptions cachedOptions = lifecycleOptions(true);
+
+  private final BeanInstanceProducer fallbackProducer = mock(BeanInstanceProducer.class);
+
+  @Test
+  void concurrentRequestsCreateBeanOnce() throws Exception {
+    CountDownLatch creating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    willAnswer(invocation -> {
+      creating.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return new UppercaseConverter();
+    }).given(beanFactory).createBean(UppercaseConverter.class);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<ContainedBean<UppercaseConverter>>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(() ->
+                beanContainer.getBean(UppercaseConverter.class, cachedOptions, fallbackProducer)));
+      }
+      assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+      release.countDown();
+
+      Object instance = futures.get(0).get(5, TimeUnit.SECONDS).getBeanInstance();
+      for (Future<ContainedBean<UppercaseConverter>> future : futures) {
+        assertThat(future.get(5, TimeUnit.SECONDS).getBeanInstance()).isSameAs(instance);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    verify(beanFactory).createBean(UppercaseConverter.class);
+  }
+
+  @Test
+  void failedCreationRetried() {
+    given(beanFactory.createBean(UppercaseConverter.class))
+            .willThrow(new BeanCreationException("failed"))
+            .willReturn(new UppercaseConverter());
+    given(fallbackProducer.produceBeanInstance(UppercaseConverter.class)).willThrow(new IllegalStateException());
+
+    assertThatExceptionOfType(BeanCreationException.class).isThrownBy(() ->
+            beanContainer.getBean(UppercaseConverter.class, cachedOptions, fallbackProducer));
+    assertThat(beanContainer.getBean(UppercaseConverter.class, cachedOptions, fallbackProducer)
+            .getBeanInstance()).isInstanceOf(UppercaseConverter.class);
+  }
+
+  @Test
+  void uncachedBeanCreatedPerRequest() {
+    given(beanFactory.createBean(UppercaseConverter.class)).willAnswer(invocation -> new UppercaseConverter());
+    LifecycleOptions options = lifecycleOptions(false);
+
+    assertThat(beanContainer.getBean(UppercaseConverter.class, options, fallbackProducer).getBeanInstance())
+            .isNotSameAs(beanContainer.getBean(UppercaseConverter.class, options, fallbackProducer).getBeanInstance());
+  }
+
+  @Test
+  void preWarmedBeansReused() {
+    UppercaseConverter converter = new UppercaseConverter();
+    AuditListener listener = new AuditListener();
+    given(beanFactory.createBean(UppercaseConverter.class)).willReturn(converter);
+    given(beanFactory.createBean(AuditListener.class)).willReturn(listener);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      beanContainer.preWarm(List.of(UppercaseConverter.class, AuditListener.class), executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(beanContainer.getBean(UppercaseConverter.class, cachedOptions, fallbackProducer)
+            .getBeanInstance()).isSameAs(converter);
+    assertThat(beanContainer.getBean(AuditListener.class, cachedOptions, fallbackProducer)
+            .getBeanInstance()).isSameAs(listener);
+    verify(beanFactory).createBean(UppercaseConverter.class);
+    verify(beanFactory).createBean(AuditListener.class);
+
+    beanContainer.stop();
+    verify(beanFactory).destroyBean(converter);
+    verify(beanFactory).destroyBean(listener);
+  }
+
+  @Test
+  void preWarmSkipsFailedBeans() {
+    given(beanFactory.createBean(NamedListener.class))
+            .willThrow(new BeanCreationException("failed"))
+            .willReturn(new NamedListener("audit"));
+
+    beanContainer.preWarm(List.of(NamedListener.class), Runnable::run);
+
+    assertThat(beanContainer.getBean(NamedListener.class, cachedOptions, fallbackProducer)
+            .getBeanInstance()).isInstanceOf(NamedListener.class);
+    verify(beanFactory, times(2)).createBean(NamedListener.class);
+  }
+
+  @Test
+  void deferredCreationOnFirstInstanceAccess() {
+    UppercaseConverter converter = new UppercaseConverter();
+    given(beanFactory.createBean(UppercaseConverter.class)).willReturn(converter);
+    beanContainer.setDeferredCreation(true);
+
+    ContainedBean<UppercaseConverter> bean = beanContainer.getBean(UppercaseConverter.class, cachedOptions, fallbackProducer);
+    verify(beanFactory, never()).createBean(UppercaseConverter.class);
+
+    assertThat(bean.getBeanInstance()).isSameAs(converter);
+    assertThat(bean.getBeanInstance()).isSameAs(converter);
+    verify(beanFactory).createBean(UppercaseConverter.class);
+  }
+
+  @Test
+  void deferredBeansCreatedByPreWarming() {
+    UppercaseConverter converter = new UppercaseConverter();
+    given(beanFactory.createBean(UppercaseConverter.class)).willReturn(converter);
+    beanContainer.setDeferredCreation(true);
+    ContainedBean<UppercaseConverter> bean = beanContainer.getBean(UppercaseConverter.class, cachedOptions, fallbackProducer);
+
+    beanContainer.preWarm(List.of(UppercaseConverter.class), Runnable::run);
+    verify(beanFactory).createBean(UppercaseConverter.class);
+
+    assertThat(bean.getBeanInstance()).isSameAs(converter);
+    verify(beanFactory).createBean(UppercaseConverter.class);
+  }
+
+  @Test
+  void findContainedBeanTypes() {
+    assertThat(HibernateBeanContainer.findContainedBeanTypes(List.of(Customer.class, UppercaseConverter.class)))
+            .containsExactly(AuditListener.class, LowercaseConverter.class, UppercaseConverter.class);
+  }
+
+  private static LifecycleOptions lifecycleOptions(boolean cached) {
+    LifecycleOptions options = mock(LifecycleOptions.class);
+    given(options.canUseCachedReferences()).willReturn(cached);
+    given(options.useJpaCompliantCreation()).willReturn(true);
+    return options;
+  }
+
+  @Entity
+  @EntityListeners(AuditListener.class)
+  static class Customer {
+
+    @Convert(converter = LowercaseConverter.class)
+    String email;
+
+    @Convert(disableConversion = true)
+    String name;
+  }
+
+  static class AuditListener {
+  }
+
+  static class NamedListener {
+
+    NamedListener(String name) {
+    }
+  }
+
+  @Converter
+  static class UppercaseConverter implements AttributeConverter<String, String> {
+
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+      return attribute.toUpperCase();
+    }
+
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+      return dbData;
+    }
+  }
+
+  static class LowercaseConverter implements AttributeConverter<String, String> {
+
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+      return attribute.toLowerCase();
+    }
+
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+      return dbData;
+    }
+  }
+
+}
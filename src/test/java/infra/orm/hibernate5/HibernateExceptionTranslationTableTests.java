@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.HibernateException;
+import org.hibernate.JDBCException;
+import org.hibernate.ObjectDeletedException;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.StaleStateException;
+import org.hibernate.dialect.lock.PessimisticEntityLockException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.GenericJDBCException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import infra.dao.CannotAcquireLockException;
+import infra.dao.ConcurrencyFailureException;
+import infra.dao.DataIntegrityViolationException;
+import infra.dao.InvalidDataAccessApiUsageException;
+import infra.dao.PessimisticLockingFailureException;
+import infra.orm.ObjectOptimisticLockingFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class HibernateExceptionTranslationTableTests {
+
+  private final HibernateExceptionTranslationTable table =
+          SessionFactoryUtils.getExceptionTranslationTable().copy();
+
+  @Test
+  void mostSpecificTranslationApplies() {
+    assertThat(table.translate(new StaleObjectStateException("Item", 1L)))
+            .isInstanceOf(HibernateOptimisticLockingFailureException.class)
+            .satisfies(ex -> assertThat(((ObjectOptimisticLockingFailureException) ex).getIdentifier()).isEqualTo(1L));
+    assertThat(table.translate(new StaleStateException("stale")))
+            .isInstanceOf(HibernateOptimisticLockingFailureException.class);
+    // ObjectDeletedException extends UnresolvableObjectException
+    assertThat(table.translate(new ObjectDeletedException("deleted", 1L, "Item")))
+            .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    assertThat(table.translate(new ConstraintViolationException("constraint", new SQLException(), "insert", "pk")))
+            .isInstanceOf(DataIntegrityViolationException.class)
+            .hasMessageContaining("constraint [pk]");
+    assertThat(table.translate(new GenericJDBCException("jdbc", new SQLException())))
+            .isInstanceOf(HibernateJdbcException.class);
+    assertThat(table.translate(new PessimisticEntityLockException(null, "lock",
+            new LockAcquisitionException("lock", new SQLException()))))
+            .isInstanceOf(CannotAcquireLockException.class);
+  }
+
+  @Test
+  void defaultTranslation() {
+    assertThat(table.translate(new HibernateException("failure"))).isInstanceOf(HibernateSystemException.class);
+    assertThat(table.translate(new HibernateException("failure") { })).isInstanceOf(HibernateSystemException.class);
+  }
+
+  @Test
+  void customTranslationReplacesResolvedTranslation() {
+    JDBCException ex = new GenericJDBCException("jdbc", new SQLException());
+    assertThat(table.translate(ex)).isInstanceOf(HibernateJdbcException.class);
+
+    table.register(GenericJDBCException.class, e -> new PessimisticLockingFailureException(e.getMessage(), e));
+
+    assertThat(table.translate(ex)).isInstanceOf(PessimisticLockingFailureException.class);
+    assertThat(SessionFactoryUtils.getExceptionTranslationTable().translate(ex))
+            .isInstanceOf(HibernateJdbcException.class);
+  }
+
+  @Test
+  void customTranslationForSubclass() {
+    class RetryableException extends HibernateException {
+      RetryableException() {
+        super("retryable");
+      }
+    }
+    table.register(RetryableException.class, e -> new ConcurrencyFailureException(e.getMessage(), e));
+
+    assertThat(table.translate(new RetryableException())).isInstanceOf(ConcurrencyFailureException.class);
+    assertThat(table.translate(new RetryableException() { })).isInstanceOf(ConcurrencyFailureException.class);
+  }
+
+  @Test
+  void identifier() {
+    assertThat(HibernateExceptionTranslationTable.getIdentifier(new StaleObjectStateException("Item", 2L))).isEqualTo(2L);
+    assertThat(HibernateExceptionTranslationTable.getIdentifier(new HibernateException("failure"))).isNull();
+  }
+
+}
@@ -29,30 +29,41 @@ import org.hibernate.PersistentObjectException;
 import org.hibernate.PropertyValueException;
 import org.hibernate.QueryException;
 import org.hibernate.ReplicationMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.StaleStateException;
+import org.hibernate.StatelessSession;
 import org.hibernate.TransientObjectException;
 import org.hibernate.UnresolvableObjectException;
 import org.hibernate.WrongClassException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.exception.DataException;
 import org.hibernate.exception.JDBCConnectionException;
 import org.hibernate.exception.LockAcquisitionException;
 import org.hibernate.exception.SQLGrammarException;
+import org.hibernate.query.ParameterMetadata;
 import org.hibernate.query.Query;
+import org.hibernate.query.QueryParameter;
+import org.hibernate.type.StringType;
+import org.hibernate.type.TextType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InOrder;
 
+import java.io.Serializable;
 import java.lang.reflect.Proxy;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import infra.beans.testfixture.TestBean;
 import infra.dao.CannotAcquireLockException;
@@ -69,11 +80,15 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.inOrder;
 import static org.mockito.BDDMockito.mock;
+import static org.mockito.BDDMockito.never;
 import static org.mockito.BDDMockito.same;
+import static org.mockito.BDDMockito.times;
 import static org.mockito.BDDMockito.verify;
 
 /**
@@ -581,6 +596,100 @@ public class HibernateTemplateTests {
     verify(session).delete(same(tb2));
   }
 
+  @Test
+  public void testSaveAllKeepsGivenOrder() {
+    TestBean tb1 = new TestBean();
+    TestBean tb2 = new TestBean();
+    Object other = new Object();
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.AUTO);
+    given(session.save(tb1)).willReturn(1);
+    given(session.save(other)).willReturn(2);
+    given(session.save(tb2)).willReturn(3);
+
+    List<Serializable> ids = hibernateTemplate.saveAll(List.of(tb1, other, tb2), 3);
+    assertEquals(List.of(1, 2, 3), ids);
+
+    InOrder ordered = inOrder(session);
+    ordered.verify(session).save(tb1);
+    ordered.verify(session).save(other);
+    ordered.verify(session).save(tb2);
+    ordered.verify(session).flush();
+    ordered.verify(session).clear();
+    verify(session, never()).setJdbcBatchSize(any());
+  }
+
+  @Test
+  public void testDeleteAllKeepsDependencyOrder() {
+    TestBean parent1 = new TestBean();
+    Object child2 = new Object();
+    TestBean parent2 = new TestBean();
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.AUTO);
+
+    hibernateTemplate.deleteAll(List.of(parent1, child2, parent2), 10);
+
+    InOrder ordered = inOrder(session);
+    ordered.verify(session).delete(parent1);
+    ordered.verify(session).delete(child2);
+    ordered.verify(session).delete(parent2);
+    ordered.verify(session).flush();
+  }
+
+  @Test
+  public void testPersistAllFlushesEveryBatch() {
+    TestBean tb1 = new TestBean();
+    TestBean tb2 = new TestBean();
+    TestBean tb3 = new TestBean();
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.AUTO);
+
+    hibernateTemplate.persistAll(List.of(tb1, tb2, tb3), 2);
+
+    InOrder ordered = inOrder(session);
+    ordered.verify(session).persist(tb1);
+    ordered.verify(session).persist(tb2);
+    ordered.verify(session).flush();
+    ordered.verify(session).clear();
+    ordered.verify(session).persist(tb3);
+    ordered.verify(session).flush();
+    ordered.verify(session).clear();
+    verify(session, never()).setJdbcBatchSize(any());
+  }
+
+  @Test
+  public void testMergeAll() {
+    TestBean tb1 = new TestBean();
+    TestBean tb2 = new TestBean();
+    TestBean merged1 = new TestBean();
+    TestBean merged2 = new TestBean();
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.AUTO);
+    given(session.merge(tb1)).willReturn(merged1);
+    given(session.merge(tb2)).willReturn(merged2);
+
+    List<TestBean> result = hibernateTemplate.mergeAll(List.of(tb1, tb2), 1);
+    assertSame(merged1, result.get(0));
+    assertSame(merged2, result.get(1));
+    verify(session, times(2)).flush();
+    verify(session, times(2)).clear();
+  }
+
+  @Test
+  public void testDeleteAllWithBatchSize() {
+    TestBean tb1 = new TestBean();
+    TestBean tb2 = new TestBean();
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.AUTO);
+    hibernateTemplate.deleteAll(List.of(tb1, tb2), 10);
+    verify(session).delete(same(tb1));
+    verify(session).delete(same(tb2));
+    verify(session).flush();
+    verify(session).clear();
+  }
+
+  @Test
+  public void testSaveAllInReadOnlySession() {
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.MANUAL);
+    assertThrows(InvalidDataAccessApiUsageException.class,
+            () -> hibernateTemplate.saveAll(List.of(new TestBean()), 10));
+  }
+
   @Test
   public void testFlush() {
     hibernateTemplate.flush();
@@ -660,14 +769,72 @@ public class HibernateTemplateTests {
   @Test
   public void testFindByValueBean() {
     Query query = mock(Query.class);
-    TestBean tb = new TestBean();
+    ParameterMetadata parameterMetadata = mock(ParameterMetadata.class);
+    TestBean tb = new TestBean("myname", 5);
     List list = new ArrayList();
-    given(session.createQuery("some query string")).willReturn(query);
-    given(query.setProperties(tb)).willReturn(query);
+    given(session.createQuery("value bean query string")).willReturn(query);
+    given(query.getParameterMetadata()).willReturn(parameterMetadata);
+    given(parameterMetadata.getNamedParameterNames()).willReturn(Set.of("name", "age", "unknown"));
     given(query.list()).willReturn(list);
-    List result = hibernateTemplate.findByValueBean("some query string", tb);
+    List result = hibernateTemplate.findByValueBean("value bean query string", tb);
     assertSame(result, list, "Correct list");
-    verify(query).setProperties(tb);
+    verify(query).setParameter("name", "myname");
+    verify(query).setParameter("age", 5);
+    verify(query, never()).setProperties(tb);
+  }
+
+  @Test
+  public void testFindByValueBeanReusesBindingPlan() {
+    Query query = mock(Query.class);
+    ParameterMetadata parameterMetadata = mock(ParameterMetadata.class);
+    given(session.createQuery("cached value bean query string")).willReturn(query);
+    given(query.getParameterMetadata()).willReturn(parameterMetadata);
+    given(parameterMetadata.getNamedParameterNames()).willReturn(Set.of("name"));
+    given(query.list()).willReturn(new ArrayList());
+
+    hibernateTemplate.findByValueBean("cached value bean query string", new TestBean("name1", 1));
+    hibernateTemplate.findByValueBean("cached value bean query string", new TestBean("name2", 2));
+    verify(query).setParameter("name", "name1");
+    verify(query).setParameter("name", "name2");
+    verify(parameterMetadata, times(1)).getNamedParameterNames();
+  }
+
+  @Test
+  public void testFindByValueBeanBindsByDeclaredType() {
+    Query query = mock(Query.class);
+    ParameterMetadata parameterMetadata = mock(ParameterMetadata.class);
+    SessionFactoryImplementor factory = mock(SessionFactoryImplementor.class);
+    given(session.getSessionFactory()).willReturn(factory);
+    given(factory.resolveParameterBindType(String.class)).willReturn(StringType.INSTANCE);
+    given(session.createQuery("typed value bean query string")).willReturn(query);
+    given(query.getParameterMetadata()).willReturn(parameterMetadata);
+    given(parameterMetadata.getNamedParameterNames()).willReturn(Set.of("name", "friends", "stringArray"));
+    given(query.list()).willReturn(new ArrayList());
+
+    TestBean tb = new TestBean();
+    tb.setStringArray(new String[] { "a", "b" });
+    hibernateTemplate.findByValueBean("typed value bean query string", tb);
+
+    // A null scalar still gets bound with the type of its getter
+    verify(query).setParameter("name", null, StringType.INSTANCE);
+    verify(query).setParameterList("friends", tb.getFriends());
+    verify(query).setParameterList("stringArray", new Object[] { "a", "b" });
+  }
+
+  @Test
+  public void testFindByValueBeanPrefersTypeExpectedByQuery() {
+    Query query = mock(Query.class);
+    ParameterMetadata parameterMetadata = mock(ParameterMetadata.class);
+    QueryParameter queryParameter = mock(QueryParameter.class);
+    given(queryParameter.getHibernateType()).willReturn(TextType.INSTANCE);
+    given(session.createQuery("expected type value bean query string")).willReturn(query);
+    given(query.getParameterMetadata()).willReturn(parameterMetadata);
+    given(parameterMetadata.getNamedParameterNames()).willReturn(Set.of("name"));
+    given(parameterMetadata.getQueryParameter("name")).willReturn(queryParameter);
+    given(query.list()).willReturn(new ArrayList());
+
+    hibernateTemplate.findByValueBean("expected type value bean query string", new TestBean("myname", 1));
+    verify(query).setParameter("name", "myname", TextType.INSTANCE);
   }
 
   @Test
@@ -737,14 +904,48 @@ public class HibernateTemplateTests {
   @Test
   public void testFindByNamedQueryAndValueBean() {
     Query query = mock(Query.class);
-    TestBean tb = new TestBean();
+    ParameterMetadata parameterMetadata = mock(ParameterMetadata.class);
+    TestBean tb = new TestBean("myname", 5);
     List list = new ArrayList();
-    given(session.getNamedQuery("some query name")).willReturn(query);
-    given(query.setProperties(tb)).willReturn(query);
+    given(session.getNamedQuery("value bean query name")).willReturn(query);
+    given(query.getParameterMetadata()).willReturn(parameterMetadata);
+    given(parameterMetadata.getNamedParameterNames()).willReturn(Set.of("name"));
     given(query.list()).willReturn(list);
-    List result = hibernateTemplate.findByNamedQueryAndValueBean("some query name", tb);
+    List result = hibernateTemplate.findByNamedQueryAndValueBean("value bean query name", tb);
     assertSame(result, list, "Correct list");
-    verify(query).setProperties(tb);
+    verify(query).setParameter("name", "myname");
+    verify(query, never()).setProperties(tb);
+  }
+
+  @Test
+  public void testFindByNamedQueryAndValueBeanWithDifferentSessionFactories() {
+    Query query = mock(Query.class);
+    ParameterMetadata parameterMetadata = mock(ParameterMetadata.class);
+    given(session.getNamedQuery("shared query name")).willReturn(query);
+    given(query.getParameterMetadata()).willReturn(parameterMetadata);
+    given(parameterMetadata.getNamedParameterNames()).willReturn(Set.of("name"));
+    given(query.list()).willReturn(new ArrayList());
+
+    SessionFactory otherSessionFactory = mock(SessionFactory.class);
+    Session otherSession = mock(Session.class);
+    Query otherQuery = mock(Query.class);
+    ParameterMetadata otherParameterMetadata = mock(ParameterMetadata.class);
+    given(otherSessionFactory.getCurrentSession()).willReturn(otherSession);
+    given(otherSession.getNamedQuery("shared query name")).willReturn(otherQuery);
+    given(otherQuery.getParameterMetadata()).willReturn(otherParameterMetadata);
+    given(otherParameterMetadata.getNamedParameterNames()).willReturn(Set.of("age"));
+    given(otherQuery.list()).willReturn(new ArrayList());
+
+    hibernateTemplate.findByNamedQueryAndValueBean("shared query name", new TestBean("name1", 1));
+    new HibernateTemplate(otherSessionFactory)
+            .findByNamedQueryAndValueBean("shared query name", new TestBean("name2", 2));
+    verify(query).setParameter("name", "name1");
+    verify(otherQuery).setParameter("age", 2);
+    verify(otherQuery, never()).setParameter("name", "name2");
+
+    hibernateTemplate.setSessionFactory(otherSessionFactory);
+    hibernateTemplate.findByNamedQueryAndValueBean("shared query name", new TestBean("name3", 3));
+    verify(otherQuery).setParameter("age", 3);
   }
 
   @Test
@@ -841,6 +1042,140 @@ public class HibernateTemplateTests {
     verify(query).setParameter(1, 2);
   }
 
+  @Test
+  public void testForEachWithFetchSize() {
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(session.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true, true, false);
+    given(results.get()).willReturn(new Object[] { "a" }, new Object[] { "b", 1 });
+
+    hibernateTemplate.setFetchSize(10);
+    List<Object> processed = new ArrayList<>();
+    hibernateTemplate.forEach("some query string", processed::add, "myvalue");
+
+    assertEquals("a", processed.get(0));
+    assertEquals(2, ((Object[]) processed.get(1)).length);
+    verify(query).setFetchSize(10);
+    verify(query).setParameter(0, "myvalue");
+    verify(results).close();
+    verify(session, never()).evict(any());
+  }
+
+  @Test
+  public void testForEachBatch() {
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(session.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true, true, true, false);
+    given(results.get()).willReturn(new Object[] { 1 }, new Object[] { 2 }, new Object[] { 3 });
+
+    List<List<Integer>> chunks = new ArrayList<>();
+    hibernateTemplate.forEachBatch("some query string", 2, chunks::add);
+
+    assertEquals(List.of(List.of(1, 2), List.of(3)), chunks);
+    verify(results).close();
+  }
+
+  @Test
+  public void testForEachClosesCursorOnFailure() {
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(session.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true);
+    given(results.get()).willReturn(new Object[] { "a" });
+
+    assertThrows(IllegalStateException.class, () -> hibernateTemplate.forEach("some query string", result -> {
+      throw new IllegalStateException();
+    }));
+    verify(results).close();
+  }
+
+  @Test
+  public void testStreamWithNewSession() {
+    given(sessionFactory.getCurrentSession()).willThrow(new HibernateException("no current session"));
+    given(sessionFactory.openSession()).willReturn(session);
+    given(session.isOpen()).willReturn(true);
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(session.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true, true, true, false);
+    given(results.get()).willReturn(new Object[] { 1 }, new Object[] { 2 }, new Object[] { 3 });
+
+    try (Stream<Integer> stream = hibernateTemplate.stream("some query string")) {
+      assertEquals(List.of(1, 2), stream.limit(2).toList());
+      verify(session, never()).close();
+    }
+    verify(results).close();
+    verify(session).close();
+  }
+
+  @Test
+  public void testStreamClosesCursorWhenExhausted() {
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(session.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true, false);
+    given(results.get()).willReturn(new Object[] { 1 });
+
+    Stream<Integer> stream = hibernateTemplate.stream("some query string");
+    assertEquals(List.of(1), stream.toList());
+    verify(results).close();
+    stream.close();
+    verify(results).close();
+  }
+
+  @Test
+  public void testStreamWithTransactionalStatelessSession() {
+    StatelessSession statelessSession = mock(StatelessSession.class);
+    SessionHolder sessionHolder = new SessionHolder(session);
+    sessionHolder.setStatelessSession(statelessSession);
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(statelessSession.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true, false);
+    given(results.get()).willReturn(new Object[] { 1 });
+
+    TransactionSynchronizationManager.bindResource(sessionFactory, sessionHolder);
+    try (Stream<Integer> stream = hibernateTemplate.stream("some query string")) {
+      assertEquals(List.of(1), stream.toList());
+    }
+    finally {
+      TransactionSynchronizationManager.unbindResource(sessionFactory);
+    }
+    verify(session, never()).createQuery(any(String.class));
+    verify(results).close();
+  }
+
+  @Test
+  public void testStreamIgnoresStatelessSessionOfOtherSession() {
+    StatelessSession statelessSession = mock(StatelessSession.class);
+    SessionHolder sessionHolder = new SessionHolder(mock(Session.class));
+    sessionHolder.setStatelessSession(statelessSession);
+    Query query = mock(Query.class);
+    ScrollableResults results = mock(ScrollableResults.class);
+    given(session.createQuery("some query string")).willReturn(query);
+    given(query.scroll(ScrollMode.FORWARD_ONLY)).willReturn(results);
+    given(results.next()).willReturn(true, false);
+    given(results.get()).willReturn(new Object[] { 1 });
+
+    TransactionSynchronizationManager.bindResource(sessionFactory, sessionHolder);
+    try (Stream<Integer> stream = hibernateTemplate.stream("some query string")) {
+      assertEquals(List.of(1), stream.toList());
+    }
+    finally {
+      TransactionSynchronizationManager.unbindResource(sessionFactory);
+    }
+    verify(statelessSession, never()).createQuery(any(String.class));
+    verify(results).close();
+  }
+
   @Test
   public void testBulkUpdate() {
     Query query = mock(Query.class);
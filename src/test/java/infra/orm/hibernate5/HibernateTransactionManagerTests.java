@@ -22,6 +22,8 @@ import org.hibernate.Interceptor;
 import org.hibernate.Session;
 import org.hibernate.SessionBuilder;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.StatelessSessionBuilder;
 import org.hibernate.Transaction;
 import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.dialect.HSQLDialect;
@@ -76,6 +78,7 @@ import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.inOrder;
 import static org.mockito.BDDMockito.mock;
+import static org.mockito.BDDMockito.never;
 import static org.mockito.BDDMockito.times;
 import static org.mockito.BDDMockito.verify;
 import static org.mockito.BDDMockito.willThrow;
@@ -724,6 +727,93 @@ public class HibernateTransactionManagerTests {
     verify(session).close();
   }
 
+  @Test
+  public void testTransactionCommitWithStatelessStreaming() throws Exception {
+    Connection con = mock(Connection.class);
+    SessionFactory sf = mock(SessionFactory.class);
+    ImplementingSession session = mock(ImplementingSession.class);
+    Transaction tx = mock(Transaction.class);
+    StatelessSessionBuilder statelessSessionBuilder = mock(StatelessSessionBuilder.class);
+    StatelessSession statelessSession = mock(StatelessSession.class);
+
+    given(sf.openSession()).willReturn(session);
+    given(sf.withStatelessOptions()).willReturn(statelessSessionBuilder);
+    given(statelessSessionBuilder.connection(con)).willReturn(statelessSessionBuilder);
+    given(statelessSessionBuilder.openStatelessSession()).willReturn(statelessSession);
+    given(statelessSession.isOpen()).willReturn(true);
+    given(session.beginTransaction()).willReturn(tx);
+    given(session.isConnected()).willReturn(true);
+    given(con.isReadOnly()).willReturn(true);
+    apply(con, session);
+
+    HibernateTransactionManager tm = new HibernateTransactionManager(sf);
+    tm.setStatelessStreaming(true);
+    TransactionTemplate tt = new TransactionTemplate(tm);
+    tt.setReadOnly(true);
+
+    tt.executeWithoutResult(status -> {
+      assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+      assertSame(statelessSession, SessionFactoryUtils.getStatelessSession(sf));
+      assertSame(session, ((SessionHolder) TransactionSynchronizationManager.getResource(sf)).getSession());
+    });
+
+    assertFalse(TransactionSynchronizationManager.hasResource(sf), "Hasn't thread session");
+    assertNull(SessionFactoryUtils.getStatelessSession(sf));
+
+    verify(session).setHibernateFlushMode(FlushMode.MANUAL);
+    verify(tx).commit();
+    verify(statelessSession).close();
+    verify(session).close();
+  }
+
+  @Test
+  public void testTransactionCommitWithStatelessStreamingNotAccessed() throws Exception {
+    Connection con = mock(Connection.class);
+    SessionFactory sf = mock(SessionFactory.class);
+    ImplementingSession session = mock(ImplementingSession.class);
+    Transaction tx = mock(Transaction.class);
+
+    given(sf.openSession()).willReturn(session);
+    given(session.beginTransaction()).willReturn(tx);
+    given(session.isConnected()).willReturn(true);
+    given(con.isReadOnly()).willReturn(true);
+    apply(con, session);
+
+    HibernateTransactionManager tm = new HibernateTransactionManager(sf);
+    tm.setStatelessStreaming(true);
+    TransactionTemplate tt = new TransactionTemplate(tm);
+    tt.setReadOnly(true);
+
+    tt.executeWithoutResult(status -> assertTrue(TransactionSynchronizationManager.hasResource(sf)));
+
+    verify(sf, never()).withStatelessOptions();
+    verify(tx).commit();
+    verify(session).close();
+  }
+
+  @Test
+  public void testTransactionCommitWithStatelessStreamingAndReadWriteTransaction() throws Exception {
+    Connection con = mock(Connection.class);
+    SessionFactory sf = mock(SessionFactory.class);
+    ImplementingSession session = mock(ImplementingSession.class);
+    Transaction tx = mock(Transaction.class);
+
+    given(sf.openSession()).willReturn(session);
+    given(session.beginTransaction()).willReturn(tx);
+    given(session.getHibernateFlushMode()).willReturn(FlushMode.AUTO);
+    apply(con, session);
+
+    HibernateTransactionManager tm = new HibernateTransactionManager(sf);
+    tm.setStatelessStreaming(true);
+    TransactionTemplate tt = new TransactionTemplate(tm);
+
+    tt.executeWithoutResult(status -> assertNull(SessionFactoryUtils.getStatelessSession(sf)));
+
+    verify(sf, never()).withStatelessOptions();
+    verify(tx).commit();
+    verify(session).close();
+  }
+
   @Test
   public void testTransactionCommitWithFlushFailure() throws Exception {
     Connection con = mock(Connection.class);
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.hibernate.MultiTenancyStrategy;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import infra.beans.factory.config.ConfigurableBeanFactory;
+import infra.core.io.DefaultResourceLoader;
+import infra.core.type.filter.AssignableTypeFilter;
+import infra.orm.jpa.domain.Employee;
+import infra.orm.jpa.domain.EmployeeCategoryConverter;
+import infra.orm.jpa.domain.EmployeeKindConverter;
+import infra.orm.jpa.domain.EmployeeLocationConverter;
+import infra.orm.jpa.domain.Person;
+import infra.orm.jpa.domain.PersonListener;
+import infra.orm.jpa.domain2.entity.User;
+import infra.orm.jpa.persistenceunit.PersistenceManagedTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+class LocalSessionFactoryBuilderTests {
+
+  private final MetadataSources metadataSources = new MetadataSources();
+
+  private final LocalSessionFactoryBuilder builder =
+          new LocalSessionFactoryBuilder(null, new DefaultResourceLoader(), metadataSources);
+
+  @Test
+  void scanPackagesRegistersClassNamesWithoutLoading() {
+    builder.scanPackages("infra.orm.jpa.domain", "infra.orm.jpa.domain2");
+
+    assertThat(metadataSources.getAnnotatedClassNames()).contains(Person.class.getName(),
+            Employee.class.getName(), EmployeeLocationConverter.class.getName(), User.class.getName());
+    assertThat(metadataSources.getAnnotatedClasses()).isEmpty();
+    assertThat(metadataSources.getAnnotatedPackages()).containsExactly("infra.orm.jpa.domain2");
+  }
+
+  @Test
+  void scanPackagesWithCustomEntityTypeFilters() {
+    builder.setEntityTypeFilters(new AssignableTypeFilter(Person.class));
+    builder.scanPackages("infra.orm.jpa.domain");
+
+    assertThat(metadataSources.getAnnotatedClasses()).contains(Person.class);
+    assertThat(metadataSources.getAnnotatedClassNames()).isEmpty();
+  }
+
+  @Test
+  void addManagedTypes() {
+    builder.addManagedTypes(PersistenceManagedTypes.of(
+            List.of(Person.class.getName(), User.class.getName()), List.of("infra.orm.jpa.domain2")));
+
+    assertThat(metadataSources.getAnnotatedClassNames()).containsExactly(Person.class.getName(), User.class.getName());
+    assertThat(metadataSources.getAnnotatedPackages()).containsExactly("infra.orm.jpa.domain2");
+  }
+
+  @Test
+  void multiTenancyStrategyAppliedForTenantConnectionProvider() {
+    DataSource dataSource = mock(DataSource.class);
+    builder.setMultiTenantConnectionProvider(new DataSourcePerTenantConnectionProvider(dataSource, tenant -> dataSource));
+
+    assertThat(builder.getProperties()).containsEntry(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.DATABASE);
+  }
+
+  @Test
+  void containedBeanTypesIncludeConvertersAndListeners() {
+    builder.scanPackages("infra.orm.jpa.domain");
+
+    assertThat(builder.getContainedBeanTypes()).contains(PersonListener.class, EmployeeKindConverter.class,
+            EmployeeCategoryConverter.class, EmployeeLocationConverter.class);
+  }
+
+  @Test
+  void setHibernateBeanContainer() {
+    HibernateBeanContainer beanContainer = new HibernateBeanContainer(mock(ConfigurableBeanFactory.class));
+    builder.setBeanContainer(beanContainer);
+
+    assertThat(builder.getProperties()).containsEntry(AvailableSettings.BEAN_CONTAINER, beanContainer);
+  }
+
+}
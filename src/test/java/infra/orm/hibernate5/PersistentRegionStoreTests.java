@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class PersistentRegionStoreTests {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void entriesReusedAfterClose() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+    store.put("b", "value-b");
+    store.put("a", "value-a2");
+    store.close();
+
+    store = open(4096);
+    assertThat(store.size()).isZero();
+    store.validate(1L, Set.of());
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.get("a")).isEqualTo("value-a2");
+    assertThat(store.get("b")).isEqualTo("value-b");
+    store.close();
+  }
+
+  @Test
+  void removalsReusedAfterClose() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+    store.put("b", "value-b");
+    store.remove("a");
+    store.close();
+
+    store = open(4096);
+    store.validate(1L, Set.of());
+    assertThat(store.contains("a")).isFalse();
+    assertThat(store.get("b")).isEqualTo("value-b");
+    store.clear();
+    store.put("c", "value-c");
+    store.close();
+
+    store = open(4096);
+    store.validate(1L, Set.of());
+    assertThat(store.contains("b")).isFalse();
+    assertThat(store.get("c")).isEqualTo("value-c");
+    store.close();
+  }
+
+  @Test
+  void entriesDiscardedOnFingerprintMismatch() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+    store.close();
+
+    store = open(4096);
+    store.validate(2L, Set.of());
+    assertThat(store.get("a")).isNull();
+    store.close();
+  }
+
+  @Test
+  void entriesDiscardedWhenNotClosed() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+
+    // Simulate a crash, leaving the file behind as is
+    Path crashed = Files.copy(directory.resolve("region.cache"), directory.resolve("crashed.cache"));
+    store.close();
+    store = PersistentRegionStore.open(crashed, 4096, Duration.ofHours(1));
+    store.validate(1L, Set.of());
+    assertThat(store.get("a")).isNull();
+    store.close();
+  }
+
+  @Test
+  void entriesDiscardedWhenExpired() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+    store.close();
+
+    store = PersistentRegionStore.open(directory.resolve("region.cache"), 4096, Duration.ofMillis(-1));
+    store.validate(1L, Set.of());
+    assertThat(store.get("a")).isNull();
+    store.close();
+  }
+
+  @Test
+  void fullStoreCompacted() throws IOException {
+    PersistentRegionStore store = open(PersistentRegionStore.HEADER_SIZE + 200);
+    store.validate(1L, Set.of());
+    store.put("b", "value-b");
+    for (int i = 0; i < 50; i++) {
+      store.put("a", "value-a" + i);
+    }
+    assertThat(store.get("a")).isEqualTo("value-a49");
+    assertThat(store.get("b")).isEqualTo("value-b");
+    store.put("c", "x".repeat(500));
+    assertThat(store.contains("c")).isFalse();
+    store.close();
+
+    store = open(PersistentRegionStore.HEADER_SIZE + 200);
+    store.validate(1L, Set.of());
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.get("a")).isEqualTo("value-a49");
+    assertThat(store.get("b")).isEqualTo("value-b");
+    store.close();
+  }
+
+  @Test
+  void storeCompactedOnClose() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+    store.put("b", "value-b");
+    store.put("a", "value-a2");
+    store.remove("b");
+    store.close();
+    long compactedEnd = sealedEnd();
+
+    store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a2");
+    store.close();
+
+    assertThat(sealedEnd()).isEqualTo(compactedEnd);
+  }
+
+  @Test
+  void fileLockedWhileOpen() throws IOException {
+    PersistentRegionStore store = open(4096);
+    assertThatIOException().isThrownBy(() -> open(4096)).withMessageContaining("in use");
+    store.close();
+    open(4096).close();
+  }
+
+  @Test
+  void nonSerializableValueNotPersisted() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", "value-a");
+    store.put("a", new Object());
+    assertThat(store.contains("a")).isFalse();
+    store.close();
+  }
+
+  @Test
+  void onlyAllowedClassesDeserialized() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put("a", new Name("a"));
+    store.put("b", URI.create("https://example.com"));
+    store.put("c", new long[] { 1L });
+    store.close();
+
+    store = open(4096);
+    store.validate(1L, Set.of(Name.class.getPackageName()));
+    assertThat(store.get("a")).isEqualTo(new Name("a"));
+    assertThat(store.get("b")).isNull();
+    assertThat(store.get("c")).isEqualTo(new long[] { 1L });
+    store.close();
+  }
+
+  @Test
+  void storeDiscardedWhenKeysNotAllowed() throws IOException {
+    PersistentRegionStore store = open(4096);
+    store.validate(1L, Set.of());
+    store.put(new Name("a"), "value-a");
+    store.close();
+
+    store = open(4096);
+    store.validate(1L, Set.of());
+    assertThat(store.size()).isZero();
+    store.close();
+  }
+
+  private int sealedEnd() throws IOException {
+    return ByteBuffer.wrap(Files.readAllBytes(directory.resolve("region.cache"))).getInt(24);
+  }
+
+  private PersistentRegionStore open(int capacity) throws IOException {
+    return PersistentRegionStore.open(directory.resolve("region.cache"), capacity, Duration.ofHours(1));
+  }
+
+  record Name(String value) implements Serializable {
+  }
+
+}
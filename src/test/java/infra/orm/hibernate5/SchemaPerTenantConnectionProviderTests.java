@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.hibernate5;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import infra.orm.hibernate5.SchemaPerTenantConnectionProvider.TenantStatistics;
+import infra.transaction.support.TransactionSynchronization;
+import infra.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class SchemaPerTenantConnectionProviderTests {
+
+  private final DataSource dataSource = mock(DataSource.class);
+
+  private final Connection physicalCon = mock(Connection.class);
+
+  private final Statement stmt = mock(Statement.class);
+
+  private final SchemaPerTenantConnectionProvider provider = new SchemaPerTenantConnectionProvider(dataSource);
+
+  @BeforeEach
+  void setup() throws SQLException {
+    given(dataSource.getConnection()).willAnswer(invocation -> pooledConnection());
+  }
+
+  @Test
+  void redundantSchemaSwitchSkipped() throws SQLException {
+    provider.releaseConnection("a", provider.getConnection("a"));
+    provider.releaseConnection("a", provider.getConnection("a"));
+    provider.releaseConnection("b", provider.getConnection("b"));
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    verify(stmt, times(2)).execute("SET search_path TO a");
+    verify(stmt).execute("SET search_path TO b");
+
+    TenantStatistics statistics = provider.getTenantStatistics("a");
+    assertThat(statistics).isNotNull();
+    assertThat(statistics.getCheckoutCount()).isEqualTo(3);
+    assertThat(statistics.getSchemaSwitchCount()).isEqualTo(2);
+    assertThat(statistics.getActiveCount()).isZero();
+    assertThat(statistics.getPeakActiveCount()).isEqualTo(1);
+    assertThat(provider.getTenantIdentifiers()).containsExactlyInAnyOrder("a", "b");
+  }
+
+  @Test
+  void schemaNameResolverAndCustomStatement() throws SQLException {
+    provider.setSchemaNameResolver(tenant -> "tenant_" + tenant);
+    provider.setSchemaSwitchStatement("SET SCHEMA %s");
+
+    Connection con = provider.getConnection("a");
+
+    verify(stmt).execute("SET SCHEMA tenant_a");
+    assertThat(provider.getTenantStatistics("a").getActiveCount()).isEqualTo(1);
+    provider.releaseConnection("a", con);
+    verify(con).close();
+  }
+
+  @Test
+  void defaultSchemaForConnectionWithoutTenant() throws SQLException {
+    provider.setDefaultSchema("public");
+    provider.releaseConnection("a", provider.getConnection("a"));
+    provider.releaseAnyConnection(provider.getAnyConnection());
+    provider.releaseAnyConnection(provider.getAnyConnection());
+
+    verify(stmt).execute("SET search_path TO a");
+    verify(stmt).execute("SET search_path TO public");
+  }
+
+  @Test
+  void invalidSchemaName() throws SQLException {
+    assertThatExceptionOfType(SQLException.class).isThrownBy(() -> provider.getConnection("a; DROP TABLE item"));
+
+    verify(stmt, never()).execute(anyString());
+  }
+
+  @Test
+  void failedSchemaSwitchNotTracked() throws SQLException {
+    willThrow(new SQLException("failure")).willReturn(false).given(stmt).execute("SET search_path TO a");
+
+    assertThatExceptionOfType(SQLException.class).isThrownBy(() -> provider.getConnection("a"));
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    verify(stmt, times(2)).execute("SET search_path TO a");
+  }
+
+  @Test
+  void schemaSwitchCommittedWithoutAutoCommit() throws SQLException {
+    Connection con = provider.getConnection("a");
+    verify(con).commit();
+    provider.releaseConnection("a", con);
+
+    con = provider.getConnection("a");
+    verify(con, never()).commit();
+    provider.releaseConnection("a", con);
+  }
+
+  @Test
+  void schemaSwitchNotCommittedWithAutoCommit() throws SQLException {
+    given(dataSource.getConnection()).willAnswer(invocation -> {
+      Connection con = pooledConnection();
+      given(con.getAutoCommit()).willReturn(true);
+      return con;
+    });
+
+    Connection con = provider.getConnection("a");
+
+    verify(con, never()).commit();
+    provider.releaseConnection("a", con);
+  }
+
+  @Test
+  void trackedSchemaDroppedOnRollback() throws SQLException {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      provider.releaseConnection("a", provider.getConnection("a"));
+      for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      }
+    }
+    finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    verify(stmt, times(2)).execute("SET search_path TO a");
+  }
+
+  @Test
+  void trackedSchemaKeptOnCommit() throws SQLException {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      provider.releaseConnection("a", provider.getConnection("a"));
+      for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+      }
+    }
+    finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    provider.releaseConnection("a", provider.getConnection("a"));
+
+    verify(stmt).execute("SET search_path TO a");
+  }
+
+  @Test
+  void determineSchemaSwitchStatement() {
+    assertThat(SchemaPerTenantConnectionProvider.determineSchemaSwitchStatement("MySQL")).isEqualTo("USE %s");
+    assertThat(SchemaPerTenantConnectionProvider.determineSchemaSwitchStatement("Oracle"))
+            .isEqualTo("ALTER SESSION SET CURRENT_SCHEMA = %s");
+    assertThat(SchemaPerTenantConnectionProvider.determineSchemaSwitchStatement("H2")).isEqualTo("SET SCHEMA %s");
+  }
+
+  private Connection pooledConnection() throws SQLException {
+    Connection con = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    given(metaData.getDatabaseProductName()).willReturn("PostgreSQL");
+    given(con.getMetaData()).willReturn(metaData);
+    given(con.isWrapperFor(Connection.class)).willReturn(true);
+    given(con.unwrap(Connection.class)).willReturn(physicalCon);
+    given(con.createStatement()).willReturn(stmt);
+    return con;
+  }
+
+}
@@ -20,12 +20,26 @@ package infra.orm.jpa;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.sql.DataSource;
+
+import infra.orm.FlushTimer;
+import infra.orm.PersistenceContextGuard;
+import infra.orm.ReadWriteRoutingContext;
+import infra.orm.ReadWriteRoutingDataSource;
+import infra.orm.RetryingTransactionExecutor;
+import infra.orm.TransactionPhase;
+import infra.orm.TransactionPhaseListener;
+import infra.orm.TransactionPhaseStatistics;
+import infra.dao.DataAccessResourceFailureException;
 import infra.transaction.InvalidIsolationLevelException;
 import infra.transaction.TransactionDefinition;
+import infra.transaction.TransactionStatus;
 import infra.transaction.TransactionSystemException;
 import infra.transaction.support.TransactionSynchronization;
 import infra.transaction.support.TransactionSynchronizationManager;
@@ -33,13 +47,21 @@ import infra.transaction.support.TransactionTemplate;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.RollbackException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -112,6 +134,126 @@ public class JpaTransactionManagerTests {
     verify(manager).close();
   }
 
+  @Test
+  public void testReadOnlyFlagExposedForRoutingBeforeEntityManagerCreation() {
+    List<Boolean> readOnlyOnCreation = new ArrayList<>();
+    given(factory.createEntityManager()).willAnswer(invocation -> {
+      readOnlyOnCreation.add(ReadWriteRoutingContext.isCurrentReadOnly());
+      return manager;
+    });
+    ReadWriteRoutingContext.clearWrite();
+    tm.setReadWriteRouting(true);
+
+    TransactionTemplate readOnlyTt = new TransactionTemplate(tm);
+    readOnlyTt.setReadOnly(true);
+    TransactionTemplate innerTt = new TransactionTemplate(tm);
+    innerTt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    readOnlyTt.executeWithoutResult(status -> {
+      innerTt.executeWithoutResult(innerStatus ->
+              assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isFalse());
+      assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isTrue();
+      assertThat(ReadWriteRoutingContext.hasWrittenWithin(Long.MAX_VALUE)).isTrue();
+    });
+
+    assertThat(readOnlyOnCreation).containsExactly(true, false);
+    assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isFalse();
+    // The recorded write does not outlive the outermost transaction
+    assertThat(ReadWriteRoutingContext.hasWrittenWithin(Long.MAX_VALUE)).isFalse();
+  }
+
+  @Test
+  public void testRoutingStateUntouchedWithoutRoutingDataSource() {
+    List<Boolean> readOnlyOnCreation = new ArrayList<>();
+    given(factory.createEntityManager()).willAnswer(invocation -> {
+      readOnlyOnCreation.add(ReadWriteRoutingContext.isCurrentReadOnly());
+      return manager;
+    });
+    ReadWriteRoutingContext.clearWrite();
+
+    TransactionTemplate readOnlyTt = new TransactionTemplate(tm);
+    readOnlyTt.setReadOnly(true);
+    readOnlyTt.executeWithoutResult(status -> { });
+    tt.executeWithoutResult(status -> assertThat(ReadWriteRoutingContext.isCurrentReadOnly()).isFalse());
+
+    assertThat(tm.isReadWriteRouting()).isFalse();
+    assertThat(readOnlyOnCreation).containsExactly(false, false);
+    assertThat(ReadWriteRoutingContext.hasWrittenWithin(Long.MAX_VALUE)).isFalse();
+  }
+
+  @Test
+  public void testReadWriteRoutingDetectedFromDataSource() {
+    DataSource routingDataSource = new ReadWriteRoutingDataSource(mock(DataSource.class), List.of());
+    tm.setDataSource(routingDataSource);
+    assertThat(tm.isReadWriteRouting()).isTrue();
+
+    tm.setReadWriteRouting(false);
+    assertThat(tm.isReadWriteRouting()).isFalse();
+  }
+
+  @Test
+  public void testTransactionPhasesReported() {
+    TransactionPhaseStatistics statistics = new TransactionPhaseStatistics();
+    tm.setTransactionPhaseListener(statistics);
+
+    tt.executeWithoutResult(status ->
+            EntityManagerFactoryUtils.getTransactionalEntityManager(factory).flush());
+
+    assertThatExceptionOfType(RuntimeException.class).isThrownBy(() ->
+            tt.executeWithoutResult(status -> {
+              throw new RuntimeException("some exception");
+            }));
+
+    String unitName = TransactionPhaseListener.DEFAULT_UNIT_NAME;
+    assertThat(statistics.getStatistics(unitName, TransactionPhase.BEGIN, false).getCount()).isEqualTo(2);
+    assertThat(statistics.getStatistics(unitName, TransactionPhase.COMMIT, false).getCount()).isEqualTo(1);
+    assertThat(statistics.getStatistics(unitName, TransactionPhase.ROLLBACK, false).getCount()).isEqualTo(1);
+    assertThat(statistics.getStatistics(unitName, TransactionPhase.RESOURCE_LIFETIME, false).getCount()).isEqualTo(2);
+    assertThat(statistics.getStatistics(unitName, TransactionPhase.COMMIT, true).getCount()).isZero();
+    verify(tx).commit();
+    verify(manager, times(2)).close();
+  }
+
+  @Test
+  public void testFlushesTimedByDialect() {
+    TransactionPhaseListener listener = mock(TransactionPhaseListener.class);
+    FlushTimer flushTimer = mock(FlushTimer.class);
+    given(flushTimer.getFlushNanos()).willReturn(0L, Long.MAX_VALUE / 2);
+    JpaDialect dialect = mock(JpaDialect.class);
+    given(dialect.startFlushTiming(manager, listener, TransactionPhaseListener.DEFAULT_UNIT_NAME, false))
+            .willReturn(flushTimer);
+    tm.setJpaDialect(dialect);
+    tm.setTransactionPhaseListener(listener);
+
+    tt.executeWithoutResult(TransactionStatus::flush);
+
+    verify(manager).flush();
+    // Flushes are reported by the dialect's timer, and excluded from the commit
+    verify(listener, never()).phaseCompleted(eq(TransactionPhase.FLUSH), any(), anyBoolean(), anyLong(), anyBoolean());
+    ArgumentCaptor<Long> commitNanos = ArgumentCaptor.forClass(Long.class);
+    verify(listener).phaseCompleted(eq(TransactionPhase.COMMIT),
+            eq(TransactionPhaseListener.DEFAULT_UNIT_NAME), eq(false), commitNanos.capture(), eq(true));
+    assertThat(commitNanos.getValue()).isNegative();
+    verify(flushTimer).stop();
+  }
+
+  @Test
+  public void testTransactionPhaseFailureReported() {
+    TransactionPhaseStatistics statistics = new TransactionPhaseStatistics();
+    tm.setTransactionPhaseListener(statistics);
+    tm.setPersistenceUnitName("myUnit");
+    willThrow(new RollbackException()).given(tx).commit();
+
+    assertThatExceptionOfType(TransactionSystemException.class).isThrownBy(() ->
+            tt.executeWithoutResult(status -> { }));
+
+    TransactionPhaseStatistics.PhaseStatistics commit =
+            statistics.getStatistics("myUnit", TransactionPhase.COMMIT, false);
+    assertThat(commit.getCount()).isEqualTo(1);
+    assertThat(commit.getFailureCount()).isEqualTo(1);
+    assertThat(statistics.getStatistics(TransactionPhaseListener.DEFAULT_UNIT_NAME, TransactionPhase.BEGIN, false)).isNull();
+  }
+
   @Test
   public void testTransactionCommitWithRollbackException() {
     given(manager.getTransaction()).willReturn(tx);
@@ -633,6 +775,131 @@ public class JpaTransactionManagerTests {
     verify(tx).commit();
   }
 
+  @Test
+  public void testTransactionCommitWithLazyPreboundReleasingConnection() {
+    JpaDialect dialect = mock(JpaDialect.class);
+    tm.setJpaDialect(dialect);
+    EntityManagerHolder emHolder = new EntityManagerHolder(() -> factory.createEntityManager());
+    emHolder.setReleaseConnectionAfterTransaction(true);
+    TransactionSynchronizationManager.bindResource(factory, emHolder);
+
+    try {
+      assertThat(emHolder.hasEntityManager()).isFalse();
+      tt.executeWithoutResult(status ->
+              assertThat(EntityManagerFactoryUtils.getTransactionalEntityManager(factory)).isSameAs(manager));
+      assertThat(emHolder.hasEntityManager()).isTrue();
+      assertThat(TransactionSynchronizationManager.hasResource(factory)).isTrue();
+    }
+    finally {
+      TransactionSynchronizationManager.unbindResource(factory);
+    }
+
+    verify(factory).createEntityManager();
+    verify(tx).commit();
+    verify(dialect).releaseConnectionAfterTransaction(manager);
+    verify(manager, never()).close();
+  }
+
+  @Test
+  public void testPersistenceContextFlushedAndClearedBeyondGuardThreshold() {
+    JpaDialect dialect = mock(JpaDialect.class);
+    given(dialect.getManagedEntityCount(manager)).willReturn(2, 3, 1);
+    tm.setJpaDialect(dialect);
+    tm.setPersistenceContextGuard(new PersistenceContextGuard(2, PersistenceContextGuard.Action.FLUSH_AND_CLEAR));
+    EntityManager sharedEm = SharedEntityManagerCreator.createSharedEntityManager(factory);
+
+    tt.executeWithoutResult(status -> {
+      sharedEm.persist("a");
+      sharedEm.persist("b");
+      sharedEm.persist("c");
+      sharedEm.persist("d");
+      EntityManagerHolder emHolder = TransactionSynchronizationManager.getResource(factory);
+      assertThat(emHolder.getManagedEntityCount()).isEqualTo(1);
+      assertThat(emHolder.getPeakManagedEntityCount()).isEqualTo(3);
+    });
+
+    verify(manager, times(4)).persist(any());
+    verify(manager).flush();
+    verify(manager).clear();
+    verify(manager).close();
+  }
+
+  @Test
+  public void testManagedEntityCountReportedToListener() {
+    JpaDialect dialect = mock(JpaDialect.class);
+    given(dialect.getManagedEntityCount(manager)).willReturn(2, 3, 1);
+    tm.setJpaDialect(dialect);
+    tm.setPersistenceContextGuard(new PersistenceContextGuard(2, PersistenceContextGuard.Action.FLUSH_AND_CLEAR));
+    TransactionPhaseListener listener = mock(TransactionPhaseListener.class);
+    tm.setTransactionPhaseListener(listener);
+    EntityManager sharedEm = SharedEntityManagerCreator.createSharedEntityManager(factory);
+
+    tt.executeWithoutResult(status -> {
+      sharedEm.persist("a");
+      sharedEm.persist("b");
+      sharedEm.persist("c");
+      sharedEm.persist("d");
+    });
+
+    verify(listener).managedEntitiesCounted(TransactionPhaseListener.DEFAULT_UNIT_NAME, false, 1, 3);
+  }
+
+  @Test
+  public void testManagedEntityCountNotReportedWithoutGuard() {
+    TransactionPhaseListener listener = mock(TransactionPhaseListener.class);
+    tm.setTransactionPhaseListener(listener);
+
+    tt.executeWithoutResult(status -> {
+    });
+
+    verify(listener, never()).managedEntitiesCounted(anyString(), anyBoolean(), anyInt(), anyInt());
+  }
+
+  @Test
+  public void testPersistenceContextGuardFailure() {
+    JpaDialect dialect = mock(JpaDialect.class);
+    given(dialect.getManagedEntityCount(manager)).willReturn(3);
+    tm.setJpaDialect(dialect);
+    tm.setPersistenceContextGuard(new PersistenceContextGuard(2, PersistenceContextGuard.Action.FAIL));
+    EntityManager sharedEm = SharedEntityManagerCreator.createSharedEntityManager(factory);
+
+    assertThatExceptionOfType(DataAccessResourceFailureException.class).isThrownBy(() ->
+            tt.executeWithoutResult(status -> {
+              sharedEm.persist("a");
+              sharedEm.persist("b");
+            }));
+
+    verify(manager, never()).persist(any());
+    verify(manager, never()).clear();
+    verify(dialect).getManagedEntityCount(manager);
+  }
+
+  @Test
+  public void testRetryingExecutorUsesNewEntityManagerPerAttempt() {
+    EntityManager manager2 = mock(EntityManager.class);
+    EntityTransaction tx2 = mock(EntityTransaction.class);
+    given(factory.createEntityManager()).willReturn(manager, manager2);
+    given(manager2.getTransaction()).willReturn(tx2);
+    given(manager2.isOpen()).willReturn(true);
+    willThrow(new RollbackException(new OptimisticLockException())).given(tx).commit();
+    RetryingTransactionExecutor executor = new RetryingTransactionExecutor(tm);
+    executor.setInitialBackoff(Duration.ZERO);
+    List<EntityManager> attempts = new ArrayList<>();
+
+    Object result = executor.execute(status -> {
+      attempts.add(EntityManagerFactoryUtils.getTransactionalEntityManager(factory));
+      return "done";
+    });
+
+    assertThat(result).isEqualTo("done");
+    assertThat(attempts).containsExactly(manager, manager2);
+    verify(manager).close();
+    verify(tx2).commit();
+    verify(manager2).close();
+    assertThat(executor.getRetryCount()).isEqualTo(1);
+    assertThat(executor.getRecoveredCount()).isEqualTo(1);
+  }
+
   @Test
   public void testTransactionRollbackWithPrebound() {
     given(manager.getTransaction()).willReturn(tx);
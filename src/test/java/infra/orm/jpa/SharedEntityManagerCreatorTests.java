@@ -21,12 +21,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.ParameterMode;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.Query;
 import jakarta.persistence.StoredProcedureQuery;
 import jakarta.persistence.TransactionRequiredException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.metamodel.Metamodel;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -34,6 +40,8 @@ import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.withSettings;
@@ -103,6 +111,38 @@ public class SharedEntityManagerCreatorTests {
             em.refresh(new Object()));
   }
 
+  @Test
+  public void criteriaBuilderAndMetamodelFromFactory() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    CriteriaBuilder criteriaBuilder = mock(CriteriaBuilder.class);
+    Metamodel metamodel = mock(Metamodel.class);
+    given(emf.getCriteriaBuilder()).willReturn(criteriaBuilder);
+    given(emf.getMetamodel()).willReturn(metamodel);
+
+    EntityManager em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+    assertThat(em.getCriteriaBuilder()).isSameAs(criteriaBuilder);
+    assertThat(em.getMetamodel()).isSameAs(metamodel);
+    assertThat(em.getEntityManagerFactory()).isSameAs(emf);
+
+    verify(emf).getCriteriaBuilder();
+    verify(emf).getMetamodel();
+    verifyNoMoreInteractions(emf);
+  }
+
+  @Test
+  public void exceptionFromTargetPropagatedAsIs() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    EntityManager targetEm = mock(EntityManager.class);
+    given(emf.createEntityManager()).willReturn(targetEm);
+    given(targetEm.find(Object.class, 1)).willThrow(new IllegalArgumentException("no entity"));
+    given(targetEm.isOpen()).willReturn(true);
+
+    EntityManager em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+    assertThatIllegalArgumentException().isThrownBy(() -> em.find(Object.class, 1))
+            .withMessage("no entity");
+    verify(targetEm).close();
+  }
+
   @Test
   public void deferredQueryWithUpdate() {
     EntityManagerFactory emf = mock(EntityManagerFactory.class);
@@ -167,6 +207,87 @@ public class SharedEntityManagerCreatorTests {
     verify(targetEm).close();
   }
 
+  @Test
+  public void deferredQueryWithResultStreamNotStreamingByDefault() {
+    EntityManagerFactory emf = mock(EntityManagerFactory.class);
+    EntityManager targetEm = mock(EntityManager.class);
+    Query query = mock(Query.class);
+    Stream<Object> resultStream = Stream.of("a", "b");
+    given(emf.createEntityManager()).willReturn(targetEm);
+    given(targetEm.createQuery("x")).willReturn(query);
+    given(query.getResultStream()).willReturn(resultStream);
+    given(targetEm.isOpen()).willReturn(true);
+
+    EntityManager em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+    assertThat(em.createQuery("x").getResultStream()).isSameAs(resultStream);
+    verify(targetEm).close();
+  }
+
+  @Test
+  public void streamingResultClosesEntityManagerOnStreamClose() {
+    EntityManager targetEm = mock(EntityManager.class);
+    given(targetEm.isOpen()).willReturn(true);
+    AtomicBoolean sourceClosed = new AtomicBoolean();
+
+    Stream<?> stream = (Stream<?>) SharedEntityManagerCreator.StreamingQueryResult.decorate(
+            Stream.of("a", "b", "c").onClose(() -> sourceClosed.set(true)), targetEm, getClass().getClassLoader());
+    assertThat(stream.findFirst()).contains("a");
+    verify(targetEm, never()).close();
+
+    stream.close();
+    stream.close();
+    assertThat(sourceClosed).isTrue();
+    verify(targetEm, times(1)).close();
+  }
+
+  @Test
+  public void streamingResultClosesEntityManagerOnExhaustion() {
+    EntityManager targetEm = mock(EntityManager.class);
+    given(targetEm.isOpen()).willReturn(true);
+
+    Stream<?> stream = (Stream<?>) SharedEntityManagerCreator.StreamingQueryResult.decorate(
+            Stream.of("a", "b", "c"), targetEm, getClass().getClassLoader());
+    assertThat(stream.toList()).containsExactly("a", "b", "c");
+
+    verify(targetEm, times(3)).clear();
+    verify(targetEm).close();
+  }
+
+  @Test
+  public void streamingResultClosesEntityManagerOnException() {
+    EntityManager targetEm = mock(EntityManager.class);
+    given(targetEm.isOpen()).willReturn(true);
+
+    Stream<?> stream = (Stream<?>) SharedEntityManagerCreator.StreamingQueryResult.decorate(
+            Stream.of("a", "b").map(row -> {
+              throw new PersistenceException("row");
+            }), targetEm, getClass().getClassLoader());
+    assertThatExceptionOfType(PersistenceException.class).isThrownBy(stream::toList);
+
+    verify(targetEm).close();
+  }
+
+  @Test
+  public void streamingCursorClosesEntityManagerOnClose() throws Exception {
+    EntityManager targetEm = mock(EntityManager.class);
+    given(targetEm.isOpen()).willReturn(true);
+    Cursor cursor = mock(Cursor.class);
+    given(cursor.next()).willReturn(true);
+
+    Cursor proxy = (Cursor) SharedEntityManagerCreator.StreamingQueryResult.decorate(
+            cursor, targetEm, getClass().getClassLoader());
+    assertThat(proxy.next()).isTrue();
+    assertThat(proxy.next()).isTrue();
+    proxy.get();
+    verify(targetEm, times(2)).clear();
+    verify(targetEm, never()).close();
+
+    proxy.close();
+    proxy.close();
+    verify(cursor, times(1)).close();
+    verify(targetEm, times(1)).close();
+  }
+
   @Test
   public void deferredStoredProcedureQueryWithIndexedParameters() {
     EntityManagerFactory emf = mock(EntityManagerFactory.class);
@@ -229,4 +350,11 @@ public class SharedEntityManagerCreatorTests {
     verifyNoMoreInteractions(targetEm);
   }
 
+  interface Cursor extends AutoCloseable {
+
+    boolean next();
+
+    Object get();
+  }
+
 }
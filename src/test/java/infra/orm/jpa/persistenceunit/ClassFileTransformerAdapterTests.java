@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.persistenceunit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.persistence.spi.ClassTransformer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ClassFileTransformerAdapter}.
+ *
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ */
+class ClassFileTransformerAdapterTests {
+
+  private static final byte[] bytes = new byte[] { 1, 2, 3 };
+
+  @Test
+  void jdkAndProviderClassesSkipped() throws Exception {
+    ClassTransformer transformer = mock(ClassTransformer.class);
+    ClassFileTransformerAdapter adapter = new ClassFileTransformerAdapter(transformer, "org.hibernate", null, null);
+
+    assertThat(adapter.transform(null, "java/lang/String", null, null, bytes)).isNull();
+    assertThat(adapter.transform(null, "jakarta/persistence/Entity", null, null, bytes)).isNull();
+    assertThat(adapter.transform(null, "org/hibernate/Session", null, null, bytes)).isNull();
+    verify(transformer, never()).transform(any(), anyString(), any(), any(), any());
+
+    adapter.transform(null, "com/example/Other", null, null, bytes);
+    verify(transformer).transform(null, "com/example/Other", null, null, bytes);
+  }
+
+  @Test
+  void unlistedClassesSkipped() throws Exception {
+    ClassTransformer transformer = mock(ClassTransformer.class);
+    byte[] transformed = new byte[] { 4 };
+    given(transformer.transform(any(), anyString(), any(), any(), any())).willReturn(transformed);
+    ClassFileTransformerAdapter adapter = new ClassFileTransformerAdapter(transformer, null,
+            List.of("com.example.Person", "com.example.Person$Address"), List.of("com.example.model"));
+
+    assertThat(adapter.transform(null, "com/example/Person", null, null, bytes)).isSameAs(transformed);
+    assertThat(adapter.transform(null, "com/example/Person$Address", null, null, bytes)).isSameAs(transformed);
+    assertThat(adapter.transform(null, "com/example/model/Order", null, null, bytes)).isSameAs(transformed);
+    assertThat(adapter.transform(null, "com/example/PersonService", null, null, bytes)).isNull();
+    verify(transformer, never()).transform(any(), eq("com/example/PersonService"), any(), any(), any());
+  }
+
+  @Test
+  void forPersistenceUnitWithListedClasses() {
+    MutablePersistenceUnitInfo unitInfo = new MutablePersistenceUnitInfo();
+    unitInfo.setPersistenceProviderPackageName("org.hibernate");
+    unitInfo.addManagedClassName("com.example.Person");
+    unitInfo.setExcludeUnlistedClasses(true);
+    ClassFileTransformerAdapter adapter =
+            ClassFileTransformerAdapter.forPersistenceUnit(mock(ClassTransformer.class), unitInfo);
+
+    assertThat(adapter.isCandidate("com/example/Person")).isTrue();
+    assertThat(adapter.isCandidate("com/example/PersonService")).isFalse();
+    assertThat(adapter.isCandidate("org/hibernate/Session")).isFalse();
+  }
+
+  @Test
+  void forPersistenceUnitWithMappingFiles() {
+    MutablePersistenceUnitInfo unitInfo = new MutablePersistenceUnitInfo();
+    unitInfo.addManagedClassName("com.example.Person");
+    unitInfo.addMappingFileName("META-INF/orm.xml");
+    unitInfo.setExcludeUnlistedClasses(true);
+    ClassFileTransformerAdapter adapter =
+            ClassFileTransformerAdapter.forPersistenceUnit(mock(ClassTransformer.class), unitInfo);
+
+    assertThat(adapter.isCandidate("com/example/PersonService")).isTrue();
+  }
+
+  @Test
+  void forPersistenceUnitWithExtendedEnhancement() {
+    MutablePersistenceUnitInfo unitInfo = new MutablePersistenceUnitInfo();
+    unitInfo.addManagedClassName("com.example.Person");
+    unitInfo.setExcludeUnlistedClasses(true);
+    unitInfo.addProperty("hibernate.enhancer.enableExtendedEnhancement", "true");
+    ClassFileTransformerAdapter adapter =
+            ClassFileTransformerAdapter.forPersistenceUnit(mock(ClassTransformer.class), unitInfo);
+
+    assertThat(adapter.isCandidate("com/example/PersonService")).isTrue();
+  }
+
+  @Test
+  void reentrantTransformationBacksOut() throws Exception {
+    AtomicReference<ClassFileTransformerAdapter> adapter = new AtomicReference<>();
+    AtomicReference<byte[]> nested = new AtomicReference<>(bytes);
+    ClassTransformer transformer = (loader, className, classBeingRedefined, protectionDomain, classfileBuffer) -> {
+      if (className.equals("com/example/Outer")) {
+        nested.set(adapter.get().transform(loader, "com/example/Inner", null, null, classfileBuffer));
+      }
+      return classfileBuffer;
+    };
+    adapter.set(new ClassFileTransformerAdapter(transformer));
+
+    assertThat(adapter.get().transform(null, "com/example/Outer", null, null, bytes)).isSameAs(bytes);
+    assertThat(nested.get()).isNull();
+    assertThat(adapter.get().transform(null, "com/example/Inner", null, null, bytes)).isSameAs(bytes);
+  }
+
+  @Test
+  void concurrentTransformation() throws Exception {
+    int threads = 4;
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    ClassTransformer transformer = (loader, className, classBeingRedefined, protectionDomain, classfileBuffer) -> {
+      // Only completes if all threads transform at the same time
+      try {
+        barrier.await(10, TimeUnit.SECONDS);
+      }
+      catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+      return classfileBuffer;
+    };
+    ClassFileTransformerAdapter adapter = new ClassFileTransformerAdapter(transformer);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        String className = "com/example/Type" + i;
+        futures.add(executor.submit(() -> adapter.transform(null, className, null, null, bytes)));
+      }
+      for (Future<byte[]> future : futures) {
+        assertThat(future.get(20, TimeUnit.SECONDS)).isSameAs(bytes);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
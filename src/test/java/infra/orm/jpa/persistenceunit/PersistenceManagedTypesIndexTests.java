@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.persistenceunit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import infra.core.io.ClassPathResource;
+import infra.core.io.DefaultResourceLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+class PersistenceManagedTypesIndexTests {
+
+  @Test
+  void loadIndexWithoutResource() {
+    assertThat(PersistenceManagedTypesIndex.loadIndex(new IndexClassLoader(List.of()))).isNull();
+  }
+
+  @Test
+  void getManagedTypesOfPackage() throws IOException {
+    PersistenceManagedTypesIndex index = loadTestIndex();
+    PersistenceManagedTypes managedTypes = index.getManagedTypes("com.example.domain");
+    assertThat(managedTypes.getManagedClassNames()).containsExactly("com.example.domain.Address",
+            "com.example.domain.Person", "com.example.domain.converter.BooleanToStringConverter");
+    assertThat(managedTypes.getManagedPackages()).containsExactly("com.example.domain");
+  }
+
+  @Test
+  void getManagedTypesKeepsPackageOrder() throws IOException {
+    PersistenceManagedTypesIndex index = loadTestIndex();
+    PersistenceManagedTypes managedTypes = index.getManagedTypes("com.example.other", "com.example");
+    assertThat(managedTypes.getManagedClassNames()).containsExactly("com.example.other.Order",
+            "com.example.domain.Address", "com.example.domain.Person",
+            "com.example.domain.converter.BooleanToStringConverter");
+  }
+
+  @Test
+  void getManagedTypesDoesNotMatchPackagePrefix() throws IOException {
+    PersistenceManagedTypesIndex index = loadTestIndex();
+    PersistenceManagedTypes managedTypes = index.getManagedTypes("com.example.dom");
+    assertThat(managedTypes.getManagedClassNames()).isEmpty();
+    assertThat(managedTypes.getManagedPackages()).isEmpty();
+  }
+
+  @Test
+  void scannerUsesIndexIfPresent() throws IOException {
+    DefaultResourceLoader resourceLoader = new DefaultResourceLoader(new IndexClassLoader(
+            List.of(new ClassPathResource("test-today.persistence-types", getClass()).getURL())));
+    PersistenceManagedTypes managedTypes = new PersistenceManagedTypesScanner(resourceLoader).scan("com.example.other");
+    assertThat(managedTypes.getManagedClassNames()).containsExactly("com.example.other.Order");
+    assertThat(managedTypes.getManagedPackages()).isEmpty();
+  }
+
+  private PersistenceManagedTypesIndex loadTestIndex() throws IOException {
+    PersistenceManagedTypesIndex index = PersistenceManagedTypesIndex.loadIndex(new IndexClassLoader(
+            List.of(new ClassPathResource("test-today.persistence-types", getClass()).getURL())));
+    assertThat(index).isNotNull();
+    return index;
+  }
+
+  static class IndexClassLoader extends ClassLoader {
+
+    private final List<URL> indexResources;
+
+    IndexClassLoader(List<URL> indexResources) {
+      super(PersistenceManagedTypesIndexTests.class.getClassLoader());
+      this.indexResources = indexResources;
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+      if (PersistenceManagedTypesIndex.INDEX_LOCATION.equals(name)) {
+        return Collections.enumeration(indexResources);
+      }
+      return super.getResources(name);
+    }
+
+  }
+
+}
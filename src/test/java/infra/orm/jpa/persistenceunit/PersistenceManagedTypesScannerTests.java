@@ -53,6 +53,32 @@ class PersistenceManagedTypesScannerTests {
     assertThat(managedTypes.getManagedPackages()).containsExactlyInAnyOrder("infra.orm.jpa.domain2");
   }
 
+  @Test
+  void scanMultiplePackagesKeepsPackageOrder() {
+    PersistenceManagedTypes managedTypes = this.scanner.scan("infra.orm.jpa.domain2", "infra.orm.jpa.domain");
+    assertThat(managedTypes.getManagedClassNames()).hasSize(5).first().isEqualTo(User.class.getName());
+    assertThat(managedTypes.getManagedClassNames()).contains(Person.class.getName(),
+            DriversLicense.class.getName(), Employee.class.getName(), EmployeeLocationConverter.class.getName());
+    assertThat(managedTypes.getManagedPackages()).containsExactly("infra.orm.jpa.domain2");
+  }
+
+  @Test
+  void scanOverlappingPackagesListsTypesOnce() {
+    PersistenceManagedTypes managedTypes = this.scanner.scan("infra.orm.jpa", "infra.orm.jpa.domain");
+    assertThat(managedTypes.getManagedClassNames()).doesNotHaveDuplicates()
+            .contains(Person.class.getName(), User.class.getName());
+  }
+
+  @Test
+  void scanIsDeterministic() {
+    PersistenceManagedTypes first = this.scanner.scan("infra.orm.jpa", "infra.orm.jpa.domain2");
+    for (int i = 0; i < 5; i++) {
+      PersistenceManagedTypes next = this.scanner.scan("infra.orm.jpa", "infra.orm.jpa.domain2");
+      assertThat(next.getManagedClassNames()).containsExactlyElementsOf(first.getManagedClassNames());
+      assertThat(next.getManagedPackages()).containsExactlyElementsOf(first.getManagedPackages());
+    }
+  }
+
   @Test
   void scanPackageUsesIndexIfPresent() {
     DefaultResourceLoader resourceLoader = new DefaultResourceLoader(
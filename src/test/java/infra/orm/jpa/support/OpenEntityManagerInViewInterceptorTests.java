@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 - 2024 the original author or authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see [https://www.gnu.org/licenses/]
+ */
+
+package infra.orm.jpa.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import infra.orm.jpa.EntityManagerFactoryUtils;
+import infra.orm.jpa.EntityManagerHolder;
+import infra.transaction.support.TransactionSynchronizationManager;
+import infra.web.InterceptorChain;
+import infra.web.RequestContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author <a href="https://github.com/TAKETODAY">Harry Yang</a>
+ * @since 5.0
+ */
+class OpenEntityManagerInViewInterceptorTests {
+
+  private final EntityManagerFactory factory = mock(EntityManagerFactory.class);
+
+  private final EntityManager manager = mock(EntityManager.class);
+
+  private final RequestContext request = mock(RequestContext.class);
+
+  private final InterceptorChain chain = mock(InterceptorChain.class);
+
+  private final OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+
+  @BeforeEach
+  void setup() {
+    given(factory.createEntityManager()).willReturn(manager);
+    interceptor.setEntityManagerFactory(factory);
+  }
+
+  @AfterEach
+  void verifyNoResourcesBound() {
+    assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+  }
+
+  @Test
+  void requestWithoutJpaAccessCreatesNoEntityManager() throws Throwable {
+    given(chain.proceed(request)).willAnswer(invocation -> {
+      assertThat(TransactionSynchronizationManager.hasResource(factory)).isTrue();
+      return "result";
+    });
+
+    assertThat(interceptor.intercept(request, chain)).isEqualTo("result");
+
+    verify(factory, never()).createEntityManager();
+  }
+
+  @Test
+  void entityManagerCreatedOnFirstAccessAndClosedAfterRequest() throws Throwable {
+    given(manager.isOpen()).willReturn(true);
+    given(chain.proceed(request)).willAnswer(invocation -> {
+      EntityManagerHolder emHolder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(factory);
+      assertThat(emHolder.isReleaseConnectionAfterTransaction()).isTrue();
+      assertThat(EntityManagerFactoryUtils.doGetTransactionalEntityManager(factory, null)).isSameAs(manager);
+      assertThat(EntityManagerFactoryUtils.doGetTransactionalEntityManager(factory, null)).isSameAs(manager);
+      return null;
+    });
+
+    interceptor.intercept(request, chain);
+
+    verify(factory).createEntityManager();
+    verify(manager).close();
+  }
+
+  @Test
+  void entityManagerClosedAfterFailedRequest() throws Throwable {
+    given(manager.isOpen()).willReturn(true);
+    given(chain.proceed(request)).willAnswer(invocation -> {
+      EntityManagerFactoryUtils.doGetTransactionalEntityManager(factory, null);
+      throw new IllegalStateException("failure");
+    });
+
+    assertThatIllegalStateException().isThrownBy(() -> interceptor.intercept(request, chain));
+
+    verify(manager).close();
+  }
+
+  @Test
+  void participatesInPreboundEntityManager() throws Throwable {
+    EntityManagerHolder emHolder = new EntityManagerHolder(manager);
+    TransactionSynchronizationManager.bindResource(factory, emHolder);
+    try {
+      given(chain.proceed(request)).willAnswer(invocation -> {
+        assertThat(TransactionSynchronizationManager.getResource(factory)).isSameAs(emHolder);
+        return null;
+      });
+
+      interceptor.intercept(request, chain);
+
+      assertThat(TransactionSynchronizationManager.getResource(factory)).isSameAs(emHolder);
+      verify(manager, never()).close();
+    }
+    finally {
+      TransactionSynchronizationManager.unbindResource(factory);
+    }
+  }
+
+}